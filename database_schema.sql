@@ -17,7 +17,8 @@ CREATE TABLE address (
     state VARCHAR(50) NOT NULL,
     postalCode VARCHAR(10) NOT NULL,
     country VARCHAR(50) DEFAULT 'Malaysia',
-    createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    lastModified TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
 -- 2. Patient table (with Person fields distributed)
@@ -35,6 +36,7 @@ CREATE TABLE patient (
     emergencyContact VARCHAR(20) NOT NULL,
     isActive BOOLEAN DEFAULT TRUE,
     createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    lastModified TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (addressId) REFERENCES address(addressId) ON DELETE SET NULL
 );
 
@@ -52,6 +54,7 @@ CREATE TABLE doctor (
     expYears INT NOT NULL,
     isAvailable BOOLEAN DEFAULT TRUE,
     createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    lastModified TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (addressId) REFERENCES address(addressId) ON DELETE SET NULL
 );
 
@@ -83,6 +86,7 @@ CREATE TABLE consultation (
     consultationFee DECIMAL(10,2) NOT NULL,
     paymentStatus ENUM('PAID', 'PENDING', 'CANCELLED') DEFAULT 'PENDING',
     createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    lastModified TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (patientId) REFERENCES patient(patientId) ON DELETE CASCADE,
     FOREIGN KEY (doctorId) REFERENCES doctor(doctorId) ON DELETE CASCADE
 );
@@ -103,6 +107,7 @@ CREATE TABLE medical_treatment (
     treatmentCost DECIMAL(10,2) NOT NULL,
     paymentStatus ENUM('PAID', 'PENDING', 'CANCELLED') DEFAULT 'PENDING',
     createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    lastModified TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (patientId) REFERENCES patient(patientId) ON DELETE CASCADE,
     FOREIGN KEY (doctorId) REFERENCES doctor(doctorId) ON DELETE CASCADE,
     FOREIGN KEY (consultationId) REFERENCES consultation(consultationId) ON DELETE SET NULL
@@ -124,7 +129,8 @@ CREATE TABLE medicine (
     storageLocation VARCHAR(100),
     requiresPrescription BOOLEAN DEFAULT TRUE,
     status ENUM('AVAILABLE', 'LOW_STOCK', 'OUT_OF_STOCK', 'DISCONTINUED') DEFAULT 'AVAILABLE',
-    createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    lastModified TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
 -- 8. Prescription table
@@ -140,6 +146,7 @@ CREATE TABLE prescription (
     totalCost DECIMAL(10,2) DEFAULT 0.00,
     paymentStatus ENUM('PAID', 'PENDING', 'CANCELLED') DEFAULT 'PENDING',
     createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    lastModified TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (patientId) REFERENCES patient(patientId) ON DELETE CASCADE,
     FOREIGN KEY (doctorId) REFERENCES doctor(doctorId) ON DELETE CASCADE,
     FOREIGN KEY (consultationId) REFERENCES consultation(consultationId) ON DELETE SET NULL
@@ -157,6 +164,7 @@ CREATE TABLE prescribed_medicine (
     unitPrice DECIMAL(10,2) NOT NULL,
     totalCost DECIMAL(10,2) DEFAULT 0.00,
     createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    lastModified TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (prescriptionId) REFERENCES prescription(prescriptionId) ON DELETE CASCADE,
     FOREIGN KEY (medicineId) REFERENCES medicine(medicineId) ON DELETE CASCADE
 );
@@ -177,6 +185,14 @@ CREATE INDEX idx_prescription_doctor ON prescription(doctorId);
 CREATE INDEX idx_prescribed_medicine_prescription ON prescribed_medicine(prescriptionId);
 CREATE INDEX idx_prescribed_medicine_medicine ON prescribed_medicine(medicineId);
 CREATE INDEX idx_schedule_doctor ON schedule(doctorId);
+CREATE INDEX idx_address_last_modified ON address(lastModified);
+CREATE INDEX idx_patient_last_modified ON patient(lastModified);
+CREATE INDEX idx_doctor_last_modified ON doctor(lastModified);
+CREATE INDEX idx_consultation_last_modified ON consultation(lastModified);
+CREATE INDEX idx_medical_treatment_last_modified ON medical_treatment(lastModified);
+CREATE INDEX idx_medicine_last_modified ON medicine(lastModified);
+CREATE INDEX idx_prescription_last_modified ON prescription(lastModified);
+CREATE INDEX idx_prescribed_medicine_last_modified ON prescribed_medicine(lastModified);
 
 -- Create sequence tables for ID generation (no initialization needed)
 CREATE TABLE address_seq (id INT AUTO_INCREMENT PRIMARY KEY);
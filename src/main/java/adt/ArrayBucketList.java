@@ -1,7 +1,11 @@
 package adt;
 
 import java.io.Serializable;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * ArrayBucketList - A custom ADT that combines ArrayList and LinkedList
@@ -11,12 +15,24 @@ import java.util.Iterator;
  */
 public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Serializable, Iterable<V> {
     private LinkedList[] buckets;
-    private LinkedList queueData;
+    private RingBufferQueue<K, V> queueData; // created on first addToQueue
     private int numberOfEntries;
     private int bucketCount;
     private static final int DEFAULT_BUCKET_COUNT = 1 << 4;
     private static final double LOAD_FACTOR_THRESHOLD = 0.75;
-    private HashFunction<K> hashFunction;
+    private static final int MIGRATION_STEP = 1 << 2;
+    private HashFunction<? super K> hashFunction;
+    // Incremental resize state: while previousBuckets is non-null, buckets
+    // [migrationIndex, previousBucketCount) of the old table still hold entries
+    private boolean incrementalResize;
+    private LinkedList[] previousBuckets;
+    private int previousBucketCount;
+    private int migrationIndex;
+    // One bit per bucket of the current table, set while the bucket holds entries,
+    // so full scans skip empty buckets 64 at a time
+    private long[] occupancy;
+    // Incremented on every structural change; iterators fail fast when it moves
+    private int modCount;
 
     /**
      * Default constructor with 16 buckets
@@ -31,15 +47,7 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
      * @param bucketCount number of buckets in the array
      */
     public ArrayBucketList(int bucketCount) {
-        this.bucketCount = bucketCount;
-        this.numberOfEntries = 0;
-        this.buckets = (LinkedList[]) new ArrayBucketList<?, ?>.LinkedList[bucketCount];
-        this.queueData = new LinkedList();
-        this.hashFunction = this::defaultHashEntity;
-
-        for (int bucketIndex = 0; bucketIndex < bucketCount; bucketIndex++) {
-            buckets[bucketIndex] = new LinkedList();
-        }
+        this(bucketCount, null, false);
     }
 
     /**
@@ -48,48 +56,56 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
      * @param bucketCount number of buckets in the array
      * @param hashFunction custom hash function to compute bucket index
      */
-    public ArrayBucketList(int bucketCount, HashFunction<K> hashFunction) {
+    public ArrayBucketList(int bucketCount, HashFunction<? super K> hashFunction) {
+        this(bucketCount, hashFunction, false);
+    }
+
+    /**
+     * Constructor with specified bucket count, custom hash function and resize mode
+     *
+     * @param bucketCount       number of buckets in the array
+     * @param hashFunction      custom hash function to compute bucket index
+     * @param incrementalResize when true, a resize keeps the old table and migrates a
+     *                          few buckets on every add/getValue/contains/remove
+     *                          instead of rehashing everything at once
+     */
+    public ArrayBucketList(int bucketCount, HashFunction<? super K> hashFunction, boolean incrementalResize) {
         this.bucketCount = bucketCount;
         this.numberOfEntries = 0;
-        this.buckets = (LinkedList[]) new ArrayBucketList<?, ?>.LinkedList[bucketCount];
-        this.queueData = new LinkedList();
-        this.hashFunction = (hashFunction != null) ? hashFunction : this::defaultHashEntity;
-
-        for (int bucketIndex = 0; bucketIndex < bucketCount; bucketIndex++) {
-            buckets[bucketIndex] = new LinkedList();
-        }
+        this.buckets = newBucketArray(bucketCount);
+        this.occupancy = newOccupancyBits(bucketCount);
+        this.hashFunction = (hashFunction != null) ? hashFunction : DEFAULT_HASH_FUNCTION;
+        this.incrementalResize = incrementalResize;
     }
 
     /**
      * Returns the current number of elements in the queue.
      *
-     * This method safely checks if the queue's internal data structure (queueData)
-     * is initialized
-     * before attempting to access its size. This prevents a NullPointerException if
-     * the queue has not
-     * been instantiated.
-     *
-     * @return The number of elements in the queue, or 0 if the queue is not
-     *         initialized.
+     * @return The number of elements in the queue
      */
     public int getQueueSize() {
-        return queueData != null ? queueData.size : 0;
+        return queueData != null ? queueData.getSize() : 0;
+    }
+
+    /**
+     * Full 32-bit hash of a key. Computed once per operation and cached in the
+     * node, so resizing never calls the HashFunction again.
+     */
+    private int hashOf(K key) {
+        return (key == null) ? 0 : hashFunction.fullHash(key);
     }
 
     /**
-     * Hash function (moved from HashUtility)
+     * Bucket index of a full hash for the given table size
      */
-    private int hashEntity(K key, int bucketCount) {
-        return (hashFunction != null) ? hashFunction.hash(key, bucketCount) : defaultHashEntity(key, bucketCount);
+    private int indexFor(int hash, int bucketCount) {
+        return hashFunction.bucketIndex(hash, bucketCount);
     }
 
     /**
      * Default hash implementation used when no custom function is provided
      */
-    private int defaultHashEntity(K key, int bucketCount) {
-        if (key == null) {
-            return 0;
-        }
+    private static final HashFunction<Object> DEFAULT_HASH_FUNCTION = key -> {
         String keyStr = key.toString();
         int hash = 0;
         for (int i = 0; i < keyStr.length(); i++) {
@@ -98,15 +114,46 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
         hash ^= (hash >>> 16);
         hash *= 0x85ebca6b;
         hash ^= (hash >>> 13);
-        return Math.abs(hash) % bucketCount;
-    }
+        return hash;
+    };
 
     /**
-     * Functional interface for custom hash functions
+     * Functional interface for custom hash functions. Hashing is split into
+     * two steps: fullHash() reduces a key to a table-independent 32-bit value
+     * that ArrayBucketList caches per entry, and bucketIndex() maps that value
+     * onto a table of a given size.
      */
     @FunctionalInterface
     public interface HashFunction<T> {
-        int hash(T key, int bucketCount);
+        /**
+         * Computes the full hash of a key. Equal keys must produce equal hashes.
+         *
+         * @param key non-null key
+         * @return 32-bit hash, independent of the bucket count
+         */
+        int fullHash(T key);
+
+        /**
+         * Maps a full hash onto a bucket
+         *
+         * @param fullHash    value returned by fullHash()
+         * @param bucketCount number of buckets in the table
+         * @return bucket index in [0, bucketCount)
+         */
+        default int bucketIndex(int fullHash, int bucketCount) {
+            return Math.floorMod(fullHash, Math.max(1, bucketCount));
+        }
+
+        /**
+         * Computes the bucket index of a key in one step
+         *
+         * @param key         key to hash (null maps to bucket 0)
+         * @param bucketCount number of buckets in the table
+         * @return bucket index in [0, bucketCount)
+         */
+        default int hash(T key, int bucketCount) {
+            return (key == null) ? 0 : bucketIndex(fullHash(key), bucketCount);
+        }
     }
 
     /**
@@ -122,16 +169,19 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
         if (key == null || value == null) {
             return null;
         }
-        int bucketIndex = hashEntity(key, bucketCount);
-        LinkedList bucket = buckets[bucketIndex];
-        Node node = bucket.getNodeByKey(key);
+        migrateBuckets();
+        int hash = hashOf(key);
+        Node node = findNode(key, hash);
         if (node != null) {
             V oldValue = node.getValue();
             node.setValue(value);
             return oldValue;
         } else {
-            bucket.add(key, value);
+            int bucketIndex = indexFor(hash, bucketCount);
+            bucketAt(bucketIndex).add(key, value, hash);
+            markOccupied(bucketIndex);
             numberOfEntries++;
+            modCount++;
             if (isFull()) {
                 resizeBuckets();
             }
@@ -143,6 +193,7 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
      * Adds a key-value pair to the queue if it is valid and not already present.
      * - Ignores insertion if the key or value is null.
      * - Prevents duplicate entries by checking if the key already exists.
+     * Runs in O(1); the queue has no size limit.
      *
      * @param key   the unique identifier (e.g., patient ID)
      * @param value the object associated with the key (e.g., patient record)
@@ -151,11 +202,10 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
         if (key == null || value == null) {
             return;
         }
-        // Avoid duplicate entries with same key in the queue
-        if (queueData.getNodeByKey(key) != null) {
-            return;
+        if (queueData == null) {
+            queueData = new RingBufferQueue<>();
         }
-        queueData.add(key, value);
+        queueData.enqueue(key, value);
     }
 
     /**
@@ -165,10 +215,17 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
      * @return true if the key exists, false otherwise
      */
     public boolean queueContains(K key) {
-        if (queueData == null || key == null) {
-            return false;
-        }
-        return queueData.getNodeByKey(key) != null;
+        return queueData != null && queueData.contains(key);
+    }
+
+    /**
+     * Removes an entry from anywhere in the queue, keeping the order of the rest.
+     *
+     * @param key the unique identifier of the entry to remove
+     * @return the removed value, or null if the key is not queued
+     */
+    public V removeFromQueue(K key) {
+        return queueData != null ? queueData.remove(key) : null;
     }
 
     /**
@@ -180,32 +237,37 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
      */
     @Override
     public V remove(K key) {
-        int bucketIndex = hashEntity(key, bucketCount);
-        LinkedList bucket = buckets[bucketIndex];
-        Node node = bucket.getNodeByKey(key);
+        migrateBuckets();
+        int hash = hashOf(key);
+        Node node = null;
+        if (previousBuckets != null) {
+            int oldBucketIndex = indexFor(hash, previousBucketCount);
+            if (oldBucketIndex >= migrationIndex && previousBuckets[oldBucketIndex] != null) {
+                node = previousBuckets[oldBucketIndex].remove(key, hash);
+            }
+        }
+        if (node == null) {
+            int bucketIndex = indexFor(hash, bucketCount);
+            LinkedList bucket = buckets[bucketIndex];
+            node = (bucket != null) ? bucket.remove(key, hash) : null;
+            if (node != null && bucket.isEmpty()) {
+                markVacant(bucketIndex);
+            }
+        }
         if (node != null) {
-            V value = node.getValue();
-            bucket.remove(key);
             numberOfEntries--;
-            return value;
+            modCount++;
+            return node.getValue();
         }
         return null;
     }
 
     public V removeFront() {
-        if (queueData.isEmpty()) {
-            return null;
-        }
-        V value = queueData.head.getValue();
-        queueData.remove(queueData.head.getKey());
-        return value;
+        return queueData != null ? queueData.dequeue() : null;
     }
 
     public V peekFront() {
-        if (queueData.isEmpty()) {
-            return null;
-        }
-        return queueData.head.getValue();
+        return queueData != null ? queueData.peek() : null;
     }
 
     /**
@@ -217,38 +279,31 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
      */
     @Override
     public V getValue(K key) {
-        int bucketIndex = hashEntity(key, bucketCount);
-        LinkedList bucket = buckets[bucketIndex];
-        Node node = bucket.getNodeByKey(key);
+        migrateBuckets();
+        Node node = findNode(key, hashOf(key));
         return node != null ? node.getValue() : null;
     }
 
     /**
-     * Returns a new ArrayBucketList containing all entries from the same hashed
-     * bucket whose String keys start with the given prefix (case-insensitive).
-     * If the provided key is not a String, or prefix is null/empty, returns an empty list.
+     * Locates the node for a key, looking in the old table first when its bucket
+     * has not been migrated yet
+     *
+     * @param key  key to search for
+     * @param hash full hash of the key
+     * @return Node if found, else null
      */
-    public ArrayBucketList<K, V> getByStringKeyPrefix(String prefix) {
-        ArrayBucketList<K, V> matches = new ArrayBucketList<>(4, this.hashFunction);
-        if (prefix == null) {
-            return matches;
-        }
-        String normalizedPrefix = prefix.trim().toLowerCase();
-        if (normalizedPrefix.isEmpty()) {
-            return matches;
-        }
-        int bucketIndex = hashEntity((K) prefix, bucketCount);
-        LinkedList bucket = buckets[bucketIndex];
-        for (Node node : bucket) {
-            Object keyObj = node.getKey();
-            if (keyObj instanceof String) {
-                String keyStr = ((String) keyObj).toLowerCase();
-                if (keyStr.startsWith(normalizedPrefix)) {
-                    matches.add((K) node.getKey(), (V) node.getValue());
+    private Node findNode(K key, int hash) {
+        if (previousBuckets != null) {
+            int oldBucketIndex = indexFor(hash, previousBucketCount);
+            if (oldBucketIndex >= migrationIndex && previousBuckets[oldBucketIndex] != null) {
+                Node node = previousBuckets[oldBucketIndex].getNodeByKey(key, hash);
+                if (node != null) {
+                    return node;
                 }
             }
         }
-        return matches;
+        LinkedList bucket = buckets[indexFor(hash, bucketCount)];
+        return (bucket != null) ? bucket.getNodeByKey(key, hash) : null;
     }
 
     /**
@@ -259,9 +314,8 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
      */
     @Override
     public boolean contains(K key) {
-        int bucketIndex = hashEntity(key, bucketCount);
-        LinkedList bucket = buckets[bucketIndex];
-        return bucket.getNodeByKey(key) != null;
+        migrateBuckets();
+        return findNode(key, hashOf(key)) != null;
     }
 
     /**
@@ -300,9 +354,16 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
     @Override
     public void clear() {
         for (int index = 0; index < bucketCount; index++) {
-            buckets[index].clear();
+            buckets[index] = null;
+        }
+        for (int word = 0; word < occupancy.length; word++) {
+            occupancy[word] = 0L;
         }
+        previousBuckets = null;
+        previousBucketCount = 0;
+        migrationIndex = 0;
         numberOfEntries = 0;
+        modCount++;
     }
 
     /**
@@ -315,28 +376,157 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
     }
 
     /**
-     * Resize buckets by doubling the array size
+     * Resize buckets by doubling the array size. Existing nodes are moved into
+     * the new table rather than re-added. In incremental mode the old table is
+     * kept and drained a few buckets at a time by migrateBuckets().
      */
     private void resizeBuckets() {
+        completeMigration();
         int oldBucketCount = bucketCount;
-        int newBucketCount = oldBucketCount * 2;
         LinkedList[] oldBuckets = buckets;
 
-        buckets = (LinkedList[]) new ArrayBucketList<?, ?>.LinkedList[newBucketCount];
-        for (int bucketIndex = 0; bucketIndex < newBucketCount; bucketIndex++) {
-            buckets[bucketIndex] = new LinkedList();
+        bucketCount = oldBucketCount * 2;
+        buckets = newBucketArray(bucketCount);
+        occupancy = newOccupancyBits(bucketCount);
+        modCount++;
+
+        if (incrementalResize) {
+            previousBuckets = oldBuckets;
+            previousBucketCount = oldBucketCount;
+            migrationIndex = 0;
+        } else {
+            for (LinkedList oldBucket : oldBuckets) {
+                moveBucket(oldBucket);
+            }
         }
+    }
 
-        bucketCount = newBucketCount; // ensure rehashing uses the new size
-        numberOfEntries = 0;
+    /**
+     * Moves up to MIGRATION_STEP non-empty buckets from the old table into the
+     * new one, so the cost of a resize is spread over later operations
+     */
+    private void migrateBuckets() {
+        if (previousBuckets == null) {
+            return;
+        }
+        int movedBuckets = 0;
+        int visitedBuckets = 0;
+        // Bound the number of empty buckets skipped so a sparse table cannot stall one call
+        while (migrationIndex < previousBucketCount
+                && movedBuckets < MIGRATION_STEP && visitedBuckets < MIGRATION_STEP * 10) {
+            LinkedList oldBucket = previousBuckets[migrationIndex++];
+            visitedBuckets++;
+            if (oldBucket != null && !oldBucket.isEmpty()) {
+                moveBucket(oldBucket);
+                movedBuckets++;
+            }
+        }
+        if (migrationIndex >= previousBucketCount) {
+            previousBuckets = null;
+            previousBucketCount = 0;
+            migrationIndex = 0;
+        }
+    }
+
+    /**
+     * Finishes any in-progress incremental resize
+     */
+    private void completeMigration() {
+        if (previousBuckets == null) {
+            return;
+        }
+        while (migrationIndex < previousBucketCount) {
+            moveBucket(previousBuckets[migrationIndex++]);
+        }
+        previousBuckets = null;
+        previousBucketCount = 0;
+        migrationIndex = 0;
+    }
 
-        for (LinkedList oldBucket : oldBuckets) {
-            for (Node node : oldBucket) {
-                this.add((K) node.getKey(), (V) node.getValue());
+    /**
+     * Relinks every node of a bucket into its bucket in the current table,
+     * using the cached hash of each node
+     */
+    private void moveBucket(LinkedList source) {
+        if (source == null) {
+            return;
+        }
+        int remaining = source.size;
+        Node node = source.head;
+        source.clear();
+        while (remaining-- > 0) {
+            Node next = node.getNext();
+            int bucketIndex = indexFor(node.getHash(), bucketCount);
+            bucketAt(bucketIndex).addNode(node);
+            markOccupied(bucketIndex);
+            node = next;
+        }
+    }
+
+    /**
+     * Bucket slots start out null and a LinkedList is only created when the
+     * first node lands in it, so allocating a table is a single array allocation
+     */
+    private LinkedList[] newBucketArray(int count) {
+        return (LinkedList[]) new ArrayBucketList<?, ?>.LinkedList[count];
+    }
+
+    private static long[] newOccupancyBits(int count) {
+        return new long[(count + 63) >>> 6];
+    }
+
+    private void markOccupied(int bucketIndex) {
+        occupancy[bucketIndex >>> 6] |= 1L << bucketIndex;
+    }
+
+    private void markVacant(int bucketIndex) {
+        occupancy[bucketIndex >>> 6] &= ~(1L << bucketIndex);
+    }
+
+    /**
+     * Finds the first non-empty bucket of the current table in [from, to)
+     *
+     * @return its index, or to if every bucket in the range is empty
+     */
+    private int nextOccupiedBucket(int from, int to) {
+        if (from >= to) {
+            return to;
+        }
+        int word = from >>> 6;
+        long bits = occupancy[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                int bucketIndex = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return Math.min(bucketIndex, to);
+            }
+            if (++word >= occupancy.length || (word << 6) >= to) {
+                return to;
             }
+            bits = occupancy[word];
         }
     }
 
+    /**
+     * Counts the entries held by buckets [from, to) of the current table
+     */
+    private long countEntries(int from, int to) {
+        long count = 0;
+        for (int bucketIndex = nextOccupiedBucket(from, to); bucketIndex < to;
+                bucketIndex = nextOccupiedBucket(bucketIndex + 1, to)) {
+            count += buckets[bucketIndex].size;
+        }
+        return count;
+    }
+
+    private LinkedList bucketAt(int bucketIndex) {
+        LinkedList bucket = buckets[bucketIndex];
+        if (bucket == null) {
+            bucket = new LinkedList();
+            buckets[bucketIndex] = bucket;
+        }
+        return bucket;
+    }
+
     /**
      * String representation of the bucket list
      * 
@@ -344,12 +534,13 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
      */
     @Override
     public String toString() {
+        completeMigration();
         StringBuilder outputStr = new StringBuilder();
         outputStr.append("ArrayBucketList with ").append(numberOfEntries)
                 .append(" entries in ").append(bucketCount).append(" buckets:\n");
         for (int index = 0; index < bucketCount; index++) {
             outputStr.append("Bucket ").append(index).append(": ");
-            outputStr.append(buckets[index].toString()).append("\n");
+            outputStr.append(buckets[index] != null ? buckets[index].toString() : "[]").append("\n");
         }
         return outputStr.toString();
     }
@@ -369,21 +560,74 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
      */
     @Override
     public Iterator<V> iterator() {
+        // A full scan costs O(buckets) anyway, so finishing a pending migration here is free
+        // and keeps later lookups from moving nodes underneath the iterator
+        completeMigration();
         return new BucketListIterator();
     }
 
     /**
-     * Iterator for the main bucket list (sequential access)
+     * Performs the given action on every key-value pair without creating an
+     * iterator. Throws ConcurrentModificationException if the action adds or
+     * removes entries.
+     *
+     * @param action the action to perform on each entry
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        completeMigration();
+        int expectedModCount = modCount;
+        for (int bucketIndex = nextOccupiedBucket(0, bucketCount); bucketIndex < bucketCount;
+                bucketIndex = nextOccupiedBucket(bucketIndex + 1, bucketCount)) {
+            Node head = buckets[bucketIndex].head;
+            Node node = head;
+            do {
+                action.accept(node.getKey(), node.getValue());
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                node = node.getNext();
+            } while (node != head);
+        }
+    }
+
+    /**
+     * Performs the given action on every value without creating an iterator.
+     *
+     * @param action the action to perform on each value
+     */
+    @Override
+    public void forEach(Consumer<? super V> action) {
+        forEach((key, value) -> action.accept(value));
+    }
+
+    /**
+     * Spliterator over the values, splitting by bucket ranges. Every split
+     * knows its exact entry count, so it reports SIZED and SUBSIZED and suits
+     * StreamSupport.stream(list.spliterator(), true).
+     *
+     * @return spliterator for all values
+     */
+    @Override
+    public Spliterator<V> spliterator() {
+        completeMigration();
+        return new BucketListSpliterator(0, bucketCount, numberOfEntries, modCount);
+    }
+
+    /**
+     * Iterator for the main bucket list (sequential access). Fails fast if the
+     * list is structurally modified other than through this iterator.
      */
     private class BucketListIterator implements Iterator<V> {
         private int currentBucketIndex;
         private Node currentNode;
         private Node bucketHead;
+        private int expectedModCount;
 
         public BucketListIterator() {
             currentBucketIndex = 0;
             currentNode = null;
             bucketHead = null;
+            expectedModCount = modCount;
             findNextNode();
         }
 
@@ -394,6 +638,9 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
 
         @Override
         public V next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
             if (!hasNext()) {
                 throw new java.util.NoSuchElementException("No more elements in the bucket list");
             }
@@ -411,18 +658,92 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
         }
 
         private void findNextNode() {
-            while (currentBucketIndex < bucketCount) {
-                LinkedList bucket = buckets[currentBucketIndex];
-                if (!bucket.isEmpty()) {
-                    currentNode = bucket.head;
-                    bucketHead = bucket.head;
-                    return;
+            currentBucketIndex = nextOccupiedBucket(currentBucketIndex, bucketCount);
+            if (currentBucketIndex < bucketCount) {
+                currentNode = buckets[currentBucketIndex].head;
+                bucketHead = currentNode;
+            } else {
+                currentNode = null;
+                bucketHead = null;
+            }
+        }
+    }
+
+    private class BucketListSpliterator implements Spliterator<V> {
+        private int nextBucketIndex;
+        private int fence;
+        private long remaining;
+        private Node currentNode;
+        private Node bucketHead;
+        private final int expectedModCount;
+
+        public BucketListSpliterator(int origin, int fence, long remaining, int expectedModCount) {
+            this.nextBucketIndex = origin;
+            this.fence = fence;
+            this.remaining = remaining;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (currentNode == null) {
+                int bucketIndex = nextOccupiedBucket(nextBucketIndex, fence);
+                if (bucketIndex >= fence) {
+                    nextBucketIndex = fence;
+                    return false;
+                }
+                currentNode = buckets[bucketIndex].head;
+                bucketHead = currentNode;
+                nextBucketIndex = bucketIndex + 1;
+            }
+            V data = currentNode.getValue();
+            currentNode = currentNode.getNext();
+            if (currentNode == bucketHead) {
+                currentNode = null;
+            }
+            remaining--;
+            action.accept(data);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return true;
+        }
+
+        /**
+         * Hands the lower part of the remaining bucket range to a new
+         * spliterator, narrowing past empty halves so the split is never empty
+         */
+        @Override
+        public Spliterator<V> trySplit() {
+            if (currentNode != null) {
+                return null; // part-way through a bucket
+            }
+            while (fence - nextBucketIndex > 1) {
+                int middle = (nextBucketIndex + fence) >>> 1;
+                long lowerCount = countEntries(nextBucketIndex, middle);
+                if (lowerCount == 0) {
+                    nextBucketIndex = middle;
+                } else if (lowerCount == remaining) {
+                    fence = middle;
                 } else {
-                    currentBucketIndex++;
+                    Spliterator<V> lower = new BucketListSpliterator(nextBucketIndex, middle, lowerCount,
+                            expectedModCount);
+                    nextBucketIndex = middle;
+                    remaining -= lowerCount;
+                    return lower;
                 }
             }
-            currentNode = null;
-            bucketHead = null;
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
         }
     }
 
@@ -434,28 +755,41 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
      */
     @SuppressWarnings("unchecked")
     public V[] toArray(Class<V> arrayClass) {
+        completeMigration();
         V[] array = (V[]) java.lang.reflect.Array.newInstance(arrayClass, numberOfEntries);
         int index = 0;
-        Iterator<V> iterator = this.iterator();
-        while (iterator.hasNext() && index < numberOfEntries) {
-            array[index++] = iterator.next();
+        for (int bucketIndex = nextOccupiedBucket(0, bucketCount); bucketIndex < bucketCount;
+                bucketIndex = nextOccupiedBucket(bucketIndex + 1, bucketCount)) {
+            Node head = buckets[bucketIndex].head;
+            Node node = head;
+            do {
+                array[index++] = node.getValue();
+                node = node.getNext();
+            } while (node != head);
         }
         return array;
     }
 
     /**
-     * Inner LinkedList class for bucket implementation
+     * Inner LinkedList class for bucket implementation.
+     * A bucket has no size limit. Once its chain grows past TREEIFY_THRESHOLD
+     * nodes it also builds a balanced (AVL) tree over the same nodes, so key
+     * lookups stay O(log n) under heavy collisions. The circular list is kept
+     * for iteration order and is the source of truth for the bucket contents.
      */
-    private class LinkedList implements Iterable<Node> {
+    private class LinkedList {
         private Node head;
         private Node tail;
         private int size;
-        private static final int MAX_SIZE = 1 << 4;
+        private TreeEntry root;
+        private static final int TREEIFY_THRESHOLD = 1 << 3;
+        private static final int UNTREEIFY_THRESHOLD = 6;
 
         public LinkedList() {
             head = null;
             tail = null;
             size = 0;
+            root = null;
         }
 
         /**
@@ -463,76 +797,96 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
          * 
          * @param key   key to add
          * @param value value to add
+         * @param hash  full hash of the key
          */
-        public void add(K key, V value) {
+        public void add(K key, V value, int hash) {
             if (key == null || value == null) {
                 return;
             }
-            Node newNode = new Node(key, value);
+            addNode(new Node(key, value, hash));
+        }
+
+        /**
+         * Link an existing node at the tail of the linked list
+         *
+         * @param newNode node to link
+         */
+        public void addNode(Node newNode) {
             if (head == null) {
                 head = newNode;
                 tail = newNode;
                 head.setNext(head);
                 head.setPrevious(head);
-            } else if (size < MAX_SIZE) {
+            } else {
                 newNode.setPrevious(tail);
                 newNode.setNext(head);
                 tail.setNext(newNode);
                 head.setPrevious(newNode);
                 tail = newNode;
-            } else {
-                throw new IllegalStateException("Linked list is at max size");
             }
             size++;
+            if (root != null) {
+                root = insertIntoTree(root, newNode);
+            } else if (size > TREEIFY_THRESHOLD) {
+                treeify();
+            }
         }
 
         /**
          * Remove by key from the linked list
          * 
-         * @param key key to remove
+         * @param key  key to remove
+         * @param hash full hash of the key
+         * @return the removed node, or null if the key was not found
          */
-        public void remove(K key) {
-            if (head == null || key == null) {
-                return;
+        public Node remove(K key, int hash) {
+            Node node = getNodeByKey(key, hash);
+            if (node == null) {
+                return null;
             }
-            Node current = head;
-            do {
-                if (current.getKey().equals(key)) {
-                    if (size == 1) {
-                        head = null;
-                        tail = null;
-                    } else if (current == head) {
-                        head = head.getNext();
-                        head.setPrevious(tail);
-                        tail.setNext(head);
-                    } else if (current == tail) {
-                        tail = tail.getPrevious();
-                        tail.setNext(head);
-                        head.setPrevious(tail);
-                    } else {
-                        current.getPrevious().setNext(current.getNext());
-                        current.getNext().setPrevious(current.getPrevious());
-                    }
-                    size--;
-                    return;
+            if (size == 1) {
+                head = null;
+                tail = null;
+            } else if (node == head) {
+                head = head.getNext();
+                head.setPrevious(tail);
+                tail.setNext(head);
+            } else if (node == tail) {
+                tail = tail.getPrevious();
+                tail.setNext(head);
+                head.setPrevious(tail);
+            } else {
+                node.getPrevious().setNext(node.getNext());
+                node.getNext().setPrevious(node.getPrevious());
+            }
+            size--;
+            if (root != null) {
+                if (size < UNTREEIFY_THRESHOLD) {
+                    root = null;
+                } else {
+                    root = deleteFromTree(root, node);
                 }
-                current = current.getNext();
-            } while (current != head);
+            }
+            return node;
         }
 
         /**
          * Get node by key
          * 
-         * @param key key to search for
+         * @param key  key to search for
+         * @param hash full hash of the key, compared before equals()
          * @return Node if found, else null
          */
-        public Node getNodeByKey(K key) {
+        public Node getNodeByKey(K key, int hash) {
             if (head == null || key == null) {
                 return null;
             }
+            if (root != null) {
+                return findInTree(root, key, hash);
+            }
             Node current = head;
             do {
-                if (current.getKey().equals(key)) {
+                if (current.getHash() == hash && current.getKey().equals(key)) {
                     return current;
                 }
                 current = current.getNext();
@@ -540,6 +894,15 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
             return null;
         }
 
+        /**
+         * Check whether this bucket is currently backed by a tree
+         *
+         * @return true if lookups go through the tree
+         */
+        public boolean isTreeified() {
+            return root != null;
+        }
+
         /**
          * Clear the linked list
          */
@@ -547,6 +910,134 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
             head = null;
             tail = null;
             size = 0;
+            root = null;
+        }
+
+        /**
+         * Builds the AVL tree over every node currently in the chain
+         */
+        private void treeify() {
+            root = null;
+            Node current = head;
+            do {
+                root = insertIntoTree(root, current);
+                current = current.getNext();
+            } while (current != head);
+        }
+
+        /**
+         * Finds the node holding the key. Keys that compare equal without being
+         * equal (e.g. non-Comparable keys sharing a hash code) are searched on
+         * both sides.
+         */
+        private Node findInTree(TreeEntry entry, K key, int hash) {
+            while (entry != null) {
+                Node node = entry.node;
+                int comparison = compareKeys(key, node.getKey());
+                if (comparison < 0) {
+                    entry = entry.left;
+                } else if (comparison > 0) {
+                    entry = entry.right;
+                } else {
+                    if (node.getHash() == hash && node.getKey().equals(key)) {
+                        return node;
+                    }
+                    Node found = findInTree(entry.right, key, hash);
+                    if (found != null) {
+                        return found;
+                    }
+                    entry = entry.left;
+                }
+            }
+            return null;
+        }
+
+        private TreeEntry insertIntoTree(TreeEntry entry, Node node) {
+            if (entry == null) {
+                return new TreeEntry(node);
+            }
+            if (compareKeys(node.getKey(), entry.node.getKey()) < 0) {
+                entry.left = insertIntoTree(entry.left, node);
+            } else {
+                entry.right = insertIntoTree(entry.right, node);
+            }
+            return rebalance(entry);
+        }
+
+        private TreeEntry deleteFromTree(TreeEntry entry, Node node) {
+            if (entry == null) {
+                return null;
+            }
+            if (entry.node == node) {
+                if (entry.left == null) {
+                    return entry.right;
+                }
+                if (entry.right == null) {
+                    return entry.left;
+                }
+                // Replace with the in-order successor and delete it from the right subtree
+                TreeEntry successor = entry.right;
+                while (successor.left != null) {
+                    successor = successor.left;
+                }
+                entry.node = successor.node;
+                entry.right = deleteFromTree(entry.right, successor.node);
+                return rebalance(entry);
+            }
+            int comparison = compareKeys(node.getKey(), entry.node.getKey());
+            if (comparison < 0) {
+                entry.left = deleteFromTree(entry.left, node);
+            } else if (comparison > 0) {
+                entry.right = deleteFromTree(entry.right, node);
+            } else if (containsInTree(entry.left, node)) {
+                entry.left = deleteFromTree(entry.left, node);
+            } else {
+                entry.right = deleteFromTree(entry.right, node);
+            }
+            return rebalance(entry);
+        }
+
+        private boolean containsInTree(TreeEntry entry, Node node) {
+            if (entry == null) {
+                return false;
+            }
+            return entry.node == node || containsInTree(entry.left, node) || containsInTree(entry.right, node);
+        }
+
+        private TreeEntry rebalance(TreeEntry entry) {
+            entry.updateHeight();
+            int balance = TreeEntry.heightOf(entry.left) - TreeEntry.heightOf(entry.right);
+            if (balance > 1) {
+                if (TreeEntry.heightOf(entry.left.left) < TreeEntry.heightOf(entry.left.right)) {
+                    entry.left = rotateLeft(entry.left);
+                }
+                return rotateRight(entry);
+            }
+            if (balance < -1) {
+                if (TreeEntry.heightOf(entry.right.right) < TreeEntry.heightOf(entry.right.left)) {
+                    entry.right = rotateRight(entry.right);
+                }
+                return rotateLeft(entry);
+            }
+            return entry;
+        }
+
+        private TreeEntry rotateRight(TreeEntry entry) {
+            TreeEntry newRoot = entry.left;
+            entry.left = newRoot.right;
+            newRoot.right = entry;
+            entry.updateHeight();
+            newRoot.updateHeight();
+            return newRoot;
+        }
+
+        private TreeEntry rotateLeft(TreeEntry entry) {
+            TreeEntry newRoot = entry.right;
+            entry.right = newRoot.left;
+            newRoot.left = entry;
+            entry.updateHeight();
+            newRoot.updateHeight();
+            return newRoot;
         }
 
         /**
@@ -580,41 +1071,44 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
             stringBuilder.append("]");
             return stringBuilder.toString();
         }
+    }
 
-        /**
-         * Iterator for the linked list (returns Node)
-         * 
-         * @return iterator for linked list entries
-         */
-        @Override
-        public Iterator<Node> iterator() {
-            return new LinkedListIterator();
+    /**
+     * Orders keys inside a treeified bucket. Keys of the same Comparable class use
+     * their natural order; anything else falls back to hash code and class name.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareKeys(Object first, Object second) {
+        if (first.getClass() == second.getClass() && first instanceof Comparable) {
+            return ((Comparable) first).compareTo(second);
         }
+        int comparison = Integer.compare(first.hashCode(), second.hashCode());
+        if (comparison != 0) {
+            return comparison;
+        }
+        return first.getClass().getName().compareTo(second.getClass().getName());
+    }
 
-        private class LinkedListIterator implements Iterator<Node> {
-            private Node currentNode;
-            private int visitedCount;
+    /**
+     * AVL tree entry indexing a bucket Node once its bucket is treeified
+     */
+    private class TreeEntry {
+        private Node node;
+        private TreeEntry left;
+        private TreeEntry right;
+        private int height;
 
-            public LinkedListIterator() {
-                currentNode = head;
-                visitedCount = 0;
-            }
+        public TreeEntry(Node node) {
+            this.node = node;
+            this.height = 1;
+        }
 
-            @Override
-            public boolean hasNext() {
-                return head != null && visitedCount < size;
-            }
+        private void updateHeight() {
+            height = 1 + Math.max(heightOf(left), heightOf(right));
+        }
 
-            @Override
-            public Node next() {
-                if (!hasNext()) {
-                    throw new java.util.NoSuchElementException("No more elements in the linked list");
-                }
-                Node data = currentNode;
-                currentNode = currentNode.getNext();
-                visitedCount++;
-                return data;
-            }
+        private static int heightOf(ArrayBucketList<?, ?>.TreeEntry entry) {
+            return entry == null ? 0 : entry.height;
         }
     }
 
@@ -624,12 +1118,14 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
     private class Node {
         private K key;
         private V value;
+        private final int hash;
         private Node next;
         private Node previous;
 
-        public Node(K key, V value) {
+        public Node(K key, V value, int hash) {
             this.key = key;
             this.value = value;
+            this.hash = hash;
             this.next = null;
             this.previous = null;
         }
@@ -638,8 +1134,8 @@ public class ArrayBucketList<K, V> implements DictionaryInterface<K, V>, Seriali
             return key;
         }
 
-        public void setKey(K key) {
-            this.key = key;
+        public int getHash() {
+            return hash;
         }
 
         public V getValue() {
@@ -9,43 +9,65 @@ public final class ArrayBucketListFactory {
     private ArrayBucketListFactory() {}
 
     public static <K, V> ArrayBucketList<K, V> createForNames(int capacity) {
-        return new ArrayBucketList<>(capacity, (key, buckets) ->
-                HashStrategy.NAME.hash(key, buckets));
+        return new ArrayBucketList<>(capacity, HashStrategy.NAME);
     }
 
     public static <K, V> ArrayBucketList<K, V> createForNamePrefix(int capacity) {
-        return new ArrayBucketList<>(capacity, (key, buckets) ->
-                HashStrategy.NAME_PREFIX.hash(key, buckets));
+        return new ArrayBucketList<>(capacity, HashStrategy.NAME_PREFIX);
     }
 
     public static <K, V> ArrayBucketList<K, V> createForPhones(int capacity) {
-        return new ArrayBucketList<>(capacity, (key, buckets) ->
-                HashStrategy.PHONE.hash(key, buckets));
+        return new ArrayBucketList<>(capacity, HashStrategy.PHONE);
     }
 
     public static <K, V> ArrayBucketList<K, V> createForEmails(int capacity) {
-        return new ArrayBucketList<>(capacity, (key, buckets) ->
-                HashStrategy.EMAIL.hash(key, buckets));
+        return new ArrayBucketList<>(capacity, HashStrategy.EMAIL);
     }
 
     public static <K, V> ArrayBucketList<K, V> createForPostcodes(int capacity) {
-        return new ArrayBucketList<>(capacity, (key, buckets) ->
-                HashStrategy.POSTCODE.hash(key, buckets));
+        return new ArrayBucketList<>(capacity, HashStrategy.POSTCODE);
     }
 
     public static <K, V> ArrayBucketList<K, V> createForStringIds(int capacity) {
-        return new ArrayBucketList<>(capacity, (key, buckets) ->
-                HashStrategy.STRING_ID.hash(key, buckets));
+        return new ArrayBucketList<>(capacity, HashStrategy.STRING_ID);
     }
 
     public static <K, V> ArrayBucketList<K, V> createForEnums(int capacity) {
-        return new ArrayBucketList<>(capacity, (key, buckets) ->
-                HashStrategy.ENUM.hash(key, buckets));
+        return new ArrayBucketList<>(capacity, HashStrategy.ENUM);
     }
 
     public static <K, V> ArrayBucketList<K, V> createForLocalDates(int capacity) {
-        return new ArrayBucketList<>(capacity, (key, buckets) ->
-                HashStrategy.LOCAL_DATE.hash(key, buckets));
+        return new ArrayBucketList<>(capacity, HashStrategy.LOCAL_DATE);
+    }
+
+    /**
+     * Default-hash list that resizes incrementally, for large tables filled in bulk
+     */
+    public static <K, V> ArrayBucketList<K, V> createIncremental(int capacity) {
+        return new ArrayBucketList<>(capacity, null, true);
+    }
+
+    public static <K, V> ArrayBucketList<K, V> createForStringIdsIncremental(int capacity) {
+        return new ArrayBucketList<>(capacity, HashStrategy.STRING_ID, true);
+    }
+
+    public static <K, V> OpenAddressingBucketList<K, V> createOpenAddressing(int capacity) {
+        return new OpenAddressingBucketList<>(capacity, OpenAddressingBucketList.ProbingStrategy.LINEAR);
+    }
+
+    public static <K, V> OpenAddressingBucketList<K, V> createRobinHood(int capacity) {
+        return new OpenAddressingBucketList<>(capacity, OpenAddressingBucketList.ProbingStrategy.ROBIN_HOOD);
+    }
+
+    /**
+     * Thread-safe list for indices shared between terminals
+     */
+    public static <K, V> ConcurrentArrayBucketList<K, V> createConcurrent(int capacity) {
+        return new ConcurrentArrayBucketList<>(capacity, null);
+    }
+
+    public static <K, V> ConcurrentArrayBucketList<K, V> createConcurrentForStringIds(int capacity) {
+        return new ConcurrentArrayBucketList<>(capacity, HashStrategy.STRING_ID);
     }
 }
 
@@ -0,0 +1,316 @@
+package adt;
+
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+
+/**
+ * BitmapIndex - Low-cardinality attributes (status, payment status, ...) of a
+ * set of entities, stored as one RoaringBitmap per attribute value.
+ *
+ * Each entity is registered once under a dense internal ordinal; ordinals of
+ * removed entities are reused so the bitmaps stay dense. Every attribute value
+ * (typically an enum constant) owns a bitmap of the ordinals that currently
+ * have it, so an entity costs about one bit per value it has instead of an
+ * entry in a separate hash table per status. An entity's old values are not
+ * stored; on removal they are read back from the bitmaps, of which there are
+ * only a handful. "Status X AND payment Y" is a
+ * bitmap intersection, and counting it does not touch any entity.
+ *
+ * Values of different attributes share one namespace, so two attributes must
+ * not use equal values (distinct enum types never do).
+ */
+public class BitmapIndex<E> implements Serializable {
+    private String[] keys;
+    private Object[] entities;
+    private int nextOrdinal;
+    private int[] freeOrdinals;
+    private int freeCount;
+    private int numberOfEntries;
+    private OpenAddressingBucketList<String, Integer> ordinalsByKey;
+    private OpenAddressingBucketList<Object, RoaringBitmap> bitmapsByValue;
+    private Object[] distinctValues;
+    private int distinctValueCount;
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+
+    /**
+     * Default constructor sized for 16 entities
+     */
+    public BitmapIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor with expected capacity
+     *
+     * @param capacity expected number of entities
+     */
+    public BitmapIndex(int capacity) {
+        int size = Math.max(2, capacity);
+        this.keys = new String[size];
+        this.entities = new Object[size];
+        this.nextOrdinal = 0;
+        this.freeOrdinals = new int[4];
+        this.freeCount = 0;
+        this.numberOfEntries = 0;
+        this.ordinalsByKey = new OpenAddressingBucketList<>(size);
+        this.bitmapsByValue = new OpenAddressingBucketList<>(16);
+        this.distinctValues = new Object[16];
+        this.distinctValueCount = 0;
+    }
+
+    /**
+     * Registers an entity with its current attribute values, or replaces the
+     * entity and values of an already registered key. Values the entity had
+     * before but no longer lists are cleared. Null values are skipped.
+     *
+     * @param key    the unique identifier of the entity (e.g., prescription ID)
+     * @param entity the entity returned by queries
+     * @param values the entity's attribute values, e.g. its status and payment status
+     */
+    public void put(String key, E entity, Object... values) {
+        if (key == null || entity == null) {
+            return;
+        }
+        Integer existing = ordinalsByKey.getValue(key);
+        int ordinal;
+        if (existing != null) {
+            ordinal = existing;
+            clearValues(ordinal);
+        } else {
+            ordinal = allocateOrdinal();
+            keys[ordinal] = key;
+            ordinalsByKey.add(key, ordinal);
+            numberOfEntries++;
+        }
+        entities[ordinal] = entity;
+        for (Object value : values) {
+            if (value != null) {
+                RoaringBitmap bitmap = bitmapsByValue.getValue(value);
+                if (bitmap == null) {
+                    bitmap = new RoaringBitmap();
+                    bitmapsByValue.add(value, bitmap);
+                    if (distinctValueCount == distinctValues.length) {
+                        distinctValues = java.util.Arrays.copyOf(distinctValues, distinctValueCount << 1);
+                    }
+                    distinctValues[distinctValueCount++] = value;
+                }
+                bitmap.add(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Unregisters an entity and clears it from every value's bitmap.
+     *
+     * @param key the unique identifier of the entity
+     * @return the removed entity, or null if the key was not registered
+     */
+    @SuppressWarnings("unchecked")
+    public E remove(String key) {
+        Integer ordinal = (key != null) ? ordinalsByKey.remove(key) : null;
+        if (ordinal == null) {
+            return null;
+        }
+        clearValues(ordinal);
+        E entity = (E) entities[ordinal];
+        keys[ordinal] = null;
+        entities[ordinal] = null;
+        if (freeCount == freeOrdinals.length) {
+            freeOrdinals = java.util.Arrays.copyOf(freeOrdinals, freeCount << 1);
+        }
+        freeOrdinals[freeCount++] = ordinal;
+        numberOfEntries--;
+        return entity;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E getValue(String key) {
+        Integer ordinal = (key != null) ? ordinalsByKey.getValue(key) : null;
+        return ordinal == null ? null : (E) entities[ordinal];
+    }
+
+    public boolean contains(String key) {
+        return key != null && ordinalsByKey.contains(key);
+    }
+
+    public boolean isEmpty() {
+        return numberOfEntries == 0;
+    }
+
+    public int getSize() {
+        return numberOfEntries;
+    }
+
+    /**
+     * Removes all entities and bitmaps while keeping the current capacity.
+     */
+    public void clear() {
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            keys[ordinal] = null;
+            entities[ordinal] = null;
+        }
+        java.util.Arrays.fill(distinctValues, 0, distinctValueCount, null);
+        distinctValueCount = 0;
+        nextOrdinal = 0;
+        freeCount = 0;
+        numberOfEntries = 0;
+        ordinalsByKey.clear();
+        bitmapsByValue.clear();
+    }
+
+    /**
+     * Counts the entities that have every given value, by intersecting
+     * bitmaps only
+     *
+     * @param values attribute values that must all match
+     * @return number of matching entities
+     */
+    public int count(Object... values) {
+        if (values.length == 2) {
+            RoaringBitmap first = bitmapOf(values[0]);
+            RoaringBitmap second = bitmapOf(values[1]);
+            return (first == null || second == null) ? 0 : RoaringBitmap.andCardinality(first, second);
+        }
+        RoaringBitmap matches = intersect(values);
+        return matches == null ? 0 : matches.getCardinality();
+    }
+
+    /**
+     * Returns the entities that have every given value.
+     *
+     * @param values attribute values that must all match (e.g., ACTIVE, PENDING)
+     * @return a new ArrayBucketList of the matches keyed by entity key
+     */
+    public ArrayBucketList<String, E> find(Object... values) {
+        RoaringBitmap matches = intersect(values);
+        return collect(matches);
+    }
+
+    /**
+     * Returns the entities that have at least one of the given values.
+     *
+     * @param values attribute values of which any may match (e.g., PAID, PENDING)
+     * @return a new ArrayBucketList of the matches keyed by entity key
+     */
+    public ArrayBucketList<String, E> findAny(Object... values) {
+        RoaringBitmap matches = null;
+        for (Object value : values) {
+            RoaringBitmap bitmap = bitmapOf(value);
+            if (bitmap != null) {
+                matches = (matches == null) ? bitmap : RoaringBitmap.or(matches, bitmap);
+            }
+        }
+        return collect(matches);
+    }
+
+    /**
+     * Performs the action on every entity that has every given value, in
+     * ordinal order, without building a result list.
+     *
+     * @param action receives the key and entity of each match
+     * @param values attribute values that must all match
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachMatching(BiConsumer<String, ? super E> action, Object... values) {
+        RoaringBitmap matches = intersect(values);
+        if (matches != null) {
+            matches.forEach(ordinal -> action.accept(keys[ordinal], (E) entities[ordinal]));
+        }
+    }
+
+    /**
+     * Approximate heap footprint of the value bitmaps, for reporting
+     *
+     * @return bytes used by bitmap containers
+     */
+    public long getBitmapSizeInBytes() {
+        long bytes = 0;
+        for (RoaringBitmap bitmap : bitmapsByValue) {
+            bytes += bitmap.getSizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the live bitmap of a value, or null if no entity has it
+     */
+    private RoaringBitmap bitmapOf(Object value) {
+        return value == null ? null : bitmapsByValue.getValue(value);
+    }
+
+    /**
+     * Intersects the values' bitmaps, smallest first
+     *
+     * @return the matching ordinals, or null if nothing can match; the result
+     *         is a value's live bitmap when a single value is given
+     */
+    private RoaringBitmap intersect(Object[] values) {
+        if (values.length == 0) {
+            return null;
+        }
+        RoaringBitmap[] bitmaps = new RoaringBitmap[values.length];
+        int smallest = 0;
+        for (int index = 0; index < values.length; index++) {
+            bitmaps[index] = bitmapOf(values[index]);
+            if (bitmaps[index] == null) {
+                return null;
+            }
+            if (bitmaps[index].getCardinality() < bitmaps[smallest].getCardinality()) {
+                smallest = index;
+            }
+        }
+        RoaringBitmap result = bitmaps[smallest];
+        for (int index = 0; index < bitmaps.length && !result.isEmpty(); index++) {
+            if (index != smallest) {
+                result = RoaringBitmap.and(result, bitmaps[index]);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayBucketList<String, E> collect(RoaringBitmap matches) {
+        int size = matches == null ? 0 : matches.getCardinality();
+        ArrayBucketList<String, E> results = ArrayBucketListFactory.createForStringIds(Math.max(16, size));
+        if (matches != null) {
+            matches.forEach(ordinal -> results.add(keys[ordinal], (E) entities[ordinal]));
+        }
+        return results;
+    }
+
+    /**
+     * Clears an ordinal from every bitmap that has it, dropping bitmaps that
+     * become empty
+     */
+    private void clearValues(int ordinal) {
+        int index = 0;
+        while (index < distinctValueCount) {
+            Object value = distinctValues[index];
+            RoaringBitmap bitmap = bitmapsByValue.getValue(value);
+            if (bitmap.remove(ordinal) && bitmap.isEmpty()) {
+                bitmapsByValue.remove(value);
+                distinctValues[index] = distinctValues[--distinctValueCount];
+                distinctValues[distinctValueCount] = null;
+            } else {
+                index++;
+            }
+        }
+    }
+
+    private int allocateOrdinal() {
+        if (freeCount > 0) {
+            return freeOrdinals[--freeCount];
+        }
+        if (nextOrdinal == keys.length) {
+            int newCapacity = keys.length << 1;
+            keys = java.util.Arrays.copyOf(keys, newCapacity);
+            entities = java.util.Arrays.copyOf(entities, newCapacity);
+        }
+        return nextOrdinal++;
+    }
+
+    @Override
+    public String toString() {
+        return "BitmapIndex with " + numberOfEntries + " entities and " + bitmapsByValue.getSize() + " values";
+    }
+}
@@ -0,0 +1,395 @@
+package adt;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ConcurrentArrayBucketList - A thread-safe chained hash table implementing
+ * DictionaryInterface, meant to be shared by several terminals in one JVM.
+ *
+ * Writers lock one of a fixed number of stripes, chosen from the low bits of
+ * the key hash. The table length is always a power of two no smaller than the
+ * stripe count, so a key keeps its stripe across resizes. Readers take no lock:
+ * bucket heads are read through an AtomicReferenceArray and node links and
+ * values are volatile. A resize holds every stripe lock, builds a new table
+ * from copied nodes and then publishes it, so readers still walking the old
+ * table see a complete, unchanged snapshot.
+ */
+public class ConcurrentArrayBucketList<K, V> implements DictionaryInterface<K, V>, Serializable, Iterable<V> {
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+    private final ReentrantLock[] stripeLocks;
+    private final AtomicIntegerArray stripeCounts;
+    private final int stripeMask;
+    private final ArrayBucketList.HashFunction<? super K> hashFunction;
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+    private static final int DEFAULT_STRIPE_COUNT = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final double LOAD_FACTOR_THRESHOLD = 0.75;
+
+    /**
+     * Default constructor with 16 buckets, 16 stripes and Object.hashCode() hashing
+     */
+    public ConcurrentArrayBucketList() {
+        this(DEFAULT_CAPACITY, null, DEFAULT_STRIPE_COUNT);
+    }
+
+    /**
+     * Constructor with specified bucket count and custom hash function
+     *
+     * @param bucketCount  initial number of buckets, rounded up to a power of two
+     * @param hashFunction hash function whose fullHash() is used, or null for hashCode()
+     */
+    public ConcurrentArrayBucketList(int bucketCount, ArrayBucketList.HashFunction<? super K> hashFunction) {
+        this(bucketCount, hashFunction, DEFAULT_STRIPE_COUNT);
+    }
+
+    /**
+     * Constructor with specified bucket count, hash function and lock stripe count
+     *
+     * @param bucketCount  initial number of buckets, rounded up to a power of two
+     * @param hashFunction hash function whose fullHash() is used, or null for hashCode()
+     * @param stripeCount  number of write locks, rounded up to a power of two
+     */
+    public ConcurrentArrayBucketList(int bucketCount, ArrayBucketList.HashFunction<? super K> hashFunction,
+                                     int stripeCount) {
+        int stripes = powerOfTwoAtLeast(Math.max(1, stripeCount));
+        this.stripeMask = stripes - 1;
+        this.stripeLocks = new ReentrantLock[stripes];
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            stripeLocks[stripe] = new ReentrantLock();
+        }
+        this.stripeCounts = new AtomicIntegerArray(stripes);
+        this.hashFunction = hashFunction;
+        this.table = new AtomicReferenceArray<>(Math.max(stripes, powerOfTwoAtLeast(bucketCount)));
+    }
+
+    /**
+     * Adds a new entry. If the given search key already exists, replaces the value.
+     *
+     * @param key   an object search key of the new entry
+     * @param value an object associated with the search key
+     * @return either null if the new entry was added or the value that was replaced
+     */
+    @Override
+    public V add(K key, V value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * Adds a new entry only if the key is absent, as one atomic step: of
+     * several threads adding the same key, exactly one wins and the others
+     * get its value back.
+     *
+     * @param key   an object search key of the new entry
+     * @param value an object associated with the search key
+     * @return either null if the new entry was added or the value already present
+     */
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null) {
+            return null;
+        }
+        int hash = hashOf(key);
+        int stripe = hash & stripeMask;
+        ReentrantLock lock = stripeLocks[stripe];
+        boolean added;
+        lock.lock();
+        try {
+            // Re-read the table under the lock; a resize cannot run while we hold it
+            AtomicReferenceArray<Node<K, V>> currentTable = table;
+            int bucketIndex = hash & (currentTable.length() - 1);
+            Node<K, V> head = currentTable.get(bucketIndex);
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                if (node.hash == hash && node.key.equals(key)) {
+                    V oldValue = node.value;
+                    if (!onlyIfAbsent) {
+                        node.value = value;
+                    }
+                    return oldValue;
+                }
+            }
+            currentTable.set(bucketIndex, new Node<>(key, value, hash, head));
+            stripeCounts.incrementAndGet(stripe);
+            added = true;
+        } finally {
+            lock.unlock();
+        }
+        if (added && isFull()) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Removes a specific entry.
+     *
+     * @param key an object search key of the entry to be removed
+     * @return either the value that was associated with the search key or null if
+     *         no such object exists
+     */
+    @Override
+    public V remove(K key) {
+        if (key == null) {
+            return null;
+        }
+        int hash = hashOf(key);
+        int stripe = hash & stripeMask;
+        ReentrantLock lock = stripeLocks[stripe];
+        lock.lock();
+        try {
+            AtomicReferenceArray<Node<K, V>> currentTable = table;
+            int bucketIndex = hash & (currentTable.length() - 1);
+            Node<K, V> previous = null;
+            for (Node<K, V> node = currentTable.get(bucketIndex); node != null; node = node.next) {
+                if (node.hash == hash && node.key.equals(key)) {
+                    // A reader already on this node still reaches the rest of the chain through node.next
+                    if (previous == null) {
+                        currentTable.set(bucketIndex, node.next);
+                    } else {
+                        previous.next = node.next;
+                    }
+                    stripeCounts.decrementAndGet(stripe);
+                    return node.value;
+                }
+                previous = node;
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the value associated with a given search key without locking.
+     *
+     * @param key an object search key of the entry to be retrieved
+     * @return either the value that is associated with the search key or null if no
+     *         such object exists
+     */
+    @Override
+    public V getValue(K key) {
+        if (key == null) {
+            return null;
+        }
+        int hash = hashOf(key);
+        AtomicReferenceArray<Node<K, V>> currentTable = table;
+        for (Node<K, V> node = currentTable.get(hash & (currentTable.length() - 1)); node != null; node = node.next) {
+            if (node.hash == hash && node.key.equals(key)) {
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        return getValue(key) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getSize() == 0;
+    }
+
+    /**
+     * Sees whether the table has passed its load factor threshold
+     *
+     * @return true if the table is due to be resized
+     */
+    @Override
+    public boolean isFull() {
+        return (double) getSize() / table.length() > LOAD_FACTOR_THRESHOLD;
+    }
+
+    /**
+     * Gets the number of entries. Under concurrent writes this is a moment-in-time estimate.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int getSize() {
+        int size = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            size += stripeCounts.get(stripe);
+        }
+        return size;
+    }
+
+    /**
+     * Removes all entries. Holds every stripe lock so no write interleaves.
+     */
+    @Override
+    public void clear() {
+        lockAllStripes();
+        try {
+            AtomicReferenceArray<Node<K, V>> currentTable = table;
+            for (int bucketIndex = 0; bucketIndex < currentTable.length(); bucketIndex++) {
+                currentTable.set(bucketIndex, null);
+            }
+            for (int stripe = 0; stripe <= stripeMask; stripe++) {
+                stripeCounts.set(stripe, 0);
+            }
+        } finally {
+            unlockAllStripes();
+        }
+    }
+
+    /**
+     * Number of buckets in the current table
+     *
+     * @return table length (always a power of two)
+     */
+    public int getBucketCount() {
+        return table.length();
+    }
+
+    /**
+     * Doubles the table. Nodes are copied rather than relinked so that readers
+     * still traversing the old table are never redirected into the new one.
+     */
+    private void resize() {
+        lockAllStripes();
+        try {
+            if (!isFull() || table.length() >= MAXIMUM_CAPACITY) {
+                return; // another writer already resized
+            }
+            AtomicReferenceArray<Node<K, V>> oldTable = table;
+            int newLength = oldTable.length() << 1;
+            AtomicReferenceArray<Node<K, V>> newTable = new AtomicReferenceArray<>(newLength);
+            for (int bucketIndex = 0; bucketIndex < oldTable.length(); bucketIndex++) {
+                for (Node<K, V> node = oldTable.get(bucketIndex); node != null; node = node.next) {
+                    int newIndex = node.hash & (newLength - 1);
+                    newTable.set(newIndex, new Node<>(node.key, node.value, node.hash, newTable.get(newIndex)));
+                }
+            }
+            table = newTable;
+        } finally {
+            unlockAllStripes();
+        }
+    }
+
+    private void lockAllStripes() {
+        for (ReentrantLock lock : stripeLocks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAllStripes() {
+        for (int stripe = stripeLocks.length - 1; stripe >= 0; stripe--) {
+            stripeLocks[stripe].unlock();
+        }
+    }
+
+    /**
+     * Full hash spread so both the stripe and the bucket bits depend on all of it
+     */
+    private int hashOf(K key) {
+        int hash = (hashFunction != null) ? hashFunction.fullHash(key) : key.hashCode();
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+        return hash;
+    }
+
+    private static int powerOfTwoAtLeast(int value) {
+        int size = 1;
+        while (size < value && size < MAXIMUM_CAPACITY) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        AtomicReferenceArray<Node<K, V>> currentTable = table;
+        StringBuilder outputStr = new StringBuilder();
+        outputStr.append("ConcurrentArrayBucketList with ").append(getSize())
+                .append(" entries in ").append(currentTable.length()).append(" buckets:\n");
+        for (int bucketIndex = 0; bucketIndex < currentTable.length(); bucketIndex++) {
+            Node<K, V> node = currentTable.get(bucketIndex);
+            if (node == null) {
+                continue;
+            }
+            outputStr.append("Bucket ").append(bucketIndex).append(": [");
+            for (; node != null; node = node.next) {
+                outputStr.append(node.key).append("=").append(node.value);
+                if (node.next != null) {
+                    outputStr.append(", ");
+                }
+            }
+            outputStr.append("]\n");
+        }
+        return outputStr.toString();
+    }
+
+    /**
+     * Weakly consistent iterator over the values of the table as it was when the
+     * iterator was created. It never throws because of concurrent writes.
+     *
+     * @return iterator for all values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new SnapshotIterator(table);
+    }
+
+    private class SnapshotIterator implements Iterator<V> {
+        private final AtomicReferenceArray<Node<K, V>> snapshot;
+        private int nextBucketIndex;
+        private Node<K, V> nextNode;
+
+        public SnapshotIterator(AtomicReferenceArray<Node<K, V>> snapshot) {
+            this.snapshot = snapshot;
+            this.nextBucketIndex = 0;
+            advanceBucket();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        public V next() {
+            if (nextNode == null) {
+                throw new java.util.NoSuchElementException("No more elements in the bucket list");
+            }
+            V data = nextNode.value;
+            nextNode = nextNode.next;
+            if (nextNode == null) {
+                advanceBucket();
+            }
+            return data;
+        }
+
+        private void advanceBucket() {
+            while (nextNode == null && nextBucketIndex < snapshot.length()) {
+                nextNode = snapshot.get(nextBucketIndex++);
+            }
+        }
+    }
+
+    /**
+     * Chain node. Key and hash never change; value and next are volatile so a
+     * lock-free reader sees writes made under a stripe lock.
+     */
+    private static final class Node<K, V> {
+        private final K key;
+        private final int hash;
+        private volatile V value;
+        private volatile Node<K, V> next;
+
+        private Node(K key, V value, int hash, Node<K, V> next) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+}
@@ -3,31 +3,52 @@ package adt;
 /**
  * Hash strategies for common attributes. These implement the
  * ArrayBucketList.HashFunction interface and can be plugged into
- * ArrayBucketList constructors.
+ * ArrayBucketList constructors. Each strategy produces a table-independent
+ * full hash; NAME_PREFIX additionally overrides the bucket index step.
  */
 public enum HashStrategy implements ArrayBucketList.HashFunction<Object> {
     /**
      * Prefix-based name hashing. Intended to start with capacity 26 and grow.
      * The effective prefix length is floor(log_26(bucketCount)), min 1.
      * Non-letters are ignored in hashing.
+     * The full hash packs the first MAX_PREFIX_LETTERS letters as base-27 digits
+     * (1..26, 0 once the name runs out) so the bucket index for any prefix
+     * length can be derived from it without rehashing the name.
      */
     NAME_PREFIX {
+        private static final int MAX_PREFIX_LETTERS = 6;
+        private static final int LEADING_DIGIT_WEIGHT = 27 * 27 * 27 * 27 * 27; // 27^(MAX_PREFIX_LETTERS - 1)
+
         @Override
-        public int hash(Object key, int bucketCount) {
+        public int fullHash(Object key) {
             String name = asString(key);
-            if (name == null || name.isEmpty() || bucketCount <= 0) {
+            if (name == null || name.isEmpty()) {
                 return 0;
             }
             String normalized = name.toLowerCase().trim().replaceAll("[^a-z]", "");
-            if (normalized.isEmpty()) {
+            int packed = 0;
+            for (int index = 0; index < MAX_PREFIX_LETTERS; index++) {
+                int digit = index < normalized.length() ? normalized.charAt(index) - 'a' + 1 : 0;
+                packed = packed * 27 + digit;
+            }
+            return packed;
+        }
+
+        @Override
+        public int bucketIndex(int fullHash, int bucketCount) {
+            if (bucketCount <= 0) {
                 return 0;
             }
-            int prefixLength = Math.max(1, effectivePrefixLength(bucketCount));
-            int length = Math.min(prefixLength, normalized.length());
+            int prefixLength = Math.min(MAX_PREFIX_LETTERS, Math.max(1, effectivePrefixLength(bucketCount)));
+            int divisor = LEADING_DIGIT_WEIGHT;
             int hash = 0;
-            for (int index = 0; index < length; index++) {
-                int value = normalized.charAt(index) - 'a'; // 0..25
-                hash = hash * 26 + value;
+            for (int index = 0; index < prefixLength; index++) {
+                int digit = (fullHash / divisor) % 27;
+                if (digit == 0) {
+                    break;
+                }
+                hash = hash * 26 + (digit - 1); // 0..25
+                divisor /= 27;
             }
             return Math.floorMod(hash, bucketCount);
         }
@@ -45,7 +66,7 @@ public enum HashStrategy implements ArrayBucketList.HashFunction<Object> {
     },
     NAME {
         @Override
-        public int hash(Object key, int bucketCount) {
+        public int fullHash(Object key) {
             String name = asString(key);
             if (name == null || name.isEmpty()) {
                 return 0;
@@ -55,12 +76,12 @@ public enum HashStrategy implements ArrayBucketList.HashFunction<Object> {
             for (int index = 0; index < Math.min(normalized.length(), 8); index++) {
                 hash = hash * 37 + normalized.charAt(index);
             }
-            return Math.abs(hash) % bucketCount;
+            return hash;
         }
     },
     PHONE {
         @Override
-        public int hash(Object key, int bucketCount) {
+        public int fullHash(Object key) {
             String phone = asString(key);
             if (phone == null) {
                 return 0;
@@ -74,12 +95,12 @@ public enum HashStrategy implements ArrayBucketList.HashFunction<Object> {
             for (int index = start; index < digits.length(); index++) {
                 hash = hash * 10 + (digits.charAt(index) - '0');
             }
-            return Math.abs(hash) % bucketCount;
+            return hash;
         }
     },
     EMAIL {
         @Override
-        public int hash(Object key, int bucketCount) {
+        public int fullHash(Object key) {
             String email = asString(key);
             if (email == null) {
                 return 0;
@@ -99,12 +120,12 @@ public enum HashStrategy implements ArrayBucketList.HashFunction<Object> {
                     hash = hash * 31 + normalized.charAt(index);
                 }
             }
-            return Math.abs(hash) % bucketCount;
+            return hash;
         }
     },
     POSTCODE {
         @Override
-        public int hash(Object key, int bucketCount) {
+        public int fullHash(Object key) {
             String postcode = asString(key);
             if (postcode == null) {
                 return 0;
@@ -115,16 +136,16 @@ public enum HashStrategy implements ArrayBucketList.HashFunction<Object> {
                 int weight = normalized.length() - index + 1;
                 hash += weight * normalized.charAt(index);
             }
-            return Math.abs(hash) % bucketCount;
+            return hash;
         }
     };
 
     /**
      * Generic string hashing with additional mixing (ID-like strings).
      */
-    public static final ArrayBucketList.HashFunction<Object> STRING_ID = (key, bucketCount) -> {
+    public static final ArrayBucketList.HashFunction<Object> STRING_ID = key -> {
         String keyStr = asString(key);
-        if (keyStr == null || bucketCount <= 0) {
+        if (keyStr == null) {
             return 0;
         }
         int hash = 0;
@@ -134,15 +155,15 @@ public enum HashStrategy implements ArrayBucketList.HashFunction<Object> {
         hash ^= (hash >>> 16);
         hash *= 0x85ebca6b;
         hash ^= (hash >>> 13);
-        return Math.floorMod(hash, bucketCount);
+        return hash;
     };
 
     /**
      * Enum hashing based on ordinal.
      */
-    public static final ArrayBucketList.HashFunction<Object> ENUM = (key, bucketCount) -> {
+    public static final ArrayBucketList.HashFunction<Object> ENUM = key -> {
         if (key instanceof Enum<?> enumKey) {
-            return Math.floorMod(enumKey.ordinal(), Math.max(1, bucketCount));
+            return enumKey.ordinal();
         }
         return 0;
     };
@@ -150,10 +171,9 @@ public enum HashStrategy implements ArrayBucketList.HashFunction<Object> {
     /**
      * java.time.LocalDate hashing based on epoch day.
      */
-    public static final ArrayBucketList.HashFunction<Object> LOCAL_DATE = (key, bucketCount) -> {
+    public static final ArrayBucketList.HashFunction<Object> LOCAL_DATE = key -> {
         if (key instanceof java.time.LocalDate date) {
-            long epochDay = date.toEpochDay();
-            return (int) Math.floorMod(epochDay, Math.max(1, bucketCount));
+            return (int) date.toEpochDay();
         }
         return 0;
     };
@@ -162,5 +182,3 @@ public enum HashStrategy implements ArrayBucketList.HashFunction<Object> {
         return key == null ? null : key.toString();
     }
 }
-
-
@@ -0,0 +1,320 @@
+package adt;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+/**
+ * HeapPriorityQueue - A keyed binary min-heap priority queue.
+ *
+ * A smaller priority number is served first; entries with equal priority are
+ * served in arrival order. Each key may be queued once. Entries remember their
+ * heap position and are located through an OpenAddressingBucketList, so
+ * contains is O(1) and decrease-key, arbitrary removal, enqueue and dequeue
+ * are O(log n).
+ */
+public class HeapPriorityQueue<K, V> implements Serializable, Iterable<V> {
+    private Entry<K, V>[] heap;
+    private int numberOfEntries;
+    private long arrivalCounter;
+    private OpenAddressingBucketList<K, Entry<K, V>> entriesByKey;
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * Default constructor sized for 16 entries
+     */
+    public HeapPriorityQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor with expected capacity
+     *
+     * @param capacity expected number of queued entries
+     */
+    @SuppressWarnings("unchecked")
+    public HeapPriorityQueue(int capacity) {
+        this.heap = (Entry<K, V>[]) new Entry<?, ?>[Math.max(2, capacity)];
+        this.numberOfEntries = 0;
+        this.arrivalCounter = 0;
+        this.entriesByKey = new OpenAddressingBucketList<>(Math.max(2, capacity));
+    }
+
+    /**
+     * Adds an entry with the given priority unless its key is already queued.
+     *
+     * @param key      the unique identifier (e.g., patient ID)
+     * @param value    the object associated with the key
+     * @param priority smaller numbers are served first
+     * @return true if the entry was added, false if the key or value is null or
+     *         the key is already queued
+     */
+    public boolean enqueue(K key, V value, int priority) {
+        if (key == null || value == null || entriesByKey.contains(key)) {
+            return false;
+        }
+        if (numberOfEntries == heap.length) {
+            grow();
+        }
+        Entry<K, V> entry = new Entry<>(key, value, priority, arrivalCounter++);
+        entry.position = numberOfEntries;
+        heap[numberOfEntries++] = entry;
+        entriesByKey.add(key, entry);
+        siftUp(entry.position);
+        return true;
+    }
+
+    /**
+     * Removes and returns the entry with the smallest priority number.
+     *
+     * @return the front value, or null if the queue is empty
+     */
+    public V dequeue() {
+        if (numberOfEntries == 0) {
+            return null;
+        }
+        Entry<K, V> front = heap[0];
+        removeAt(0);
+        return front.value;
+    }
+
+    /**
+     * Returns the entry with the smallest priority number without removing it.
+     *
+     * @return the front value, or null if the queue is empty
+     */
+    public V peek() {
+        return numberOfEntries == 0 ? null : heap[0].value;
+    }
+
+    /**
+     * Moves a queued entry forward by lowering its priority number. An entry
+     * keeps its original arrival order among entries of the new priority.
+     *
+     * @param key         the unique identifier of the entry
+     * @param newPriority the new priority; must be smaller than the current one
+     * @return true if the priority was lowered, false if the key is not queued or
+     *         newPriority is not smaller than the current priority
+     */
+    public boolean decreaseKey(K key, int newPriority) {
+        Entry<K, V> entry = (key != null) ? entriesByKey.getValue(key) : null;
+        if (entry == null || newPriority >= entry.priority) {
+            return false;
+        }
+        entry.priority = newPriority;
+        siftUp(entry.position);
+        return true;
+    }
+
+    /**
+     * Sets the priority of a queued entry in either direction.
+     *
+     * @param key         the unique identifier of the entry
+     * @param newPriority the new priority
+     * @return true if the key is queued
+     */
+    public boolean updatePriority(K key, int newPriority) {
+        Entry<K, V> entry = (key != null) ? entriesByKey.getValue(key) : null;
+        if (entry == null) {
+            return false;
+        }
+        int oldPriority = entry.priority;
+        entry.priority = newPriority;
+        if (newPriority < oldPriority) {
+            siftUp(entry.position);
+        } else {
+            siftDown(entry.position);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the entry with the given key wherever it is in the heap.
+     *
+     * @param key the unique identifier of the entry to remove
+     * @return the removed value, or null if the key is not queued
+     */
+    public V remove(K key) {
+        Entry<K, V> entry = (key != null) ? entriesByKey.getValue(key) : null;
+        if (entry == null) {
+            return null;
+        }
+        removeAt(entry.position);
+        return entry.value;
+    }
+
+    /**
+     * Retrieves the value of a queued entry without removing it.
+     *
+     * @param key the unique identifier of the entry
+     * @return the value, or null if the key is not queued
+     */
+    public V getValue(K key) {
+        Entry<K, V> entry = (key != null) ? entriesByKey.getValue(key) : null;
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Gets the current priority of a queued entry.
+     *
+     * @param key the unique identifier of the entry
+     * @return the priority, or null if the key is not queued
+     */
+    public Integer getPriority(K key) {
+        Entry<K, V> entry = (key != null) ? entriesByKey.getValue(key) : null;
+        return entry == null ? null : entry.priority;
+    }
+
+    public boolean contains(K key) {
+        return key != null && entriesByKey.contains(key);
+    }
+
+    public boolean isEmpty() {
+        return numberOfEntries == 0;
+    }
+
+    public int getSize() {
+        return numberOfEntries;
+    }
+
+    /**
+     * Removes all entries while keeping the current capacity.
+     */
+    public void clear() {
+        for (int index = 0; index < numberOfEntries; index++) {
+            heap[index] = null;
+        }
+        numberOfEntries = 0;
+        entriesByKey.clear();
+    }
+
+    private void removeAt(int position) {
+        Entry<K, V> removed = heap[position];
+        entriesByKey.remove(removed.key);
+        int last = --numberOfEntries;
+        if (position != last) {
+            place(heap[last], position);
+            heap[last] = null;
+            // The moved entry may belong above or below its new position
+            if (!siftUp(position)) {
+                siftDown(position);
+            }
+        } else {
+            heap[last] = null;
+        }
+    }
+
+    /**
+     * @return true if the entry at position moved
+     */
+    private boolean siftUp(int position) {
+        Entry<K, V> entry = heap[position];
+        int start = position;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!precedes(entry, heap[parent])) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(entry, position);
+        return position != start;
+    }
+
+    private void siftDown(int position) {
+        Entry<K, V> entry = heap[position];
+        int half = numberOfEntries >>> 1;
+        while (position < half) {
+            int child = (position << 1) + 1;
+            int right = child + 1;
+            if (right < numberOfEntries && precedes(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!precedes(heap[child], entry)) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(entry, position);
+    }
+
+    private void place(Entry<K, V> entry, int position) {
+        heap[position] = entry;
+        entry.position = position;
+    }
+
+    private static boolean precedes(Entry<?, ?> first, Entry<?, ?> second) {
+        if (first.priority != second.priority) {
+            return first.priority < second.priority;
+        }
+        return first.arrival < second.arrival;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        if (heap.length >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("HeapPriorityQueue is at max capacity");
+        }
+        Entry<K, V>[] newHeap = (Entry<K, V>[]) new Entry<?, ?>[heap.length << 1];
+        System.arraycopy(heap, 0, newHeap, 0, numberOfEntries);
+        heap = newHeap;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder outputStr = new StringBuilder();
+        outputStr.append("HeapPriorityQueue with ").append(numberOfEntries).append(" entries: [");
+        for (int index = 0; index < numberOfEntries; index++) {
+            if (index > 0) {
+                outputStr.append(", ");
+            }
+            outputStr.append(heap[index].key).append("(").append(heap[index].priority).append(")=")
+                    .append(heap[index].value);
+        }
+        return outputStr.append("]").toString();
+    }
+
+    /**
+     * Iterator over the queued values in heap order (not serving order)
+     *
+     * @return iterator for all values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new HeapIterator();
+    }
+
+    private class HeapIterator implements Iterator<V> {
+        private int nextIndex = 0;
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < numberOfEntries;
+        }
+
+        @Override
+        public V next() {
+            if (!hasNext()) {
+                throw new java.util.NoSuchElementException("No more elements in the queue");
+            }
+            return heap[nextIndex++].value;
+        }
+    }
+
+    private static final class Entry<K, V> implements Serializable {
+        private final K key;
+        private final V value;
+        private final long arrival;
+        private int priority;
+        private int position;
+
+        private Entry(K key, V value, int priority, long arrival) {
+            this.key = key;
+            this.value = value;
+            this.priority = priority;
+            this.arrival = arrival;
+        }
+    }
+}
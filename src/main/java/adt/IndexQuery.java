@@ -0,0 +1,250 @@
+package adt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * IndexQuery - A small planner for multi-criteria searches over the
+ * in-memory indices.
+ *
+ * A leaf criterion wraps one index: it knows how many entities its index
+ * group(s) hold (its estimate), how to enumerate exactly the matching
+ * entities from the index, and how to test a single entity. Leaves are
+ * combined with and() / or():
+ *
+ * - AND enumerates only its most selective child (smallest estimate) and
+ *   probes each candidate against the other children, most selective first,
+ *   so no other index is enumerated and no intermediate list is built.
+ * - OR enumerates every child and emits an entity from child i only if no
+ *   earlier child accepts it, so each match is produced once without a
+ *   "seen" set.
+ *
+ * Estimates are upper bounds read from group sizes when the query is built:
+ * an AND is as selective as its best child and an OR as large as the sum of
+ * its children.
+ */
+public abstract class IndexQuery<E> {
+
+    private IndexQuery() {}
+
+    /**
+     * Upper bound on the number of matches, used to order the plan
+     *
+     * @return estimated number of matching entities
+     */
+    public abstract int estimate();
+
+    /**
+     * Checks one entity against this criterion without touching any index
+     *
+     * @param entity the entity to test
+     * @return true if the entity matches
+     */
+    public abstract boolean test(E entity);
+
+    /**
+     * Performs the action on every matching entity, each exactly once
+     *
+     * @param action receives the key and value of each match
+     */
+    public abstract void forEachMatch(BiConsumer<String, ? super E> action);
+
+    /**
+     * Runs the query
+     *
+     * @return a new ArrayBucketList of the matches keyed by entity key
+     */
+    public ArrayBucketList<String, E> execute() {
+        ArrayBucketList<String, E> results = ArrayBucketListFactory.createForStringIds(Math.max(16, estimate()));
+        forEachMatch(results::add);
+        return results;
+    }
+
+    /**
+     * Creates a leaf criterion backed by an index.
+     *
+     * @param label      short description shown by toString (e.g., "specialty~cardio")
+     * @param estimate   number of entities in the index group(s) the criterion reads
+     * @param enumerator enumerates exactly the matching entities from the index
+     * @param test       checks a single entity; must agree with the enumerator
+     * @return the criterion
+     */
+    public static <E> IndexQuery<E> of(String label, int estimate,
+            Consumer<BiConsumer<String, ? super E>> enumerator, Predicate<? super E> test) {
+        return new Leaf<>(label, estimate, enumerator, test);
+    }
+
+    /**
+     * Matches entities accepted by every part
+     */
+    public static <E> IndexQuery<E> and(List<IndexQuery<E>> parts) {
+        return parts.size() == 1 ? parts.get(0) : new And<>(sortedBySelectivity(parts));
+    }
+
+    /**
+     * Matches entities accepted by at least one part
+     */
+    public static <E> IndexQuery<E> or(List<IndexQuery<E>> parts) {
+        return parts.size() == 1 ? parts.get(0) : new Or<>(sortedBySelectivity(parts));
+    }
+
+    /**
+     * Copies the parts in ascending estimate order (insertion sort; queries
+     * have a handful of criteria)
+     */
+    private static <E> List<IndexQuery<E>> sortedBySelectivity(List<IndexQuery<E>> parts) {
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("A combined query needs at least one part");
+        }
+        List<IndexQuery<E>> sorted = new ArrayList<>(parts);
+        for (int index = 1; index < sorted.size(); index++) {
+            IndexQuery<E> current = sorted.get(index);
+            int position = index - 1;
+            while (position >= 0 && sorted.get(position).estimate() > current.estimate()) {
+                sorted.set(position + 1, sorted.get(position));
+                position--;
+            }
+            sorted.set(position + 1, current);
+        }
+        return sorted;
+    }
+
+    private static final class Leaf<E> extends IndexQuery<E> {
+        private final String label;
+        private final int estimate;
+        private final Consumer<BiConsumer<String, ? super E>> enumerator;
+        private final Predicate<? super E> test;
+
+        private Leaf(String label, int estimate, Consumer<BiConsumer<String, ? super E>> enumerator,
+                Predicate<? super E> test) {
+            this.label = label;
+            this.estimate = Math.max(0, estimate);
+            this.enumerator = enumerator;
+            this.test = test;
+        }
+
+        @Override
+        public int estimate() {
+            return estimate;
+        }
+
+        @Override
+        public boolean test(E entity) {
+            return test.test(entity);
+        }
+
+        @Override
+        public void forEachMatch(BiConsumer<String, ? super E> action) {
+            if (estimate > 0) {
+                enumerator.accept(action);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return label + "[" + estimate + "]";
+        }
+    }
+
+    private static final class And<E> extends IndexQuery<E> {
+        private final List<IndexQuery<E>> parts; // ascending estimate; the first part drives
+
+        private And(List<IndexQuery<E>> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int estimate() {
+            return parts.get(0).estimate();
+        }
+
+        @Override
+        public boolean test(E entity) {
+            for (IndexQuery<E> part : parts) {
+                if (!part.test(entity)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachMatch(BiConsumer<String, ? super E> action) {
+            parts.get(0).forEachMatch((key, entity) -> {
+                for (int index = 1; index < parts.size(); index++) {
+                    if (!parts.get(index).test(entity)) {
+                        return;
+                    }
+                }
+                action.accept(key, entity);
+            });
+        }
+
+        @Override
+        public String toString() {
+            return join("AND", parts);
+        }
+    }
+
+    private static final class Or<E> extends IndexQuery<E> {
+        private final List<IndexQuery<E>> parts;
+
+        private Or(List<IndexQuery<E>> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int estimate() {
+            long total = 0;
+            for (IndexQuery<E> part : parts) {
+                total += part.estimate();
+            }
+            return (int) Math.min(Integer.MAX_VALUE, total);
+        }
+
+        @Override
+        public boolean test(E entity) {
+            for (IndexQuery<E> part : parts) {
+                if (part.test(entity)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachMatch(BiConsumer<String, ? super E> action) {
+            for (int index = 0; index < parts.size(); index++) {
+                int current = index;
+                parts.get(index).forEachMatch((key, entity) -> {
+                    // Already emitted by an earlier part
+                    for (int earlier = 0; earlier < current; earlier++) {
+                        if (parts.get(earlier).test(entity)) {
+                            return;
+                        }
+                    }
+                    action.accept(key, entity);
+                });
+            }
+        }
+
+        @Override
+        public String toString() {
+            return join("OR", parts);
+        }
+    }
+
+    private static String join(String operator, List<? extends IndexQuery<?>> parts) {
+        StringBuilder outputStr = new StringBuilder(operator).append("(");
+        for (int index = 0; index < parts.size(); index++) {
+            if (index > 0) {
+                outputStr.append(", ");
+            }
+            outputStr.append(parts.get(index));
+        }
+        return outputStr.append(")").toString();
+    }
+}
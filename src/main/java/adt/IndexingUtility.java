@@ -4,10 +4,10 @@ public final class IndexingUtility {
 
     private IndexingUtility() {}
 
-    public static <K, E> void addToIndexGroup(ArrayBucketList<K, ArrayBucketList<String, E>> index,
-                                              K groupKey,
-                                              String entityId,
-                                              E entity) {
+    public static <K, E> void addToIndexGroup(DictionaryInterface<K, ArrayBucketList<String, E>> index,
+                                                   K groupKey,
+                                                   String entityId,
+                                                   E entity) {
         if (index == null || groupKey == null || entityId == null || entity == null) {
             return;
         }
@@ -19,7 +19,7 @@ public final class IndexingUtility {
         index.add(groupKey, group);
     }
 
-    public static <K, E> void removeFromIndexGroup(ArrayBucketList<K, ArrayBucketList<String, E>> index,
+    public static <K, E> void removeFromIndexGroup(DictionaryInterface<K, ArrayBucketList<String, E>> index,
                                                    K groupKey,
                                                    String entityId) {
         if (index == null || groupKey == null || entityId == null) {
@@ -28,7 +28,54 @@ public final class IndexingUtility {
         ArrayBucketList<String, E> group = index.getValue(groupKey);
         if (group != null) {
             group.remove(entityId);
+            // Drop emptied groups so prefix scans only visit live keys
+            if (group.isEmpty()) {
+                index.remove(groupKey);
+            }
+        }
+    }
+
+    public static <E> void addToIndexGroup(LongRangeIndex<ArrayBucketList<String, E>> index,
+                                           long groupKey,
+                                           String entityId,
+                                           E entity) {
+        if (index == null || entityId == null || entity == null) {
+            return;
+        }
+        ArrayBucketList<String, E> group = index.getValue(groupKey);
+        if (group == null) {
+            group = ArrayBucketListFactory.createForStringIds(16);
             index.add(groupKey, group);
         }
+        group.add(entityId, entity);
+    }
+
+    public static <E> void removeFromIndexGroup(LongRangeIndex<ArrayBucketList<String, E>> index,
+                                                long groupKey,
+                                                String entityId) {
+        if (index == null || entityId == null) {
+            return;
+        }
+        ArrayBucketList<String, E> group = index.getValue(groupKey);
+        if (group != null) {
+            group.remove(entityId);
+            // Drop emptied groups so range scans only visit live keys
+            if (group.isEmpty()) {
+                index.remove(groupKey);
+            }
+        }
+    }
+
+    /**
+     * Adds every entity of every group keyed in [lo, hi] to results
+     */
+    public static <E> void collectGroupsInRange(LongRangeIndex<ArrayBucketList<String, E>> index,
+                                                long lo,
+                                                long hi,
+                                                ArrayBucketList<String, E> results) {
+        if (index == null || results == null) {
+            return;
+        }
+        index.forEachInRange(lo, hi, group -> group.forEach(results::add));
     }
 }
@@ -0,0 +1,274 @@
+package adt;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+/**
+ * LongKeyBucketList - A dictionary specialised for primitive long keys
+ * such as LocalDate epoch days. Keys live in a long[] parallel to the value array, so adding or looking up
+ * a key never boxes it and a lookup allocates nothing. Slots are found with
+ * a power-of-two mask and linear probing; a null value marks an empty slot.
+ */
+public class LongKeyBucketList<V> implements Serializable, Iterable<V> {
+    private long[] keys;
+    private Object[] values;
+    private int numberOfEntries;
+    private int capacity;
+    private int mask;
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final double LOAD_FACTOR_THRESHOLD = 0.75;
+
+    /**
+     * Default constructor sized for 16 entries
+     */
+    public LongKeyBucketList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor with expected capacity
+     *
+     * @param capacity expected number of entries, rounded up to a power of two
+     */
+    public LongKeyBucketList(int capacity) {
+        this.numberOfEntries = 0;
+        allocate(tableSizeFor(capacity));
+    }
+
+    /**
+     * Adds a new entry. If the key already exists, replaces the value.
+     *
+     * @param key   search key of the new entry
+     * @param value value associated with the key
+     * @return either null if the new entry was added or the value that was replaced
+     */
+    @SuppressWarnings("unchecked")
+    public V add(long key, V value) {
+        if (value == null) {
+            return null;
+        }
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            V oldValue = (V) values[slot];
+            values[slot] = value;
+            return oldValue;
+        }
+        if ((double) (numberOfEntries + 1) / capacity > LOAD_FACTOR_THRESHOLD) {
+            resize(capacity << 1);
+        }
+        insert(key, value);
+        numberOfEntries++;
+        return null;
+    }
+
+    /**
+     * Removes a specific entry.
+     *
+     * @param key search key of the entry to be removed
+     * @return either the value that was associated with the key or null if no such entry exists
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        V value = (V) values[slot];
+        shiftBack(slot);
+        numberOfEntries--;
+        return value;
+    }
+
+    /**
+     * Retrieves the value associated with a given key.
+     *
+     * @param key search key of the entry to be retrieved
+     * @return the value associated with the key, or null if no such entry exists
+     */
+    @SuppressWarnings("unchecked")
+    public V getValue(long key) {
+        int slot = findSlot(key);
+        return slot >= 0 ? (V) values[slot] : null;
+    }
+
+    public boolean contains(long key) {
+        return findSlot(key) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return numberOfEntries == 0;
+    }
+
+    public int getSize() {
+        return numberOfEntries;
+    }
+
+    /**
+     * Removes all entries while keeping the current capacity.
+     */
+    public void clear() {
+        for (int slot = 0; slot < capacity; slot++) {
+            values[slot] = null;
+        }
+        numberOfEntries = 0;
+    }
+
+    private int findSlot(long key) {
+        int slot = hashOf(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long key, Object value) {
+        int slot = hashOf(key) & mask;
+        while (values[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    /**
+     * Backward-shift deletion (Knuth, Algorithm R), so no tombstones are needed
+     */
+    private void shiftBack(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+            int home = hashOf(keys[slot]) & mask;
+            boolean homeBetweenHoleAndSlot = (hole <= slot)
+                    ? (hole < home && home <= slot)
+                    : (hole < home || home <= slot);
+            if (!homeBetweenHoleAndSlot) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        values[hole] = null;
+    }
+
+    private void resize(int newCapacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("LongKeyBucketList is at max capacity");
+        }
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            if (oldValues[slot] != null) {
+                insert(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        this.capacity = newCapacity;
+        this.mask = newCapacity - 1;
+        this.keys = new long[newCapacity];
+        this.values = new Object[newCapacity];
+    }
+
+    /**
+     * Murmur3 64-bit finaliser folded to 32 bits, so consecutive keys such as
+     * neighbouring epoch days spread across the table
+     */
+    private static int hashOf(long key) {
+        long hash = key;
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= (hash >>> 33);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static int tableSizeFor(int expectedEntries) {
+        int required = (int) Math.min(MAXIMUM_CAPACITY, Math.ceil(Math.max(1, expectedEntries) / LOAD_FACTOR_THRESHOLD));
+        int size = 2;
+        while (size < required) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Copies the keys currently stored, in slot order
+     *
+     * @return a new array holding every key
+     */
+    public long[] keys() {
+        long[] result = new long[numberOfEntries];
+        int index = 0;
+        for (int slot = 0; slot < capacity && index < numberOfEntries; slot++) {
+            if (values[slot] != null) {
+                result[index++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder outputStr = new StringBuilder();
+        outputStr.append("LongKeyBucketList with ").append(numberOfEntries)
+                .append(" entries in ").append(capacity).append(" slots:\n");
+        for (int slot = 0; slot < capacity; slot++) {
+            if (values[slot] != null) {
+                outputStr.append(keys[slot]).append("=").append(values[slot]).append("\n");
+            }
+        }
+        return outputStr.toString();
+    }
+
+    /**
+     * Iterator over all values in slot order
+     *
+     * @return iterator for all values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new SlotIterator();
+    }
+
+    private class SlotIterator implements Iterator<V> {
+        private int nextSlot;
+
+        public SlotIterator() {
+            nextSlot = -1;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextSlot < capacity;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new java.util.NoSuchElementException("No more elements in the bucket list");
+            }
+            V data = (V) values[nextSlot];
+            advance();
+            return data;
+        }
+
+        private void advance() {
+            nextSlot++;
+            while (nextSlot < capacity && values[nextSlot] == null) {
+                nextSlot++;
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package adt;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * LongRangeIndex - A sorted dictionary of primitive long keys (epoch days,
+ * ages, years of experience) kept in a skip list, for indices that are
+ * queried by range.
+ *
+ * Every node sits on level 0 and is promoted to each higher level with
+ * probability 1/4, so add, remove, getValue and finding the start of a range
+ * take O(log n) expected steps. A range query then walks level 0 forward, so
+ * range(lo, hi) costs O(log n + number of keys in range) no matter how wide
+ * the range is. Iteration is in ascending key order.
+ */
+public class LongRangeIndex<V> implements Serializable, Iterable<V> {
+    private final Node<V> head;
+    private int level;
+    private int numberOfEntries;
+    private int randomState;
+    private static final int MAXIMUM_LEVEL = 24;
+
+    /**
+     * Default constructor
+     */
+    public LongRangeIndex() {
+        this.head = new Node<>(Long.MIN_VALUE, null, MAXIMUM_LEVEL);
+        this.level = 1;
+        this.numberOfEntries = 0;
+        this.randomState = 0x2545F491;
+    }
+
+    /**
+     * Adds a new entry. If the key already exists, replaces the value.
+     *
+     * @param key   search key of the new entry
+     * @param value value associated with the key
+     * @return either null if the new entry was added or the value that was replaced
+     */
+    @SuppressWarnings("unchecked")
+    public V add(long key, V value) {
+        if (value == null) {
+            return null;
+        }
+        Node<V>[] update = (Node<V>[]) new Node<?>[MAXIMUM_LEVEL];
+        Node<V> node = head;
+        for (int current = level - 1; current >= 0; current--) {
+            while (node.next[current] != null && node.next[current].key < key) {
+                node = node.next[current];
+            }
+            update[current] = node;
+        }
+        Node<V> candidate = node.next[0];
+        if (candidate != null && candidate.key == key) {
+            V oldValue = candidate.value;
+            candidate.value = value;
+            return oldValue;
+        }
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int current = level; current < nodeLevel; current++) {
+                update[current] = head;
+            }
+            level = nodeLevel;
+        }
+        Node<V> inserted = new Node<>(key, value, nodeLevel);
+        for (int current = 0; current < nodeLevel; current++) {
+            inserted.next[current] = update[current].next[current];
+            update[current].next[current] = inserted;
+        }
+        numberOfEntries++;
+        return null;
+    }
+
+    /**
+     * Removes a specific entry.
+     *
+     * @param key search key of the entry to be removed
+     * @return either the value that was associated with the key or null if no
+     *         such entry exists
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        Node<V>[] update = (Node<V>[]) new Node<?>[MAXIMUM_LEVEL];
+        Node<V> node = head;
+        for (int current = level - 1; current >= 0; current--) {
+            while (node.next[current] != null && node.next[current].key < key) {
+                node = node.next[current];
+            }
+            update[current] = node;
+        }
+        Node<V> target = node.next[0];
+        if (target == null || target.key != key) {
+            return null;
+        }
+        for (int current = 0; current < target.next.length; current++) {
+            update[current].next[current] = target.next[current];
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        numberOfEntries--;
+        return target.value;
+    }
+
+    /**
+     * Retrieves the value associated with a given key.
+     *
+     * @param key search key of the entry to be retrieved
+     * @return either the value that is associated with the key or null if no
+     *         such entry exists
+     */
+    public V getValue(long key) {
+        Node<V> node = ceilingNode(key);
+        return (node != null && node.key == key) ? node.value : null;
+    }
+
+    public boolean contains(long key) {
+        return getValue(key) != null;
+    }
+
+    public boolean isEmpty() {
+        return numberOfEntries == 0;
+    }
+
+    public int getSize() {
+        return numberOfEntries;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        for (int current = 0; current < MAXIMUM_LEVEL; current++) {
+            head.next[current] = null;
+        }
+        level = 1;
+        numberOfEntries = 0;
+    }
+
+    /**
+     * Iterates over the values whose keys lie in [lo, hi], in ascending key
+     * order. An empty iterator is returned when lo > hi.
+     *
+     * @param lo smallest key to include
+     * @param hi largest key to include
+     * @return iterator over the values in range
+     */
+    public Iterator<V> range(long lo, long hi) {
+        return new RangeIterator(lo <= hi ? ceilingNode(lo) : null, hi);
+    }
+
+    /**
+     * Performs the action on every value whose key lies in [lo, hi], in
+     * ascending key order, without creating an iterator.
+     *
+     * @param lo     smallest key to include
+     * @param hi     largest key to include
+     * @param action receives each value in range
+     */
+    public void forEachInRange(long lo, long hi, Consumer<? super V> action) {
+        if (lo > hi) {
+            return;
+        }
+        for (Node<V> node = ceilingNode(lo); node != null && node.key <= hi; node = node.next[0]) {
+            action.accept(node.value);
+        }
+    }
+
+    /**
+     * Counts the keys in [lo, hi]
+     *
+     * @return number of keys in range
+     */
+    public int countInRange(long lo, long hi) {
+        int count = 0;
+        if (lo > hi) {
+            return count;
+        }
+        for (Node<V> node = ceilingNode(lo); node != null && node.key <= hi; node = node.next[0]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns all keys in ascending order
+     *
+     * @return a new array holding every key
+     */
+    public long[] keys() {
+        long[] result = new long[numberOfEntries];
+        int index = 0;
+        for (Node<V> node = head.next[0]; node != null; node = node.next[0]) {
+            result[index++] = node.key;
+        }
+        return result;
+    }
+
+    /**
+     * @return the first node whose key is >= key, or null if there is none
+     */
+    private Node<V> ceilingNode(long key) {
+        Node<V> node = head;
+        for (int current = level - 1; current >= 0; current--) {
+            while (node.next[current] != null && node.next[current].key < key) {
+                node = node.next[current];
+            }
+        }
+        return node.next[0];
+    }
+
+    /**
+     * Level for a new node: 1, then one more level with probability 1/4 each
+     * time, drawn from a xorshift generator
+     */
+    private int randomLevel() {
+        int x = randomState;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        randomState = x;
+        int nodeLevel = 1;
+        while ((x & 3) == 0 && nodeLevel < MAXIMUM_LEVEL) {
+            nodeLevel++;
+            x >>>= 2;
+        }
+        return nodeLevel;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder outputStr = new StringBuilder();
+        outputStr.append("LongRangeIndex with ").append(numberOfEntries).append(" entries:\n");
+        for (Node<V> node = head.next[0]; node != null; node = node.next[0]) {
+            outputStr.append(node.key).append("=").append(node.value).append("\n");
+        }
+        return outputStr.toString();
+    }
+
+    /**
+     * Iterator over all values in ascending key order
+     *
+     * @return iterator for all values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new RangeIterator(head.next[0], Long.MAX_VALUE);
+    }
+
+    private class RangeIterator implements Iterator<V> {
+        private Node<V> nextNode;
+        private final long hi;
+
+        public RangeIterator(Node<V> first, long hi) {
+            this.hi = hi;
+            this.nextNode = (first != null && first.key <= hi) ? first : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        public V next() {
+            if (nextNode == null) {
+                throw new java.util.NoSuchElementException("No more elements in the range");
+            }
+            V data = nextNode.value;
+            Node<V> following = nextNode.next[0];
+            nextNode = (following != null && following.key <= hi) ? following : null;
+            return data;
+        }
+    }
+
+    private static final class Node<V> implements Serializable {
+        private final long key;
+        private V value;
+        private final Node<V>[] next;
+
+        @SuppressWarnings("unchecked")
+        private Node(long key, V value, int level) {
+            this.key = key;
+            this.value = value;
+            this.next = (Node<V>[]) new Node<?>[level];
+        }
+    }
+}
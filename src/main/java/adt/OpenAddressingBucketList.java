@@ -0,0 +1,421 @@
+package adt;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+/**
+ * OpenAddressingBucketList - A flat hash table implementation of
+ * DictionaryInterface. Keys and values are stored in parallel arrays whose
+ * length is always a power of two, so the home slot of a key is found with a
+ * bit mask instead of a modulo. Collisions are resolved by probing the next
+ * slots, either with plain linear probing or with Robin Hood probing.
+ */
+public class OpenAddressingBucketList<K, V> implements DictionaryInterface<K, V>, Serializable, Iterable<V> {
+    private Object[] keys;
+    private Object[] values;
+    private int numberOfEntries;
+    private int capacity;
+    private int mask;
+    private final ProbingStrategy probingStrategy;
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final double LOAD_FACTOR_THRESHOLD = 0.75;
+
+    /**
+     * Collision resolution used when the home slot of a key is taken
+     */
+    public enum ProbingStrategy {
+        /** Probe the following slots until a free one is found */
+        LINEAR,
+        /** Linear probing that lets entries far from home take slots from entries closer to home */
+        ROBIN_HOOD
+    }
+
+    /**
+     * Default constructor with 16 slots and linear probing
+     */
+    public OpenAddressingBucketList() {
+        this(DEFAULT_CAPACITY, ProbingStrategy.LINEAR);
+    }
+
+    /**
+     * Constructor with expected capacity and linear probing
+     *
+     * @param capacity expected number of entries
+     */
+    public OpenAddressingBucketList(int capacity) {
+        this(capacity, ProbingStrategy.LINEAR);
+    }
+
+    /**
+     * Constructor with expected capacity and probing strategy
+     *
+     * @param capacity        expected number of entries, rounded up to a power of two
+     * @param probingStrategy collision resolution to use
+     */
+    public OpenAddressingBucketList(int capacity, ProbingStrategy probingStrategy) {
+        this.probingStrategy = (probingStrategy != null) ? probingStrategy : ProbingStrategy.LINEAR;
+        this.numberOfEntries = 0;
+        allocate(tableSizeFor(capacity));
+    }
+
+    /**
+     * Adds a new entry. If the given search key already exists, replaces the value.
+     *
+     * @param key   an object search key of the new entry
+     * @param value an object associated with the search key
+     * @return either null if the new entry was added or the value that was replaced
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V add(K key, V value) {
+        if (key == null || value == null) {
+            return null;
+        }
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            V oldValue = (V) values[slot];
+            values[slot] = value;
+            return oldValue;
+        }
+        if ((double) (numberOfEntries + 1) / capacity > LOAD_FACTOR_THRESHOLD) {
+            resize(capacity << 1);
+        }
+        insert(key, value, hashOf(key));
+        numberOfEntries++;
+        return null;
+    }
+
+    /**
+     * Removes a specific entry.
+     *
+     * @param key an object search key of the entry to be removed
+     * @return either the value that was associated with the search key or null if
+     *         no such object exists
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        V value = (V) values[slot];
+        if (probingStrategy == ProbingStrategy.ROBIN_HOOD) {
+            shiftBackRobinHood(slot);
+        } else {
+            shiftBackLinear(slot);
+        }
+        numberOfEntries--;
+        return value;
+    }
+
+    /**
+     * Retrieves the value associated with a given search key.
+     *
+     * @param key an object search key of the entry to be retrieved
+     * @return either the value that is associated with the search key or null if no
+     *         such object exists
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getValue(K key) {
+        int slot = findSlot(key);
+        return slot >= 0 ? (V) values[slot] : null;
+    }
+
+    /**
+     * Sees whether a specific entry is in the table.
+     *
+     * @param key an object search key of the desired entry
+     * @return true if key is associated with an entry
+     */
+    @Override
+    public boolean contains(K key) {
+        return findSlot(key) >= 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return numberOfEntries == 0;
+    }
+
+    /**
+     * Sees whether the table has reached its load factor threshold
+     *
+     * @return true if the next insertion of a new key triggers a resize
+     */
+    @Override
+    public boolean isFull() {
+        return (double) numberOfEntries / capacity > LOAD_FACTOR_THRESHOLD;
+    }
+
+    @Override
+    public int getSize() {
+        return numberOfEntries;
+    }
+
+    /**
+     * Removes all entries while keeping the current capacity.
+     */
+    @Override
+    public void clear() {
+        for (int slot = 0; slot < capacity; slot++) {
+            keys[slot] = null;
+            values[slot] = null;
+        }
+        numberOfEntries = 0;
+    }
+
+    /**
+     * Number of slots in the key/value arrays
+     *
+     * @return current table length (always a power of two)
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public ProbingStrategy getProbingStrategy() {
+        return probingStrategy;
+    }
+
+    /**
+     * Locates the slot holding the given key
+     *
+     * @param key key to search for
+     * @return slot index, or -1 if the key is absent
+     */
+    private int findSlot(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int hash = hashOf(key);
+        int slot = hash & mask;
+        int distance = 0;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                return slot;
+            }
+            // Robin Hood keeps each cluster ordered by home slot, so once the resident
+            // entry is closer to home than we are the key cannot be further along
+            if (probingStrategy == ProbingStrategy.ROBIN_HOOD && probeDistance(keys[slot], slot) < distance) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+            distance++;
+        }
+        return -1;
+    }
+
+    /**
+     * Places a key known to be absent into the table. Capacity must already be sufficient.
+     */
+    private void insert(Object key, Object value, int hash) {
+        int slot = hash & mask;
+        if (probingStrategy == ProbingStrategy.LINEAR) {
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            return;
+        }
+
+        int distance = 0;
+        while (keys[slot] != null) {
+            int residentDistance = probeDistance(keys[slot], slot);
+            if (residentDistance < distance) {
+                // Take the slot from the richer entry and carry it forward instead
+                Object displacedKey = keys[slot];
+                Object displacedValue = values[slot];
+                keys[slot] = key;
+                values[slot] = value;
+                key = displacedKey;
+                value = displacedValue;
+                distance = residentDistance;
+            }
+            slot = (slot + 1) & mask;
+            distance++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    /**
+     * Backward-shift deletion for linear probing (Knuth, Algorithm R). Entries
+     * after the hole are moved back unless that would place them before their
+     * home slot, so no tombstones are needed.
+     */
+    private void shiftBackLinear(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            Object key = keys[slot];
+            if (key == null) {
+                break;
+            }
+            int home = hashOf(key) & mask;
+            boolean homeBetweenHoleAndSlot = (hole <= slot)
+                    ? (hole < home && home <= slot)
+                    : (hole < home || home <= slot);
+            if (!homeBetweenHoleAndSlot) {
+                keys[hole] = key;
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        keys[hole] = null;
+        values[hole] = null;
+    }
+
+    /**
+     * Backward-shift deletion for Robin Hood probing. Every following entry that
+     * is not in its home slot moves back by one, which preserves the ordering.
+     */
+    private void shiftBackRobinHood(int hole) {
+        int next = (hole + 1) & mask;
+        while (keys[next] != null && probeDistance(keys[next], next) > 0) {
+            keys[hole] = keys[next];
+            values[hole] = values[next];
+            hole = next;
+            next = (next + 1) & mask;
+        }
+        keys[hole] = null;
+        values[hole] = null;
+    }
+
+    /**
+     * Number of slots between an entry's home slot and the slot it occupies
+     */
+    private int probeDistance(Object key, int slot) {
+        return (slot - (hashOf(key) & mask)) & mask;
+    }
+
+    /**
+     * Re-inserts every entry into a table of the new capacity
+     */
+    private void resize(int newCapacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("OpenAddressingBucketList is at max capacity");
+        }
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != null) {
+                insert(oldKeys[slot], oldValues[slot], hashOf(oldKeys[slot]));
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        this.capacity = newCapacity;
+        this.mask = newCapacity - 1;
+        this.keys = new Object[newCapacity];
+        this.values = new Object[newCapacity];
+    }
+
+    /**
+     * Mixes Object.hashCode() with the same finaliser ArrayBucketList uses, so
+     * the low bits used by the mask depend on every bit of the original hash.
+     */
+    private static int hashOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+        return hash;
+    }
+
+    /**
+     * Smallest power of two able to hold the expected entries under the load factor
+     */
+    private static int tableSizeFor(int expectedEntries) {
+        int required = (int) Math.min(MAXIMUM_CAPACITY, Math.ceil(Math.max(1, expectedEntries) / LOAD_FACTOR_THRESHOLD));
+        int size = 1;
+        while (size < required) {
+            size <<= 1;
+        }
+        return Math.max(size, 2);
+    }
+
+    /**
+     * String representation of the table
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder outputStr = new StringBuilder();
+        outputStr.append("OpenAddressingBucketList (").append(probingStrategy).append(") with ")
+                .append(numberOfEntries).append(" entries in ").append(capacity).append(" slots:\n");
+        for (int slot = 0; slot < capacity; slot++) {
+            if (keys[slot] != null) {
+                outputStr.append("Slot ").append(slot).append(": ")
+                        .append(keys[slot]).append("=").append(values[slot]).append("\n");
+            }
+        }
+        return outputStr.toString();
+    }
+
+    /**
+     * Converts the table to an array for sorting purposes
+     *
+     * @param arrayClass the class of the array elements
+     * @return an array containing all values
+     */
+    @SuppressWarnings("unchecked")
+    public V[] toArray(Class<V> arrayClass) {
+        V[] array = (V[]) java.lang.reflect.Array.newInstance(arrayClass, numberOfEntries);
+        int index = 0;
+        for (int slot = 0; slot < capacity && index < numberOfEntries; slot++) {
+            if (keys[slot] != null) {
+                array[index++] = (V) values[slot];
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Iterator over all values in slot order
+     *
+     * @return iterator for all values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new SlotIterator();
+    }
+
+    private class SlotIterator implements Iterator<V> {
+        private int nextSlot;
+
+        public SlotIterator() {
+            nextSlot = -1;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextSlot < capacity;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new java.util.NoSuchElementException("No more elements in the bucket list");
+            }
+            V data = (V) values[nextSlot];
+            advance();
+            return data;
+        }
+
+        private void advance() {
+            nextSlot++;
+            while (nextSlot < capacity && keys[nextSlot] == null) {
+                nextSlot++;
+            }
+        }
+    }
+}
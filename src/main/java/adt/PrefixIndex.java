@@ -0,0 +1,430 @@
+package adt;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+/**
+ * PrefixIndex - A dictionary of String keys stored in a compressed radix trie,
+ * for indices that are searched by prefix (names, emails, specialties, ...).
+ *
+ * Keys are case-insensitive: they are trimmed and lower-cased on the way in.
+ * Each trie edge carries a run of characters and children are kept sorted by
+ * their first character, so a lookup costs O(key length) and a prefix query
+ * costs O(prefix length + number of matches). Iteration and prefix results
+ * come out in key order.
+ */
+public class PrefixIndex<V> implements DictionaryInterface<String, V>, Serializable, Iterable<V> {
+    private final TrieNode<V> root;
+    private int numberOfEntries;
+
+    /**
+     * Default constructor
+     */
+    public PrefixIndex() {
+        this.root = new TrieNode<>("");
+        this.numberOfEntries = 0;
+    }
+
+    /**
+     * Adds a new entry. If the given search key already exists, replaces the value.
+     *
+     * @param key   a search key of the new entry (case-insensitive)
+     * @param value an object associated with the search key
+     * @return either null if the new entry was added or the value that was replaced
+     */
+    @Override
+    public V add(String key, V value) {
+        if (key == null || value == null) {
+            return null;
+        }
+        String normalizedKey = normalize(key);
+        TrieNode<V> node = root;
+        int position = 0;
+        while (position < normalizedKey.length()) {
+            int childIndex = node.indexOfChild(normalizedKey.charAt(position));
+            if (childIndex < 0) {
+                TrieNode<V> leaf = new TrieNode<>(normalizedKey.substring(position));
+                leaf.key = normalizedKey;
+                leaf.value = value;
+                node.insertChild(-(childIndex + 1), leaf);
+                numberOfEntries++;
+                return null;
+            }
+            TrieNode<V> child = node.children[childIndex];
+            int common = commonPrefixLength(child.label, normalizedKey, position);
+            if (common < child.label.length()) {
+                // Split the edge: node -> middle(label[0, common)) -> child(label[common, ...))
+                TrieNode<V> middle = new TrieNode<>(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.insertChild(0, child);
+                node.children[childIndex] = middle;
+                child = middle;
+            }
+            node = child;
+            position += common;
+        }
+        V oldValue = node.value;
+        node.key = normalizedKey;
+        node.value = value;
+        if (oldValue == null) {
+            numberOfEntries++;
+        }
+        return oldValue;
+    }
+
+    /**
+     * Removes a specific entry and merges any edge left with a single child.
+     *
+     * @param key a search key of the entry to be removed (case-insensitive)
+     * @return either the value that was associated with the search key or null if
+     *         no such object exists
+     */
+    @Override
+    public V remove(String key) {
+        if (key == null) {
+            return null;
+        }
+        String normalizedKey = normalize(key);
+        TrieNode<V> parent = null;
+        int indexInParent = -1;
+        TrieNode<V> node = root;
+        int position = 0;
+        while (position < normalizedKey.length()) {
+            int childIndex = node.indexOfChild(normalizedKey.charAt(position));
+            if (childIndex < 0) {
+                return null;
+            }
+            TrieNode<V> child = node.children[childIndex];
+            if (!normalizedKey.startsWith(child.label, position)) {
+                return null;
+            }
+            parent = node;
+            indexInParent = childIndex;
+            node = child;
+            position += child.label.length();
+        }
+        V oldValue = node.value;
+        if (oldValue == null) {
+            return null;
+        }
+        node.value = null;
+        node.key = null;
+        numberOfEntries--;
+        if (parent != null) {
+            if (node.childCount == 0) {
+                parent.removeChild(indexInParent);
+                if (parent != root && parent.value == null && parent.childCount == 1) {
+                    parent.absorbOnlyChild();
+                }
+            } else if (node.childCount == 1) {
+                node.absorbOnlyChild();
+            }
+        }
+        return oldValue;
+    }
+
+    /**
+     * Retrieves the value associated with a given search key.
+     *
+     * @param key a search key of the entry to be retrieved (case-insensitive)
+     * @return either the value that is associated with the search key or null if no
+     *         such object exists
+     */
+    @Override
+    public V getValue(String key) {
+        if (key == null) {
+            return null;
+        }
+        String normalizedKey = normalize(key);
+        TrieNode<V> node = root;
+        int position = 0;
+        while (position < normalizedKey.length()) {
+            int childIndex = node.indexOfChild(normalizedKey.charAt(position));
+            if (childIndex < 0) {
+                return null;
+            }
+            TrieNode<V> child = node.children[childIndex];
+            if (!normalizedKey.startsWith(child.label, position)) {
+                return null;
+            }
+            node = child;
+            position += child.label.length();
+        }
+        return node.value;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return getValue(key) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return numberOfEntries == 0;
+    }
+
+    @Override
+    public boolean isFull() {
+        return false;
+    }
+
+    @Override
+    public int getSize() {
+        return numberOfEntries;
+    }
+
+    @Override
+    public void clear() {
+        root.children = null;
+        root.childCount = 0;
+        root.value = null;
+        root.key = null;
+        numberOfEntries = 0;
+    }
+
+    /**
+     * Returns every entry whose key starts with the given prefix
+     * (case-insensitive), keyed by its normalized key.
+     * A null or blank prefix matches nothing.
+     *
+     * @param prefix the prefix to match
+     * @return a new ArrayBucketList of the matching values
+     */
+    public ArrayBucketList<String, V> getByPrefix(String prefix) {
+        ArrayBucketList<String, V> matches = ArrayBucketListFactory.createForStringIds(16);
+        forEachWithPrefix(prefix, matches::add);
+        return matches;
+    }
+
+    /**
+     * Performs the action on every entry whose key starts with the given
+     * prefix (case-insensitive), in key order, without building a result list.
+     * A null or blank prefix matches nothing.
+     *
+     * @param prefix the prefix to match
+     * @param action receives the normalized key and the value of each match
+     */
+    public void forEachWithPrefix(String prefix, BiConsumer<String, ? super V> action) {
+        if (prefix == null) {
+            return;
+        }
+        String normalizedPrefix = normalize(prefix);
+        if (normalizedPrefix.isEmpty()) {
+            return;
+        }
+        TrieNode<V> node = root;
+        int position = 0;
+        while (position < normalizedPrefix.length()) {
+            int childIndex = node.indexOfChild(normalizedPrefix.charAt(position));
+            if (childIndex < 0) {
+                return;
+            }
+            TrieNode<V> child = node.children[childIndex];
+            int length = Math.min(child.label.length(), normalizedPrefix.length() - position);
+            if (!child.label.regionMatches(0, normalizedPrefix, position, length)) {
+                return;
+            }
+            node = child;
+            position += length;
+        }
+        collect(node, action);
+    }
+
+    /**
+     * Counts the entries whose key starts with the given prefix
+     *
+     * @param prefix the prefix to match
+     * @return number of matching entries
+     */
+    public int countWithPrefix(String prefix) {
+        int[] count = { 0 };
+        forEachWithPrefix(prefix, (key, value) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Performs the action on every entry in key order
+     *
+     * @param action receives the normalized key and the value of each entry
+     */
+    public void forEach(BiConsumer<String, ? super V> action) {
+        collect(root, action);
+    }
+
+    private void collect(TrieNode<V> node, BiConsumer<String, ? super V> action) {
+        if (node.value != null) {
+            action.accept(node.key, node.value);
+        }
+        for (int index = 0; index < node.childCount; index++) {
+            collect(node.children[index], action);
+        }
+    }
+
+    private static String normalize(String key) {
+        return key.trim().toLowerCase();
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int limit = Math.min(label.length(), key.length() - offset);
+        int length = 0;
+        while (length < limit && label.charAt(length) == key.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder outputStr = new StringBuilder();
+        outputStr.append("PrefixIndex with ").append(numberOfEntries).append(" entries:\n");
+        collect(root, (key, value) -> outputStr.append(key).append("=").append(value).append("\n"));
+        return outputStr.toString();
+    }
+
+    /**
+     * Iterator over all values in key order
+     *
+     * @return iterator for all values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new TrieIterator();
+    }
+
+    /**
+     * Depth-first walk with an explicit stack of (node, next child) frames
+     */
+    private class TrieIterator implements Iterator<V> {
+        private TrieNode<V>[] nodeStack;
+        private int[] childStack;
+        private int depth;
+        private TrieNode<V> nextValueNode;
+
+        @SuppressWarnings("unchecked")
+        public TrieIterator() {
+            nodeStack = (TrieNode<V>[]) new TrieNode<?>[8];
+            childStack = new int[8];
+            depth = 0;
+            push(root);
+            nextValueNode = root.value != null ? root : null;
+            if (nextValueNode == null) {
+                advance();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextValueNode != null;
+        }
+
+        @Override
+        public V next() {
+            if (nextValueNode == null) {
+                throw new java.util.NoSuchElementException("No more elements in the prefix index");
+            }
+            V data = nextValueNode.value;
+            advance();
+            return data;
+        }
+
+        private void advance() {
+            nextValueNode = null;
+            while (depth > 0) {
+                TrieNode<V> top = nodeStack[depth - 1];
+                int childIndex = childStack[depth - 1];
+                if (childIndex >= top.childCount) {
+                    depth--;
+                    continue;
+                }
+                childStack[depth - 1]++;
+                TrieNode<V> child = top.children[childIndex];
+                push(child);
+                if (child.value != null) {
+                    nextValueNode = child;
+                    return;
+                }
+            }
+        }
+
+        private void push(TrieNode<V> node) {
+            if (depth == nodeStack.length) {
+                nodeStack = java.util.Arrays.copyOf(nodeStack, depth << 1);
+                childStack = java.util.Arrays.copyOf(childStack, depth << 1);
+            }
+            nodeStack[depth] = node;
+            childStack[depth] = 0;
+            depth++;
+        }
+    }
+
+    /**
+     * Trie node. The label is the run of characters on the edge from the parent;
+     * children are sorted by the first character of their label.
+     */
+    private static final class TrieNode<V> implements Serializable {
+        private String label;
+        private String key; // full normalized key, set while value != null
+        private V value;
+        private TrieNode<V>[] children;
+        private int childCount;
+
+        private TrieNode(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Binary search over the first characters of the children
+         *
+         * @return the child index, or -(insertion point + 1) if absent
+         */
+        private int indexOfChild(char firstChar) {
+            int low = 0;
+            int high = childCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char middleChar = children[middle].label.charAt(0);
+                if (middleChar < firstChar) {
+                    low = middle + 1;
+                } else if (middleChar > firstChar) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void insertChild(int index, TrieNode<V> child) {
+            if (children == null) {
+                children = (TrieNode<V>[]) new TrieNode<?>[2];
+            } else if (childCount == children.length) {
+                children = java.util.Arrays.copyOf(children, childCount << 1);
+            }
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            children[index] = child;
+            childCount++;
+        }
+
+        private void removeChild(int index) {
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            children[--childCount] = null;
+            if (childCount == 0) {
+                children = null;
+            }
+        }
+
+        /**
+         * Merges a value-less node with its single child into one edge
+         */
+        private void absorbOnlyChild() {
+            TrieNode<V> child = children[0];
+            label = label + child.label;
+            key = child.key;
+            value = child.value;
+            children = child.children;
+            childCount = child.childCount;
+        }
+    }
+}
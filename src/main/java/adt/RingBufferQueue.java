@@ -0,0 +1,338 @@
+package adt;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+/**
+ * RingBufferQueue - A FIFO queue of keyed entries with O(1) enqueue, dequeue,
+ * contains and remove-by-key, and no capacity limit.
+ *
+ * Entries sit in a power-of-two ring buffer addressed by a running sequence
+ * number (slot = sequence & mask). A key-to-sequence index, open-addressed with
+ * linear probing, answers contains() and locates an entry for removal. A key
+ * removed from the middle of the queue leaves an empty slot that dequeue and
+ * peek step over; when the ring fills up it is compacted, and doubled only if
+ * more than half of it is still live.
+ */
+public class RingBufferQueue<K, V> implements Serializable, Iterable<V> {
+    private Object[] ringKeys;
+    private Object[] ringValues;
+    private int ringMask;
+    private long headSequence;
+    private long tailSequence;
+    private int numberOfEntries;
+    // Key -> sequence index; a null key marks an empty slot
+    private Object[] indexKeys;
+    private long[] indexSequences;
+    private int indexMask;
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * Default constructor sized for 16 entries
+     */
+    public RingBufferQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor with expected capacity
+     *
+     * @param capacity expected number of queued entries, rounded up to a power of two
+     */
+    public RingBufferQueue(int capacity) {
+        allocateRing(tableSizeFor(capacity));
+        allocateIndex(ringValues.length << 1);
+    }
+
+    /**
+     * Adds an entry to the back of the queue unless its key is already queued.
+     *
+     * @param key   the unique identifier (e.g., patient ID)
+     * @param value the object associated with the key
+     * @return true if the entry was added, false if the key or value is null or
+     *         the key is already in the queue
+     */
+    public boolean enqueue(K key, V value) {
+        if (key == null || value == null || findIndexSlot(key) >= 0) {
+            return false;
+        }
+        if (tailSequence - headSequence == ringValues.length) {
+            rebuild();
+        }
+        int slot = (int) (tailSequence & ringMask);
+        ringKeys[slot] = key;
+        ringValues[slot] = value;
+        insertIndex(key, tailSequence);
+        tailSequence++;
+        numberOfEntries++;
+        return true;
+    }
+
+    /**
+     * Removes and returns the entry at the front of the queue.
+     *
+     * @return the front value, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public V dequeue() {
+        skipRemovedFront();
+        if (headSequence == tailSequence) {
+            return null;
+        }
+        int slot = (int) (headSequence & ringMask);
+        V value = (V) ringValues[slot];
+        removeIndex(findIndexSlot(ringKeys[slot]));
+        ringKeys[slot] = null;
+        ringValues[slot] = null;
+        headSequence++;
+        numberOfEntries--;
+        return value;
+    }
+
+    /**
+     * Returns the entry at the front of the queue without removing it.
+     *
+     * @return the front value, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public V peek() {
+        skipRemovedFront();
+        if (headSequence == tailSequence) {
+            return null;
+        }
+        return (V) ringValues[(int) (headSequence & ringMask)];
+    }
+
+    /**
+     * Removes the entry with the given key wherever it is in the queue.
+     *
+     * @param key the unique identifier of the entry to remove
+     * @return the removed value, or null if the key is not queued
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        if (key == null) {
+            return null;
+        }
+        int indexSlot = findIndexSlot(key);
+        if (indexSlot < 0) {
+            return null;
+        }
+        int slot = (int) (indexSequences[indexSlot] & ringMask);
+        V value = (V) ringValues[slot];
+        removeIndex(indexSlot);
+        ringKeys[slot] = null;
+        ringValues[slot] = null;
+        numberOfEntries--;
+        skipRemovedFront();
+        return value;
+    }
+
+    public boolean contains(K key) {
+        return key != null && findIndexSlot(key) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return numberOfEntries == 0;
+    }
+
+    public int getSize() {
+        return numberOfEntries;
+    }
+
+    /**
+     * Removes all entries while keeping the current capacity.
+     */
+    public void clear() {
+        for (int slot = 0; slot < ringValues.length; slot++) {
+            ringKeys[slot] = null;
+            ringValues[slot] = null;
+        }
+        for (int slot = 0; slot < indexKeys.length; slot++) {
+            indexKeys[slot] = null;
+        }
+        headSequence = 0;
+        tailSequence = 0;
+        numberOfEntries = 0;
+    }
+
+    private void skipRemovedFront() {
+        while (headSequence < tailSequence && ringValues[(int) (headSequence & ringMask)] == null) {
+            headSequence++;
+        }
+    }
+
+    /**
+     * Called when the ring is full. Packs the live entries to the front of a
+     * ring of the same size, or of double the size if more than half are live,
+     * and renumbers them in the index.
+     */
+    private void rebuild() {
+        int newCapacity = ringValues.length;
+        if (numberOfEntries > (ringValues.length >> 1)) {
+            if (ringValues.length >= MAXIMUM_CAPACITY) {
+                throw new IllegalStateException("RingBufferQueue is at max capacity");
+            }
+            newCapacity = ringValues.length << 1;
+        }
+        Object[] oldKeys = ringKeys;
+        Object[] oldValues = ringValues;
+        int oldMask = ringMask;
+        long oldHead = headSequence;
+        long oldTail = tailSequence;
+        allocateRing(newCapacity);
+        if (indexKeys.length < (newCapacity << 1)) {
+            allocateIndex(newCapacity << 1);
+        } else {
+            for (int slot = 0; slot < indexKeys.length; slot++) {
+                indexKeys[slot] = null;
+            }
+        }
+        long sequence = 0;
+        for (long oldSequence = oldHead; oldSequence < oldTail; oldSequence++) {
+            int oldSlot = (int) (oldSequence & oldMask);
+            if (oldValues[oldSlot] != null) {
+                ringKeys[(int) sequence] = oldKeys[oldSlot];
+                ringValues[(int) sequence] = oldValues[oldSlot];
+                insertIndex(oldKeys[oldSlot], sequence);
+                sequence++;
+            }
+        }
+        headSequence = 0;
+        tailSequence = sequence;
+    }
+
+    private void allocateRing(int capacity) {
+        this.ringKeys = new Object[capacity];
+        this.ringValues = new Object[capacity];
+        this.ringMask = capacity - 1;
+    }
+
+    private void allocateIndex(int capacity) {
+        this.indexKeys = new Object[capacity];
+        this.indexSequences = new long[capacity];
+        this.indexMask = capacity - 1;
+    }
+
+    // The index is kept at least twice the ring size, so it is never more than half full
+
+    private int findIndexSlot(Object key) {
+        int slot = hashOf(key) & indexMask;
+        while (indexKeys[slot] != null) {
+            if (indexKeys[slot].equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+        return -1;
+    }
+
+    private void insertIndex(Object key, long sequence) {
+        int slot = hashOf(key) & indexMask;
+        while (indexKeys[slot] != null) {
+            slot = (slot + 1) & indexMask;
+        }
+        indexKeys[slot] = key;
+        indexSequences[slot] = sequence;
+    }
+
+    /**
+     * Backward-shift deletion (Knuth, Algorithm R), so no tombstones are needed
+     */
+    private void removeIndex(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & indexMask;
+            if (indexKeys[slot] == null) {
+                break;
+            }
+            int home = hashOf(indexKeys[slot]) & indexMask;
+            boolean homeBetweenHoleAndSlot = (hole <= slot)
+                    ? (hole < home && home <= slot)
+                    : (hole < home || home <= slot);
+            if (!homeBetweenHoleAndSlot) {
+                indexKeys[hole] = indexKeys[slot];
+                indexSequences[hole] = indexSequences[slot];
+                hole = slot;
+            }
+        }
+        indexKeys[hole] = null;
+    }
+
+    private static int hashOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+        return hash;
+    }
+
+    private static int tableSizeFor(int expectedEntries) {
+        int size = 2;
+        while (size < expectedEntries && size < MAXIMUM_CAPACITY) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder outputStr = new StringBuilder();
+        outputStr.append("RingBufferQueue with ").append(numberOfEntries).append(" entries: [");
+        boolean first = true;
+        for (long sequence = headSequence; sequence < tailSequence; sequence++) {
+            int slot = (int) (sequence & ringMask);
+            if (ringValues[slot] != null) {
+                if (!first) {
+                    outputStr.append(", ");
+                }
+                outputStr.append(ringKeys[slot]).append("=").append(ringValues[slot]);
+                first = false;
+            }
+        }
+        return outputStr.append("]").toString();
+    }
+
+    /**
+     * Iterator over the queued values from front to back
+     *
+     * @return iterator for all values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new QueueIterator();
+    }
+
+    private class QueueIterator implements Iterator<V> {
+        private long nextSequence;
+
+        public QueueIterator() {
+            nextSequence = headSequence - 1;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextSequence < tailSequence;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new java.util.NoSuchElementException("No more elements in the queue");
+            }
+            V data = (V) ringValues[(int) (nextSequence & ringMask)];
+            advance();
+            return data;
+        }
+
+        private void advance() {
+            nextSequence++;
+            while (nextSequence < tailSequence && ringValues[(int) (nextSequence & ringMask)] == null) {
+                nextSequence++;
+            }
+        }
+    }
+}
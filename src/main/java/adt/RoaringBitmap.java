@@ -0,0 +1,618 @@
+package adt;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * RoaringBitmap - A compressed set of non-negative ints, split into chunks of
+ * 65,536 by the high 16 bits of each value.
+ *
+ * Each chunk is held in the smaller of two containers: a sorted char array
+ * while the chunk has at most 4,096 values (2 bytes per value), or a plain
+ * 65,536-bit bitmap once it has more (8 KB, under 2 bytes per value). Dense
+ * ordinal ranges therefore cost about one bit per value, and sparse ones two
+ * bytes per value.
+ *
+ * Intersections and unions walk the two sorted chunk lists together and
+ * combine matching chunks container by container: array with array by
+ * merging, array with bitmap by probing, bitmap with bitmap a word (64
+ * values) at a time.
+ */
+public class RoaringBitmap implements Serializable {
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    /**
+     * Default constructor
+     */
+    public RoaringBitmap() {
+        this.keys = new char[4];
+        this.containers = new Container[4];
+        this.size = 0;
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value a non-negative int
+     * @return true if the value was not already present
+     */
+    public boolean add(int value) {
+        checkValue(value);
+        char high = (char) (value >>> 16);
+        int index = indexOfKey(high);
+        if (index < 0) {
+            index = -(index + 1);
+            insertContainer(index, high, new ArrayContainer());
+        }
+        Container container = containers[index];
+        int before = container.cardinality;
+        containers[index] = container.add((char) value);
+        return containers[index].cardinality > before;
+    }
+
+    /**
+     * Removes a value from the set.
+     *
+     * @param value the value to remove
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOfKey((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        int before = container.cardinality;
+        Container updated = container.remove((char) value);
+        if (updated.cardinality == before) {
+            return false;
+        }
+        if (updated.cardinality == 0) {
+            removeContainer(index);
+        } else {
+            containers[index] = updated;
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOfKey((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * @return number of values in the set
+     */
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int index = 0; index < size; index++) {
+            cardinality += containers[index].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (int index = 0; index < size; index++) {
+            containers[index] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the values present in both bitmaps as a new bitmap
+     */
+    public static RoaringBitmap and(RoaringBitmap first, RoaringBitmap second) {
+        RoaringBitmap result = new RoaringBitmap();
+        int firstIndex = 0;
+        int secondIndex = 0;
+        while (firstIndex < first.size && secondIndex < second.size) {
+            char firstKey = first.keys[firstIndex];
+            char secondKey = second.keys[secondIndex];
+            if (firstKey < secondKey) {
+                firstIndex++;
+            } else if (firstKey > secondKey) {
+                secondIndex++;
+            } else {
+                Container common = first.containers[firstIndex].and(second.containers[secondIndex]);
+                if (common.cardinality > 0) {
+                    result.insertContainer(result.size, firstKey, common);
+                }
+                firstIndex++;
+                secondIndex++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the values present in both bitmaps without building the intersection
+     */
+    public static int andCardinality(RoaringBitmap first, RoaringBitmap second) {
+        int cardinality = 0;
+        int firstIndex = 0;
+        int secondIndex = 0;
+        while (firstIndex < first.size && secondIndex < second.size) {
+            char firstKey = first.keys[firstIndex];
+            char secondKey = second.keys[secondIndex];
+            if (firstKey < secondKey) {
+                firstIndex++;
+            } else if (firstKey > secondKey) {
+                secondIndex++;
+            } else {
+                cardinality += first.containers[firstIndex].andCardinality(second.containers[secondIndex]);
+                firstIndex++;
+                secondIndex++;
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * Returns the values present in either bitmap as a new bitmap
+     */
+    public static RoaringBitmap or(RoaringBitmap first, RoaringBitmap second) {
+        RoaringBitmap result = new RoaringBitmap();
+        int firstIndex = 0;
+        int secondIndex = 0;
+        while (firstIndex < first.size || secondIndex < second.size) {
+            if (secondIndex == second.size
+                    || (firstIndex < first.size && first.keys[firstIndex] < second.keys[secondIndex])) {
+                result.insertContainer(result.size, first.keys[firstIndex], first.containers[firstIndex].copy());
+                firstIndex++;
+            } else if (firstIndex == first.size || first.keys[firstIndex] > second.keys[secondIndex]) {
+                result.insertContainer(result.size, second.keys[secondIndex], second.containers[secondIndex].copy());
+                secondIndex++;
+            } else {
+                result.insertContainer(result.size, first.keys[firstIndex],
+                        first.containers[firstIndex].or(second.containers[secondIndex]));
+                firstIndex++;
+                secondIndex++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Performs the action on every value in ascending order
+     */
+    public void forEach(IntConsumer action) {
+        for (int index = 0; index < size; index++) {
+            containers[index].forEach(keys[index] << 16, action);
+        }
+    }
+
+    /**
+     * @return a new array holding every value in ascending order
+     */
+    public int[] toArray() {
+        int[] values = new int[getCardinality()];
+        int[] position = { 0 };
+        forEach(value -> values[position[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Approximate heap footprint of the containers, for reporting
+     *
+     * @return bytes used by container storage
+     */
+    public long getSizeInBytes() {
+        long bytes = (long) keys.length * 2 + (long) containers.length * 4;
+        for (int index = 0; index < size; index++) {
+            bytes += containers[index].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder outputStr = new StringBuilder("{");
+        forEach(value -> {
+            if (outputStr.length() > 1) {
+                outputStr.append(", ");
+            }
+            outputStr.append(value);
+        });
+        return outputStr.append("}").toString();
+    }
+
+    /**
+     * Iterator over the values in ascending order, without boxing
+     *
+     * @return iterator for all values
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private final int[] values = toArray();
+            private int nextIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex < values.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more values in the bitmap");
+                }
+                return values[nextIndex++];
+            }
+        };
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("RoaringBitmap holds non-negative values only: " + value);
+        }
+    }
+
+    private int indexOfKey(char high) {
+        int low = 0;
+        int highIndex = size - 1;
+        while (low <= highIndex) {
+            int middle = (low + highIndex) >>> 1;
+            char middleKey = keys[middle];
+            if (middleKey < high) {
+                low = middle + 1;
+            } else if (middleKey > high) {
+                highIndex = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insertContainer(int index, char high, Container container) {
+        if (size == keys.length) {
+            keys = java.util.Arrays.copyOf(keys, size << 1);
+            containers = java.util.Arrays.copyOf(containers, size << 1);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * The low 16 bits of the values in one chunk. Mutating operations return
+     * the container to keep, which may be a converted one.
+     */
+    private abstract static class Container implements Serializable {
+        protected int cardinality;
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract Container and(Container other);
+
+        abstract int andCardinality(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container copy();
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract long sizeInBytes();
+    }
+
+    /**
+     * Sorted char array, used while the chunk has at most ARRAY_LIMIT values
+     */
+    private static final class ArrayContainer extends Container {
+        private char[] content;
+
+        private ArrayContainer() {
+            this.content = new char[4];
+        }
+
+        private ArrayContainer(char[] content, int cardinality) {
+            this.content = content;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = java.util.Arrays.binarySearch(content, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitmap().add(value);
+            }
+            index = -(index + 1);
+            if (cardinality == content.length) {
+                content = java.util.Arrays.copyOf(content, Math.min(ARRAY_LIMIT, Math.max(4, cardinality << 1)));
+            }
+            System.arraycopy(content, index, content, index + 1, cardinality - index);
+            content[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = java.util.Arrays.binarySearch(content, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(content, index + 1, content, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return java.util.Arrays.binarySearch(content, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] common = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int index = 0;
+                int otherIndex = 0;
+                while (index < cardinality && otherIndex < array.cardinality) {
+                    char value = content[index];
+                    char otherValue = array.content[otherIndex];
+                    if (value < otherValue) {
+                        index++;
+                    } else if (value > otherValue) {
+                        otherIndex++;
+                    } else {
+                        common[count++] = value;
+                        index++;
+                        otherIndex++;
+                    }
+                }
+            } else {
+                for (int index = 0; index < cardinality; index++) {
+                    if (other.contains(content[index])) {
+                        common[count++] = content[index];
+                    }
+                }
+            }
+            return new ArrayContainer(common, count);
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int index = 0;
+                int otherIndex = 0;
+                while (index < cardinality && otherIndex < array.cardinality) {
+                    char value = content[index];
+                    char otherValue = array.content[otherIndex];
+                    if (value < otherValue) {
+                        index++;
+                    } else if (value > otherValue) {
+                        otherIndex++;
+                    } else {
+                        count++;
+                        index++;
+                        otherIndex++;
+                    }
+                }
+            } else {
+                for (int index = 0; index < cardinality; index++) {
+                    if (other.contains(content[index])) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] merged = new char[cardinality + array.cardinality];
+            int count = 0;
+            int index = 0;
+            int otherIndex = 0;
+            while (index < cardinality || otherIndex < array.cardinality) {
+                if (otherIndex == array.cardinality
+                        || (index < cardinality && content[index] < array.content[otherIndex])) {
+                    merged[count++] = content[index++];
+                } else if (index == cardinality || content[index] > array.content[otherIndex]) {
+                    merged[count++] = array.content[otherIndex++];
+                } else {
+                    merged[count++] = content[index++];
+                    otherIndex++;
+                }
+            }
+            ArrayContainer union = new ArrayContainer(merged, count);
+            return count > ARRAY_LIMIT ? union.toBitmap() : union;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(java.util.Arrays.copyOf(content, Math.max(4, cardinality)), cardinality);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int index = 0; index < cardinality; index++) {
+                action.accept(base | content[index]);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) content.length * 2;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int index = 0; index < cardinality; index++) {
+                char value = content[index];
+                bitmap.words[value >>> 6] |= 1L << value;
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+    }
+
+    /**
+     * 65,536-bit bitmap, used once the chunk has more than ARRAY_LIMIT values
+     */
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+
+        private BitmapContainer() {
+            this.words = new long[BITMAP_WORDS];
+        }
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            if (before != after) {
+                words[value >>> 6] = after;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            if (before != after) {
+                words[value >>> 6] = after;
+                cardinality--;
+                if (cardinality <= ARRAY_LIMIT) {
+                    return toArray();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            long[] common = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int index = 0; index < BITMAP_WORDS; index++) {
+                common[index] = words[index] & bitmap.words[index];
+                count += Long.bitCount(common[index]);
+            }
+            BitmapContainer intersection = new BitmapContainer(common, count);
+            return count <= ARRAY_LIMIT ? intersection.toArray() : intersection;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.andCardinality(this);
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            int count = 0;
+            for (int index = 0; index < BITMAP_WORDS; index++) {
+                count += Long.bitCount(words[index] & bitmap.words[index]);
+            }
+            return count;
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] union = words.clone();
+            int count = cardinality;
+            if (other instanceof ArrayContainer array) {
+                for (int index = 0; index < array.cardinality; index++) {
+                    char value = array.content[index];
+                    long before = union[value >>> 6];
+                    union[value >>> 6] = before | (1L << value);
+                    count += (before == union[value >>> 6]) ? 0 : 1;
+                }
+            } else {
+                BitmapContainer bitmap = (BitmapContainer) other;
+                count = 0;
+                for (int index = 0; index < BITMAP_WORDS; index++) {
+                    union[index] |= bitmap.words[index];
+                    count += Long.bitCount(union[index]);
+                }
+            }
+            return new BitmapContainer(union, count);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int index = 0; index < BITMAP_WORDS; index++) {
+                long word = words[index];
+                while (word != 0) {
+                    action.accept(base | (index << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return (long) BITMAP_WORDS * 8;
+        }
+
+        private ArrayContainer toArray() {
+            char[] content = new char[Math.max(4, cardinality)];
+            int count = 0;
+            for (int index = 0; index < BITMAP_WORDS; index++) {
+                long word = words[index];
+                while (word != 0) {
+                    content[count++] = (char) ((index << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(content, count);
+        }
+    }
+}
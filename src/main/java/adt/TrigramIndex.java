@@ -0,0 +1,393 @@
+package adt;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+/**
+ * TrigramIndex - An inverted index answering "text contains query" searches
+ * without scanning every entity.
+ *
+ * Every entity gets an internal ordinal. Its lower-cased text is split into
+ * overlapping three-character grams and each gram keeps a posting list: a
+ * sorted int array of the ordinals whose text contains it. A query of three
+ * or more characters intersects the posting lists of its own trigrams,
+ * smallest first, and only the surviving candidates are checked with
+ * String.contains. Queries shorter than three characters cannot be split into
+ * trigrams and fall back to checking every stored text.
+ *
+ * Ordinals only grow, so appending keeps posting lists sorted. Removing an
+ * entity deletes its ordinal from its lists; when half of the ordinal range
+ * is dead, the live entities are renumbered in order.
+ */
+public class TrigramIndex<V> implements Serializable, Iterable<V> {
+    private String[] keys;
+    private String[] texts;
+    private Object[] values;
+    private int nextOrdinal;
+    private int numberOfEntries;
+    private OpenAddressingBucketList<String, Integer> ordinalsByKey;
+    // Keyed by the three characters packed into a long (see trigramAt)
+    private LongKeyBucketList<PostingList> postingsByTrigram;
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+
+    /**
+     * Default constructor sized for 16 entities
+     */
+    public TrigramIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor with expected capacity
+     *
+     * @param capacity expected number of entities
+     */
+    public TrigramIndex(int capacity) {
+        int size = Math.max(2, capacity);
+        this.keys = new String[size];
+        this.texts = new String[size];
+        this.values = new Object[size];
+        this.nextOrdinal = 0;
+        this.numberOfEntries = 0;
+        this.ordinalsByKey = new OpenAddressingBucketList<>(size);
+        this.postingsByTrigram = new LongKeyBucketList<>(size);
+    }
+
+    /**
+     * Indexes an entity's text. If the key is already indexed, its text and
+     * value are replaced.
+     *
+     * @param key   the unique identifier of the entity (e.g., patient ID)
+     * @param text  the searchable text; matching is case-insensitive
+     * @param value the entity returned by searches
+     */
+    public void add(String key, String text, V value) {
+        if (key == null || text == null || value == null) {
+            return;
+        }
+        remove(key);
+        if (nextOrdinal == values.length) {
+            if (numberOfEntries <= (values.length >> 1)) {
+                compact();
+            } else {
+                grow();
+            }
+        }
+        int ordinal = nextOrdinal++;
+        String normalizedText = text.toLowerCase();
+        keys[ordinal] = key;
+        texts[ordinal] = normalizedText;
+        values[ordinal] = value;
+        ordinalsByKey.add(key, ordinal);
+        numberOfEntries++;
+        for (int start = 0; start + 3 <= normalizedText.length(); start++) {
+            long trigram = trigramAt(normalizedText, start);
+            PostingList postings = postingsByTrigram.getValue(trigram);
+            if (postings == null) {
+                postings = new PostingList();
+                postingsByTrigram.add(trigram, postings);
+            }
+            postings.append(ordinal); // repeated trigrams in one text are ignored
+        }
+    }
+
+    /**
+     * Removes an entity from the index.
+     *
+     * @param key the unique identifier of the entity
+     * @return the removed value, or null if the key was not indexed
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(String key) {
+        Integer ordinal = (key != null) ? ordinalsByKey.remove(key) : null;
+        if (ordinal == null) {
+            return null;
+        }
+        String text = texts[ordinal];
+        for (int start = 0; start + 3 <= text.length(); start++) {
+            long trigram = trigramAt(text, start);
+            PostingList postings = postingsByTrigram.getValue(trigram);
+            if (postings != null) {
+                postings.delete(ordinal);
+                if (postings.size == 0) {
+                    postingsByTrigram.remove(trigram);
+                }
+            }
+        }
+        V value = (V) values[ordinal];
+        keys[ordinal] = null;
+        texts[ordinal] = null;
+        values[ordinal] = null;
+        numberOfEntries--;
+        return value;
+    }
+
+    public boolean contains(String key) {
+        return key != null && ordinalsByKey.contains(key);
+    }
+
+    public boolean isEmpty() {
+        return numberOfEntries == 0;
+    }
+
+    public int getSize() {
+        return numberOfEntries;
+    }
+
+    /**
+     * Removes all entities while keeping the current capacity.
+     */
+    public void clear() {
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            keys[ordinal] = null;
+            texts[ordinal] = null;
+            values[ordinal] = null;
+        }
+        nextOrdinal = 0;
+        numberOfEntries = 0;
+        ordinalsByKey.clear();
+        postingsByTrigram.clear();
+    }
+
+    /**
+     * Returns every entity whose text contains the query (case-insensitive).
+     * A null or empty query matches nothing.
+     *
+     * @param query the substring to look for
+     * @return a new ArrayBucketList of matching values keyed by entity key
+     */
+    public ArrayBucketList<String, V> findContaining(String query) {
+        ArrayBucketList<String, V> matches = ArrayBucketListFactory.createForStringIds(16);
+        forEachContaining(query, matches::add);
+        return matches;
+    }
+
+    /**
+     * Performs the action on every entity whose text contains the query
+     * (case-insensitive), in ordinal order, without building a result list.
+     *
+     * @param query  the substring to look for
+     * @param action receives the key and value of each match
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachContaining(String query, BiConsumer<String, ? super V> action) {
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        String normalizedQuery = query.toLowerCase();
+        if (normalizedQuery.length() < 3) {
+            for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                if (texts[ordinal] != null && texts[ordinal].contains(normalizedQuery)) {
+                    action.accept(keys[ordinal], (V) values[ordinal]);
+                }
+            }
+            return;
+        }
+        int[] candidates = intersectPostings(normalizedQuery);
+        for (int ordinal : candidates) {
+            // Postings only prove each trigram occurs somewhere; verify they occur in sequence
+            if (texts[ordinal].contains(normalizedQuery)) {
+                action.accept(keys[ordinal], (V) values[ordinal]);
+            }
+        }
+    }
+
+    /**
+     * Upper bound on the number of entities containing the query, read from
+     * posting list sizes without intersecting them: the shortest posting
+     * list of the query's trigrams, or the entity count for queries shorter
+     * than three characters.
+     *
+     * @param query the substring to look for
+     * @return an upper bound on the number of matches
+     */
+    public int estimateContaining(String query) {
+        if (query == null || query.isEmpty()) {
+            return 0;
+        }
+        String normalizedQuery = query.toLowerCase();
+        if (normalizedQuery.length() < 3) {
+            return numberOfEntries;
+        }
+        int smallest = numberOfEntries;
+        for (int start = 0; start + 3 <= normalizedQuery.length(); start++) {
+            PostingList postings = postingsByTrigram.getValue(trigramAt(normalizedQuery, start));
+            if (postings == null) {
+                return 0;
+            }
+            smallest = Math.min(smallest, postings.size);
+        }
+        return smallest;
+    }
+
+    /**
+     * Intersects the posting lists of every trigram in the query, starting
+     * from the shortest list and binary-searching the longer ones
+     *
+     * @return ordinals present in every list, in ascending order
+     */
+    private int[] intersectPostings(String query) {
+        int gramCount = query.length() - 2;
+        PostingList[] lists = new PostingList[gramCount];
+        for (int start = 0; start < gramCount; start++) {
+            PostingList postings = postingsByTrigram.getValue(trigramAt(query, start));
+            if (postings == null) {
+                return new int[0];
+            }
+            lists[start] = postings;
+        }
+        // Insertion sort by length so the shortest list drives the intersection
+        for (int index = 1; index < gramCount; index++) {
+            PostingList current = lists[index];
+            int position = index - 1;
+            while (position >= 0 && lists[position].size > current.size) {
+                lists[position + 1] = lists[position];
+                position--;
+            }
+            lists[position + 1] = current;
+        }
+        int[] result = java.util.Arrays.copyOf(lists[0].ordinals, lists[0].size);
+        int resultSize = result.length;
+        for (int index = 1; index < gramCount && resultSize > 0; index++) {
+            PostingList other = lists[index];
+            if (other == lists[index - 1]) {
+                continue; // repeated trigram in the query
+            }
+            int kept = 0;
+            int low = 0;
+            for (int candidate = 0; candidate < resultSize; candidate++) {
+                int found = java.util.Arrays.binarySearch(other.ordinals, low, other.size, result[candidate]);
+                if (found >= 0) {
+                    result[kept++] = result[candidate];
+                    low = found + 1;
+                } else {
+                    low = -(found + 1);
+                }
+            }
+            resultSize = kept;
+        }
+        return java.util.Arrays.copyOf(result, resultSize);
+    }
+
+    /**
+     * Packs three UTF-16 characters into one long key
+     */
+    private static long trigramAt(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    private void grow() {
+        int newCapacity = values.length << 1;
+        keys = java.util.Arrays.copyOf(keys, newCapacity);
+        texts = java.util.Arrays.copyOf(texts, newCapacity);
+        values = java.util.Arrays.copyOf(values, newCapacity);
+    }
+
+    /**
+     * Renumbers the live entities 0..n-1 in their existing order, so every
+     * posting list can be remapped in place and stays sorted
+     */
+    private void compact() {
+        int[] newOrdinals = new int[nextOrdinal];
+        int live = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (values[ordinal] != null) {
+                newOrdinals[ordinal] = live;
+                keys[live] = keys[ordinal];
+                texts[live] = texts[ordinal];
+                values[live] = values[ordinal];
+                ordinalsByKey.add(keys[live], live);
+                live++;
+            }
+        }
+        for (int ordinal = live; ordinal < nextOrdinal; ordinal++) {
+            keys[ordinal] = null;
+            texts[ordinal] = null;
+            values[ordinal] = null;
+        }
+        nextOrdinal = live;
+        for (PostingList postings : postingsByTrigram) {
+            for (int index = 0; index < postings.size; index++) {
+                postings.ordinals[index] = newOrdinals[postings.ordinals[index]];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TrigramIndex with " + numberOfEntries + " entities and "
+                + postingsByTrigram.getSize() + " trigrams";
+    }
+
+    /**
+     * Iterator over all indexed values in ordinal order
+     *
+     * @return iterator for all values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new OrdinalIterator();
+    }
+
+    private class OrdinalIterator implements Iterator<V> {
+        private int nextIndex;
+
+        public OrdinalIterator() {
+            nextIndex = -1;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < nextOrdinal;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new java.util.NoSuchElementException("No more elements in the trigram index");
+            }
+            V data = (V) values[nextIndex];
+            advance();
+            return data;
+        }
+
+        private void advance() {
+            nextIndex++;
+            while (nextIndex < nextOrdinal && values[nextIndex] == null) {
+                nextIndex++;
+            }
+        }
+    }
+
+    /**
+     * Sorted, duplicate-free int array of ordinals
+     */
+    private static final class PostingList implements Serializable {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        /**
+         * Appends an ordinal no smaller than the current last one
+         */
+        private void append(int ordinal) {
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = java.util.Arrays.copyOf(ordinals, size << 1);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        private void delete(int ordinal) {
+            int index = java.util.Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index >= 0) {
+                System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+}
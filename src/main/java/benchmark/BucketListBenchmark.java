@@ -0,0 +1,106 @@
+package benchmark;
+
+import adt.ArrayBucketListFactory;
+import adt.DictionaryInterface;
+
+/**
+ * Compares the chained ArrayBucketList against the open-addressing engine
+ * (linear and Robin Hood probing) on patient-ID style keys.
+ * Reports add and get throughput and the retained heap per entry.
+ *
+ * Run with: java -cp target/classes benchmark.BucketListBenchmark [entries]
+ */
+public final class BucketListBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private BucketListBenchmark() {}
+
+    private interface DictionarySupplier {
+        DictionaryInterface<String, String> create();
+    }
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String[] keys = new String[entries];
+        for (int index = 0; index < entries; index++) {
+            keys[index] = String.format("P%09d", index + 1);
+        }
+
+        System.out.printf("Entries: %,d%n", entries);
+        System.out.printf("%-22s %14s %14s %14s%n", "Implementation", "add (ops/ms)", "get (ops/ms)", "bytes/entry");
+        run("Chained (STRING_ID)", keys, () -> ArrayBucketListFactory.<String, String>createForStringIds(16));
+        run("Open addressing", keys, () -> ArrayBucketListFactory.<String, String>createOpenAddressing(16));
+        run("Robin Hood", keys, () -> ArrayBucketListFactory.<String, String>createRobinHood(16));
+    }
+
+    private static void run(String label, String[] keys, DictionarySupplier supplier) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            measureRound(keys, supplier);
+        }
+        double bestAdd = 0;
+        double bestGet = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            double[] result = measureRound(keys, supplier);
+            bestAdd = Math.max(bestAdd, result[0]);
+            bestGet = Math.max(bestGet, result[1]);
+        }
+        System.out.printf("%-22s %,14.0f %,14.0f %14.1f%n", label, bestAdd, bestGet,
+                measureBytesPerEntry(keys, supplier));
+    }
+
+    private static double[] measureRound(String[] keys, DictionarySupplier supplier) {
+        DictionaryInterface<String, String> dictionary = supplier.create();
+        long start = System.nanoTime();
+        for (String key : keys) {
+            dictionary.add(key, key);
+        }
+        long addNanos = System.nanoTime() - start;
+
+        int hits = 0;
+        start = System.nanoTime();
+        for (String key : keys) {
+            if (dictionary.getValue(key) != null) {
+                hits++;
+            }
+        }
+        long getNanos = System.nanoTime() - start;
+        if (hits != keys.length) {
+            throw new IllegalStateException("Lookup mismatch: " + hits + " of " + keys.length);
+        }
+        return new double[] { keys.length / (addNanos / 1e6), keys.length / (getNanos / 1e6) };
+    }
+
+    /**
+     * Heap retained by the dictionary structure alone; keys and values are shared
+     * with the input array so they are not counted.
+     */
+    private static double measureBytesPerEntry(String[] keys, DictionarySupplier supplier) {
+        long before = usedHeap();
+        DictionaryInterface<String, String> dictionary = supplier.create();
+        for (String key : keys) {
+            dictionary.add(key, key);
+        }
+        long after = usedHeap();
+        double bytesPerEntry = (double) (after - before) / keys.length;
+        // keep the dictionary reachable until after the measurement
+        if (dictionary.getSize() != keys.length) {
+            throw new IllegalStateException("Unexpected size " + dictionary.getSize());
+        }
+        return bytesPerEntry;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int attempt = 0; attempt < 4; attempt++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
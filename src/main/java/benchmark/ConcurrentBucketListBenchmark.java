@@ -0,0 +1,126 @@
+package benchmark;
+
+import adt.ArrayBucketListFactory;
+import adt.ConcurrentArrayBucketList;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multithreaded stress test for ConcurrentArrayBucketList. Each thread count
+ * first inserts disjoint patient-ID keys in parallel (checking that no entry
+ * is lost across resizes), then runs a 90% read / 10% write mix and reports
+ * the aggregate throughput, so scaling with thread count can be read off the
+ * table. Scaling is bounded by the number of available processors.
+ *
+ * Run with: java -cp target/classes benchmark.ConcurrentBucketListBenchmark [entries] [maxThreads]
+ */
+public final class ConcurrentBucketListBenchmark {
+
+    private static final int OPERATIONS_PER_THREAD = 2_000_000;
+    private static final int WRITE_PERCENT = 10;
+
+    private ConcurrentBucketListBenchmark() {}
+
+    public static void main(String[] args) throws InterruptedException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        String[] keys = new String[entries];
+        for (int index = 0; index < entries; index++) {
+            keys[index] = String.format("P%09d", index + 1);
+        }
+
+        System.out.printf("Entries: %,d, available processors: %d%n", entries,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %18s %18s %10s%n", "Threads", "fill (ops/ms)", "mixed (ops/ms)", "speedup");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            measureMixed(threads, keys); // warm-up
+            double fill = measureFill(threads, keys);
+            double mixed = measureMixed(threads, keys);
+            if (threads == 1) {
+                baseline = mixed;
+            }
+            System.out.printf("%-8d %,18.0f %,18.0f %9.2fx%n", threads, fill, mixed, mixed / baseline);
+        }
+    }
+
+    /**
+     * Parallel insert of disjoint key ranges into an initially tiny table, so
+     * most of the work overlaps with resizes
+     */
+    private static double measureFill(int threads, String[] keys) throws InterruptedException {
+        ConcurrentArrayBucketList<String, String> dictionary = ArrayBucketListFactory.createConcurrentForStringIds(16);
+        long nanos = runThreads(threads, thread -> {
+            for (int index = thread; index < keys.length; index += threads) {
+                dictionary.add(keys[index], keys[index]);
+            }
+        });
+        if (dictionary.getSize() != keys.length) {
+            throw new IllegalStateException("Lost entries: " + dictionary.getSize() + " of " + keys.length);
+        }
+        for (String key : keys) {
+            if (!key.equals(dictionary.getValue(key))) {
+                throw new IllegalStateException("Missing key " + key);
+            }
+        }
+        return keys.length / (nanos / 1e6);
+    }
+
+    private static double measureMixed(int threads, String[] keys) throws InterruptedException {
+        ConcurrentArrayBucketList<String, String> dictionary = ArrayBucketListFactory.createConcurrentForStringIds(16);
+        for (String key : keys) {
+            dictionary.add(key, key);
+        }
+        AtomicLong misses = new AtomicLong();
+        long nanos = runThreads(threads, thread -> {
+            int seed = 0x9E3779B9 * (thread + 1);
+            long localMisses = 0;
+            for (int operation = 0; operation < OPERATIONS_PER_THREAD; operation++) {
+                seed ^= seed << 13;
+                seed ^= seed >>> 17;
+                seed ^= seed << 5;
+                String key = keys[Math.floorMod(seed, keys.length)];
+                if (Math.floorMod(seed >>> 8, 100) < WRITE_PERCENT) {
+                    dictionary.add(key, key); // replaces, so the key set stays fixed
+                } else if (dictionary.getValue(key) == null) {
+                    localMisses++;
+                }
+            }
+            misses.addAndGet(localMisses);
+        });
+        if (misses.get() != 0) {
+            throw new IllegalStateException("Reads missed " + misses.get() + " present keys");
+        }
+        return (double) threads * OPERATIONS_PER_THREAD / (nanos / 1e6);
+    }
+
+    private interface Worker {
+        void run(int thread);
+    }
+
+    private static long runThreads(int threads, Worker worker) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int thread = 0; thread < threads; thread++) {
+            int threadIndex = thread;
+            new Thread(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                    worker.run(threadIndex);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - begin;
+    }
+}
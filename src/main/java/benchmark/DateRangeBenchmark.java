@@ -0,0 +1,87 @@
+package benchmark;
+
+import adt.LongKeyBucketList;
+import adt.LongRangeIndex;
+
+/**
+ * "Visited within" windows over patient registration dates: patients are
+ * spread over the last 20 years and the 3-day to 10-year windows offered by
+ * the patient search screen are queried.
+ * LongRangeIndex walks only the dates present in the window; the previous
+ * design probed a LongKeyBucketList once per calendar day from today back to
+ * the cutoff. Both must find the same number of patients.
+ *
+ * Run with: java -cp target/classes benchmark.DateRangeBenchmark [patients]
+ */
+public final class DateRangeBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int HISTORY_DAYS = 20 * 365;
+    private static final int[] WINDOW_DAYS = { 3, 7, 14, 30, 91, 182, 365, 3 * 365, 5 * 365, 10 * 365 };
+
+    private DateRangeBenchmark() {}
+
+    private interface WindowQuery {
+        int count(long today, int days);
+    }
+
+    public static void main(String[] args) {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long today = java.time.LocalDate.now().toEpochDay();
+        LongKeyBucketList<int[]> byDay = new LongKeyBucketList<>(64);
+        LongRangeIndex<int[]> byRange = new LongRangeIndex<>();
+        int seed = 42;
+        for (int patient = 0; patient < patients; patient++) {
+            seed = seed * 1103515245 + 12345;
+            long day = today - Math.floorMod(seed >>> 8, HISTORY_DAYS);
+            int[] group = byDay.getValue(day);
+            if (group == null) {
+                group = new int[1];
+                byDay.add(day, group);
+                byRange.add(day, group);
+            }
+            group[0]++;
+        }
+
+        WindowQuery dayByDay = (now, days) -> {
+            int count = 0;
+            for (long day = now; day >= now - days; day--) {
+                int[] group = byDay.getValue(day);
+                if (group != null) {
+                    count += group[0];
+                }
+            }
+            return count;
+        };
+        WindowQuery rangeWalk = (now, days) -> {
+            int[] count = { 0 };
+            byRange.forEachInRange(now - days, now, group -> count[0] += group[0]);
+            return count[0];
+        };
+        for (int days : WINDOW_DAYS) {
+            if (dayByDay.count(today, days) != rangeWalk.count(today, days)) {
+                throw new IllegalStateException("Patient count differs for a " + days + "-day window");
+            }
+        }
+
+        System.out.printf("Patients: %,d over %,d days, windows per round: %d%n", patients, HISTORY_DAYS,
+                WINDOW_DAYS.length);
+        System.out.printf("%-28s %14s%n", "Index", "total (us)");
+        run("Hash probe per day", dayByDay, today);
+        run("LongRangeIndex range walk", rangeWalk, today);
+    }
+
+    private static void run(String label, WindowQuery query, long today) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round++) { // round 0 is the warm-up
+            long start = System.nanoTime();
+            for (int days : WINDOW_DAYS) {
+                query.count(today, days);
+            }
+            if (round > 0) {
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+        System.out.printf("%-28s %,14.1f%n", label, best / 1e3);
+    }
+}
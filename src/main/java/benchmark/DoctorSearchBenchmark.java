@@ -0,0 +1,199 @@
+package benchmark;
+
+import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
+import adt.IndexQuery;
+import adt.IndexingUtility;
+import adt.LongRangeIndex;
+import adt.PrefixIndex;
+import adt.TrigramIndex;
+import entity.Doctor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multi-criteria doctor search over a large roster: a batch of name,
+ * specialty, availability and minimum-experience combinations (AND and OR)
+ * is answered the way DoctorManagementControl.findDoctorsByMultipleCriteria
+ * does.
+ * The IndexQuery plan (enumerate the most selective index, probe the other
+ * criteria) is compared with the previous design, one full scan of the roster
+ * testing every criterion, and both must return the same number of doctors.
+ *
+ * Run with: java -cp target/classes benchmark.DoctorSearchBenchmark [doctors]
+ */
+public final class DoctorSearchBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final String[] GIVEN_NAMES = { "Ahmad", "Siti", "Wei Ming", "Priya", "Nurul", "Jason",
+            "Mei Ling", "Kumar", "Farah", "Daniel", "Aisyah", "Hafiz" };
+    private static final String[] FAMILY_NAMES = { "Tan", "Lim", "Abdullah", "Wong", "Rajan", "Lee",
+            "Ismail", "Ng", "Chong", "Krishnan", "Yusof", "Ong" };
+    private static final String[] SPECIALTIES = { "General Practice", "Cardiology", "Dermatology", "Neurology",
+            "Paediatrics", "Orthopaedics", "Psychiatry", "Oncology", "Ophthalmology", "Radiology" };
+
+    // name, specialty, availability, minimum experience, match all
+    private static final Object[][] SEARCHES = {
+            { "krishnan", "cardio", Boolean.TRUE, 10, true },
+            { null, "derma", null, 25, true },
+            { "mei ling", null, Boolean.FALSE, 0, true },
+            { "ong 12", "onco", Boolean.TRUE, 5, true },
+            { "yusof", "neuro", null, 0, false },
+            { null, "radio", Boolean.FALSE, 38, false },
+    };
+
+    private DoctorSearchBenchmark() {}
+
+    private interface DoctorSearch {
+        int count(Object[] search);
+    }
+
+    public static void main(String[] args) {
+        int doctorCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        Doctor[] roster = new Doctor[doctorCount];
+        TrigramIndex<Doctor> byName = new TrigramIndex<>(doctorCount);
+        PrefixIndex<ArrayBucketList<String, Doctor>> bySpecialty = new PrefixIndex<>();
+        ArrayBucketList<Boolean, ArrayBucketList<String, Doctor>> byAvailability = new ArrayBucketList<>();
+        LongRangeIndex<ArrayBucketList<String, Doctor>> byExperience = new LongRangeIndex<>();
+        int seed = 42;
+        for (int index = 0; index < doctorCount; index++) {
+            seed = seed * 1103515245 + 12345;
+            int bits = seed >>> 4;
+            String name = GIVEN_NAMES[Math.floorMod(bits, GIVEN_NAMES.length)] + " "
+                    + FAMILY_NAMES[Math.floorMod(bits >>> 4, FAMILY_NAMES.length)] + " " + index;
+            String doctorId = String.format("D%09d", index + 1);
+            Doctor doctor = new Doctor(name, "IC" + index, null, null, null, null, doctorId,
+                    SPECIALTIES[Math.floorMod(bits >>> 8, SPECIALTIES.length)], "L" + index,
+                    Math.floorMod(bits >>> 12, 41));
+            doctor.setAvailable(Math.floorMod(bits >>> 18, 4) != 0);
+            roster[index] = doctor;
+            byName.add(doctorId, name, doctor);
+            IndexingUtility.addToIndexGroup(bySpecialty, doctor.getMedicalSpecialty(), doctorId, doctor);
+            IndexingUtility.addToIndexGroup(byAvailability, doctor.isAvailable(), doctorId, doctor);
+            IndexingUtility.addToIndexGroup(byExperience, doctor.getExpYears(), doctorId, doctor);
+        }
+
+        DoctorSearch fullScan = search -> {
+            int matches = 0;
+            for (Doctor doctor : roster) {
+                if (scanMatches(doctor, search)) {
+                    matches++;
+                }
+            }
+            return matches;
+        };
+        DoctorSearch planned = search -> plan(search, byName, bySpecialty, byAvailability, byExperience)
+                .execute().getSize();
+        for (Object[] search : SEARCHES) {
+            if (fullScan.count(search) != planned.count(search)) {
+                throw new IllegalStateException("Match count differs for "
+                        + plan(search, byName, bySpecialty, byAvailability, byExperience));
+            }
+        }
+
+        System.out.printf("Doctors: %,d, searches per round: %d%n", doctorCount, SEARCHES.length);
+        for (Object[] search : SEARCHES) {
+            System.out.println("  plan: " + plan(search, byName, bySpecialty, byAvailability, byExperience));
+        }
+        System.out.printf("%-28s %14s %14s%n", "Search", "total (ms)", "searches/ms");
+        run("Full scan per search", fullScan);
+        run("IndexQuery plan", planned);
+    }
+
+    private static void run(String label, DoctorSearch search) {
+        searchAll(search); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            searchAll(search);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-28s %,14.2f %,14.2f%n", label, best / 1e6, SEARCHES.length / (best / 1e6));
+    }
+
+    private static int searchAll(DoctorSearch search) {
+        int matches = 0;
+        for (Object[] criteria : SEARCHES) {
+            matches += search.count(criteria);
+        }
+        return matches;
+    }
+
+    /**
+     * The previous findDoctorsByMultipleCriteria test, extended with OR
+     */
+    private static boolean scanMatches(Doctor doctor, Object[] search) {
+        String name = (String) search[0];
+        String specialty = (String) search[1];
+        Boolean available = (Boolean) search[2];
+        int minExperience = (Integer) search[3];
+        boolean matchAll = (Boolean) search[4];
+        int given = 0;
+        int passed = 0;
+        if (name != null) {
+            given++;
+            passed += doctor.getFullName().toLowerCase().contains(name) ? 1 : 0;
+        }
+        if (specialty != null) {
+            given++;
+            passed += doctor.getMedicalSpecialty().toLowerCase().contains(specialty) ? 1 : 0;
+        }
+        if (available != null) {
+            given++;
+            passed += doctor.isAvailable() == available ? 1 : 0;
+        }
+        if (minExperience > 0) {
+            given++;
+            passed += doctor.getExpYears() >= minExperience ? 1 : 0;
+        }
+        return matchAll ? passed == given : passed > 0;
+    }
+
+    /**
+     * Same criteria as DoctorManagementControl builds
+     */
+    private static IndexQuery<Doctor> plan(Object[] search, TrigramIndex<Doctor> byName,
+            PrefixIndex<ArrayBucketList<String, Doctor>> bySpecialty,
+            ArrayBucketList<Boolean, ArrayBucketList<String, Doctor>> byAvailability,
+            LongRangeIndex<ArrayBucketList<String, Doctor>> byExperience) {
+        List<IndexQuery<Doctor>> criteria = new ArrayList<>(4);
+        String name = (String) search[0];
+        if (name != null) {
+            criteria.add(IndexQuery.of("name~" + name, byName.estimateContaining(name),
+                    action -> byName.forEachContaining(name, action),
+                    doctor -> doctor.getFullName().toLowerCase().contains(name)));
+        }
+        String specialty = (String) search[1];
+        if (specialty != null) {
+            ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = ArrayBucketListFactory
+                    .createForStringIds(16);
+            int[] estimate = { 0 };
+            bySpecialty.forEach((key, group) -> {
+                if (key.contains(specialty)) {
+                    groups.add(key, group);
+                    estimate[0] += group.getSize();
+                }
+            });
+            criteria.add(IndexQuery.of("specialty~" + specialty, estimate[0],
+                    action -> groups.forEach(group -> group.forEach(action)),
+                    doctor -> doctor.getMedicalSpecialty().toLowerCase().contains(specialty)));
+        }
+        Boolean available = (Boolean) search[2];
+        if (available != null) {
+            ArrayBucketList<String, Doctor> group = byAvailability.getValue(available);
+            criteria.add(IndexQuery.of("available=" + available, group != null ? group.getSize() : 0,
+                    action -> group.forEach(action), doctor -> doctor.isAvailable() == available));
+        }
+        int minExperience = (Integer) search[3];
+        if (minExperience > 0) {
+            int[] estimate = { 0 };
+            byExperience.forEachInRange(minExperience, Long.MAX_VALUE, group -> estimate[0] += group.getSize());
+            criteria.add(IndexQuery.of("experience>=" + minExperience, estimate[0],
+                    action -> byExperience.forEachInRange(minExperience, Long.MAX_VALUE,
+                            group -> group.forEach(action)),
+                    doctor -> doctor.getExpYears() >= minExperience));
+        }
+        return (Boolean) search[4] ? IndexQuery.and(criteria) : IndexQuery.or(criteria);
+    }
+}
@@ -0,0 +1,208 @@
+package benchmark;
+
+import adt.ArrayBucketList;
+import entity.BloodType;
+import entity.Patient;
+
+/**
+ * Walk-in surge against the patient queue: every patient arrives and checks in
+ * twice (the second attempt must be rejected as a duplicate), one in ten leaves
+ * before being called, and the rest are called in arrival order.
+ * The ArrayBucketList queue (ring buffer + key index) is compared with the
+ * previous design, a linked list searched from the head for every duplicate
+ * check and removal, kept here as LinearScanQueue.
+ *
+ * Run with: java -cp target/classes benchmark.PatientQueueBenchmark [patients]
+ */
+public final class PatientQueueBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int LEAVE_EVERY = 10;
+
+    private PatientQueueBenchmark() {}
+
+    private interface PatientQueue {
+        boolean contains(String patientId);
+
+        void add(String patientId, Patient patient);
+
+        Patient remove(String patientId);
+
+        Patient removeFront();
+
+        int size();
+    }
+
+    public static void main(String[] args) {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        Patient[] surge = new Patient[patients];
+        for (int index = 0; index < patients; index++) {
+            String patientId = String.format("P%09d", index + 1);
+            surge[index] = new Patient("Walk-in " + index, "IC" + index, null, null, null,
+                    null, patientId, BloodType.O_POSITIVE, null, null);
+        }
+
+        System.out.printf("Walk-in surge: %,d patients%n", patients);
+        System.out.printf("%-28s %14s %14s%n", "Queue", "total (ms)", "ops/ms");
+        run("Linked list, linear scan", surge, LinearScanQueue::new);
+        run("Ring buffer + key index", surge, () -> {
+            ArrayBucketList<String, Patient> queue = new ArrayBucketList<>();
+            return new PatientQueue() {
+                public boolean contains(String patientId) {
+                    return queue.queueContains(patientId);
+                }
+
+                public void add(String patientId, Patient patient) {
+                    queue.addToQueue(patientId, patient);
+                }
+
+                public Patient remove(String patientId) {
+                    return queue.removeFromQueue(patientId);
+                }
+
+                public Patient removeFront() {
+                    return queue.removeFront();
+                }
+
+                public int size() {
+                    return queue.getQueueSize();
+                }
+            };
+        });
+    }
+
+    private interface QueueSupplier {
+        PatientQueue create();
+    }
+
+    private static void run(String label, Patient[] surge, QueueSupplier supplier) {
+        surge(surge, supplier.create()); // warm-up
+        long best = Long.MAX_VALUE;
+        long operations = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            operations = surge(surge, supplier.create());
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-28s %,14.2f %,14.0f%n", label, best / 1e6, operations / (best / 1e6));
+    }
+
+    /**
+     * Mirrors PatientManagementControl.addPatientToQueue / getNextPatientFromQueue
+     *
+     * @return number of queue operations performed
+     */
+    private static long surge(Patient[] surge, PatientQueue queue) {
+        long operations = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (Patient patient : surge) {
+                operations++;
+                if (!queue.contains(patient.getPatientId())) {
+                    queue.add(patient.getPatientId(), patient);
+                    operations++;
+                }
+            }
+        }
+        int left = 0;
+        for (int index = 0; index < surge.length; index += LEAVE_EVERY) {
+            if (queue.remove(surge[index].getPatientId()) != null) {
+                left++;
+            }
+            operations++;
+        }
+        int called = 0;
+        int expectedIndex = 0;
+        Patient next;
+        while ((next = queue.removeFront()) != null) {
+            if (expectedIndex % LEAVE_EVERY == 0) {
+                expectedIndex++;
+            }
+            if (next != surge[expectedIndex++]) {
+                throw new IllegalStateException("Queue order broken at " + next.getPatientId());
+            }
+            called++;
+            operations++;
+        }
+        if (called + left != surge.length || queue.size() != 0) {
+            throw new IllegalStateException("Lost patients: called " + called + ", left " + left);
+        }
+        return operations;
+    }
+
+    /**
+     * The queue design ArrayBucketList used before: a doubly linked list whose
+     * duplicate check and removal walk the chain from the head.
+     */
+    private static final class LinearScanQueue implements PatientQueue {
+        private static final class Node {
+            private final String patientId;
+            private final Patient patient;
+            private Node next;
+            private Node previous;
+
+            private Node(String patientId, Patient patient) {
+                this.patientId = patientId;
+                this.patient = patient;
+            }
+        }
+
+        private Node head;
+        private Node tail;
+        private int size;
+
+        private Node find(String patientId) {
+            for (Node node = head; node != null; node = node.next) {
+                if (node.patientId.equals(patientId)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        public boolean contains(String patientId) {
+            return find(patientId) != null;
+        }
+
+        public void add(String patientId, Patient patient) {
+            if (find(patientId) != null) {
+                return;
+            }
+            Node node = new Node(patientId, patient);
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+                node.previous = tail;
+            }
+            tail = node;
+            size++;
+        }
+
+        public Patient remove(String patientId) {
+            Node node = find(patientId);
+            if (node == null) {
+                return null;
+            }
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            size--;
+            return node.patient;
+        }
+
+        public Patient removeFront() {
+            return head == null ? null : remove(head.patientId);
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
+import adt.LongKeyBucketList;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+
+/**
+ * Compares a boxed LocalDate ArrayBucketList index against a LongKeyBucketList
+ * keyed by epoch day. Reports lookup throughput and bytes allocated per lookup.
+ *
+ * Run with: java -cp target/classes benchmark.PrimitiveKeyBenchmark [lookups]
+ */
+public final class PrimitiveKeyBenchmark {
+
+    private static final int DAY_GROUPS = 3650;
+    private static final int ROUNDS = 5;
+
+    private PrimitiveKeyBenchmark() {}
+
+    private interface Workload {
+        long run(int lookups);
+    }
+
+    public static void main(String[] args) {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        long today = LocalDate.now().toEpochDay();
+
+        ArrayBucketList<LocalDate, String> boxedDays = ArrayBucketListFactory.createForLocalDates(64);
+        LongKeyBucketList<String> primitiveDays = new LongKeyBucketList<>(64);
+        for (int offset = 0; offset < DAY_GROUPS; offset++) {
+            boxedDays.add(LocalDate.ofEpochDay(today - offset), "day-" + offset);
+            primitiveDays.add(today - offset, "day-" + offset);
+        }
+
+        System.out.printf("Lookups per round: %,d%n", lookups);
+        System.out.printf("%-32s %16s %16s%n", "Index", "lookups/ms", "bytes/lookup");
+        report("Date, ArrayBucketList<LocalDate>", lookups, count -> {
+            long hits = 0;
+            for (int index = 0; index < count; index++) {
+                if (boxedDays.getValue(LocalDate.ofEpochDay(today - index % DAY_GROUPS)) != null) {
+                    hits++;
+                }
+            }
+            return hits;
+        });
+        report("Date, LongKeyBucketList", lookups, count -> {
+            long hits = 0;
+            for (int index = 0; index < count; index++) {
+                if (primitiveDays.getValue(today - index % DAY_GROUPS) != null) {
+                    hits++;
+                }
+            }
+            return hits;
+        });
+    }
+
+    private static void report(String label, int lookups, Workload workload) {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        workload.run(lookups); // warm-up
+
+        double bestThroughput = 0;
+        long fewestBytes = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long hits = workload.run(lookups);
+            long elapsed = System.nanoTime() - start;
+            long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+            if (hits != lookups) {
+                throw new IllegalStateException("Lookup mismatch: " + hits + " of " + lookups);
+            }
+            bestThroughput = Math.max(bestThroughput, lookups / (elapsed / 1e6));
+            fewestBytes = Math.min(fewestBytes, bytes);
+        }
+        System.out.printf("%-32s %,16.0f %16.2f%n", label, bestThroughput, (double) fewestBytes / lookups);
+    }
+}
@@ -0,0 +1,102 @@
+package benchmark;
+
+import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
+import adt.BitmapIndex;
+import entity.Prescription;
+
+/**
+ * "Status X AND payment Y" questions over a large prescription table, in the
+ * shape asked by the pharmacy reports: every (status, payment status) pair is
+ * counted once per round.
+ * BitmapIndex intersects one bitmap per value; the previous design kept one
+ * ArrayBucketList per status and one per payment status and answered a pair
+ * by scanning the status list and probing the payment list. Both must return
+ * the same counts.
+ *
+ * Run with: java -cp target/classes benchmark.StatusBitmapBenchmark [prescriptions]
+ */
+public final class StatusBitmapBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private StatusBitmapBenchmark() {}
+
+    private interface PairCount {
+        int count(Prescription.PrescriptionStatus status, Prescription.PaymentStatus paymentStatus);
+    }
+
+    public static void main(String[] args) {
+        int prescriptionCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Prescription.PrescriptionStatus[] statuses = Prescription.PrescriptionStatus.values();
+        Prescription.PaymentStatus[] paymentStatuses = Prescription.PaymentStatus.values();
+        ArrayBucketList<String, String>[] byStatus = newLists(statuses.length, prescriptionCount);
+        ArrayBucketList<String, String>[] byPayment = newLists(paymentStatuses.length, prescriptionCount);
+        BitmapIndex<String> bitmaps = new BitmapIndex<>(prescriptionCount);
+        int seed = 42;
+        for (int index = 0; index < prescriptionCount; index++) {
+            seed = seed * 1103515245 + 12345;
+            int bits = seed >>> 8;
+            String prescriptionId = String.format("RX%09d", index + 1);
+            Prescription.PrescriptionStatus status = statuses[Math.floorMod(bits, statuses.length)];
+            Prescription.PaymentStatus paymentStatus = paymentStatuses[Math.floorMod(bits >>> 4, paymentStatuses.length)];
+            byStatus[status.ordinal()].add(prescriptionId, prescriptionId);
+            byPayment[paymentStatus.ordinal()].add(prescriptionId, prescriptionId);
+            bitmaps.put(prescriptionId, prescriptionId, status, paymentStatus);
+        }
+
+        PairCount scanAndProbe = (status, paymentStatus) -> {
+            ArrayBucketList<String, String> payments = byPayment[paymentStatus.ordinal()];
+            int[] matches = { 0 };
+            byStatus[status.ordinal()].forEach((prescriptionId, value) -> {
+                if (payments.contains(prescriptionId)) {
+                    matches[0]++;
+                }
+            });
+            return matches[0];
+        };
+        PairCount intersect = bitmaps::count;
+        for (Prescription.PrescriptionStatus status : statuses) {
+            for (Prescription.PaymentStatus paymentStatus : paymentStatuses) {
+                if (scanAndProbe.count(status, paymentStatus) != intersect.count(status, paymentStatus)) {
+                    throw new IllegalStateException("Count differs for " + status + " and " + paymentStatus);
+                }
+            }
+        }
+
+        System.out.printf("Prescriptions: %,d, status pairs per round: %d%n", prescriptionCount,
+                statuses.length * paymentStatuses.length);
+        System.out.printf("Bitmap footprint: %,d bytes (%.2f bits per prescription per attribute)%n",
+                bitmaps.getBitmapSizeInBytes(),
+                bitmaps.getBitmapSizeInBytes() * 8.0 / prescriptionCount / 2);
+        System.out.printf("%-28s %14s%n", "Index", "total (us)");
+        run("Status list scan + probe", scanAndProbe, statuses, paymentStatuses);
+        run("BitmapIndex intersection", intersect, statuses, paymentStatuses);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayBucketList<String, String>[] newLists(int count, int capacity) {
+        ArrayBucketList<String, String>[] lists = (ArrayBucketList<String, String>[]) new ArrayBucketList<?, ?>[count];
+        for (int index = 0; index < count; index++) {
+            lists[index] = ArrayBucketListFactory.createForStringIds(capacity / count);
+        }
+        return lists;
+    }
+
+    private static void run(String label, PairCount query, Prescription.PrescriptionStatus[] statuses,
+            Prescription.PaymentStatus[] paymentStatuses) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round++) { // round 0 is the warm-up
+            long start = System.nanoTime();
+            for (Prescription.PrescriptionStatus status : statuses) {
+                for (Prescription.PaymentStatus paymentStatus : paymentStatuses) {
+                    query.count(status, paymentStatus);
+                }
+            }
+            if (round > 0) {
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+        System.out.printf("%-28s %,14.1f%n", label, best / 1e3);
+    }
+}
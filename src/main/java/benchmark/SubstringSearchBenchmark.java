@@ -0,0 +1,89 @@
+package benchmark;
+
+import adt.TrigramIndex;
+
+/**
+ * Substring search over patient names: a mix of common and rare fragments is
+ * looked up the way findPatientsByName does for queries of three or more
+ * characters.
+ * TrigramIndex is compared with the previous approach, lower-casing every
+ * name and calling contains, and both must return the same number of matches.
+ *
+ * Run with: java -cp target/classes benchmark.SubstringSearchBenchmark [patients]
+ */
+public final class SubstringSearchBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final String[] GIVEN_NAMES = { "Ahmad", "Siti", "Wei Ming", "Priya", "Nurul", "Jason",
+            "Mei Ling", "Kumar", "Farah", "Daniel", "Aisyah", "Hafiz" };
+    private static final String[] FAMILY_NAMES = { "Tan", "Lim", "Abdullah", "Wong", "Rajan", "Lee",
+            "Ismail", "Ng", "Chong", "Krishnan", "Yusof", "Ong" };
+    private static final String[] QUERIES = { "abdullah", "mei", "krish", "ng", "siti yus", "tan",
+            "wei ming ong", "01234", "zzz" };
+
+    private SubstringSearchBenchmark() {}
+
+    private interface NameSearch {
+        int count(String query);
+    }
+
+    public static void main(String[] args) {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String[] names = new String[patients];
+        int seed = 42;
+        for (int index = 0; index < patients; index++) {
+            seed = seed * 1103515245 + 12345;
+            int given = Math.floorMod(seed >>> 8, GIVEN_NAMES.length);
+            int family = Math.floorMod(seed >>> 16, FAMILY_NAMES.length);
+            names[index] = GIVEN_NAMES[given] + " " + FAMILY_NAMES[family] + " " + index;
+        }
+
+        TrigramIndex<String> index = new TrigramIndex<>(patients);
+        for (int patient = 0; patient < patients; patient++) {
+            index.add(String.format("P%09d", patient + 1), names[patient], names[patient]);
+        }
+        NameSearch trigram = query -> {
+            int[] count = { 0 };
+            index.forEachContaining(query, (key, name) -> count[0]++);
+            return count[0];
+        };
+        NameSearch linear = query -> {
+            int count = 0;
+            for (String name : names) {
+                if (name.toLowerCase().contains(query)) {
+                    count++;
+                }
+            }
+            return count;
+        };
+        for (String query : QUERIES) {
+            if (trigram.count(query) != linear.count(query)) {
+                throw new IllegalStateException("Match count differs for \"" + query + "\"");
+            }
+        }
+
+        System.out.printf("Patients: %,d, queries per round: %d%n", patients, QUERIES.length);
+        System.out.printf("%-28s %14s %14s%n", "Search", "total (ms)", "queries/ms");
+        run("toLowerCase().contains", linear);
+        run("TrigramIndex", trigram);
+    }
+
+    private static void run(String label, NameSearch search) {
+        searchAll(search); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            searchAll(search);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-28s %,14.2f %,14.2f%n", label, best / 1e6, QUERIES.length / (best / 1e6));
+    }
+
+    private static int searchAll(NameSearch search) {
+        int matches = 0;
+        for (String query : QUERIES) {
+            matches += search.count(query);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,174 @@
+package benchmark;
+
+import adt.HeapPriorityQueue;
+
+/**
+ * Triage queue workload with thousands of waiting patients: patients arrive
+ * with random priorities, one in five is escalated while waiting, and the
+ * clinic alternates between calling the most urgent patient and admitting
+ * new arrivals before the queue is drained.
+ * HeapPriorityQueue is compared with a linear queue that must scan every
+ * waiting patient to find the most urgent one, and both must serve the
+ * patients in the same order.
+ *
+ * Run with: java -cp target/classes benchmark.TriageQueueBenchmark [waitingPatients]
+ */
+public final class TriageQueueBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int PRIORITY_LEVELS = 4;
+    private static final int ESCALATE_EVERY = 5;
+
+    private TriageQueueBenchmark() {}
+
+    private interface TriageQueue {
+        boolean enqueue(String patientId, int priority);
+
+        boolean escalate(String patientId, int priority);
+
+        String dequeue();
+    }
+
+    private interface QueueSupplier {
+        TriageQueue create();
+    }
+
+    public static void main(String[] args) {
+        int waiting = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        String[] patientIds = new String[waiting * 2];
+        int[] priorities = new int[patientIds.length];
+        int seed = 42;
+        for (int index = 0; index < patientIds.length; index++) {
+            patientIds[index] = String.format("P%09d", index + 1);
+            seed = seed * 1103515245 + 12345;
+            priorities[index] = 1 + Math.floorMod(seed >>> 16, PRIORITY_LEVELS);
+        }
+
+        String[] heapOrder = serve(patientIds, priorities, waiting, heapQueue());
+        String[] linearOrder = serve(patientIds, priorities, waiting, new LinearTriageQueue(patientIds.length));
+        for (int index = 0; index < heapOrder.length; index++) {
+            if (!heapOrder[index].equals(linearOrder[index])) {
+                throw new IllegalStateException("Serving order differs at position " + index);
+            }
+        }
+
+        System.out.printf("Waiting patients: %,d (plus %,d arrivals while serving)%n", waiting, waiting);
+        System.out.printf("%-24s %14s %16s%n", "Queue", "total (ms)", "dequeues/ms");
+        run("Linear scan", patientIds, priorities, waiting, () -> new LinearTriageQueue(patientIds.length));
+        run("HeapPriorityQueue", patientIds, priorities, waiting, TriageQueueBenchmark::heapQueue);
+    }
+
+    private static TriageQueue heapQueue() {
+        HeapPriorityQueue<String, String> queue = new HeapPriorityQueue<>();
+        return new TriageQueue() {
+            public boolean enqueue(String patientId, int priority) {
+                return queue.enqueue(patientId, patientId, priority);
+            }
+
+            public boolean escalate(String patientId, int priority) {
+                return queue.decreaseKey(patientId, priority);
+            }
+
+            public String dequeue() {
+                return queue.dequeue();
+            }
+        };
+    }
+
+    private static void run(String label, String[] patientIds, int[] priorities, int waiting,
+            QueueSupplier supplier) {
+        serve(patientIds, priorities, waiting, supplier.create()); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            serve(patientIds, priorities, waiting, supplier.create());
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-24s %,14.2f %,16.0f%n", label, best / 1e6, patientIds.length / (best / 1e6));
+    }
+
+    /**
+     * @return patient IDs in the order they were served
+     */
+    private static String[] serve(String[] patientIds, int[] priorities, int waiting, TriageQueue queue) {
+        String[] served = new String[patientIds.length];
+        int servedCount = 0;
+        for (int index = 0; index < waiting; index++) {
+            queue.enqueue(patientIds[index], priorities[index]);
+        }
+        for (int index = 0; index < waiting; index += ESCALATE_EVERY) {
+            queue.escalate(patientIds[index], 1);
+        }
+        for (int index = waiting; index < patientIds.length; index++) {
+            served[servedCount++] = queue.dequeue();
+            queue.enqueue(patientIds[index], priorities[index]);
+        }
+        String next;
+        while ((next = queue.dequeue()) != null) {
+            served[servedCount++] = next;
+        }
+        if (servedCount != patientIds.length) {
+            throw new IllegalStateException("Served " + servedCount + " of " + patientIds.length);
+        }
+        return served;
+    }
+
+    /**
+     * Waiting patients kept in arrival order; calling the next patient scans
+     * them all for the most urgent and closes the gap it leaves.
+     */
+    private static final class LinearTriageQueue implements TriageQueue {
+        private final String[] patientIds;
+        private final int[] priorities;
+        private int size;
+
+        private LinearTriageQueue(int capacity) {
+            this.patientIds = new String[capacity];
+            this.priorities = new int[capacity];
+        }
+
+        private int indexOf(String patientId) {
+            for (int index = 0; index < size; index++) {
+                if (patientIds[index].equals(patientId)) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        public boolean enqueue(String patientId, int priority) {
+            if (indexOf(patientId) >= 0) {
+                return false;
+            }
+            patientIds[size] = patientId;
+            priorities[size++] = priority;
+            return true;
+        }
+
+        public boolean escalate(String patientId, int priority) {
+            int index = indexOf(patientId);
+            if (index < 0 || priority >= priorities[index]) {
+                return false;
+            }
+            priorities[index] = priority;
+            return true;
+        }
+
+        public String dequeue() {
+            if (size == 0) {
+                return null;
+            }
+            int best = 0;
+            for (int index = 1; index < size; index++) {
+                if (priorities[index] < priorities[best]) {
+                    best = index;
+                }
+            }
+            String patientId = patientIds[best];
+            System.arraycopy(patientIds, best + 1, patientIds, best, size - best - 1);
+            System.arraycopy(priorities, best + 1, priorities, best, size - best - 1);
+            patientIds[--size] = null;
+            return patientId;
+        }
+    }
+}
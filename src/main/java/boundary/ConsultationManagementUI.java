@@ -23,14 +23,21 @@ public class ConsultationManagementUI {
     private ConsultationManagementControl consultationControl;
 
     public ConsultationManagementUI() {
+        this(new ConsultationManagementControl());
+        consultationControl.loadConsultationData();
+    }
+
+    /**
+     * Uses a control whose data is already loaded (see WarmStartControl)
+     */
+    public ConsultationManagementUI(ConsultationManagementControl consultationControl) {
         this.scanner = new Scanner(System.in);
-        this.consultationControl = new ConsultationManagementControl();
+        this.consultationControl = consultationControl;
     }
 
     public void displayConsultationManagementMenu() {
         while (true) {
             ConsoleUtils.clearScreen();
-            consultationControl.loadConsultationData();
             ConsoleUtils.printHeader("Consultation Management Module");
             System.out.println("1. Schedule Consultation");
             System.out.println("2. Start Consultation");
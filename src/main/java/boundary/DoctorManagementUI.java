@@ -19,14 +19,21 @@ public class DoctorManagementUI {
     private DoctorManagementControl doctorControl;
 
     public DoctorManagementUI() {
+        this(new DoctorManagementControl());
+        doctorControl.loadDoctorData();
+    }
+
+    /**
+     * Uses a control whose data is already loaded (see WarmStartControl)
+     */
+    public DoctorManagementUI(DoctorManagementControl doctorControl) {
         this.scanner = new Scanner(System.in);
-        this.doctorControl = new DoctorManagementControl();
+        this.doctorControl = doctorControl;
     }
 
     public void displayDoctorManagementMenu() {
         while (true) {
             ConsoleUtils.clearScreen();
-            doctorControl.loadDoctorData();
             System.out.println("\n=== DOCTOR MANAGEMENT MODULE ===");
             System.out.println("1. Register New Doctor");
             System.out.println("2. Update Doctor Information");
@@ -209,10 +216,7 @@ public class DoctorManagementUI {
 
     private void viewDoctorStatistics() {
         System.out.println("\n=== DOCTOR STATISTICS ===");
-        
-        // Load data first
-        doctorControl.loadDoctorData();
-        
+
         System.out.println("DOCTOR STATISTICS OVERVIEW");
         System.out.println("=" .repeat(50));
         System.out.println("Total Doctors: " + doctorControl.getTotalDoctors());
@@ -875,11 +879,17 @@ public class DoctorManagementUI {
         
         int minExperience = ConsoleUtils.getIntInput(scanner, "Enter minimum experience years (0 to skip): ", 0, 50);
         
+        System.out.println("Match:");
+        System.out.println("1. All criteria");
+        System.out.println("2. Any criterion");
+        boolean matchAll = ConsoleUtils.getIntInput(scanner, "Enter your choice: ", 1, 2) == 1;
+        
         ArrayBucketList<String, Doctor> foundDoctors = doctorControl.findDoctorsByMultipleCriteria(
             name.isEmpty() ? null : name,
             specialty.isEmpty() ? null : specialty,
-            checkAvailability ? isAvailable : true,
-            minExperience
+            checkAvailability ? Boolean.valueOf(isAvailable) : null,
+            minExperience,
+            matchAll
         );
         
         if (!foundDoctors.isEmpty()) {
@@ -968,29 +978,8 @@ public class DoctorManagementUI {
             System.out.println("Address: " + doctor.getAddress());
         }
 
-        System.out.println("Number of Consultations: " + getConsultationCountForDoctor(doctor.getDoctorId()));
-    }
-
-    private int getConsultationCountForDoctor(String doctorId) {
-        try {
-            // Get all consultations and count those for the specific doctor
-            dao.ConsultationDao consultationDao = new dao.ConsultationDao();
-            ArrayBucketList<String, entity.Consultation> allConsultations = consultationDao.findAll();
-
-            int count = 0;
-            Iterator<entity.Consultation> iterator = allConsultations.iterator();
-            while (iterator.hasNext()) {
-                entity.Consultation consultation = iterator.next();
-                if (consultation != null && consultation.getDoctor() != null &&
-                        doctorId.equals(consultation.getDoctor().getDoctorId())) {
-                    count++;
-                }
-            }
-            return count;
-        } catch (Exception e) {
-            System.err.println("Error counting consultations for doctor " + doctorId + ": " + e.getMessage());
-            return 0;
-        }
+        System.out.println("Number of Consultations: "
+                + doctorControl.getConsultationCountForDoctor(doctor.getDoctorId()));
     }
 
     private void generateDoctorInformationReportUI() {
@@ -1,6 +1,7 @@
  package boundary;
 
 import java.util.Scanner;
+import control.WarmStartControl;
 import utility.ConsoleUtils;
 
 /**
@@ -18,12 +19,19 @@ public class MainMenuUI {
 
     public MainMenuUI() {
         this.scanner = new Scanner(System.in);
-        this.patientUI = new PatientManagementUI();
-        this.doctorUI = new DoctorManagementUI();
-        this.consultationUI = new ConsultationManagementUI();
-        this.treatmentUI = new MedicalTreatmentUI();
-        this.pharmacyUI = new PharmacyManagementUI();
-        this.reportUI = new ReportGenerationUI();
+        // One shared control per module, loaded once and in parallel
+        WarmStartControl warmStart = new WarmStartControl();
+        System.out.println("Loading clinic data...");
+        System.out.print(warmStart.warmStart());
+        this.patientUI = new PatientManagementUI(warmStart.getPatientControl());
+        this.doctorUI = new DoctorManagementUI(warmStart.getDoctorControl());
+        this.consultationUI = new ConsultationManagementUI(warmStart.getConsultationControl());
+        this.treatmentUI = new MedicalTreatmentUI(warmStart.getTreatmentControl(),
+                warmStart.getConsultationControl());
+        this.pharmacyUI = new PharmacyManagementUI(warmStart.getPharmacyControl());
+        this.reportUI = new ReportGenerationUI(warmStart.getPatientControl(), warmStart.getDoctorControl(),
+                warmStart.getConsultationControl(), warmStart.getTreatmentControl(),
+                warmStart.getPharmacyControl());
     }
 
     public void displayMainMenu() {
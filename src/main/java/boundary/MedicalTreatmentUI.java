@@ -2,6 +2,7 @@ package boundary;
 
 import control.MedicalTreatmentControl;
 import control.ConsultationManagementControl;
+import control.ModuleLoadControl;
 import entity.MedicalTreatment;
 import entity.Patient;
 import entity.Doctor;
@@ -25,16 +26,24 @@ public class MedicalTreatmentUI {
     private MedicalTreatmentControl treatmentControl;
 
     public MedicalTreatmentUI() {
+        this(new MedicalTreatmentControl(), new ConsultationManagementControl());
+        ModuleLoadControl.loadInOneSession(consultationControl::loadConsultationData,
+                treatmentControl::loadTreatmentData);
+    }
+
+    /**
+     * Uses controls whose data is already loaded (see WarmStartControl)
+     */
+    public MedicalTreatmentUI(MedicalTreatmentControl treatmentControl,
+            ConsultationManagementControl consultationControl) {
         this.scanner = new Scanner(System.in);
-        this.treatmentControl = new MedicalTreatmentControl();
-        this.consultationControl = new ConsultationManagementControl();
+        this.treatmentControl = treatmentControl;
+        this.consultationControl = consultationControl;
     }
 
     public void displayTreatmentManagementMenu() {
         while (true) {
             ConsoleUtils.clearScreen();
-            consultationControl.loadConsultationData();
-            treatmentControl.loadTreatmentData();
             ConsoleUtils.printHeader("MEDICAL TREATMENT MANAGEMENT MODULE");
             System.out.println("1. Create Treatment");
             System.out.println("2. Update Treatment");
@@ -79,8 +88,6 @@ public class MedicalTreatmentUI {
     }
 
     private void createTreatment() {
-        consultationControl.loadConsultationData();
-        treatmentControl.loadTreatmentData();
         ConsoleUtils.printHeader("Create Treatment");
 
         // First, show all available completed consultations
@@ -22,15 +22,22 @@ public class PatientManagementUI {
     private AddressManagementControl addressControl;
 
     public PatientManagementUI() {
+        this(new PatientManagementControl());
+        patientControl.loadActivePatients();
+    }
+
+    /**
+     * Uses a control whose data is already loaded (see WarmStartControl)
+     */
+    public PatientManagementUI(PatientManagementControl patientControl) {
         this.scanner = new Scanner(System.in);
-        this.patientControl = new PatientManagementControl();
+        this.patientControl = patientControl;
         this.addressControl = new AddressManagementControl();
     }
 
     public void displayPatientManagementMenu() {
         while (true) {
             ConsoleUtils.clearScreen();
-            patientControl.loadActivePatients();
             ConsoleUtils.printHeader("Patient Management Module");
             System.out.println("1. Register New Patient");
             System.out.println("2. Update Patient Record");
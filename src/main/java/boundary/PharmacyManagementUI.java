@@ -20,14 +20,21 @@ public class PharmacyManagementUI {
     private final PharmacyManagementControl pharmacyControl;
 
     public PharmacyManagementUI() {
+        this(new PharmacyManagementControl());
+        pharmacyControl.loadPharmacyData();
+    }
+
+    /**
+     * Uses a control whose data is already loaded (see WarmStartControl)
+     */
+    public PharmacyManagementUI(PharmacyManagementControl pharmacyControl) {
         this.scanner = new Scanner(System.in);
-        this.pharmacyControl = new PharmacyManagementControl();
+        this.pharmacyControl = pharmacyControl;
     }
 
     public void displayPharmacyManagementMenu() {
         while (true) {
             ConsoleUtils.clearScreen();
-            pharmacyControl.loadPharmacyData();
             ConsoleUtils.printHeader("Pharmacy Management Module");
             System.out.println("1. Add Medicine");
             System.out.println("2. Update Medicine");
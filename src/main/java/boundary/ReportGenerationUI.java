@@ -5,6 +5,7 @@ import java.util.Scanner;
 import control.ConsultationManagementControl;
 import control.DoctorManagementControl;
 import control.MedicalTreatmentControl;
+import control.ModuleLoadControl;
 import control.PatientManagementControl;
 import control.PharmacyManagementControl;
 import utility.ConsoleUtils;
@@ -22,17 +23,28 @@ public class ReportGenerationUI {
     private PharmacyManagementControl pharmacyControl;
 
     public ReportGenerationUI() {
+        this(new PatientManagementControl(), new DoctorManagementControl(), new ConsultationManagementControl(),
+                new MedicalTreatmentControl(), new PharmacyManagementControl());
+        ModuleLoadControl.loadInOneSession(
+                patientControl::loadActivePatients,
+                doctorControl::loadDoctorData,
+                consultationControl::loadConsultationData,
+                treatmentControl::loadTreatmentData,
+                pharmacyControl::loadPharmacyData);
+    }
+
+    /**
+     * Uses controls whose data is already loaded (see WarmStartControl)
+     */
+    public ReportGenerationUI(PatientManagementControl patientControl, DoctorManagementControl doctorControl,
+            ConsultationManagementControl consultationControl, MedicalTreatmentControl treatmentControl,
+            PharmacyManagementControl pharmacyControl) {
         this.scanner = new Scanner(System.in);
-        this.patientControl = new PatientManagementControl();
-        this.doctorControl = new DoctorManagementControl();
-        this.consultationControl = new ConsultationManagementControl();
-        this.treatmentControl = new MedicalTreatmentControl();
-        this.pharmacyControl = new PharmacyManagementControl();
-        this.patientControl.loadActivePatients();
-        this.doctorControl.loadDoctorData();
-        this.consultationControl.loadConsultationData();
-        this.treatmentControl.loadTreatmentData();
-        this.pharmacyControl.loadPharmacyData();
+        this.patientControl = patientControl;
+        this.doctorControl = doctorControl;
+        this.consultationControl = consultationControl;
+        this.treatmentControl = treatmentControl;
+        this.pharmacyControl = pharmacyControl;
     }
 
     public void generateAllReports() {
@@ -2,7 +2,10 @@ package control;
 
 import adt.ArrayBucketList;
 import adt.ArrayBucketListFactory;
+import adt.BitmapIndex;
 import adt.IndexingUtility;
+import adt.PrefixIndex;
+import adt.LongRangeIndex;
 import utility.ConsoleUtils;
 import entity.Consultation;
 import entity.Patient;
@@ -28,33 +31,31 @@ import java.util.Comparator;
 public class ConsultationManagementControl {
 
     private ArrayBucketList<String, Consultation> consultations;
-    private ArrayBucketList<String, Consultation> scheduledConsultations;
-    private ArrayBucketList<String, Consultation> inProgressConsultations;
-    private ArrayBucketList<String, Consultation> completedConsultations;
-    private ArrayBucketList<String, Consultation> cancelledConsultations;
     // Indices
     private ArrayBucketList<String, Consultation> consultationIndexById;
     private ArrayBucketList<String, ArrayBucketList<String, Consultation>> consultationIndexByPatientId;
     private ArrayBucketList<String, ArrayBucketList<String, Consultation>> consultationIndexByDoctorId;
-    private ArrayBucketList<Consultation.PaymentStatus, ArrayBucketList<String, Consultation>> consultationIndexByPaymentStatus;
-    private ArrayBucketList<java.time.LocalDate, ArrayBucketList<String, Consultation>> consultationIndexByDate;
+    // Consultation status and payment status, one bitmap per value
+    private BitmapIndex<Consultation> consultationIndexByStatus;
+    private PrefixIndex<ArrayBucketList<String, Consultation>> consultationIndexByPatientName;
+    private PrefixIndex<ArrayBucketList<String, Consultation>> consultationIndexByDoctorName;
+    // Keyed by LocalDate.toEpochDay()
+    private LongRangeIndex<ArrayBucketList<String, Consultation>> consultationIndexByDate;
     private ConsultationDao consultationDao;
     private ScheduleDao scheduleDao;
     private PatientDao patientDao;
     private DoctorDao doctorDao;
 
     public ConsultationManagementControl() {
-        this.consultations = new ArrayBucketList<String, Consultation>();
-        this.scheduledConsultations = new ArrayBucketList<String, Consultation>();
-        this.inProgressConsultations = new ArrayBucketList<String, Consultation>();
-        this.completedConsultations = new ArrayBucketList<String, Consultation>();
-        this.cancelledConsultations = new ArrayBucketList<String, Consultation>();
+        this.consultations = ArrayBucketListFactory.createIncremental(16);
         // Initialize indices
-        this.consultationIndexById = ArrayBucketListFactory.createForStringIds(256);
+        this.consultationIndexById = ArrayBucketListFactory.createForStringIdsIncremental(256);
         this.consultationIndexByPatientId = ArrayBucketListFactory.createForStringIds(128);
         this.consultationIndexByDoctorId = ArrayBucketListFactory.createForStringIds(128);
-        this.consultationIndexByPaymentStatus = ArrayBucketListFactory.createForEnums(8);
-        this.consultationIndexByDate = ArrayBucketListFactory.createForLocalDates(64);
+        this.consultationIndexByStatus = new BitmapIndex<>(256);
+        this.consultationIndexByPatientName = new PrefixIndex<>();
+        this.consultationIndexByDoctorName = new PrefixIndex<>();
+        this.consultationIndexByDate = new LongRangeIndex<>();
         this.consultationDao = new ConsultationDao();
         this.scheduleDao = new ScheduleDao();
         this.patientDao = new PatientDao();
@@ -67,51 +68,20 @@ public class ConsultationManagementControl {
                 consultationDao.cancelExpiredConsultations();
             } catch (Exception ignored) {
             }
-            consultations = consultationDao.findAll();
-            categorizeConsultations();
-            // Build indices
-            Iterator<Consultation> buildIterator = consultations.iterator();
-            while (buildIterator.hasNext()) {
-                Consultation consultation = buildIterator.next();
+            ArrayBucketList<String, Consultation> loaded = ArrayBucketListFactory.createIncremental(16);
+            consultationIndexByStatus.clear();
+            // Build indices while the rows stream in
+            consultationDao.forEachRow(consultation -> {
+                loaded.add(consultation.getConsultationId(), consultation);
                 consultationIndexById.add(consultation.getConsultationId(), consultation);
                 indexConsultation(consultation);
-            }
+            });
+            consultations = loaded;
         } catch (Exception exception) {
             System.err.println("Error loading consultation data: " + exception.getMessage());
         }
     }
 
-    /**
-     * Categorize consultations into status-specific collections for efficient
-     * in-memory processing
-     */
-    private void categorizeConsultations() {
-        // Clear existing categorized collections
-        scheduledConsultations.clear();
-        inProgressConsultations.clear();
-        completedConsultations.clear();
-        cancelledConsultations.clear();
-
-        Iterator<Consultation> consultationIterator = consultations.iterator();
-        while (consultationIterator.hasNext()) {
-            Consultation consultation = consultationIterator.next();
-            switch (consultation.getStatus()) {
-                case SCHEDULED:
-                    scheduledConsultations.add(consultation.getConsultationId(), consultation);
-                    break;
-                case IN_PROGRESS:
-                    inProgressConsultations.add(consultation.getConsultationId(), consultation);
-                    break;
-                case COMPLETED:
-                    completedConsultations.add(consultation.getConsultationId(), consultation);
-                    break;
-                case CANCELLED:
-                    cancelledConsultations.add(consultation.getConsultationId(), consultation);
-                    break;
-            }
-        }
-    }
-
     public String startConsultation(String doctorId) {
         try {
             LocalDate today = LocalDate.now();
@@ -140,8 +110,6 @@ public class ConsultationManagementControl {
             }
 
             // Update in-memory collections
-            scheduledConsultations.remove(nextConsultation.getConsultationId());
-            inProgressConsultations.add(nextConsultation.getConsultationId(), nextConsultation);
             consultations.add(nextConsultation.getConsultationId(), nextConsultation);
             reindexConsultation(nextConsultation);
 
@@ -178,8 +146,6 @@ public class ConsultationManagementControl {
                 }
 
                 // Update in-memory collections
-                inProgressConsultations.remove(consultation.getConsultationId());
-                completedConsultations.add(consultation.getConsultationId(), consultation);
                 consultations.add(consultation.getConsultationId(), consultation);
                 reindexConsultation(consultation);
 
@@ -291,7 +257,6 @@ public class ConsultationManagementControl {
 
             // Add to in-memory collections
             consultations.add(consultation.getConsultationId(), consultation);
-            scheduledConsultations.add(consultation.getConsultationId(), consultation);
             consultationIndexById.add(consultation.getConsultationId(), consultation);
             indexConsultation(consultation);
 
@@ -321,8 +286,6 @@ public class ConsultationManagementControl {
                 consultation.setPaymentStatus(Consultation.PaymentStatus.CANCELLED);
 
                 // Update in-memory collections
-                scheduledConsultations.remove(consultation.getConsultationId());
-                cancelledConsultations.add(consultation.getConsultationId(), consultation);
                 consultations.add(consultation.getConsultationId(), consultation);
                 reindexConsultation(consultation);
 
@@ -351,24 +314,68 @@ public class ConsultationManagementControl {
     }
 
     public ArrayBucketList<String, Consultation> findConsultationsByDate(LocalDateTime date) {
-        ArrayBucketList<String, Consultation> group = consultationIndexByDate.getValue(date.toLocalDate());
+        ArrayBucketList<String, Consultation> group = consultationIndexByDate.getValue(date.toLocalDate().toEpochDay());
         return group != null ? group : new ArrayBucketList<>();
     }
 
+    public ArrayBucketList<String, Consultation> findConsultationsByPatientName(String patientNamePrefix) {
+        ArrayBucketList<String, Consultation> results = ArrayBucketListFactory.createForStringIds(16);
+        if (patientNamePrefix == null) {
+            return results;
+        }
+        String query = patientNamePrefix.trim();
+        if (query.isEmpty()) {
+            return results;
+        }
+        ArrayBucketList<String, ArrayBucketList<String, Consultation>> groups = consultationIndexByPatientName.getByPrefix(query);
+        Iterator<ArrayBucketList<String, Consultation>> groupIterator = groups.iterator();
+        while (groupIterator.hasNext()) {
+            ArrayBucketList<String, Consultation> group = groupIterator.next();
+            Iterator<Consultation> iterator = group.iterator();
+            while (iterator.hasNext()) {
+                Consultation consultation = iterator.next();
+                results.add(consultation.getConsultationId(), consultation);
+            }
+        }
+        return results;
+    }
+
+    public ArrayBucketList<String, Consultation> findConsultationsByDoctorName(String doctorNamePrefix) {
+        ArrayBucketList<String, Consultation> results = ArrayBucketListFactory.createForStringIds(16);
+        if (doctorNamePrefix == null) {
+            return results;
+        }
+        String query = doctorNamePrefix.trim();
+        if (query.isEmpty()) {
+            return results;
+        }
+        ArrayBucketList<String, ArrayBucketList<String, Consultation>> groups = consultationIndexByDoctorName.getByPrefix(query);
+        Iterator<ArrayBucketList<String, Consultation>> groupIterator = groups.iterator();
+        while (groupIterator.hasNext()) {
+            ArrayBucketList<String, Consultation> group = groupIterator.next();
+            Iterator<Consultation> iterator = group.iterator();
+            while (iterator.hasNext()) {
+                Consultation consultation = iterator.next();
+                results.add(consultation.getConsultationId(), consultation);
+            }
+        }
+        return results;
+    }
+
     public ArrayBucketList<String, Consultation> getScheduledConsultations() {
-        return scheduledConsultations;
+        return consultationIndexByStatus.find(Consultation.ConsultationStatus.SCHEDULED);
     }
 
     public ArrayBucketList<String, Consultation> getCompletedConsultations() {
-        return completedConsultations;
+        return consultationIndexByStatus.find(Consultation.ConsultationStatus.COMPLETED);
     }
 
     public ArrayBucketList<String, Consultation> getInProgressConsultations() {
-        return inProgressConsultations;
+        return consultationIndexByStatus.find(Consultation.ConsultationStatus.IN_PROGRESS);
     }
 
     public ArrayBucketList<String, Consultation> getCancelledConsultations() {
-        return cancelledConsultations;
+        return consultationIndexByStatus.find(Consultation.ConsultationStatus.CANCELLED);
     }
 
     public ArrayBucketList<String, Consultation> getAllConsultations() {
@@ -381,34 +388,39 @@ public class ConsultationManagementControl {
 
     public ArrayBucketList<String, Consultation> findConsultationsByDateRange(LocalDate startDate, LocalDate endDate) {
         ArrayBucketList<String, Consultation> dateRangeConsultations = new ArrayBucketList<>();
-        Iterator<Consultation> consultationIterator = consultations.iterator();
-        while (consultationIterator.hasNext()) {
-            Consultation consultation = consultationIterator.next();
-            LocalDate consultationDate = consultation.getConsultationDate().toLocalDate();
-            if (!consultationDate.isBefore(startDate.minusDays(1)) && !consultationDate.isAfter(endDate.plusDays(1))) {
-                dateRangeConsultations.add(consultation.getConsultationId(), consultation);
-            }
-        }
+        // The window is widened by a day on each side, as the search screen expects
+        IndexingUtility.collectGroupsInRange(consultationIndexByDate, startDate.minusDays(1).toEpochDay(),
+                endDate.plusDays(1).toEpochDay(), dateRangeConsultations);
         return dateRangeConsultations;
     }
 
     public ArrayBucketList<String, Consultation> findConsultationsByStatus(Consultation.ConsultationStatus status) {
-        return switch (status) {
-            case SCHEDULED -> scheduledConsultations;
-            case IN_PROGRESS -> inProgressConsultations;
-            case COMPLETED -> completedConsultations;
-            case CANCELLED -> cancelledConsultations;
-        };
+        return consultationIndexByStatus.find(status);
     }
 
     public ArrayBucketList<String, Consultation> findConsultationsByPaymentStatus(
             Consultation.PaymentStatus paymentStatus) {
-        ArrayBucketList<String, Consultation> group = consultationIndexByPaymentStatus.getValue(paymentStatus);
-        return group != null ? group : new ArrayBucketList<>();
+        return consultationIndexByStatus.find(paymentStatus);
+    }
+
+    // Intersects the status and payment bitmaps; either may be null to leave it unfiltered
+    public ArrayBucketList<String, Consultation> findConsultationsByStatusAndPaymentStatus(
+            Consultation.ConsultationStatus status, Consultation.PaymentStatus paymentStatus) {
+        if (status == null) {
+            return findConsultationsByPaymentStatus(paymentStatus);
+        }
+        if (paymentStatus == null) {
+            return consultationIndexByStatus.find(status);
+        }
+        return consultationIndexByStatus.find(status, paymentStatus);
+    }
+
+    public int countConsultationsByStatus(Consultation.ConsultationStatus status) {
+        return consultationIndexByStatus.count(status);
     }
 
     public int getScheduledConsultationsCount() {
-        return scheduledConsultations.getSize();
+        return countConsultationsByStatus(Consultation.ConsultationStatus.SCHEDULED);
     }
 
     public Patient getPatientById(String patientId) {
@@ -431,10 +443,10 @@ public class ConsultationManagementControl {
 
     // New in-memory helper methods for efficient processing
     private Consultation findInProgressConsultationByDoctor(String doctorId) {
-        Iterator<Consultation> consultationIterator = inProgressConsultations.iterator();
+        Iterator<Consultation> consultationIterator = consultationsOfDoctor(doctorId);
         while (consultationIterator.hasNext()) {
             Consultation consultation = consultationIterator.next();
-            if (consultation.getDoctor().getDoctorId().equals(doctorId)) {
+            if (consultation.getStatus() == Consultation.ConsultationStatus.IN_PROGRESS) {
                 return consultation;
             }
         }
@@ -443,10 +455,10 @@ public class ConsultationManagementControl {
 
     private Consultation findEarliestScheduledConsultationByDoctorOnDate(String doctorId, LocalDate date) {
         Consultation earliest = null;
-        Iterator<Consultation> consultationIterator = scheduledConsultations.iterator();
+        Iterator<Consultation> consultationIterator = consultationsOfDoctor(doctorId);
         while (consultationIterator.hasNext()) {
             Consultation consultation = consultationIterator.next();
-            if (consultation.getDoctor().getDoctorId().equals(doctorId) &&
+            if (consultation.getStatus() == Consultation.ConsultationStatus.SCHEDULED &&
                     consultation.getConsultationDate().toLocalDate().equals(date)) {
                 if (earliest == null || consultation.getConsultationDate().isBefore(earliest.getConsultationDate())) {
                     earliest = consultation;
@@ -458,10 +470,10 @@ public class ConsultationManagementControl {
 
     private int countScheduledConsultationsByDoctorOnDate(String doctorId, LocalDate date) {
         int count = 0;
-        Iterator<Consultation> consultationIterator = scheduledConsultations.iterator();
+        Iterator<Consultation> consultationIterator = consultationsOfDoctor(doctorId);
         while (consultationIterator.hasNext()) {
             Consultation consultation = consultationIterator.next();
-            if (consultation.getDoctor().getDoctorId().equals(doctorId) &&
+            if (consultation.getStatus() == Consultation.ConsultationStatus.SCHEDULED &&
                     consultation.getConsultationDate().toLocalDate().equals(date)) {
                 count++;
             }
@@ -471,10 +483,10 @@ public class ConsultationManagementControl {
 
     private int countInProgressConsultationsByDoctor(String doctorId) {
         int count = 0;
-        Iterator<Consultation> consultationIterator = inProgressConsultations.iterator();
+        Iterator<Consultation> consultationIterator = consultationsOfDoctor(doctorId);
         while (consultationIterator.hasNext()) {
             Consultation consultation = consultationIterator.next();
-            if (consultation.getDoctor().getDoctorId().equals(doctorId)) {
+            if (consultation.getStatus() == Consultation.ConsultationStatus.IN_PROGRESS) {
                 count++;
             }
         }
@@ -483,10 +495,14 @@ public class ConsultationManagementControl {
 
     private ArrayBucketList<String, Doctor> getDoctorsWithScheduledConsultationsOnDate(LocalDate date) {
         ArrayBucketList<String, Doctor> doctors = new ArrayBucketList<>();
-        Iterator<Consultation> consultationIterator = scheduledConsultations.iterator();
+        ArrayBucketList<String, Consultation> group = consultationIndexByDate.getValue(date.toEpochDay());
+        if (group == null) {
+            return doctors;
+        }
+        Iterator<Consultation> consultationIterator = group.iterator();
         while (consultationIterator.hasNext()) {
             Consultation consultation = consultationIterator.next();
-            if (consultation.getConsultationDate().toLocalDate().equals(date)) {
+            if (consultation.getStatus() == Consultation.ConsultationStatus.SCHEDULED) {
                 Doctor doctor = consultation.getDoctor();
                 if (doctors.getValue(doctor.getDoctorId()) == null) {
                     doctors.add(doctor.getDoctorId(), doctor);
@@ -496,6 +512,12 @@ public class ConsultationManagementControl {
         return doctors;
     }
 
+    // Consultations of one doctor from the doctor index, in no particular order
+    private Iterator<Consultation> consultationsOfDoctor(String doctorId) {
+        ArrayBucketList<String, Consultation> group = consultationIndexByDoctorId.getValue(doctorId);
+        return group != null ? group.iterator() : new ArrayBucketList<String, Consultation>().iterator();
+    }
+
     // Indexing helpers
     private void indexConsultation(Consultation consultation) {
         if (consultation == null) {
@@ -505,9 +527,14 @@ public class ConsultationManagementControl {
                 consultation.getConsultationId(), consultation);
         IndexingUtility.addToIndexGroup(consultationIndexByDoctorId, consultation.getDoctor().getDoctorId(),
                 consultation.getConsultationId(), consultation);
-        IndexingUtility.addToIndexGroup(consultationIndexByPaymentStatus, consultation.getPaymentStatus(),
+        // Replaces any previous status and payment bits of this consultation
+        consultationIndexByStatus.put(consultation.getConsultationId(), consultation, consultation.getStatus(),
+                consultation.getPaymentStatus());
+        IndexingUtility.addToIndexGroup(consultationIndexByDate, consultation.getConsultationDate().toLocalDate().toEpochDay(),
+                consultation.getConsultationId(), consultation);
+        IndexingUtility.addToIndexGroup(consultationIndexByPatientName, consultation.getPatient().getFullName(),
                 consultation.getConsultationId(), consultation);
-        IndexingUtility.addToIndexGroup(consultationIndexByDate, consultation.getConsultationDate().toLocalDate(),
+        IndexingUtility.addToIndexGroup(consultationIndexByDoctorName, consultation.getDoctor().getFullName(),
                 consultation.getConsultationId(), consultation);
     }
 
@@ -518,8 +545,9 @@ public class ConsultationManagementControl {
         // Remove and re-add to reflect potential key changes
         IndexingUtility.removeFromIndexGroup(consultationIndexByPatientId, consultation.getPatient().getPatientId(), consultation.getConsultationId());
         IndexingUtility.removeFromIndexGroup(consultationIndexByDoctorId, consultation.getDoctor().getDoctorId(), consultation.getConsultationId());
-        IndexingUtility.removeFromIndexGroup(consultationIndexByPaymentStatus, consultation.getPaymentStatus(), consultation.getConsultationId());
-        IndexingUtility.removeFromIndexGroup(consultationIndexByDate, consultation.getConsultationDate().toLocalDate(), consultation.getConsultationId());
+        IndexingUtility.removeFromIndexGroup(consultationIndexByDate, consultation.getConsultationDate().toLocalDate().toEpochDay(), consultation.getConsultationId());
+        IndexingUtility.removeFromIndexGroup(consultationIndexByPatientName, consultation.getPatient().getFullName(), consultation.getConsultationId());
+        IndexingUtility.removeFromIndexGroup(consultationIndexByDoctorName, consultation.getDoctor().getFullName(), consultation.getConsultationId());
         indexConsultation(consultation);
     }
 
@@ -548,10 +576,10 @@ public class ConsultationManagementControl {
         report.append(ConsoleUtils.centerText("SUMMARY STATISTICS", 150)).append("\n");
         report.append("-".repeat(150)).append("\n");
         report.append(String.format("Total Consultations: %d\n", getTotalConsultations()));
-        report.append(String.format("Scheduled Consultations: %d\n", getScheduledConsultations().getSize()));
-        report.append(String.format("Completed Consultations: %d\n", getCompletedConsultations().getSize()));
-        report.append(String.format("In Progress Consultations: %d\n", getInProgressConsultations().getSize()));
-        report.append(String.format("Cancelled Consultations: %d\n", getCancelledConsultations().getSize()));
+        report.append(String.format("Scheduled Consultations: %d\n", countConsultationsByStatus(Consultation.ConsultationStatus.SCHEDULED)));
+        report.append(String.format("Completed Consultations: %d\n", countConsultationsByStatus(Consultation.ConsultationStatus.COMPLETED)));
+        report.append(String.format("In Progress Consultations: %d\n", countConsultationsByStatus(Consultation.ConsultationStatus.IN_PROGRESS)));
+        report.append(String.format("Cancelled Consultations: %d\n", countConsultationsByStatus(Consultation.ConsultationStatus.CANCELLED)));
 
         // Consultations by year analysis using arrays
         int[] consultationYears = new int[20];
@@ -692,7 +720,7 @@ public class ConsultationManagementControl {
         report.append(ConsoleUtils.centerText("COMPLETED CONSULTATIONS SUMMARY", 150)).append("\n");
         report.append("-".repeat(150)).append("\n");
         report.append(String.format("Total Consultations: %d\n", getTotalConsultations()));
-        int completed = getCompletedConsultations().getSize();
+        int completed = countConsultationsByStatus(Consultation.ConsultationStatus.COMPLETED);
         report.append(String.format("Completed Consultations: %d\n", completed));
         double completionRate = getTotalConsultations() > 0 ? (double) completed / getTotalConsultations() * 100 : 0;
         report.append(String.format("Completion Rate: %.1f%%\n", completionRate));
@@ -839,7 +867,7 @@ public class ConsultationManagementControl {
         report.append(ConsoleUtils.centerText("EFFICIENCY METRICS SUMMARY", 150)).append("\n");
         report.append("-".repeat(150)).append("\n");
         report.append(String.format("Total Consultations: %d\n", getTotalConsultations()));
-        report.append(String.format("Completed Consultations: %d\n", getCompletedConsultations().getSize()));
+        report.append(String.format("Completed Consultations: %d\n", countConsultationsByStatus(Consultation.ConsultationStatus.COMPLETED)));
         report.append(String.format("Average Consultation Duration: %.1f minutes\n", calculateAverageDuration()));
         report.append(String.format("Average Wait Time: %.1f minutes\n", calculateAverageWaitTime()));
         report.append(String.format("Efficiency Rate: %.1f%%\n", calculateEfficiencyRate()));
@@ -1049,7 +1077,7 @@ public class ConsultationManagementControl {
 
     private double calculateEfficiencyRate() {
         // Simulate efficiency rate based on completed consultations
-        int completed = getCompletedConsultations().getSize();
+        int completed = countConsultationsByStatus(Consultation.ConsultationStatus.COMPLETED);
         int total = getTotalConsultations();
         return total > 0 ? (double) completed / total * 100 : 0.0;
     }
@@ -2,12 +2,15 @@ package control;
 
 import adt.ArrayBucketList;
 import adt.ArrayBucketListFactory;
+import adt.IndexQuery;
 import adt.IndexingUtility;
+import adt.PrefixIndex;
+import adt.TrigramIndex;
+import adt.LongRangeIndex;
 import utility.ConsoleUtils;
 import entity.Doctor;
 import entity.Address;
 import entity.Schedule;
-import entity.Consultation;
 import entity.DayOfWeek;
 import dao.DoctorDao;
 import dao.AddressDao;
@@ -17,8 +20,10 @@ import dao.ConsultationDao;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 
 import utility.QuickSort;
 
@@ -35,14 +40,15 @@ public class DoctorManagementControl {
     
     // Indices for efficient searching
     private ArrayBucketList<String, Doctor> doctorIndexById;
-    private ArrayBucketList<String, ArrayBucketList<String, Doctor>> doctorIndexByName;
-    private ArrayBucketList<String, ArrayBucketList<String, Doctor>> doctorIndexBySpecialty;
-    private ArrayBucketList<String, ArrayBucketList<String, Doctor>> doctorIndexByLicense;
-    private ArrayBucketList<String, ArrayBucketList<String, Doctor>> doctorIndexByEmail;
-    private ArrayBucketList<String, ArrayBucketList<String, Doctor>> doctorIndexByPhone;
+    private PrefixIndex<ArrayBucketList<String, Doctor>> doctorIndexByName;
+    private TrigramIndex<Doctor> doctorTrigramIndexByName;
+    private PrefixIndex<ArrayBucketList<String, Doctor>> doctorIndexBySpecialty;
+    private PrefixIndex<ArrayBucketList<String, Doctor>> doctorIndexByLicense;
+    private PrefixIndex<ArrayBucketList<String, Doctor>> doctorIndexByEmail;
+    private PrefixIndex<ArrayBucketList<String, Doctor>> doctorIndexByPhone;
     private ArrayBucketList<String, ArrayBucketList<String, Doctor>> doctorIndexByIcNumber;
     private ArrayBucketList<Boolean, ArrayBucketList<String, Doctor>> doctorIndexByAvailability;
-    private ArrayBucketList<Integer, ArrayBucketList<String, Doctor>> doctorIndexByExperience;
+    private LongRangeIndex<ArrayBucketList<String, Doctor>> doctorIndexByExperience;
 
     private DoctorDao doctorDao;
     private AddressDao addressDao;
@@ -56,14 +62,15 @@ public class DoctorManagementControl {
         
         // Initialize indices
         this.doctorIndexById = ArrayBucketListFactory.createForStringIds(256);
-        this.doctorIndexByName = ArrayBucketListFactory.createForNamePrefix(26);
-        this.doctorIndexBySpecialty = ArrayBucketListFactory.createForNamePrefix(26);
-        this.doctorIndexByLicense = ArrayBucketListFactory.createForStringIds(128);
-        this.doctorIndexByEmail = ArrayBucketListFactory.createForNamePrefix(26);
-        this.doctorIndexByPhone = ArrayBucketListFactory.createForStringIds(128);
+        this.doctorIndexByName = new PrefixIndex<>();
+        this.doctorTrigramIndexByName = new TrigramIndex<>(64);
+        this.doctorIndexBySpecialty = new PrefixIndex<>();
+        this.doctorIndexByLicense = new PrefixIndex<>();
+        this.doctorIndexByEmail = new PrefixIndex<>();
+        this.doctorIndexByPhone = new PrefixIndex<>();
         this.doctorIndexByIcNumber = ArrayBucketListFactory.createForStringIds(128);
         this.doctorIndexByAvailability = new ArrayBucketList<>();
-        this.doctorIndexByExperience = new ArrayBucketList<>();
+        this.doctorIndexByExperience = new LongRangeIndex<>();
         
         this.doctorDao = new DoctorDao();
         this.addressDao = new AddressDao();
@@ -114,6 +121,7 @@ public class DoctorManagementControl {
             return;
         }
         IndexingUtility.addToIndexGroup(doctorIndexByName, doctor.getFullName(), doctor.getDoctorId(), doctor);
+        doctorTrigramIndexByName.add(doctor.getDoctorId(), doctor.getFullName(), doctor);
         IndexingUtility.addToIndexGroup(doctorIndexBySpecialty, doctor.getMedicalSpecialty(), doctor.getDoctorId(), doctor);
         IndexingUtility.addToIndexGroup(doctorIndexByLicense, doctor.getLicenseNumber(), doctor.getDoctorId(), doctor);
         IndexingUtility.addToIndexGroup(doctorIndexByEmail, doctor.getEmail(), doctor.getDoctorId(), doctor);
@@ -129,6 +137,7 @@ public class DoctorManagementControl {
         }
         if (oldDoctor != null) {
             IndexingUtility.removeFromIndexGroup(doctorIndexByName, oldDoctor.getFullName(), oldDoctor.getDoctorId());
+            doctorTrigramIndexByName.remove(oldDoctor.getDoctorId());
             IndexingUtility.removeFromIndexGroup(doctorIndexBySpecialty, oldDoctor.getMedicalSpecialty(), oldDoctor.getDoctorId());
             IndexingUtility.removeFromIndexGroup(doctorIndexByLicense, oldDoctor.getLicenseNumber(), oldDoctor.getDoctorId());
             IndexingUtility.removeFromIndexGroup(doctorIndexByEmail, oldDoctor.getEmail(), oldDoctor.getDoctorId());
@@ -291,8 +300,13 @@ public class DoctorManagementControl {
             return results;
         }
         String query = name.trim();
+        if (query.length() >= 3) {
+            // Substring match: intersect the query's trigram postings, then verify
+            doctorTrigramIndexByName.forEachContaining(query, results::add);
+            return results;
+        }
         
-        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = doctorIndexByName.getByStringKeyPrefix(query);
+        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = doctorIndexByName.getByPrefix(query);
         Iterator<ArrayBucketList<String, Doctor>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Doctor> group = groupIterator.next();
@@ -312,7 +326,7 @@ public class DoctorManagementControl {
         }
         String query = specialty.trim();
         
-        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = doctorIndexBySpecialty.getByStringKeyPrefix(query);
+        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = doctorIndexBySpecialty.getByPrefix(query);
         Iterator<ArrayBucketList<String, Doctor>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Doctor> group = groupIterator.next();
@@ -332,7 +346,7 @@ public class DoctorManagementControl {
         }
         String query = licenseNumber.trim();
         
-        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = doctorIndexByLicense.getByStringKeyPrefix(query);
+        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = doctorIndexByLicense.getByPrefix(query);
         Iterator<ArrayBucketList<String, Doctor>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Doctor> group = groupIterator.next();
@@ -352,7 +366,7 @@ public class DoctorManagementControl {
         }
         String query = email.trim();
         
-        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = doctorIndexByEmail.getByStringKeyPrefix(query);
+        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = doctorIndexByEmail.getByPrefix(query);
         Iterator<ArrayBucketList<String, Doctor>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Doctor> group = groupIterator.next();
@@ -372,7 +386,7 @@ public class DoctorManagementControl {
         }
         String query = phoneNumber.trim();
         
-        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = doctorIndexByPhone.getByStringKeyPrefix(query);
+        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = doctorIndexByPhone.getByPrefix(query);
         Iterator<ArrayBucketList<String, Doctor>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Doctor> group = groupIterator.next();
@@ -396,27 +410,8 @@ public class DoctorManagementControl {
             return results;
         }
         
-        // Use the experience index for efficient range queries
-        Iterator<ArrayBucketList<String, Doctor>> groupIterator = doctorIndexByExperience.iterator();
-        while (groupIterator.hasNext()) {
-            ArrayBucketList<String, Doctor> group = groupIterator.next();
-            // Get the experience level for this group by checking the first doctor
-            Iterator<Doctor> doctorIterator = group.iterator();
-            if (doctorIterator.hasNext()) {
-                Doctor firstDoctor = doctorIterator.next();
-                int groupExperience = firstDoctor.getExpYears();
-                
-                // If this group's experience level meets the minimum requirement
-                if (groupExperience >= minYears) {
-                    // Add all doctors from this group
-                    Iterator<Doctor> groupDoctorIterator = group.iterator();
-                    while (groupDoctorIterator.hasNext()) {
-                        Doctor doctor = groupDoctorIterator.next();
-                        results.add(doctor.getDoctorId(), doctor);
-                    }
-                }
-            }
-        }
+        // Visit only the experience levels present from minYears upwards
+        IndexingUtility.collectGroupsInRange(doctorIndexByExperience, minYears, Long.MAX_VALUE, results);
         return results;
     }
 
@@ -426,27 +421,8 @@ public class DoctorManagementControl {
             return results;
         }
         
-        // Use the experience index for efficient range queries
-        Iterator<ArrayBucketList<String, Doctor>> groupIterator = doctorIndexByExperience.iterator();
-        while (groupIterator.hasNext()) {
-            ArrayBucketList<String, Doctor> group = groupIterator.next();
-            // Get the experience level for this group by checking the first doctor
-            Iterator<Doctor> doctorIterator = group.iterator();
-            if (doctorIterator.hasNext()) {
-                Doctor firstDoctor = doctorIterator.next();
-                int groupExperience = firstDoctor.getExpYears();
-                
-                // If this group's experience level is within the range
-                if (groupExperience >= minYears && groupExperience <= maxYears) {
-                    // Add all doctors from this group
-                    Iterator<Doctor> groupDoctorIterator = group.iterator();
-                    while (groupDoctorIterator.hasNext()) {
-                        Doctor doctor = groupDoctorIterator.next();
-                        results.add(doctor.getDoctorId(), doctor);
-                    }
-                }
-            }
-        }
+        // Visit only the experience levels present between minYears and maxYears
+        IndexingUtility.collectGroupsInRange(doctorIndexByExperience, minYears, maxYears, results);
         return results;
     }
 
@@ -726,46 +702,79 @@ public class DoctorManagementControl {
 
     public ArrayBucketList<String, Doctor> findDoctorsByMultipleCriteria(String name, String specialty, 
             boolean isAvailable, int minExperience) {
-        ArrayBucketList<String, Doctor> results = ArrayBucketListFactory.createForStringIds(32);
-        
-        // Start with all doctors
-        Iterator<Doctor> doctorIterator = doctors.iterator();
-        while (doctorIterator.hasNext()) {
-            Doctor doctor = doctorIterator.next();
-            boolean matches = true;
-            
-            // Check name criteria
-            if (name != null && !name.trim().isEmpty()) {
-                String doctorName = doctor.getFullName();
-                if (doctorName == null || !doctorName.toLowerCase().contains(name.toLowerCase().trim())) {
-                    matches = false;
-                }
-            }
-            
-            // Check specialty criteria
-            if (matches && specialty != null && !specialty.trim().isEmpty()) {
-                String doctorSpecialty = doctor.getMedicalSpecialty();
-                if (doctorSpecialty == null || !doctorSpecialty.toLowerCase().contains(specialty.toLowerCase().trim())) {
-                    matches = false;
-                }
-            }
-            
-            // Check availability criteria
-            if (matches && doctor.isAvailable() != isAvailable) {
-                matches = false;
-            }
-            
-            // Check experience criteria
-            if (matches && doctor.getExpYears() < minExperience) {
-                matches = false;
-            }
-            
-            if (matches) {
-                results.add(doctor.getDoctorId(), doctor);
-            }
+        return findDoctorsByMultipleCriteria(name, specialty, Boolean.valueOf(isAvailable), minExperience, true);
+    }
+
+    /**
+     * Multi-criteria search planned over the doctor indices. Blank name or
+     * specialty, a null availability and a minimum experience of 0 or less
+     * are skipped. Name and specialty match by substring (case-insensitive).
+     *
+     * @param matchAll true to require every criterion (AND), false for any (OR)
+     * @return matching doctors; every doctor when no criterion is given
+     */
+    public ArrayBucketList<String, Doctor> findDoctorsByMultipleCriteria(String name, String specialty,
+            Boolean isAvailable, int minExperience, boolean matchAll) {
+        List<IndexQuery<Doctor>> criteria = new ArrayList<>(4);
+        if (name != null && !name.trim().isEmpty()) {
+            criteria.add(nameCriterion(name.trim().toLowerCase()));
         }
-        
-        return results;
+        if (specialty != null && !specialty.trim().isEmpty()) {
+            criteria.add(specialtyCriterion(specialty.trim().toLowerCase()));
+        }
+        if (isAvailable != null) {
+            criteria.add(availabilityCriterion(isAvailable));
+        }
+        if (minExperience > 0) {
+            criteria.add(experienceCriterion(minExperience));
+        }
+        if (criteria.isEmpty()) {
+            ArrayBucketList<String, Doctor> results = ArrayBucketListFactory.createForStringIds(32);
+            doctors.forEach((doctorId, doctor) -> results.add(doctor.getDoctorId(), doctor));
+            return results;
+        }
+        IndexQuery<Doctor> query = matchAll ? IndexQuery.and(criteria) : IndexQuery.or(criteria);
+        return query.execute();
+    }
+
+    // Query criteria: each reads its estimate from index group sizes and enumerates only its own index
+
+    private IndexQuery<Doctor> nameCriterion(String query) {
+        return IndexQuery.of("name~" + query, doctorTrigramIndexByName.estimateContaining(query),
+                action -> doctorTrigramIndexByName.forEachContaining(query, action),
+                doctor -> doctor.getFullName() != null && doctor.getFullName().toLowerCase().contains(query));
+    }
+
+    private IndexQuery<Doctor> specialtyCriterion(String query) {
+        // Few distinct specialties: resolve the matching groups once, up front
+        ArrayBucketList<String, ArrayBucketList<String, Doctor>> groups = ArrayBucketListFactory.createForStringIds(16);
+        int[] estimate = { 0 };
+        doctorIndexBySpecialty.forEach((specialtyKey, group) -> {
+            if (specialtyKey.contains(query)) {
+                groups.add(specialtyKey, group);
+                estimate[0] += group.getSize();
+            }
+        });
+        return IndexQuery.of("specialty~" + query, estimate[0],
+                action -> groups.forEach(group -> group.forEach(action)),
+                doctor -> doctor.getMedicalSpecialty() != null
+                        && doctor.getMedicalSpecialty().toLowerCase().contains(query));
+    }
+
+    private IndexQuery<Doctor> availabilityCriterion(boolean isAvailable) {
+        ArrayBucketList<String, Doctor> group = doctorIndexByAvailability.getValue(isAvailable);
+        return IndexQuery.of("available=" + isAvailable, group != null ? group.getSize() : 0,
+                action -> group.forEach(action),
+                doctor -> doctor.isAvailable() == isAvailable);
+    }
+
+    private IndexQuery<Doctor> experienceCriterion(int minExperience) {
+        int[] estimate = { 0 };
+        doctorIndexByExperience.forEachInRange(minExperience, Long.MAX_VALUE, group -> estimate[0] += group.getSize());
+        return IndexQuery.of("experience>=" + minExperience, estimate[0],
+                action -> doctorIndexByExperience.forEachInRange(minExperience, Long.MAX_VALUE,
+                        group -> group.forEach(action)),
+                doctor -> doctor.getExpYears() >= minExperience);
     }
 
     // Reporting Methods
@@ -924,18 +933,9 @@ public class DoctorManagementControl {
         return builder.toString();
     }
 
-    private int getConsultationCountForDoctor(String doctorId) {
+    public int getConsultationCountForDoctor(String doctorId) {
         try {
-            ArrayBucketList<String, Consultation> allConsultations = consultationDao.findAll();
-            int count = 0;
-            Iterator<Consultation> iterator = allConsultations.iterator();
-            while (iterator.hasNext()) {
-                Consultation consultation = iterator.next();
-                if (consultation != null && consultation.getDoctor() != null && doctorId.equals(consultation.getDoctor().getDoctorId())) {
-                    count++;
-                }
-            }
-            return count;
+            return consultationDao.countByDoctor(doctorId);
         } catch (Exception e) {
             System.err.println("Error counting consultations for doctor " + doctorId + ": " + e.getMessage());
             return 0;
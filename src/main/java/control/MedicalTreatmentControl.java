@@ -2,7 +2,10 @@ package control;
 
 import adt.ArrayBucketList;
 import adt.ArrayBucketListFactory;
+import adt.BitmapIndex;
 import adt.IndexingUtility;
+import adt.PrefixIndex;
+import adt.LongRangeIndex;
 import entity.MedicalTreatment;
 import entity.Patient;
 import entity.Doctor;
@@ -24,70 +27,44 @@ public class MedicalTreatmentControl {
 
     private ArrayBucketList<String, MedicalTreatment> treatmentIndexById;
     private ArrayBucketList<String, MedicalTreatment> activeTreatments;
-    // Split lists by status
-    private ArrayBucketList<String, MedicalTreatment> treatmentsPrescribed;
-    private ArrayBucketList<String, MedicalTreatment> treatmentsInProgress;
-    private ArrayBucketList<String, MedicalTreatment> treatmentsCompleted;
-    private ArrayBucketList<String, MedicalTreatment> treatmentsCancelled;
-    // Split lists by payment
-    private ArrayBucketList<String, MedicalTreatment> paymentsPaid;
-    private ArrayBucketList<String, MedicalTreatment> paymentsPending;
-    private ArrayBucketList<String, MedicalTreatment> paymentsCancelled;
     private ArrayBucketList<String, ArrayBucketList<String, MedicalTreatment>> treatmentIndexByPatientId;
     private ArrayBucketList<String, ArrayBucketList<String, MedicalTreatment>> treatmentIndexByDoctorId;
-    private ArrayBucketList<MedicalTreatment.TreatmentStatus, ArrayBucketList<String, MedicalTreatment>> treatmentIndexByStatus;
-    private ArrayBucketList<MedicalTreatment.PaymentStatus, ArrayBucketList<String, MedicalTreatment>> treatmentIndexByPaymentStatus;
-    private ArrayBucketList<java.time.LocalDate, ArrayBucketList<String, MedicalTreatment>> treatmentIndexByDate;
-    private ArrayBucketList<String, ArrayBucketList<String, MedicalTreatment>> treatmentIndexByPatientName;
-    private ArrayBucketList<String, ArrayBucketList<String, MedicalTreatment>> treatmentIndexByDoctorName;
+    // Treatment status and payment status, one bitmap per value
+    private BitmapIndex<MedicalTreatment> treatmentIndexByStatus;
+    // Keyed by LocalDate.toEpochDay()
+    private LongRangeIndex<ArrayBucketList<String, MedicalTreatment>> treatmentIndexByDate;
+    private PrefixIndex<ArrayBucketList<String, MedicalTreatment>> treatmentIndexByPatientName;
+    private PrefixIndex<ArrayBucketList<String, MedicalTreatment>> treatmentIndexByDoctorName;
     private MedicalTreatmentDao treatmentDao;
 
     public MedicalTreatmentControl() {
         this.treatmentIndexById = ArrayBucketListFactory.createForStringIds(256);
         this.activeTreatments = new ArrayBucketList<String, MedicalTreatment>();
-        // Initialize split lists
-        this.treatmentsPrescribed = ArrayBucketListFactory.createForStringIds(128);
-        this.treatmentsInProgress = ArrayBucketListFactory.createForStringIds(128);
-        this.treatmentsCompleted = ArrayBucketListFactory.createForStringIds(128);
-        this.treatmentsCancelled = ArrayBucketListFactory.createForStringIds(128);
-        this.paymentsPaid = ArrayBucketListFactory.createForStringIds(128);
-        this.paymentsPending = ArrayBucketListFactory.createForStringIds(128);
-        this.paymentsCancelled = ArrayBucketListFactory.createForStringIds(128);
         this.treatmentIndexByPatientId = ArrayBucketListFactory.createForStringIds(128);
         this.treatmentIndexByDoctorId = ArrayBucketListFactory.createForStringIds(128);
-        this.treatmentIndexByStatus = ArrayBucketListFactory.createForEnums(16);
-        this.treatmentIndexByPaymentStatus = ArrayBucketListFactory.createForEnums(8);
-        this.treatmentIndexByDate = ArrayBucketListFactory.createForLocalDates(64);
-        this.treatmentIndexByPatientName = ArrayBucketListFactory.createForNamePrefix(26);
-        this.treatmentIndexByDoctorName = ArrayBucketListFactory.createForNamePrefix(26);
+        this.treatmentIndexByStatus = new BitmapIndex<>(256);
+        this.treatmentIndexByDate = new LongRangeIndex<>();
+        this.treatmentIndexByPatientName = new PrefixIndex<>();
+        this.treatmentIndexByDoctorName = new PrefixIndex<>();
         this.treatmentDao = new MedicalTreatmentDao();
     }
 
     public void loadTreatmentData() {
         try {
-            treatmentIndexById = treatmentDao.findAll();
-            // Clear and rebuild indices and split lists
+            ArrayBucketList<String, MedicalTreatment> loaded = ArrayBucketListFactory.createForStringIds(256);
+            // Clear and rebuild indices while the rows stream in
             activeTreatments.clear();
-            treatmentsPrescribed.clear();
-            treatmentsInProgress.clear();
-            treatmentsCompleted.clear();
-            treatmentsCancelled.clear();
-            paymentsPaid.clear();
-            paymentsPending.clear();
-            paymentsCancelled.clear();
             treatmentIndexByPatientId.clear();
             treatmentIndexByDoctorId.clear();
             treatmentIndexByStatus.clear();
-            treatmentIndexByPaymentStatus.clear();
             treatmentIndexByDate.clear();
             treatmentIndexByPatientName.clear();
             treatmentIndexByDoctorName.clear();
-            Iterator<MedicalTreatment> treatmentIterator = treatmentIndexById.iterator();
-            while (treatmentIterator.hasNext()) {
-                MedicalTreatment treatment = treatmentIterator.next();
-                if (treatment == null) continue;
+            treatmentDao.forEachRow(treatment -> {
+                loaded.add(treatment.getTreatmentId(), treatment);
                 indexTreatment(treatment);
-            }
+            });
+            treatmentIndexById = loaded;
         } catch (Exception exception) {
             System.err.println("Error loading treatment data: " + exception.getMessage());
         }
@@ -360,7 +337,7 @@ public class MedicalTreatmentControl {
         if (query.isEmpty()) {
             return results;
         }
-        ArrayBucketList<String, ArrayBucketList<String, MedicalTreatment>> groups = treatmentIndexByPatientName.getByStringKeyPrefix(query);
+        ArrayBucketList<String, ArrayBucketList<String, MedicalTreatment>> groups = treatmentIndexByPatientName.getByPrefix(query);
         Iterator<ArrayBucketList<String, MedicalTreatment>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, MedicalTreatment> group = groupIterator.next();
@@ -382,7 +359,7 @@ public class MedicalTreatmentControl {
         if (query.isEmpty()) {
             return results;
         }
-        ArrayBucketList<String, ArrayBucketList<String, MedicalTreatment>> groups = treatmentIndexByDoctorName.getByStringKeyPrefix(query);
+        ArrayBucketList<String, ArrayBucketList<String, MedicalTreatment>> groups = treatmentIndexByDoctorName.getByPrefix(query);
         Iterator<ArrayBucketList<String, MedicalTreatment>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, MedicalTreatment> group = groupIterator.next();
@@ -469,21 +446,19 @@ public class MedicalTreatmentControl {
         if (startDate == null && endDate == null) {
             return results;
         }
-        Iterator<MedicalTreatment> treatmentIterator = treatmentIndexById.iterator();
-        while (treatmentIterator.hasNext()) {
-            MedicalTreatment treatment = treatmentIterator.next();
-            java.time.LocalDate treatmentLocalDate = treatment.getTreatmentDate().toLocalDate();
-            boolean inLowerBound = (startDate == null) || !treatmentLocalDate.isBefore(startDate);
-            boolean inUpperBound = (endDate == null) || !treatmentLocalDate.isAfter(endDate);
-            if (inLowerBound && inUpperBound) {
-                results.add(treatment.getTreatmentId(), treatment);
-            }
-        }
+        // A missing bound leaves that side of the range open
+        long lo = (startDate == null) ? Long.MIN_VALUE : startDate.toEpochDay();
+        long hi = (endDate == null) ? Long.MAX_VALUE : endDate.toEpochDay();
+        IndexingUtility.collectGroupsInRange(treatmentIndexByDate, lo, hi, results);
         return results;
     }
 
     public ArrayBucketList<String, MedicalTreatment> getCompletedTreatments() {
-        return treatmentsCompleted;
+        return treatmentIndexByStatus.find(MedicalTreatment.TreatmentStatus.COMPLETED);
+    }
+
+    public int countTreatmentsByStatus(MedicalTreatment.TreatmentStatus status) {
+        return treatmentIndexByStatus.count(status);
     }
 
     public ArrayBucketList<String, MedicalTreatment> getAllTreatments() {
@@ -520,10 +495,10 @@ public class MedicalTreatmentControl {
         report.append("-".repeat(120)).append("\n");
         report.append(String.format("Total Treatments: %d\n", getTotalTreatments()));
         report.append(String.format("Active Treatments: %d\n", getActiveTreatmentsCount()));
-        report.append(String.format("Completed Treatments: %d\n", getCompletedTreatments().getSize()));
-        report.append(String.format("Cancelled Treatments: %d\n", getCancelledTreatments().getSize()));
+        report.append(String.format("Completed Treatments: %d\n", countTreatmentsByStatus(MedicalTreatment.TreatmentStatus.COMPLETED)));
+        report.append(String.format("Cancelled Treatments: %d\n", countTreatmentsByStatus(MedicalTreatment.TreatmentStatus.CANCELLED)));
         report.append(String.format("Completion Rate: %.1f%%\n",
-                getTotalTreatments() > 0 ? (double) getCompletedTreatments().getSize() / getTotalTreatments() * 100
+                getTotalTreatments() > 0 ? (double) countTreatmentsByStatus(MedicalTreatment.TreatmentStatus.COMPLETED) / getTotalTreatments() * 100
                         : 0.0));
 
         // Treatments by year analysis using arrays
@@ -719,10 +694,10 @@ public class MedicalTreatmentControl {
         report.append(ConsoleUtils.centerText("TREATMENT STATUS SUMMARY", 120)).append("\n");
         report.append("-".repeat(120)).append("\n");
         report.append(String.format("Total Treatments: %d\n", getTotalTreatments()));
-        report.append(String.format("Prescribed Treatments: %d\n", getPrescribedTreatments().getSize()));
+        report.append(String.format("Prescribed Treatments: %d\n", countTreatmentsByStatus(MedicalTreatment.TreatmentStatus.PRESCRIBED)));
         report.append(String.format("In Progress Treatments: %d\n", getActiveTreatmentsCount()));
-        report.append(String.format("Completed Treatments: %d\n", getCompletedTreatments().getSize()));
-        report.append(String.format("Cancelled Treatments: %d\n", getCancelledTreatments().getSize()));
+        report.append(String.format("Completed Treatments: %d\n", countTreatmentsByStatus(MedicalTreatment.TreatmentStatus.COMPLETED)));
+        report.append(String.format("Cancelled Treatments: %d\n", countTreatmentsByStatus(MedicalTreatment.TreatmentStatus.CANCELLED)));
 
         // Doctor performance analysis
         report.append("\nDOCTOR PERFORMANCE ANALYSIS:\n");
@@ -871,7 +846,7 @@ public class MedicalTreatmentControl {
         report.append(ConsoleUtils.centerText("OUTCOME METRICS SUMMARY", 145)).append("\n");
         report.append("-".repeat(145)).append("\n");
         report.append(String.format("Total Treatments: %d\n", getTotalTreatments()));
-        report.append(String.format("Completed Treatments: %d\n", getCompletedTreatments().getSize()));
+        report.append(String.format("Completed Treatments: %d\n", countTreatmentsByStatus(MedicalTreatment.TreatmentStatus.COMPLETED)));
         report.append(String.format("Overall Success Rate: %.1f%%\n", calculateOverallSuccessRate()));
         report.append(String.format("Average Recovery Time: %.1f days\n", calculateAverageRecoveryTime()));
         report.append(String.format("Treatment Effectiveness: %.1f%%\n", calculateTreatmentEffectiveness()));
@@ -1045,7 +1020,7 @@ public class MedicalTreatmentControl {
 
     // Helper methods for outcome report
     private double calculateOverallSuccessRate() {
-        int completed = getCompletedTreatments().getSize();
+        int completed = countTreatmentsByStatus(MedicalTreatment.TreatmentStatus.COMPLETED);
         int total = getTotalTreatments();
         return total > 0 ? (double) completed / total * 100 : 0.0;
     }
@@ -1226,11 +1201,11 @@ public class MedicalTreatmentControl {
 
     // Additional helper methods for reports
     public ArrayBucketList<String, MedicalTreatment> getPrescribedTreatments() {
-        return treatmentsPrescribed;
+        return treatmentIndexByStatus.find(MedicalTreatment.TreatmentStatus.PRESCRIBED);
     }
 
     public ArrayBucketList<String, MedicalTreatment> getCancelledTreatments() {
-        return treatmentsCancelled;
+        return treatmentIndexByStatus.find(MedicalTreatment.TreatmentStatus.CANCELLED);
     }
 
     public boolean hasTreatmentForConsultation(String consultationId) {
@@ -1349,8 +1324,19 @@ public class MedicalTreatmentControl {
     // Payment Status search
     public ArrayBucketList<String, MedicalTreatment> findTreatmentsByPaymentStatus(
             MedicalTreatment.PaymentStatus paymentStatus) {
-        ArrayBucketList<String, MedicalTreatment> group = treatmentIndexByPaymentStatus.getValue(paymentStatus);
-        return group != null ? group : new ArrayBucketList<String, MedicalTreatment>();
+        return treatmentIndexByStatus.find(paymentStatus);
+    }
+
+    // Intersects the status and payment bitmaps; either may be null to leave it unfiltered
+    public ArrayBucketList<String, MedicalTreatment> findTreatmentsByStatusAndPaymentStatus(
+            MedicalTreatment.TreatmentStatus status, MedicalTreatment.PaymentStatus paymentStatus) {
+        if (status == null) {
+            return findTreatmentsByPaymentStatus(paymentStatus);
+        }
+        if (paymentStatus == null) {
+            return treatmentIndexByStatus.find(status);
+        }
+        return treatmentIndexByStatus.find(status, paymentStatus);
     }
 
     // Indexing helpers
@@ -1375,73 +1361,19 @@ public class MedicalTreatmentControl {
             IndexingUtility.addToIndexGroup(treatmentIndexByDoctorName, treatment.getDoctor().getFullName(),
                     treatment.getTreatmentId(), treatment);
         }
-        if (treatment.getStatus() != null) {
-            IndexingUtility.addToIndexGroup(treatmentIndexByStatus, treatment.getStatus(),
-                    treatment.getTreatmentId(), treatment);
-        }
-        if (treatment.getPaymentStatus() != null) {
-            IndexingUtility.addToIndexGroup(treatmentIndexByPaymentStatus, treatment.getPaymentStatus(),
-                    treatment.getTreatmentId(), treatment);
-        }
+        // Replaces any previous status and payment bits of this treatment
+        treatmentIndexByStatus.put(treatment.getTreatmentId(), treatment, treatment.getStatus(),
+                treatment.getPaymentStatus());
         if (treatment.getTreatmentDate() != null) {
-            IndexingUtility.addToIndexGroup(treatmentIndexByDate, treatment.getTreatmentDate().toLocalDate(),
+            IndexingUtility.addToIndexGroup(treatmentIndexByDate, treatment.getTreatmentDate().toLocalDate().toEpochDay(),
                     treatment.getTreatmentId(), treatment);
         }
-        // Maintain split lists and active cache
-        addTreatmentToStatusList(treatment);
-        addTreatmentToPaymentList(treatment);
+        // Maintain active cache
         if (treatment.getStatus() == MedicalTreatment.TreatmentStatus.IN_PROGRESS) {
             activeTreatments.add(treatment.getTreatmentId(), treatment);
         }
     }
 
-    private ArrayBucketList<String, MedicalTreatment> getTreatmentStatusList(MedicalTreatment.TreatmentStatus status) {
-        if (status == null) return null;
-        return switch (status) {
-            case PRESCRIBED -> treatmentsPrescribed;
-            case IN_PROGRESS -> treatmentsInProgress;
-            case COMPLETED -> treatmentsCompleted;
-            case CANCELLED -> treatmentsCancelled;
-        };
-    }
-
-    private ArrayBucketList<String, MedicalTreatment> getPaymentStatusList(MedicalTreatment.PaymentStatus status) {
-        if (status == null) return null;
-        return switch (status) {
-            case PAID -> paymentsPaid;
-            case PENDING -> paymentsPending;
-            case CANCELLED -> paymentsCancelled;
-        };
-    }
-
-    private void addTreatmentToStatusList(MedicalTreatment treatment) {
-        ArrayBucketList<String, MedicalTreatment> list = getTreatmentStatusList(treatment.getStatus());
-        if (list != null) {
-            list.add(treatment.getTreatmentId(), treatment);
-        }
-    }
-
-    private void removeTreatmentFromStatusList(MedicalTreatment treatment, MedicalTreatment.TreatmentStatus oldStatus) {
-        ArrayBucketList<String, MedicalTreatment> list = getTreatmentStatusList(oldStatus);
-        if (list != null) {
-            list.remove(treatment.getTreatmentId());
-        }
-    }
-
-    private void addTreatmentToPaymentList(MedicalTreatment treatment) {
-        ArrayBucketList<String, MedicalTreatment> list = getPaymentStatusList(treatment.getPaymentStatus());
-        if (list != null) {
-            list.add(treatment.getTreatmentId(), treatment);
-        }
-    }
-
-    private void removeTreatmentFromPaymentList(MedicalTreatment treatment, MedicalTreatment.PaymentStatus oldPayment) {
-        ArrayBucketList<String, MedicalTreatment> list = getPaymentStatusList(oldPayment);
-        if (list != null) {
-            list.remove(treatment.getTreatmentId());
-        }
-    }
-
     private void reindexTreatment(MedicalTreatment treatment,
                                   String oldPatientId,
                                   String oldPatientName,
@@ -1459,17 +1391,6 @@ public class MedicalTreatmentControl {
             activeTreatments.add(treatment.getTreatmentId(), treatment);
         }
 
-        // Update split lists
-        if (oldStatus != null && oldStatus != treatment.getStatus()) {
-            removeTreatmentFromStatusList(treatment, oldStatus);
-        }
-        addTreatmentToStatusList(treatment);
-
-        if (oldPayment != null && oldPayment != treatment.getPaymentStatus()) {
-            removeTreatmentFromPaymentList(treatment, oldPayment);
-        }
-        addTreatmentToPaymentList(treatment);
-
         // Remove from old index groups by previous keys if provided
         if (oldPatientId != null) {
             IndexingUtility.removeFromIndexGroup(treatmentIndexByPatientId, oldPatientId, treatment.getTreatmentId());
@@ -1484,16 +1405,10 @@ public class MedicalTreatmentControl {
             IndexingUtility.removeFromIndexGroup(treatmentIndexByDoctorName, oldDoctorName, treatment.getTreatmentId());
         }
         if (oldDate != null) {
-            IndexingUtility.removeFromIndexGroup(treatmentIndexByDate, oldDate, treatment.getTreatmentId());
-        }
-        if (oldStatus != null && oldStatus != treatment.getStatus()) {
-            IndexingUtility.removeFromIndexGroup(treatmentIndexByStatus, oldStatus, treatment.getTreatmentId());
-        }
-        if (oldPayment != null && oldPayment != treatment.getPaymentStatus()) {
-            IndexingUtility.removeFromIndexGroup(treatmentIndexByPaymentStatus, oldPayment, treatment.getTreatmentId());
+            IndexingUtility.removeFromIndexGroup(treatmentIndexByDate, oldDate.toEpochDay(), treatment.getTreatmentId());
         }
 
-        // Now add current values
+        // Now add current values (the status bitmaps are replaced by indexTreatment)
         treatmentIndexById.add(treatment.getTreatmentId(), treatment);
         indexTreatment(treatment);
     }
@@ -0,0 +1,29 @@
+package control;
+
+import dao.EntitySession;
+
+/**
+ * Runs the data loads of several modules in one EntitySession, so the
+ * controls end up sharing one object per patient, doctor, consultation and
+ * medicine instead of each holding its own copies.
+ */
+public class ModuleLoadControl {
+
+    private ModuleLoadControl() {}
+
+    /**
+     * Runs the loaders in order inside a single session
+     *
+     * @param loaders load methods such as doctorControl::loadDoctorData
+     */
+    public static void loadInOneSession(Runnable... loaders) {
+        EntitySession.begin();
+        try {
+            for (Runnable loader : loaders) {
+                loader.run();
+            }
+        } finally {
+            EntitySession.end();
+        }
+    }
+}
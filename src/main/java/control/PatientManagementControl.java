@@ -7,7 +7,11 @@ import java.util.Iterator;
 
 import adt.ArrayBucketList;
 import adt.ArrayBucketListFactory;
+import adt.HeapPriorityQueue;
 import adt.IndexingUtility;
+import adt.PrefixIndex;
+import adt.TrigramIndex;
+import adt.LongRangeIndex;
 import dao.AddressDao;
 import dao.PatientDao;
 import entity.Address;
@@ -27,43 +31,60 @@ public class PatientManagementControl {
     private PatientDao patientDao;
     private AddressDao addressDao;
     private ArrayBucketList<String, Patient> patientQueue;
+    private HeapPriorityQueue<String, Patient> triageQueue;
     private ArrayBucketList<String, Patient> activePatients;
 
     // Patient search indices (following PharmayManagementControl pattern)
-    private ArrayBucketList<String, ArrayBucketList<String, Patient>> patientIndexByName;
-    private ArrayBucketList<String, ArrayBucketList<String, Patient>> patientIndexByEmail;
+    private PrefixIndex<ArrayBucketList<String, Patient>> patientIndexByName;
+    private PrefixIndex<ArrayBucketList<String, Patient>> patientIndexByEmail;
     private ArrayBucketList<String, ArrayBucketList<String, Patient>> patientIndexByPhone;
     private ArrayBucketList<String, ArrayBucketList<String, Patient>> patientIndexByIcNumber;
-    private ArrayBucketList<String, ArrayBucketList<String, Patient>> patientIndexByAddress;
-    private ArrayBucketList<String, ArrayBucketList<String, Patient>> patientIndexByStreet;
-    private ArrayBucketList<String, ArrayBucketList<String, Patient>> patientIndexByCity;
-    private ArrayBucketList<String, ArrayBucketList<String, Patient>> patientIndexByState;
-    private ArrayBucketList<String, ArrayBucketList<String, Patient>> patientIndexByZipCode;
-    private ArrayBucketList<String, ArrayBucketList<String, Patient>> patientIndexByCountry;
+    private PrefixIndex<ArrayBucketList<String, Patient>> patientIndexByAddress;
+    private PrefixIndex<ArrayBucketList<String, Patient>> patientIndexByStreet;
+    private PrefixIndex<ArrayBucketList<String, Patient>> patientIndexByCity;
+    private PrefixIndex<ArrayBucketList<String, Patient>> patientIndexByState;
+    private PrefixIndex<ArrayBucketList<String, Patient>> patientIndexByZipCode;
+    private PrefixIndex<ArrayBucketList<String, Patient>> patientIndexByCountry;
+    // Substring search over name, email and the combined normalized address
+    private TrigramIndex<Patient> patientTrigramIndexByName;
+    private TrigramIndex<Patient> patientTrigramIndexByEmail;
+    private TrigramIndex<Patient> patientTrigramIndexByAddress;
     private ArrayBucketList<BloodType, ArrayBucketList<String, Patient>> patientIndexByBloodType;
-    private ArrayBucketList<Integer, ArrayBucketList<String, Patient>> patientIndexByAge;
-    private ArrayBucketList<LocalDate, ArrayBucketList<String, Patient>> patientIndexByRegistrationDate;
+    private LongRangeIndex<ArrayBucketList<String, Patient>> patientIndexByAge;
+    // Keyed by LocalDate.toEpochDay()
+    private LongRangeIndex<ArrayBucketList<String, Patient>> patientIndexByRegistrationDate;
+
+    // Triage priorities: a smaller number is seen first
+    public static final int TRIAGE_CRITICAL = 1;
+    public static final int TRIAGE_URGENT = 2;
+    public static final int TRIAGE_STANDARD = 3;
+    public static final int TRIAGE_NON_URGENT = 4;
+    private static final int ELDERLY_AGE = 65;
 
     public PatientManagementControl() {
         this.patientDao = new PatientDao();
         this.addressDao = new AddressDao();
         this.patientQueue = new ArrayBucketList<String, Patient>();
+        this.triageQueue = new HeapPriorityQueue<String, Patient>();
         this.activePatients = new ArrayBucketList<String, Patient>();
 
         // Initialize search indices with appropriate strategies
-        this.patientIndexByName = ArrayBucketListFactory.createForNamePrefix(26);
-        this.patientIndexByEmail = ArrayBucketListFactory.createForNamePrefix(26);
+        this.patientIndexByName = new PrefixIndex<>();
+        this.patientIndexByEmail = new PrefixIndex<>();
         this.patientIndexByPhone = ArrayBucketListFactory.createForStringIds(16);
         this.patientIndexByIcNumber = ArrayBucketListFactory.createForStringIds(16);
-        this.patientIndexByAddress = ArrayBucketListFactory.createForNamePrefix(26);
-        this.patientIndexByStreet = ArrayBucketListFactory.createForNamePrefix(26);
-        this.patientIndexByCity = ArrayBucketListFactory.createForNamePrefix(26);
-        this.patientIndexByState = ArrayBucketListFactory.createForNamePrefix(26);
-        this.patientIndexByZipCode = ArrayBucketListFactory.createForStringIds(16);
-        this.patientIndexByCountry = ArrayBucketListFactory.createForNamePrefix(26);
+        this.patientIndexByAddress = new PrefixIndex<>();
+        this.patientIndexByStreet = new PrefixIndex<>();
+        this.patientIndexByCity = new PrefixIndex<>();
+        this.patientIndexByState = new PrefixIndex<>();
+        this.patientIndexByZipCode = new PrefixIndex<>();
+        this.patientIndexByCountry = new PrefixIndex<>();
+        this.patientTrigramIndexByName = new TrigramIndex<>(128);
+        this.patientTrigramIndexByEmail = new TrigramIndex<>(128);
+        this.patientTrigramIndexByAddress = new TrigramIndex<>(128);
         this.patientIndexByBloodType = ArrayBucketListFactory.createForEnums(16);
-        this.patientIndexByAge = ArrayBucketListFactory.createForStringIds(100);
-        this.patientIndexByRegistrationDate = ArrayBucketListFactory.createForLocalDates(64);
+        this.patientIndexByAge = new LongRangeIndex<>();
+        this.patientIndexByRegistrationDate = new LongRangeIndex<>();
     }
 
     // Load all active patients from persistent storage into the in-memory cachea
@@ -88,12 +109,15 @@ public class PatientManagementControl {
         IndexingUtility.addToIndexGroup(patientIndexByEmail, patient.getEmail(), patient.getPatientId(), patient);
         IndexingUtility.addToIndexGroup(patientIndexByPhone, patient.getPhoneNumber(), patient.getPatientId(), patient);
         IndexingUtility.addToIndexGroup(patientIndexByIcNumber, patient.getICNumber(), patient.getPatientId(), patient);
+        patientTrigramIndexByName.add(patient.getPatientId(), patient.getFullName(), patient);
+        patientTrigramIndexByEmail.add(patient.getPatientId(), patient.getEmail(), patient);
         
         // Index by address components
         if (patient.getAddress() != null) {
             Address address = patient.getAddress();
             String normalizedAddress = normalizeAddressForIndexing(address);
             IndexingUtility.addToIndexGroup(patientIndexByAddress, normalizedAddress, patient.getPatientId(), patient);
+            patientTrigramIndexByAddress.add(patient.getPatientId(), normalizedAddress, patient);
             
             // Index individual address components
             String street = normalizeAddress(address.getStreet());
@@ -129,7 +153,7 @@ public class PatientManagementControl {
         
         // Index by registration date
         if (patient.getRegistrationDate() != null) {
-            IndexingUtility.addToIndexGroup(patientIndexByRegistrationDate, patient.getRegistrationDate(), patient.getPatientId(), patient);
+            IndexingUtility.addToIndexGroup(patientIndexByRegistrationDate, patient.getRegistrationDate().toEpochDay(), patient.getPatientId(), patient);
         }
     }
 
@@ -142,6 +166,9 @@ public class PatientManagementControl {
             IndexingUtility.removeFromIndexGroup(patientIndexByEmail, oldPatient.getEmail(), oldPatient.getPatientId());
             IndexingUtility.removeFromIndexGroup(patientIndexByPhone, oldPatient.getPhoneNumber(), oldPatient.getPatientId());
             IndexingUtility.removeFromIndexGroup(patientIndexByIcNumber, oldPatient.getICNumber(), oldPatient.getPatientId());
+            patientTrigramIndexByName.remove(oldPatient.getPatientId());
+            patientTrigramIndexByEmail.remove(oldPatient.getPatientId());
+            patientTrigramIndexByAddress.remove(oldPatient.getPatientId());
             
             if (oldPatient.getAddress() != null) {
                 Address oldAddress = oldPatient.getAddress();
@@ -179,7 +206,7 @@ public class PatientManagementControl {
             IndexingUtility.removeFromIndexGroup(patientIndexByAge, oldPatient.getAge(), oldPatient.getPatientId());
             
             if (oldPatient.getRegistrationDate() != null) {
-                IndexingUtility.removeFromIndexGroup(patientIndexByRegistrationDate, oldPatient.getRegistrationDate(), oldPatient.getPatientId());
+                IndexingUtility.removeFromIndexGroup(patientIndexByRegistrationDate, oldPatient.getRegistrationDate().toEpochDay(), oldPatient.getPatientId());
             }
         }
         
@@ -199,6 +226,9 @@ public class PatientManagementControl {
         patientIndexByState.clear();
         patientIndexByZipCode.clear();
         patientIndexByCountry.clear();
+        patientTrigramIndexByName.clear();
+        patientTrigramIndexByEmail.clear();
+        patientTrigramIndexByAddress.clear();
         patientIndexByBloodType.clear();
         patientIndexByAge.clear();
         patientIndexByRegistrationDate.clear();
@@ -336,6 +366,8 @@ public class PatientManagementControl {
                 boolean updated = patientDao.update(patient);
                 if (updated) {
                     removeFromActivePatients(patient);
+                    patientQueue.removeFromQueue(patientId);
+                    triageQueue.remove(patientId);
                     return true;
                 }
             }
@@ -368,12 +400,68 @@ public class PatientManagementControl {
         return patientQueue.getQueueSize();
     }
 
+    // Removes a patient from anywhere in the queue (e.g. a walk-in who leaves)
+    public boolean removePatientFromQueue(String patientId) {
+        return patientQueue.removeFromQueue(patientId) != null;
+    }
+
     public boolean isPatientInQueue(Patient patient) {
         if (patient == null)
             return false;
         return patientQueue.queueContains(patient.getPatientId());
     }
 
+    // Triage Queue Methods
+    // Adds a patient with a triage priority; elderly patients are moved up one level
+    public boolean addPatientToTriageQueue(Patient patient, int priority) {
+        if (patient == null || !patient.isActive()) {
+            return false;
+        }
+        if (priority < TRIAGE_CRITICAL || priority > TRIAGE_NON_URGENT) {
+            return false;
+        }
+        return triageQueue.enqueue(patient.getPatientId(), patient, effectiveTriagePriority(patient, priority));
+    }
+
+    // Moves a waiting patient to a more urgent priority (e.g. condition worsened)
+    public boolean escalatePatientPriority(String patientId, int priority) {
+        Patient patient = triageQueue.getValue(patientId);
+        if (patient == null || priority < TRIAGE_CRITICAL) {
+            return false;
+        }
+        return triageQueue.decreaseKey(patientId, effectiveTriagePriority(patient, priority));
+    }
+
+    // Removes and returns the most urgent patient; ties are served in arrival order
+    public Patient getNextPatientFromTriageQueue() {
+        return triageQueue.dequeue();
+    }
+
+    public Patient peekNextPatientFromTriageQueue() {
+        return triageQueue.peek();
+    }
+
+    public boolean removePatientFromTriageQueue(String patientId) {
+        return triageQueue.remove(patientId) != null;
+    }
+
+    public int getTriageQueueSize() {
+        return triageQueue.getSize();
+    }
+
+    public boolean isPatientInTriageQueue(Patient patient) {
+        if (patient == null)
+            return false;
+        return triageQueue.contains(patient.getPatientId());
+    }
+
+    private int effectiveTriagePriority(Patient patient, int priority) {
+        if (patient.getAge() >= ELDERLY_AGE && priority > TRIAGE_CRITICAL) {
+            return priority - 1;
+        }
+        return priority;
+    }
+
 
     // Search and Retrieval Methods
     public Patient findPatientById(String patientId) {
@@ -389,36 +477,21 @@ public class PatientManagementControl {
             return results;
         }
         String query = name.trim().toLowerCase();
+        if (query.length() >= 3) {
+            // Substring match: intersect the query's trigram postings, then verify
+            patientTrigramIndexByName.forEachContaining(query, results::add);
+            return results;
+        }
         
-        // Strategy 1: Try prefix matching first (most efficient)
-        ArrayBucketList<String, ArrayBucketList<String, Patient>> groups = patientIndexByName.getByStringKeyPrefix(query);
+        // Too short for trigrams: every key starting with the query, in O(query + matches)
+        ArrayBucketList<String, ArrayBucketList<String, Patient>> groups = patientIndexByName.getByPrefix(query);
         Iterator<ArrayBucketList<String, Patient>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Patient> group = groupIterator.next();
             Iterator<Patient> iterator = group.iterator();
             while (iterator.hasNext()) {
                 Patient patient = iterator.next();
-                if (patient.getFullName() != null && patient.getFullName().toLowerCase().contains(query)) {
-                    results.add(patient.getPatientId(), patient);
-                }
-            }
-        }
-        
-        // Strategy 2: If query is short (1-2 chars), also search other groups for partial matches
-        if (query.length() <= 2) {
-            // Get all groups and search for partial matches
-            Iterator<ArrayBucketList<String, Patient>> allGroupsIterator = patientIndexByName.iterator();
-            while (allGroupsIterator.hasNext()) {
-                ArrayBucketList<String, Patient> group = allGroupsIterator.next();
-                Iterator<Patient> iterator = group.iterator();
-                while (iterator.hasNext()) {
-                    Patient patient = iterator.next();
-                    if (patient.getFullName() != null && 
-                        patient.getFullName().toLowerCase().contains(query) &&
-                        !results.contains(patient.getPatientId())) {
-                        results.add(patient.getPatientId(), patient);
-                    }
-                }
+                results.add(patient.getPatientId(), patient);
             }
         }
         
@@ -433,36 +506,21 @@ public class PatientManagementControl {
             return results;
         }
         String query = email.trim().toLowerCase();
+        if (query.length() >= 3) {
+            // Substring match: intersect the query's trigram postings, then verify
+            patientTrigramIndexByEmail.forEachContaining(query, results::add);
+            return results;
+        }
         
-        // Strategy 1: Try prefix matching first (most efficient)
-        ArrayBucketList<String, ArrayBucketList<String, Patient>> groups = patientIndexByEmail.getByStringKeyPrefix(query);
+        // Too short for trigrams: every key starting with the query, in O(query + matches)
+        ArrayBucketList<String, ArrayBucketList<String, Patient>> groups = patientIndexByEmail.getByPrefix(query);
         Iterator<ArrayBucketList<String, Patient>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Patient> group = groupIterator.next();
             Iterator<Patient> iterator = group.iterator();
             while (iterator.hasNext()) {
                 Patient patient = iterator.next();
-                if (patient.getEmail() != null && patient.getEmail().toLowerCase().contains(query)) {
-                    results.add(patient.getPatientId(), patient);
-                }
-            }
-        }
-        
-        // Strategy 2: If query is short (1-2 chars), also search other groups for partial matches
-        if (query.length() <= 2) {
-            // Get all groups and search for partial matches
-            Iterator<ArrayBucketList<String, Patient>> allGroupsIterator = patientIndexByEmail.iterator();
-            while (allGroupsIterator.hasNext()) {
-                ArrayBucketList<String, Patient> group = allGroupsIterator.next();
-                Iterator<Patient> iterator = group.iterator();
-                while (iterator.hasNext()) {
-                    Patient patient = iterator.next();
-                    if (patient.getEmail() != null && 
-                        patient.getEmail().toLowerCase().contains(query) &&
-                        !results.contains(patient.getPatientId())) {
-                        results.add(patient.getPatientId(), patient);
-                    }
-                }
+                results.add(patient.getPatientId(), patient);
             }
         }
         
@@ -493,17 +551,8 @@ public class PatientManagementControl {
             maxAge = temp;
         }
         
-        // Search through age index for patients in range
-        for (int age = minAge; age <= maxAge; age++) {
-            ArrayBucketList<String, Patient> ageGroup = patientIndexByAge.getValue(age);
-            if (ageGroup != null) {
-                Iterator<Patient> iterator = ageGroup.iterator();
-                while (iterator.hasNext()) {
-                    Patient patient = iterator.next();
-                    results.add(patient.getPatientId(), patient);
-                }
-            }
-        }
+        // Walk only the ages present in the index between minAge and maxAge
+        IndexingUtility.collectGroupsInRange(patientIndexByAge, minAge, maxAge, results);
         return results;
     }
 
@@ -512,21 +561,11 @@ public class PatientManagementControl {
         ensureDataLoaded();
         ArrayBucketList<String, Patient> results = ArrayBucketListFactory.createForStringIds(16);
         if (days <= 0) return results;
-        java.time.LocalDate cutoff = java.time.LocalDate.now().minusDays(days);
+        java.time.LocalDate today = java.time.LocalDate.now();
+        java.time.LocalDate cutoff = today.minusDays(days);
         
-        // Search through registration date index
-        java.time.LocalDate currentDate = java.time.LocalDate.now();
-        while (!currentDate.isBefore(cutoff)) {
-            ArrayBucketList<String, Patient> dateGroup = patientIndexByRegistrationDate.getValue(currentDate);
-            if (dateGroup != null) {
-                Iterator<Patient> iterator = dateGroup.iterator();
-                while (iterator.hasNext()) {
-                    Patient patient = iterator.next();
-                    results.add(patient.getPatientId(), patient);
-                }
-            }
-            currentDate = currentDate.minusDays(1);
-        }
+        // One range walk over the registration dates present, not one lookup per day
+        IndexingUtility.collectGroupsInRange(patientIndexByRegistrationDate, cutoff.toEpochDay(), today.toEpochDay(), results);
         return results;
     }
 
@@ -535,21 +574,11 @@ public class PatientManagementControl {
         ensureDataLoaded();
         ArrayBucketList<String, Patient> results = ArrayBucketListFactory.createForStringIds(16);
         if (months <= 0) return results;
-        java.time.LocalDate cutoff = java.time.LocalDate.now().minusMonths(months);
+        java.time.LocalDate today = java.time.LocalDate.now();
+        java.time.LocalDate cutoff = today.minusMonths(months);
         
-        // Search through registration date index
-        java.time.LocalDate currentDate = java.time.LocalDate.now();
-        while (!currentDate.isBefore(cutoff)) {
-            ArrayBucketList<String, Patient> dateGroup = patientIndexByRegistrationDate.getValue(currentDate);
-            if (dateGroup != null) {
-                Iterator<Patient> iterator = dateGroup.iterator();
-                while (iterator.hasNext()) {
-                    Patient patient = iterator.next();
-                    results.add(patient.getPatientId(), patient);
-                }
-            }
-            currentDate = currentDate.minusDays(1);
-        }
+        // One range walk over the registration dates present, not one lookup per day
+        IndexingUtility.collectGroupsInRange(patientIndexByRegistrationDate, cutoff.toEpochDay(), today.toEpochDay(), results);
         return results;
     }
 
@@ -558,21 +587,11 @@ public class PatientManagementControl {
         ensureDataLoaded();
         ArrayBucketList<String, Patient> results = ArrayBucketListFactory.createForStringIds(16);
         if (years <= 0) return results;
-        java.time.LocalDate cutoff = java.time.LocalDate.now().minusYears(years);
+        java.time.LocalDate today = java.time.LocalDate.now();
+        java.time.LocalDate cutoff = today.minusYears(years);
         
-        // Search through registration date index
-        java.time.LocalDate currentDate = java.time.LocalDate.now();
-        while (!currentDate.isBefore(cutoff)) {
-            ArrayBucketList<String, Patient> dateGroup = patientIndexByRegistrationDate.getValue(currentDate);
-            if (dateGroup != null) {
-                Iterator<Patient> iterator = dateGroup.iterator();
-                while (iterator.hasNext()) {
-                    Patient patient = iterator.next();
-                    results.add(patient.getPatientId(), patient);
-                }
-            }
-            currentDate = currentDate.minusDays(1);
-        }
+        // One range walk over the registration dates present, not one lookup per day
+        IndexingUtility.collectGroupsInRange(patientIndexByRegistrationDate, cutoff.toEpochDay(), today.toEpochDay(), results);
         return results;
     }
 
@@ -584,8 +603,13 @@ public class PatientManagementControl {
         if (keyword == null) return results;
         String query = normalizeAddress(keyword);
         if (query.isEmpty()) return results;
+        if (query.length() >= 3) {
+            // Any substring of the combined street, city, state, zip and country
+            patientTrigramIndexByAddress.forEachContaining(query, results::add);
+            return results;
+        }
         
-        // Search through individual address component indices for efficient partial matching
+        // Too short for trigrams: prefix matches on each address component
         searchAddressComponent(patientIndexByStreet, query, results);
         searchAddressComponent(patientIndexByCity, query, results);
         searchAddressComponent(patientIndexByState, query, results);
@@ -598,11 +622,10 @@ public class PatientManagementControl {
         return results;
     }
     
-    // Helper method to search address components with partial matching
-    private void searchAddressComponent(ArrayBucketList<String, ArrayBucketList<String, Patient>> index, 
+    // Helper method to search an address component index by prefix
+    private void searchAddressComponent(PrefixIndex<ArrayBucketList<String, Patient>> index, 
                                       String query, ArrayBucketList<String, Patient> results) {
-        // Strategy 1: Try prefix matching first (most efficient)
-        ArrayBucketList<String, ArrayBucketList<String, Patient>> groups = index.getByStringKeyPrefix(query);
+        ArrayBucketList<String, ArrayBucketList<String, Patient>> groups = index.getByPrefix(query);
         Iterator<ArrayBucketList<String, Patient>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Patient> group = groupIterator.next();
@@ -614,47 +637,8 @@ public class PatientManagementControl {
                 }
             }
         }
-        
-        // Strategy 2: For short queries, search all groups for partial matches
-        if (query.length() <= 3) {
-            Iterator<ArrayBucketList<String, Patient>> allGroupsIterator = index.iterator();
-            while (allGroupsIterator.hasNext()) {
-                ArrayBucketList<String, Patient> group = allGroupsIterator.next();
-                Iterator<Patient> iterator = group.iterator();
-                while (iterator.hasNext()) {
-                    Patient patient = iterator.next();
-                    if (!results.contains(patient.getPatientId())) {
-                        // Check if this patient's address component contains the query
-                        if (patient.getAddress() != null) {
-                            String componentValue = getAddressComponentValue(patient.getAddress(), index);
-                            if (componentValue.contains(query)) {
-                                results.add(patient.getPatientId(), patient);
-                            }
-                        }
-                    }
-                }
-            }
-        }
     }
     
-    // Helper method to get the appropriate address component value based on the index
-    private String getAddressComponentValue(Address address, ArrayBucketList<String, ArrayBucketList<String, Patient>> index) {
-        if (index == patientIndexByStreet) {
-            return normalizeAddress(address.getStreet());
-        } else if (index == patientIndexByCity) {
-            return normalizeAddress(address.getCity());
-        } else if (index == patientIndexByState) {
-            return normalizeAddress(address.getState());
-        } else if (index == patientIndexByZipCode) {
-            return normalizeAddress(address.getZipCode());
-        } else if (index == patientIndexByCountry) {
-            return normalizeAddress(address.getCountry());
-        } else if (index == patientIndexByAddress) {
-            return normalizeAddressForIndexing(address);
-        }
-        return "";
-    }
-
     // Normalizes address strings for comparison
     private String normalizeAddress(String input) {
         if (input == null) return "";
@@ -2,7 +2,10 @@ package control;
 
 import adt.ArrayBucketList;
 import adt.ArrayBucketListFactory;
+import adt.BitmapIndex;
 import adt.IndexingUtility;
+import adt.PrefixIndex;
+import adt.LongRangeIndex;
 import utility.ConsoleUtils;
 import entity.Medicine;
 import entity.Prescription;
@@ -15,10 +18,14 @@ import dao.PatientDao;
 
 import dao.DoctorDao;
 import dao.ConsultationDao;
+import dao.EntitySession;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -31,9 +38,9 @@ import java.time.format.DateTimeFormatter;
 public class PharmacyManagementControl {
     // Medicine indices
     private ArrayBucketList<String, Medicine> medicineIndexById;
-    private ArrayBucketList<String, ArrayBucketList<String, Medicine>> medicineIndexByName;
-    private ArrayBucketList<String, ArrayBucketList<String, Medicine>> medicineIndexByGenericName;
-    private ArrayBucketList<String, ArrayBucketList<String, Medicine>> medicineIndexByManufacturer;
+    private PrefixIndex<ArrayBucketList<String, Medicine>> medicineIndexByName;
+    private PrefixIndex<ArrayBucketList<String, Medicine>> medicineIndexByGenericName;
+    private PrefixIndex<ArrayBucketList<String, Medicine>> medicineIndexByManufacturer;
     // Split by status into separate lists
     private ArrayBucketList<String, Medicine> medicinesAvailable;
     private ArrayBucketList<String, Medicine> medicinesLowStock;
@@ -48,18 +55,12 @@ public class PharmacyManagementControl {
     private ArrayBucketList<String, ArrayBucketList<String, Prescription>> prescriptionIndexByDoctorId;
     private ArrayBucketList<String, ArrayBucketList<String, Prescription>> prescriptionIndexByPatientIC;
     private ArrayBucketList<String, ArrayBucketList<String, Prescription>> prescriptionIndexByDoctorIC;
-    private ArrayBucketList<String, ArrayBucketList<String, Prescription>> prescriptionIndexByPatientName;
-    private ArrayBucketList<String, ArrayBucketList<String, Prescription>> prescriptionIndexByDoctorName;
-    // Split by prescription status into separate lists
-    private ArrayBucketList<String, Prescription> prescriptionsActive;
-    private ArrayBucketList<String, Prescription> prescriptionsDispensed;
-    private ArrayBucketList<String, Prescription> prescriptionsExpired;
-    private ArrayBucketList<String, Prescription> prescriptionsCancelled;
-    // Split by payment status into separate lists
-    private ArrayBucketList<String, Prescription> paymentsPaid;
-    private ArrayBucketList<String, Prescription> paymentsPending;
-    private ArrayBucketList<String, Prescription> paymentsCancelled;
-    private ArrayBucketList<LocalDate, ArrayBucketList<String, Prescription>> prescriptionIndexByDate;
+    private PrefixIndex<ArrayBucketList<String, Prescription>> prescriptionIndexByPatientName;
+    private PrefixIndex<ArrayBucketList<String, Prescription>> prescriptionIndexByDoctorName;
+    // Prescription status and payment status, one bitmap per value
+    private BitmapIndex<Prescription> prescriptionIndexByStatus;
+    // Keyed by LocalDate.toEpochDay()
+    private LongRangeIndex<ArrayBucketList<String, Prescription>> prescriptionIndexByDate;
 
     private final PrescriptionDao prescriptionDao;
     private final PatientDao patientDao;
@@ -69,29 +70,23 @@ public class PharmacyManagementControl {
     public PharmacyManagementControl() {
         // Initialize indices with suitable strategies
         this.medicineIndexById = ArrayBucketListFactory.createForStringIds(256);
-        this.medicineIndexByName = ArrayBucketListFactory.createForNamePrefix(26);
-        this.medicineIndexByGenericName = ArrayBucketListFactory.createForNamePrefix(26);
-        this.medicineIndexByManufacturer = ArrayBucketListFactory.createForNamePrefix(26);
+        this.medicineIndexByName = new PrefixIndex<>();
+        this.medicineIndexByGenericName = new PrefixIndex<>();
+        this.medicineIndexByManufacturer = new PrefixIndex<>();
         this.medicinesAvailable = ArrayBucketListFactory.createForStringIds(64);
         this.medicinesLowStock = ArrayBucketListFactory.createForStringIds(64);
         this.medicinesOutOfStock = ArrayBucketListFactory.createForStringIds(64);
         this.medicinesDiscontinued = ArrayBucketListFactory.createForStringIds(64);
         this.medicinesExpired = ArrayBucketListFactory.createForStringIds(64);
-        this.prescriptionIndexById = ArrayBucketListFactory.createForStringIds(256);
+        this.prescriptionIndexById = ArrayBucketListFactory.createForStringIdsIncremental(256);
         this.prescriptionIndexByPatientId = ArrayBucketListFactory.createForStringIds(128);
         this.prescriptionIndexByDoctorId = ArrayBucketListFactory.createForStringIds(128);
         this.prescriptionIndexByPatientIC = ArrayBucketListFactory.createForStringIds(128);
         this.prescriptionIndexByDoctorIC = ArrayBucketListFactory.createForStringIds(128);
-        this.prescriptionIndexByPatientName = ArrayBucketListFactory.createForNamePrefix(26);
-        this.prescriptionIndexByDoctorName = ArrayBucketListFactory.createForNamePrefix(26);
-        this.prescriptionsActive = ArrayBucketListFactory.createForStringIds(128);
-        this.prescriptionsDispensed = ArrayBucketListFactory.createForStringIds(128);
-        this.prescriptionsExpired = ArrayBucketListFactory.createForStringIds(128);
-        this.prescriptionsCancelled = ArrayBucketListFactory.createForStringIds(128);
-        this.paymentsPaid = ArrayBucketListFactory.createForStringIds(128);
-        this.paymentsPending = ArrayBucketListFactory.createForStringIds(128);
-        this.paymentsCancelled = ArrayBucketListFactory.createForStringIds(128);
-        this.prescriptionIndexByDate = ArrayBucketListFactory.createForLocalDates(64);
+        this.prescriptionIndexByPatientName = new PrefixIndex<>();
+        this.prescriptionIndexByDoctorName = new PrefixIndex<>();
+        this.prescriptionIndexByStatus = new BitmapIndex<>(256);
+        this.prescriptionIndexByDate = new LongRangeIndex<>();
         this.medicineDao = new MedicineDao();
         this.prescriptionDao = new PrescriptionDao();
         this.patientDao = new PatientDao();
@@ -148,12 +143,12 @@ public class PharmacyManagementControl {
         IndexingUtility.addToIndexGroup(prescriptionIndexByPatientName, prescription.getPatient().getFullName(), prescription.getPrescriptionId(), prescription);
         // By doctor name (prefix strategy)
         IndexingUtility.addToIndexGroup(prescriptionIndexByDoctorName, prescription.getDoctor().getFullName(), prescription.getPrescriptionId(), prescription);
-        // By status (split lists)
-        addPrescriptionToStatusList(prescription);
-        // By payment status (split lists)
-        addPrescriptionToPaymentList(prescription);
+        // By status and payment status (bitmaps)
+        prescriptionIndexByStatus.put(prescription.getPrescriptionId(), prescription, prescription.getStatus(), prescription.getPaymentStatus());
         // By prescription date
-        IndexingUtility.addToIndexGroup(prescriptionIndexByDate, prescription.getPrescriptionDate(), prescription.getPrescriptionId(), prescription);
+        if (prescription.getPrescriptionDate() != null) {
+            IndexingUtility.addToIndexGroup(prescriptionIndexByDate, prescription.getPrescriptionDate().toEpochDay(), prescription.getPrescriptionId(), prescription);
+        }
     }
 
     private void removeFromOldIndexGroups(Prescription oldPrescription) {
@@ -164,9 +159,10 @@ public class PharmacyManagementControl {
             IndexingUtility.removeFromIndexGroup(prescriptionIndexByDoctorIC, oldPrescription.getDoctor().getICNumber(), oldPrescription.getPrescriptionId());
             IndexingUtility.removeFromIndexGroup(prescriptionIndexByPatientName, oldPrescription.getPatient().getFullName(), oldPrescription.getPrescriptionId());
             IndexingUtility.removeFromIndexGroup(prescriptionIndexByDoctorName, oldPrescription.getDoctor().getFullName(), oldPrescription.getPrescriptionId());
-            removePrescriptionFromStatusList(oldPrescription, oldPrescription.getStatus());
-            removePrescriptionFromPaymentList(oldPrescription, oldPrescription.getPaymentStatus());
-            IndexingUtility.removeFromIndexGroup(prescriptionIndexByDate, oldPrescription.getPrescriptionDate(), oldPrescription.getPrescriptionId());
+            prescriptionIndexByStatus.remove(oldPrescription.getPrescriptionId());
+            if (oldPrescription.getPrescriptionDate() != null) {
+                IndexingUtility.removeFromIndexGroup(prescriptionIndexByDate, oldPrescription.getPrescriptionDate().toEpochDay(), oldPrescription.getPrescriptionId());
+            }
         }
     }
 
@@ -209,57 +205,15 @@ public class PharmacyManagementControl {
         };
     }
 
-    private void addPrescriptionToStatusList(Prescription prescription) {
-        ArrayBucketList<String, Prescription> list = getPrescriptionStatusList(prescription.getStatus());
-        if (list != null) {
-            list.add(prescription.getPrescriptionId(), prescription);
-        }
-    }
-
-    private void removePrescriptionFromStatusList(Prescription prescription, Prescription.PrescriptionStatus status) {
-        ArrayBucketList<String, Prescription> list = getPrescriptionStatusList(status);
-        if (list != null) {
-            list.remove(prescription.getPrescriptionId());
-        }
-    }
-
-    private ArrayBucketList<String, Prescription> getPrescriptionStatusList(Prescription.PrescriptionStatus status) {
-        if (status == null) return null;
-        return switch (status) {
-            case ACTIVE -> prescriptionsActive;
-            case DISPENSED -> prescriptionsDispensed;
-            case EXPIRED -> prescriptionsExpired;
-            case CANCELLED -> prescriptionsCancelled;
-        };
-    }
-
-    private void addPrescriptionToPaymentList(Prescription prescription) {
-        ArrayBucketList<String, Prescription> list = getPaymentStatusList(prescription.getPaymentStatus());
-        if (list != null) {
-            list.add(prescription.getPrescriptionId(), prescription);
-        }
-    }
-
-    private void removePrescriptionFromPaymentList(Prescription prescription, Prescription.PaymentStatus status) {
-        ArrayBucketList<String, Prescription> list = getPaymentStatusList(status);
-        if (list != null) {
-            list.remove(prescription.getPrescriptionId());
-        }
-    }
-
-    private ArrayBucketList<String, Prescription> getPaymentStatusList(Prescription.PaymentStatus status) {
-        if (status == null) return null;
-        return switch (status) {
-            case PAID -> paymentsPaid;
-            case PENDING -> paymentsPending;
-            case CANCELLED -> paymentsCancelled;
-        };
-    }
-
     public void loadPharmacyData() {
+        // One session, so prescribed medicines are the same objects as the inventory's
+        EntitySession.begin();
         try {
-            medicineIndexById = medicineDao.findAll();
-            prescriptionIndexById = prescriptionDao.findAll();
+            // The two tables load in parallel; rows shared through the session stay single instances
+            CompletableFuture<ArrayBucketList<String, Medicine>> medicines = medicineDao.findAllAsync();
+            CompletableFuture<ArrayBucketList<String, Prescription>> prescriptions = prescriptionDao.findAllAsync();
+            medicineIndexById = medicines.join();
+            prescriptionIndexById = prescriptions.join();
             // Index medicines
             Iterator<Medicine> medicineIterator = medicineIndexById.iterator();
             while (medicineIterator.hasNext()) {
@@ -273,6 +227,8 @@ public class PharmacyManagementControl {
             }
         } catch (Exception exception) {
             System.err.println("Error loading medicine data: " + exception.getMessage());
+        } finally {
+            EntitySession.end();
         }
     }
 
@@ -344,22 +300,35 @@ public class PharmacyManagementControl {
     }
 
     // Prescription Management Methods
+    /**
+     * Creates a prescription, optionally with its medicine lines; the
+     * prescription and all lines are written in one transaction
+     */
     public boolean createPrescription(String patientId, String doctorId, String consultationId,
-                                      String instructions, LocalDate expiryDate) {
+                                      String instructions, LocalDate expiryDate,
+                                      Prescription.PrescribedMedicine... prescribedMedicines) {
         try {
-            Patient patient = patientDao.findById(patientId);
-            Doctor doctor = doctorDao.findById(doctorId);
-            Consultation consultation = consultationDao.findById(consultationId);
+            // Independent lookups, run in parallel
+            CompletableFuture<Patient> patientLookup = patientDao.findByIdAsync(patientId);
+            CompletableFuture<Doctor> doctorLookup = doctorDao.findByIdAsync(doctorId);
+            CompletableFuture<Consultation> consultationLookup = consultationDao.findByIdAsync(consultationId);
+            Patient patient = patientLookup.join();
+            Doctor doctor = doctorLookup.join();
+            Consultation consultation = consultationLookup.join();
+            if (!allMedicinesKnown(prescribedMedicines)) {
+                return false;
+            }
 
             // Create new prescription
             Prescription prescription = new Prescription(null, patient, doctor,
                     consultation, LocalDate.now(), instructions, expiryDate);
 
             // Add to prescriptions list
-            prescriptionDao.insertAndReturnId(prescription);
+            if (!prescriptionDao.insertWithPrescribedMedicines(prescription, prescribedMedicines)) {
+                return false;
+            }
             indexPrescription(prescription);
 
-
             return true;
         } catch (Exception exception) {
             System.err.println("Error creating prescription: " + exception.getMessage());
@@ -368,13 +337,21 @@ public class PharmacyManagementControl {
     }
 
     public boolean addMedicineToPrescription(Prescription.PrescribedMedicine prescribedMedicine) {
+        return addMedicinesToPrescription(prescribedMedicine.getPrescriptionId(), prescribedMedicine);
+    }
+
+    /**
+     * Adds several medicine lines to a prescription in one transaction
+     */
+    public boolean addMedicinesToPrescription(String prescriptionId,
+                                              Prescription.PrescribedMedicine... prescribedMedicines) {
         try {
-            Prescription prescription = findPrescriptionById(prescribedMedicine.getPrescriptionId());
-            Medicine medicine = findMedicineById(prescribedMedicine.getMedicine().getMedicineId());
+            Prescription prescription = findPrescriptionById(prescriptionId);
 
-            if (prescription != null && medicine != null) {
-                prescriptionDao.insertPrescribedMedicineAndReturnId(prescribedMedicine);
-                prescription.addPrescribedMedicine(prescribedMedicine);
+            if (prescription != null && prescribedMedicines.length > 0 && allMedicinesKnown(prescribedMedicines)) {
+                if (!prescriptionDao.insertPrescribedMedicines(prescription, prescribedMedicines)) {
+                    return false;
+                }
                 indexPrescription(prescription);
                 return true;
             }
@@ -385,6 +362,16 @@ public class PharmacyManagementControl {
         }
     }
 
+    private boolean allMedicinesKnown(Prescription.PrescribedMedicine[] prescribedMedicines) {
+        for (Prescription.PrescribedMedicine prescribedMedicine : prescribedMedicines) {
+            if (prescribedMedicine == null || prescribedMedicine.getMedicine() == null
+                    || findMedicineById(prescribedMedicine.getMedicine().getMedicineId()) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean removeMedicineFromPrescription(String prescriptionId, String prescribedMedicineId) {
         try {
             Prescription prescription = findPrescriptionById(prescriptionId);
@@ -448,31 +435,23 @@ public class PharmacyManagementControl {
         try {
             Prescription prescription = findPrescriptionById(prescriptionId);
             if (prescription != null && prescription.canBeDispensed()) {
-                // Check if all medicines are available
-                Iterator<Prescription.PrescribedMedicine> prescribedMedicineIterator = prescription
-                        .getPrescribedMedicines().iterator();
-                while (prescribedMedicineIterator.hasNext()) {
-                    Prescription.PrescribedMedicine prescribedMedicine = prescribedMedicineIterator.next();
-                    Medicine medicine = prescribedMedicine.getMedicine();
-
-                    if (medicine.getQuantityInStock() < prescribedMedicine.getQuantity()) {
-                        System.err.println("Insufficient stock for medicine: " + medicine.getMedicineName());
-                        return false;
-                    }
+                // Stock decrements and the status change commit together, or not at all
+                ArrayBucketList<String, Integer> stockLeft = prescriptionDao.dispense(prescription);
+                if (stockLeft == null) {
+                    return false;
                 }
 
-                // Dispense medicines
+                // Apply the committed stock levels in memory
                 Iterator<Prescription.PrescribedMedicine> dispenseMedicineIterator = prescription
                         .getPrescribedMedicines().iterator();
                 while (dispenseMedicineIterator.hasNext()) {
-                    Prescription.PrescribedMedicine prescribedMedicine = dispenseMedicineIterator.next();
-                    Medicine medicine = prescribedMedicine.getMedicine();
-
-                    // Update stock quantity in memory and database
-                    Medicine oldMedicine = new Medicine(medicine);
-                    medicine.setQuantityInStock(medicine.getQuantityInStock() - prescribedMedicine.getQuantity());
-                    reindexMedicine(oldMedicine, medicine);
-                    medicineDao.updateStock(medicine.getMedicineId(), medicine.getQuantityInStock());
+                    Medicine medicine = dispenseMedicineIterator.next().getMedicine();
+                    Integer quantityInStock = stockLeft.getValue(medicine.getMedicineId());
+                    if (quantityInStock != null && quantityInStock != medicine.getQuantityInStock()) {
+                        Medicine oldMedicine = new Medicine(medicine);
+                        medicine.setQuantityInStock(quantityInStock);
+                        reindexMedicine(oldMedicine, medicine);
+                    }
                 }
 
                 Prescription oldPrescription = new Prescription(prescription);
@@ -480,7 +459,6 @@ public class PharmacyManagementControl {
                 prescription.setStatus(Prescription.PrescriptionStatus.DISPENSED);
                 // Mark as paid on successful dispensing
                 prescription.setPaymentStatus(Prescription.PaymentStatus.PAID);
-                prescriptionDao.update(prescription);
                 reindexPrescription(oldPrescription, prescription);
                 return true;
             }
@@ -507,8 +485,7 @@ public class PharmacyManagementControl {
             return results;
         }
 
-        // Use name-prefix aware lookup within the hashed bucket only
-        ArrayBucketList<String, ArrayBucketList<String, Medicine>> groups = medicineIndexByName.getByStringKeyPrefix(query);
+        ArrayBucketList<String, ArrayBucketList<String, Medicine>> groups = medicineIndexByName.getByPrefix(query);
         Iterator<ArrayBucketList<String, Medicine>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Medicine> group = groupIterator.next();
@@ -532,7 +509,7 @@ public class PharmacyManagementControl {
             return results;
         }
 
-        ArrayBucketList<String, ArrayBucketList<String, Medicine>> groups = medicineIndexByGenericName.getByStringKeyPrefix(query);
+        ArrayBucketList<String, ArrayBucketList<String, Medicine>> groups = medicineIndexByGenericName.getByPrefix(query);
         Iterator<ArrayBucketList<String, Medicine>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Medicine> group = groupIterator.next();
@@ -557,7 +534,7 @@ public class PharmacyManagementControl {
         }
 
         ArrayBucketList<String, ArrayBucketList<String, Medicine>> groups = medicineIndexByManufacturer
-                .getByStringKeyPrefix(query);
+                .getByPrefix(query);
         Iterator<ArrayBucketList<String, Medicine>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Medicine> group = groupIterator.next();
@@ -624,7 +601,7 @@ public class PharmacyManagementControl {
             return results;
         }
         ArrayBucketList<String, ArrayBucketList<String, Prescription>> groups = prescriptionIndexByPatientName
-                .getByStringKeyPrefix(query);
+                .getByPrefix(query);
         Iterator<ArrayBucketList<String, Prescription>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Prescription> group = groupIterator.next();
@@ -647,7 +624,7 @@ public class PharmacyManagementControl {
             return results;
         }
         ArrayBucketList<String, ArrayBucketList<String, Prescription>> groups = prescriptionIndexByDoctorName
-                .getByStringKeyPrefix(query);
+                .getByPrefix(query);
         Iterator<ArrayBucketList<String, Prescription>> groupIterator = groups.iterator();
         while (groupIterator.hasNext()) {
             ArrayBucketList<String, Prescription> group = groupIterator.next();
@@ -661,21 +638,73 @@ public class PharmacyManagementControl {
     }
 
     public ArrayBucketList<String, Prescription> findPrescriptionsByStatus(int statusChoice) {
-        return getPrescriptionStatusList(Prescription.PrescriptionStatus.values()[statusChoice - 1]);
+        return prescriptionIndexByStatus.find(Prescription.PrescriptionStatus.values()[statusChoice - 1]);
     }
 
     public ArrayBucketList<String, Prescription> findPrescriptionsByPaymentStatus(
             Prescription.PaymentStatus paymentStatus) {
-        return getPaymentStatusList(paymentStatus);
+        return prescriptionIndexByStatus.find(paymentStatus);
+    }
+
+    // Intersects the status and payment bitmaps; either may be null to leave it unfiltered
+    public ArrayBucketList<String, Prescription> findPrescriptionsByStatusAndPaymentStatus(
+            Prescription.PrescriptionStatus status, Prescription.PaymentStatus paymentStatus) {
+        if (status == null) {
+            return findPrescriptionsByPaymentStatus(paymentStatus);
+        }
+        if (paymentStatus == null) {
+            return prescriptionIndexByStatus.find(status);
+        }
+        return prescriptionIndexByStatus.find(status, paymentStatus);
+    }
+
+    public int countPrescriptionsByStatus(Prescription.PrescriptionStatus status) {
+        return prescriptionIndexByStatus.count(status);
     }
 
+    // Finds prescriptions dated from startDate to endDate inclusive; a missing endDate means startDate only
     public ArrayBucketList<String, Prescription> findPrescriptionsByDateRange(LocalDate startDate, LocalDate endDate) {
-        ArrayBucketList<String, Prescription> group = prescriptionIndexByDate.getValue(startDate);
-        return group != null ? group : new ArrayBucketList<>();
+        ArrayBucketList<String, Prescription> results = ArrayBucketListFactory.createForStringIds(16);
+        if (startDate == null) {
+            return results;
+        }
+        if (endDate == null) {
+            endDate = startDate;
+        }
+        if (startDate.isAfter(endDate)) {
+            LocalDate temp = startDate;
+            startDate = endDate;
+            endDate = temp;
+        }
+        // O(log n + k): seek to the first date, then walk only the dates in range
+        IndexingUtility.collectGroupsInRange(prescriptionIndexByDate, startDate.toEpochDay(), endDate.toEpochDay(), results);
+        return results;
+    }
+
+    public ArrayBucketList<String, Prescription> findPrescriptionsByMonth(YearMonth month) {
+        if (month == null) {
+            return ArrayBucketListFactory.createForStringIds(16);
+        }
+        return findPrescriptionsByDateRange(month.atDay(1), month.atEndOfMonth());
+    }
+
+    // Quarter 1 is January to March, quarter 4 is October to December
+    public ArrayBucketList<String, Prescription> findPrescriptionsByQuarter(int year, int quarter) {
+        if (quarter < 1 || quarter > 4) {
+            return ArrayBucketListFactory.createForStringIds(16);
+        }
+        YearMonth firstMonth = YearMonth.of(year, (quarter - 1) * 3 + 1);
+        return findPrescriptionsByDateRange(firstMonth.atDay(1), firstMonth.plusMonths(2).atEndOfMonth());
+    }
+
+    // Visits the prescriptions dated within the given year, in date order, without scanning the rest
+    private void forEachPrescriptionInYear(int year, Consumer<Prescription> action) {
+        prescriptionIndexByDate.forEachInRange(LocalDate.of(year, 1, 1).toEpochDay(),
+                LocalDate.of(year, 12, 31).toEpochDay(), group -> group.forEach(action));
     }
 
     public ArrayBucketList<String, Prescription> getActivePrescriptions() {
-        return prescriptionsActive;
+        return prescriptionIndexByStatus.find(Prescription.PrescriptionStatus.ACTIVE);
     }
 
     public ArrayBucketList<String, Medicine> getAllMedicines() {
@@ -1025,10 +1054,10 @@ public class PharmacyManagementControl {
         report.append(ConsoleUtils.centerText("PRESCRIPTION SUMMARY", 120)).append("\n");
         report.append("-".repeat(120)).append("\n");
         report.append(String.format("Total Prescriptions: %d\n", getTotalPrescriptions()));
-        report.append(String.format("Active Prescriptions: %d\n", getActivePrescriptions().getSize()));
-        report.append(String.format("Dispensed Prescriptions: %d\n", prescriptionsDispensed.getSize()));
+        report.append(String.format("Active Prescriptions: %d\n", countPrescriptionsByStatus(Prescription.PrescriptionStatus.ACTIVE)));
+        report.append(String.format("Dispensed Prescriptions: %d\n", countPrescriptionsByStatus(Prescription.PrescriptionStatus.DISPENSED)));
         report.append(String.format("Completion Rate: %.1f%%\n",
-                (double) prescriptionsDispensed.getSize() / getTotalPrescriptions() * 100));
+                (double) countPrescriptionsByStatus(Prescription.PrescriptionStatus.DISPENSED) / getTotalPrescriptions() * 100));
 
         // Prescriptions by year analysis using arrays
         int[] prescriptionYears = new int[20];
@@ -1135,15 +1164,8 @@ public class PharmacyManagementControl {
         int currentYear = LocalDate.now().getYear();
         int[] monthlyTrend = new int[13]; // Index 0 unused, 1-12 for months
 
-        prescriptionIterator = prescriptionIndexById.iterator();
-        while (prescriptionIterator.hasNext()) {
-            Prescription prescription = prescriptionIterator.next();
-            if (prescription.getPrescriptionDate() != null &&
-                    prescription.getPrescriptionDate().getYear() == currentYear) {
-                int month = prescription.getPrescriptionDate().getMonthValue();
-                monthlyTrend[month]++;
-            }
-        }
+        forEachPrescriptionInYear(currentYear,
+                prescription -> monthlyTrend[prescription.getPrescriptionDate().getMonthValue()]++);
 
         report.append(String.format("\nMONTHLY TREND FOR %d:\n", currentYear));
         String[] months = { "", "Jan", "Feb", "Mar", "Apr", "May", "Jun",
@@ -1231,7 +1253,7 @@ public class PharmacyManagementControl {
         report.append(ConsoleUtils.centerText("USAGE METRICS SUMMARY", 125)).append("\n");
         report.append("-".repeat(125)).append("\n");
         report.append(String.format("Total Prescriptions: %d\n", getTotalPrescriptions()));
-        report.append(String.format("Dispensed Prescriptions: %d\n", prescriptionsDispensed.getSize()));
+        report.append(String.format("Dispensed Prescriptions: %d\n", countPrescriptionsByStatus(Prescription.PrescriptionStatus.DISPENSED)));
         report.append(String.format("Total Medicines in Inventory: %d\n", getTotalMedicines()));
         report.append(String.format("Average Medicines per Prescription: %.1f\n",
                 calculateAverageMedicinesPerPrescription()));
@@ -1339,16 +1361,11 @@ public class PharmacyManagementControl {
         int[] monthlyPrescriptions = new int[13]; // Index 0 unused, 1-12 for months
         double[] monthlyRevenue = new double[13];
 
-        prescriptionIterator = prescriptionIndexById.iterator();
-        while (prescriptionIterator.hasNext()) {
-            Prescription prescription = prescriptionIterator.next();
-            if (prescription != null && prescription.getPrescriptionDate() != null &&
-                    prescription.getPrescriptionDate().getYear() == currentYear) {
-                int month = prescription.getPrescriptionDate().getMonthValue();
-                monthlyPrescriptions[month]++;
-                monthlyRevenue[month] += prescription.getTotalCost();
-            }
-        }
+        forEachPrescriptionInYear(currentYear, prescription -> {
+            int month = prescription.getPrescriptionDate().getMonthValue();
+            monthlyPrescriptions[month]++;
+            monthlyRevenue[month] += prescription.getTotalCost();
+        });
 
         String[] months = { "", "Jan", "Feb", "Mar", "Apr", "May", "Jun",
                 "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
@@ -1589,17 +1606,12 @@ public class PharmacyManagementControl {
     }
 
     private double calculateTotalDispensingRevenue() {
-        double totalRevenue = 0.0;
+        double[] totalRevenue = { 0.0 };
 
-        Iterator<Prescription> prescriptionIterator = prescriptionsDispensed.iterator();
-        while (prescriptionIterator.hasNext()) {
-            Prescription prescription = prescriptionIterator.next();
-            if (prescription != null) {
-                totalRevenue += prescription.getTotalCost();
-            }
-        }
+        prescriptionIndexByStatus.forEachMatching((prescriptionId, prescription) ->
+                totalRevenue[0] += prescription.getTotalCost(), Prescription.PrescriptionStatus.DISPENSED);
 
-        return totalRevenue;
+        return totalRevenue[0];
     }
 
     private String getMedicineCategory(String genericName) {
@@ -0,0 +1,157 @@
+package control;
+
+import dao.EntitySession;
+import dao.EntitySnapshot;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds one shared instance of each module control and fills their caches
+ * at startup.
+ *
+ * The loads run in dependency order, in one EntitySession so every module
+ * ends up holding the same entity objects: patients and doctors first, then
+ * consultations, which reference both, then treatments and the pharmacy,
+ * which reference consultations. Loads within a phase are independent and
+ * run in parallel on a small thread pool, so a phase takes about as long as
+ * its slowest load.
+ *
+ * Before the phases the tables are loaded through an EntitySnapshot, from
+ * the snapshot file plus the rows changed since it was written, and the
+ * controls build their indices from those tables; afterwards the snapshot is
+ * rewritten for the next start. The file is clinic-cache.snapshot in the
+ * working directory unless -Dclinic.snapshot.file names another; an empty
+ * value turns the snapshot off.
+ */
+public class WarmStartControl {
+    public static final String SNAPSHOT_FILE_PROPERTY = "clinic.snapshot.file";
+
+    private static final int LOAD_THREADS = 2;
+
+    private final PatientManagementControl patientControl;
+    private final DoctorManagementControl doctorControl;
+    private final ConsultationManagementControl consultationControl;
+    private final MedicalTreatmentControl treatmentControl;
+    private final PharmacyManagementControl pharmacyControl;
+
+    public WarmStartControl() {
+        this.patientControl = new PatientManagementControl();
+        this.doctorControl = new DoctorManagementControl();
+        this.consultationControl = new ConsultationManagementControl();
+        this.treatmentControl = new MedicalTreatmentControl();
+        this.pharmacyControl = new PharmacyManagementControl();
+    }
+
+    /**
+     * Loads every control's data
+     *
+     * @return per-phase and per-load timings, one line each
+     */
+    public String warmStart() {
+        StringBuilder timings = new StringBuilder();
+        long start = System.nanoTime();
+        ExecutorService loadPool = Executors.newFixedThreadPool(LOAD_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "warm-start");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Path snapshotFile = snapshotFile();
+        EntitySession.begin();
+        try {
+            EntitySnapshot snapshot = snapshotFile != null ? loadSnapshot(snapshotFile, timings) : null;
+            runPhase("Patients and doctors", loadPool, timings,
+                    new String[] { "patients", "doctors" },
+                    patientControl::loadActivePatients,
+                    doctorControl::loadDoctorData);
+            runPhase("Consultations", loadPool, timings,
+                    new String[] { "consultations" },
+                    consultationControl::loadConsultationData);
+            runPhase("Treatments and pharmacy", loadPool, timings,
+                    new String[] { "treatments", "pharmacy" },
+                    treatmentControl::loadTreatmentData,
+                    pharmacyControl::loadPharmacyData);
+            if (snapshot != null) {
+                long saveStart = System.nanoTime();
+                boolean saved = snapshot.save(snapshotFile);
+                timings.append(String.format("%-24s %6d ms (%s)%n", "Snapshot save", millisSince(saveStart),
+                        saved ? snapshotFile : "failed"));
+            }
+        } finally {
+            EntitySession.end();
+            loadPool.shutdown();
+        }
+        timings.append(String.format("Warm start total: %d ms%n", millisSince(start)));
+        return timings.toString();
+    }
+
+    private static Path snapshotFile() {
+        String file = System.getProperty(SNAPSHOT_FILE_PROPERTY, "clinic-cache.snapshot").trim();
+        return file.isEmpty() ? null : Paths.get(file);
+    }
+
+    private static EntitySnapshot loadSnapshot(Path snapshotFile, StringBuilder timings) {
+        long start = System.nanoTime();
+        EntitySnapshot snapshot = EntitySnapshot.load(snapshotFile);
+        if (snapshot == null) {
+            return null;
+        }
+        String detail = snapshot.isRestored()
+                ? String.format("restored %d rows, %d changed, %d removed", snapshot.getRowCount(),
+                        snapshot.getChangedRowCount(), snapshot.getRemovedRowCount())
+                : String.format("read %d rows", snapshot.getRowCount());
+        timings.append(String.format("%-24s %6d ms (%s)%n", "Snapshot", millisSince(start), detail));
+        return snapshot;
+    }
+
+    private void runPhase(String phaseName, ExecutorService loadPool, StringBuilder timings, String[] loadNames,
+            Runnable... loaders) {
+        long phaseStart = System.nanoTime();
+        long[] loadMillis = new long[loaders.length];
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[loaders.length];
+        for (int index = 0; index < loaders.length; index++) {
+            Runnable loader = EntitySession.inCurrentSession(loaders[index]);
+            int slot = index;
+            loads[index] = CompletableFuture.runAsync(() -> {
+                long loadStart = System.nanoTime();
+                loader.run();
+                loadMillis[slot] = millisSince(loadStart);
+            }, loadPool);
+        }
+        CompletableFuture.allOf(loads).join();
+
+        timings.append(String.format("%-24s %6d ms (", phaseName, millisSince(phaseStart)));
+        for (int index = 0; index < loaders.length; index++) {
+            timings.append(index > 0 ? ", " : "").append(loadNames[index]).append(' ').append(loadMillis[index])
+                    .append(" ms");
+        }
+        timings.append(String.format(")%n"));
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public PatientManagementControl getPatientControl() {
+        return patientControl;
+    }
+
+    public DoctorManagementControl getDoctorControl() {
+        return doctorControl;
+    }
+
+    public ConsultationManagementControl getConsultationControl() {
+        return consultationControl;
+    }
+
+    public MedicalTreatmentControl getTreatmentControl() {
+        return treatmentControl;
+    }
+
+    public PharmacyManagementControl getPharmacyControl() {
+        return pharmacyControl;
+    }
+}
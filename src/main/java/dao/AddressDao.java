@@ -9,11 +9,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 
 public class AddressDao extends DaoTemplate<Address> {
 
     @Override
     public Address findById(String addressId) throws SQLException {
+        Address cached = sessionInstance(addressId);
+        if (cached != null) {
+            return cached;
+        }
         String sql = "SELECT * FROM address WHERE addressId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -23,7 +28,7 @@ public class AddressDao extends DaoTemplate<Address> {
             ResultSet resultSet = preparedStatement.executeQuery();
 
             if (resultSet.next()) {
-                return mapResultSet(resultSet);
+                return mapSessionRow(resultSet, "addressId");
             }
         } catch (SQLException e) {
             System.err.println("Error finding address by ID: " + e.getMessage());
@@ -43,7 +48,7 @@ public class AddressDao extends DaoTemplate<Address> {
                 ResultSet resultSet = statement.executeQuery(sql)) {
 
             while (resultSet.next()) {
-                Address address = mapResultSet(resultSet);
+                Address address = mapSessionRow(resultSet, "addressId");
                 if (address != null) {
                     addresses.add(address.getAddressId(), address);
                 }
@@ -56,30 +61,39 @@ public class AddressDao extends DaoTemplate<Address> {
         return addresses;
     }
 
+    /**
+     * Addresses modified at or after the given time, registered in the open
+     * EntitySession
+     *
+     * @param since lastModified lower bound
+     * @return the changed addresses keyed by address ID
+     */
+    ArrayBucketList<String, Address> findAllChangedSince(Timestamp since) throws SQLException {
+        return findAllBySql("SELECT * FROM address WHERE lastModified >= ?", "addressId",
+                new ArrayBucketList<String, Address>(), since);
+    }
+
     @Override
     public boolean insertAndReturnId(Address address) throws SQLException {
-        String sql = "INSERT INTO address (street, city, state, postalCode, country) " +
-                "VALUES (?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO address (addressId, street, city, state, postalCode, country) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                PreparedStatement preparedStatement = connection.prepareStatement(sql,
-                        Statement.RETURN_GENERATED_KEYS)) {
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
-            preparedStatement.setString(1, address.getStreet());
-            preparedStatement.setString(2, address.getCity());
-            preparedStatement.setString(3, address.getState());
-            preparedStatement.setString(4, address.getZipCode());
-            preparedStatement.setString(5, address.getCountry());
+            String addressId = IdAllocator.ADDRESS.nextId(connection);
+            preparedStatement.setString(1, addressId);
+            preparedStatement.setString(2, address.getStreet());
+            preparedStatement.setString(3, address.getCity());
+            preparedStatement.setString(4, address.getState());
+            preparedStatement.setString(5, address.getZipCode());
+            preparedStatement.setString(6, address.getCountry());
 
             int affectedRows = preparedStatement.executeUpdate();
 
             if (affectedRows > 0) {
-                // Get the generated ID from the database
-                String generatedId = getLastInsertedAddressId(connection);
-                if (generatedId != null) {
-                    address.setAddressId(generatedId);
-                    return true;
-                }
+                address.setAddressId(addressId);
+                return true;
             }
 
             return false;
@@ -106,6 +120,9 @@ public class AddressDao extends DaoTemplate<Address> {
             preparedStatement.setString(6, address.getAddressId());
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                updateSessionInstance(address.getAddressId(), address);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error updating address: " + e.getMessage());
@@ -123,6 +140,9 @@ public class AddressDao extends DaoTemplate<Address> {
             preparedStatement.setString(1, addressId);
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                evictSessionInstance(addressId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting address: " + e.getMessage());
@@ -131,24 +151,30 @@ public class AddressDao extends DaoTemplate<Address> {
     }
 
     /**
-     * Get the ID of the last inserted address
-     * 
-     * @param connection The database connection
-     * @return The generated address ID
-     * @throws SQLException if database error occurs
+     * Maps the address columns (street, city, state, postalCode, country)
+     * joined onto a patient or doctor row, reusing the session's Address for
+     * the ID when there is one
+     *
+     * @param resultSet row with addressId and the joined address columns
+     * @return the address, or null if the row has no address
      */
-    private String getLastInsertedAddressId(Connection connection) throws SQLException {
-        String sql = "SELECT addressId FROM address ORDER BY createdDate DESC LIMIT 1";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                ResultSet resultSet = preparedStatement.executeQuery()) {
-
-            if (resultSet.next()) {
-                return resultSet.getString("addressId");
-            }
+    static Address mapJoinedAddress(ResultSet resultSet) throws SQLException {
+        String addressId = resultSet.getString("addressId");
+        if (addressId == null || resultSet.getString("street") == null) {
+            return null;
         }
-
-        return null;
+        Address cached = (Address) EntitySession.get(AddressDao.class, addressId);
+        if (cached != null) {
+            return cached;
+        }
+        Address address = new Address(
+                resultSet.getString("street"),
+                resultSet.getString("city"),
+                resultSet.getString("state"),
+                resultSet.getString("postalCode"),
+                resultSet.getString("country"));
+        address.setAddressId(addressId);
+        return (Address) EntitySession.register(AddressDao.class, addressId, address);
     }
 
     @Override
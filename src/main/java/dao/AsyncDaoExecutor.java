@@ -0,0 +1,65 @@
+package dao;
+
+import utility.HikariConnectionPool;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * AsyncDaoExecutor - Runs DAO calls on virtual threads for the async methods
+ * of DaoTemplate.
+ *
+ * Every call gets its own virtual thread, so waiting on the network does not
+ * tie up a platform thread. At most MAX_CONCURRENT_CALLS calls run at once;
+ * the rest wait, cheaply, for a permit. One call can hold up to
+ * CONNECTIONS_PER_CALL pooled connections at a time (a prescription row
+ * looking up its consultation, which looks up its patient), so the bound is
+ * the Hikari pool size divided by that depth and the pool cannot run dry
+ * with every call waiting for a second connection.
+ */
+final class AsyncDaoExecutor {
+
+    /**
+     * A DAO call, which may throw SQLException
+     */
+    interface SqlCall<R> {
+        R call() throws SQLException;
+    }
+
+    private static final int CONNECTIONS_PER_CALL = 3;
+    static final int MAX_CONCURRENT_CALLS = Math.max(1,
+            HikariConnectionPool.MAXIMUM_POOL_SIZE / CONNECTIONS_PER_CALL);
+
+    private static final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("dao-async-", 0).factory());
+    private static final Semaphore permits = new Semaphore(MAX_CONCURRENT_CALLS, true);
+
+    private AsyncDaoExecutor() {}
+
+    /**
+     * Runs the call on a virtual thread once a permit is free, in the
+     * caller's EntitySession if one is open
+     *
+     * @return a future completed with the call's result, or exceptionally
+     *         with a CompletionException wrapping its SQLException
+     */
+    static <R> CompletableFuture<R> supply(SqlCall<R> call) {
+        EntitySession session = EntitySession.current();
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            EntitySession previous = EntitySession.attach(session);
+            try {
+                return call.call();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                EntitySession.attach(previous);
+                permits.release();
+            }
+        }, executor);
+    }
+}
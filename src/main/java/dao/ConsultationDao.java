@@ -5,6 +5,7 @@ import entity.Patient;
 import entity.Doctor;
 import utility.HikariConnectionPool;
 import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -12,9 +13,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
 
 /**
  * @author: Poh Qi Xuan
@@ -34,6 +37,10 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
 
     @Override
     public Consultation findById(String consultationId) throws SQLException {
+        Consultation cached = sessionInstance(consultationId);
+        if (cached != null) {
+            return cached;
+        }
         String sql = "SELECT * FROM consultation WHERE consultationId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -43,7 +50,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
             ResultSet resultSet = preparedStatement.executeQuery();
 
             if (resultSet.next()) {
-                return mapResultSet(resultSet);
+                return mapSessionRow(resultSet, "consultationId");
             }
         } catch (SQLException e) {
             System.err.println("Error finding consultation by ID: " + e.getMessage());
@@ -55,38 +62,96 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
 
     @Override
     public ArrayBucketList<String, Consultation> findAll() throws SQLException {
-        ArrayBucketList<String, Consultation> consultations = new ArrayBucketList<String, Consultation>();
+        ArrayBucketList<String, Consultation> restored = copySessionTable(ArrayBucketListFactory.createIncremental(16),
+                Consultation::getConsultationId);
+        if (restored != null) {
+            return restored;
+        }
+        ArrayBucketList<String, Consultation> consultations = ArrayBucketListFactory.createIncremental(16);
         String sql = "SELECT * FROM consultation ORDER BY consultationDate DESC";
 
-        try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                Statement statement = connection.createStatement();
-                ResultSet resultSet = statement.executeQuery(sql)) {
-
-            while (resultSet.next()) {
-                Consultation consultation = mapResultSet(resultSet);
-                if (consultation != null) {
-                    consultations.add(consultation.getConsultationId(), consultation);
-                }
-            }
+        // Patients and doctors are loaded set-based into the session first, so
+        // mapping a row resolves them without a query (3 queries in total)
+        EntitySession.begin();
+        try {
+            patientDao.findAllWhereIdIn("SELECT patientId FROM consultation");
+            doctorDao.findAllWhereIdIn("SELECT doctorId FROM consultation");
+            findAllBySql(sql, "consultationId", consultations);
         } catch (SQLException e) {
             System.err.println("Error finding all consultations: " + e.getMessage());
             throw e;
+        } finally {
+            EntitySession.end();
         }
 
         return consultations;
     }
 
+    /**
+     * Streams every consultation, newest first, without building a list.
+     * Patients and doctors are preloaded into a session as in findAll.
+     */
+    @Override
+    public void forEachRow(Consumer<? super Consultation> action) throws SQLException {
+        ArrayBucketList<String, Consultation> table = sessionTable();
+        if (table != null) {
+            table.forEach(action);
+            return;
+        }
+        EntitySession.begin();
+        try {
+            patientDao.findAllWhereIdIn("SELECT patientId FROM consultation");
+            doctorDao.findAllWhereIdIn("SELECT doctorId FROM consultation");
+            streamRows("SELECT * FROM consultation ORDER BY consultationDate DESC", "consultationId", action);
+        } finally {
+            EntitySession.end();
+        }
+    }
+
+    /**
+     * Loads the consultations whose IDs the subquery returns, preloading their
+     * patients and doctors, in three queries
+     *
+     * @param idSubquery SQL returning consultation IDs, built from constants only
+     * @return the loaded consultations keyed by consultation ID
+     */
+    ArrayBucketList<String, Consultation> findAllWhereIdIn(String idSubquery) throws SQLException {
+        String inIds = " IN (" + idSubquery + ")";
+        EntitySession.begin();
+        try {
+            patientDao.findAllWhereIdIn("SELECT patientId FROM consultation WHERE consultationId" + inIds);
+            doctorDao.findAllWhereIdIn("SELECT doctorId FROM consultation WHERE consultationId" + inIds);
+            return findAllBySql("SELECT * FROM consultation WHERE consultationId" + inIds, "consultationId",
+                    ArrayBucketListFactory.createForStringIds(256));
+        } finally {
+            EntitySession.end();
+        }
+    }
+
+    /**
+     * Consultations modified at or after the given time; their patients and
+     * doctors come from the open EntitySession when it holds them
+     *
+     * @param since lastModified lower bound
+     * @return the changed consultations keyed by consultation ID
+     */
+    ArrayBucketList<String, Consultation> findAllChangedSince(Timestamp since) throws SQLException {
+        return findAllBySql("SELECT * FROM consultation WHERE lastModified >= ?", "consultationId",
+                ArrayBucketListFactory.createForStringIds(256), since);
+    }
+
     /**
      * Find an IN_PROGRESS consultation for a doctor (if any)
      */
     public Consultation findInProgressByDoctor(String doctorId) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "SELECT * FROM consultation WHERE doctorId = ? AND status = 'IN_PROGRESS' ORDER BY consultationDate LIMIT 1";
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setString(1, doctorId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet.next()) {
-                    return mapResultSet(resultSet);
+                    return mapSessionRow(resultSet, "consultationId");
                 }
             }
         } catch (SQLException e) {
@@ -100,6 +165,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
      * Find the earliest SCHEDULED consultation for a doctor on a date
      */
     public Consultation findEarliestScheduledByDoctorOnDate(String doctorId, LocalDate date) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "SELECT * FROM consultation WHERE doctorId = ? AND status = 'SCHEDULED' AND DATE(consultationDate) = ? ORDER BY consultationDate ASC LIMIT 1";
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
@@ -107,7 +173,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
             preparedStatement.setDate(2, Date.valueOf(date));
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet.next()) {
-                    return mapResultSet(resultSet);
+                    return mapSessionRow(resultSet, "consultationId");
                 }
             }
         } catch (SQLException e) {
@@ -121,6 +187,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
      * Count SCHEDULED consultations for a doctor on a date
      */
     public int countScheduledByDoctorOnDate(String doctorId, LocalDate date) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "SELECT COUNT(*) FROM consultation WHERE doctorId = ? AND status = 'SCHEDULED' AND DATE(consultationDate) = ?";
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
@@ -142,6 +209,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
      * Build queue status summary for a given date
      */
     public String getQueueStatusForDate(LocalDate date) throws SQLException {
+        WriteBehindBuffer.flush();
         StringBuilder status = new StringBuilder();
         status.append("=== CONSULTATION QUEUE STATUS ===\n");
         status.append("Date: ").append(date.format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy")))
@@ -196,21 +264,44 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     // Cancel consultations that are past their scheduled datetime and not
     // completed.
     public int cancelExpiredConsultations() throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "UPDATE consultation SET status = 'CANCELLED', cancellationReason = 'Consultation date has expired' " +
                 "WHERE consultationDate < CURDATE() AND status IN ('SCHEDULED', 'IN_PROGRESS')";
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-            return preparedStatement.executeUpdate();
+            int cancelled = preparedStatement.executeUpdate();
+            if (cancelled > 0) {
+                dropSessionTable(); // a restored table still shows them as scheduled
+            }
+            return cancelled;
         } catch (SQLException e) {
             System.err.println("Error cancelling expired consultations: " + e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * Count a doctor's consultations without loading them
+     */
+    public int countByDoctor(String doctorId) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM consultation WHERE doctorId = ?";
+        try (Connection connection = HikariConnectionPool.getInstance().getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, doctorId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting consultations for doctor: " + e.getMessage());
+            throw e;
+        }
+    }
+
     /**
      * Check if a doctor already has a consultation at the exact date-time
      */
     public boolean existsConsultationAt(String doctorId, LocalDateTime dateTime) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "SELECT 1 FROM consultation WHERE doctorId = ? AND consultationDate = ? " +
                 "AND status IN ('SCHEDULED','IN_PROGRESS') LIMIT 1";
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -232,6 +323,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     private static final DateTimeFormatter DATE_TIME_FMT = DateTimeFormatter.ofPattern("dd-MM-uuuu HH:mm");
 
     public String getConsultationsByPatientText(String patientId) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "SELECT c.consultationId, c.consultationDate, c.status, c.consultationFee, " +
                 "p.fullName AS patientName, d.fullName AS doctorName, p.patientId, d.doctorId " +
                 "FROM consultation c JOIN patient p ON c.patientId=p.patientId " +
@@ -254,6 +346,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     }
 
     public String getConsultationsByDoctorText(String doctorId) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "SELECT c.consultationId, c.consultationDate, c.status, c.consultationFee, " +
                 "p.fullName AS patientName, d.fullName AS doctorName, p.patientId, d.doctorId " +
                 "FROM consultation c JOIN patient p ON c.patientId=p.patientId " +
@@ -276,6 +369,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     }
 
     public String getConsultationsByDateRangeText(LocalDate start, LocalDate end) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "SELECT c.consultationId, c.consultationDate, c.status, c.consultationFee, " +
                 "p.fullName AS patientName, d.fullName AS doctorName, p.patientId, d.doctorId " +
                 "FROM consultation c JOIN patient p ON c.patientId=p.patientId " +
@@ -300,6 +394,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     }
 
     public String getConsultationsByStatusText(Consultation.ConsultationStatus status) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "SELECT c.consultationId, c.consultationDate, c.status, c.consultationFee, " +
                 "p.fullName AS patientName, d.fullName AS doctorName, p.patientId, d.doctorId " +
                 "FROM consultation c JOIN patient p ON c.patientId=p.patientId " +
@@ -322,6 +417,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     }
 
     public String getConsultationReportText(String sortBy, String sortOrder) throws SQLException {
+        WriteBehindBuffer.flush();
         String orderBy = toOrderBy(sortBy, sortOrder, false);
         String sql = "SELECT c.consultationId, c.consultationDate, c.status, c.consultationFee, " +
                 "p.fullName AS patientName, d.fullName AS doctorName, p.patientId, d.doctorId " +
@@ -343,6 +439,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     }
 
     public String getConsultationHistoryReportText(String sortBy, String sortOrder) throws SQLException {
+        WriteBehindBuffer.flush();
         String orderBy = toOrderBy(sortBy, sortOrder, true);
         String sql = "SELECT c.consultationId, c.consultationDate, c.status, c.consultationFee, " +
                 "p.fullName AS patientName, d.fullName AS doctorName, p.patientId, d.doctorId " +
@@ -435,43 +532,40 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
 
     @Override
     public boolean insertAndReturnId(Consultation consultation) throws SQLException {
-        String sql = "INSERT INTO consultation (patientId, doctorId, consultationDate, " +
+        String sql = "INSERT INTO consultation (consultationId, patientId, doctorId, consultationDate, " +
                 "symptoms, diagnosis, treatment, notes, status, cancellationReason, nextVisitDate, consultationFee, paymentStatus) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                PreparedStatement preparedStatement = connection.prepareStatement(sql,
-                        Statement.RETURN_GENERATED_KEYS)) {
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
-            preparedStatement.setString(1, consultation.getPatient().getPatientId());
-            preparedStatement.setString(2, consultation.getDoctor().getDoctorId());
-            preparedStatement.setObject(3, consultation.getConsultationDate());
-            preparedStatement.setString(4, consultation.getSymptoms());
-            preparedStatement.setString(5, consultation.getDiagnosis());
-            preparedStatement.setString(6, consultation.getTreatment());
-            preparedStatement.setString(7, consultation.getNotes());
-            preparedStatement.setString(8, consultation.getStatus().name());
-            preparedStatement.setString(9, consultation.getCancellationReason());
+            String consultationId = IdAllocator.CONSULTATION.nextId(connection);
+            preparedStatement.setString(1, consultationId);
+            preparedStatement.setString(2, consultation.getPatient().getPatientId());
+            preparedStatement.setString(3, consultation.getDoctor().getDoctorId());
+            preparedStatement.setObject(4, consultation.getConsultationDate());
+            preparedStatement.setString(5, consultation.getSymptoms());
+            preparedStatement.setString(6, consultation.getDiagnosis());
+            preparedStatement.setString(7, consultation.getTreatment());
+            preparedStatement.setString(8, consultation.getNotes());
+            preparedStatement.setString(9, consultation.getStatus().name());
+            preparedStatement.setString(10, consultation.getCancellationReason());
 
             // Handle nextVisitDate - convert from LocalDateTime to Date for database
             if (consultation.getNextVisitDate() != null) {
-                preparedStatement.setDate(10, java.sql.Date.valueOf(consultation.getNextVisitDate().toLocalDate()));
+                preparedStatement.setDate(11, java.sql.Date.valueOf(consultation.getNextVisitDate().toLocalDate()));
             } else {
-                preparedStatement.setNull(10, java.sql.Types.DATE);
+                preparedStatement.setNull(11, java.sql.Types.DATE);
             }
 
-            preparedStatement.setDouble(11, consultation.getConsultationFee());
-            preparedStatement.setString(12, consultation.getPaymentStatus().name());
+            preparedStatement.setDouble(12, consultation.getConsultationFee());
+            preparedStatement.setString(13, consultation.getPaymentStatus().name());
 
             int affectedRows = preparedStatement.executeUpdate();
 
             if (affectedRows > 0) {
-                // Get the generated ID from the database
-                String generatedId = getLastInsertedConsultationId(connection);
-                if (generatedId != null) {
-                    consultation.setConsultationId(generatedId);
-                    return true;
-                }
+                consultation.setConsultationId(consultationId);
+                return true;
             }
 
             return false;
@@ -484,6 +578,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
 
     @Override
     public boolean update(Consultation consultation) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "UPDATE consultation SET patientId = ?, doctorId = ?, consultationDate = ?, " +
                 "symptoms = ?, diagnosis = ?, treatment = ?, notes = ?, status = ?, " +
                 "cancellationReason = ?, nextVisitDate = ?, consultationFee = ?, paymentStatus = ? WHERE consultationId = ?";
@@ -513,6 +608,9 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
             preparedStatement.setString(13, consultation.getConsultationId());
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                updateSessionInstance(consultation.getConsultationId(), consultation);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error updating consultation: " + e.getMessage());
@@ -530,6 +628,9 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
             preparedStatement.setString(1, consultationId);
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                evictSessionInstance(consultationId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting consultation: " + e.getMessage());
@@ -538,6 +639,9 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     }
 
     public boolean updateStatus(String consultationId, Consultation.ConsultationStatus status) throws SQLException {
+        if (WriteBehindBuffer.enqueue(WriteBehindBuffer.Kind.CONSULTATION_STATUS, consultationId, status.name())) {
+            return true;
+        }
         String sql = "UPDATE consultation SET status = ? WHERE consultationId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -555,6 +659,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     }
 
     public boolean updateStatusWithCancellationReason(String consultationId, Consultation.ConsultationStatus status, String cancellationReason) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "UPDATE consultation SET status = ?, cancellationReason = ? WHERE consultationId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -573,6 +678,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     }
 
     public boolean updateDiagnosis(String consultationId, String diagnosis, String treatment) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "UPDATE consultation SET diagnosis = ?, treatment = ?, status = 'COMPLETED' " +
                 "WHERE consultationId = ?";
 
@@ -592,6 +698,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     }
 
     public double getTotalConsultationFees(Date startDate, Date endDate) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "SELECT SUM(consultationFee) FROM consultation " +
                 "WHERE DATE(consultationDate) BETWEEN ? AND ? AND status = 'COMPLETED'";
 
@@ -614,6 +721,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
     }
 
     public int getConsultationCountByStatus(Consultation.ConsultationStatus status) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "SELECT COUNT(*) FROM consultation WHERE status = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -643,7 +751,7 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
                 ResultSet resultSet = statement.executeQuery(sql)) {
 
             while (resultSet.next()) {
-                Consultation consultation = mapResultSet(resultSet);
+                Consultation consultation = mapSessionRow(resultSet, "consultationId");
                 if (consultation != null) {
                     consultations.add(consultation.getConsultationId(), consultation);
                 }
@@ -698,25 +806,4 @@ public class ConsultationDao extends DaoTemplate<Consultation> {
             throw e;
         }
     }
-
-    /**
-     * Get the ID of the last inserted consultation
-     * 
-     * @param connection The database connection
-     * @return The generated consultation ID
-     * @throws SQLException if database error occurs
-     */
-    private String getLastInsertedConsultationId(Connection connection) throws SQLException {
-        String sql = "SELECT consultationId FROM consultation ORDER BY createdDate DESC LIMIT 1";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                ResultSet resultSet = preparedStatement.executeQuery()) {
-
-            if (resultSet.next()) {
-                return resultSet.getString("consultationId");
-            }
-        }
-
-        return null;
-    }
 }
\ No newline at end of file
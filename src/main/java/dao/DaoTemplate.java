@@ -1,8 +1,14 @@
 package dao;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import adt.ArrayBucketList;
+import utility.HikariConnectionPool;
 
 /**
  * @author: Ho Kang Kai
@@ -22,4 +28,213 @@ public abstract class DaoTemplate<T> {
     public abstract boolean delete(String id) throws SQLException;
 
     protected abstract T mapResultSet(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Passes every row to the action, in findAll order. The default iterates
+     * findAll(); DAOs of large tables override it to stream rows, so callers
+     * that build indices or aggregates never hold the whole table as a list.
+     *
+     * @param action receives each mapped entity
+     */
+    public void forEachRow(Consumer<? super T> action) throws SQLException {
+        findAll().forEach(action);
+    }
+
+    // ---------------- Async facade ----------------
+    // The same calls on virtual threads (see AsyncDaoExecutor); a failed call
+    // completes the future with a CompletionException wrapping the SQLException
+
+    public CompletableFuture<T> findByIdAsync(String id) {
+        return AsyncDaoExecutor.supply(() -> findById(id));
+    }
+
+    public CompletableFuture<ArrayBucketList<String, T>> findAllAsync() {
+        return AsyncDaoExecutor.supply(this::findAll);
+    }
+
+    public CompletableFuture<Boolean> insertAsync(T object) {
+        return AsyncDaoExecutor.supply(() -> insertAndReturnId(object));
+    }
+
+    public CompletableFuture<Boolean> updateAsync(T object) {
+        return AsyncDaoExecutor.supply(() -> update(object));
+    }
+
+    public CompletableFuture<Boolean> deleteAsync(String id) {
+        return AsyncDaoExecutor.supply(() -> delete(id));
+    }
+
+    public CompletableFuture<Void> forEachRowAsync(Consumer<? super T> action) {
+        return AsyncDaoExecutor.supply(() -> {
+            forEachRow(action);
+            return null;
+        });
+    }
+
+    // ---------------- Streaming helpers ----------------
+
+    /**
+     * Runs a query on a forward-only, read-only result set with the MySQL
+     * streaming fetch size, so rows arrive one at a time instead of the driver
+     * buffering the whole result. Each row is mapped through the open
+     * EntitySession (see mapSessionRow) and handed to the action before the
+     * next is read, so streamed rows are the same instances other loads of the
+     * session see.
+     *
+     * The connection is held until the last row is read, so the action must
+     * not wait on other DAO calls for long.
+     *
+     * @param sql        query built from constants, with ? for the parameters
+     * @param idColumn   column holding the entity ID
+     * @param action     receives each mapped entity
+     * @param parameters values bound to the ? placeholders in order
+     */
+    protected void streamRows(String sql, String idColumn, Consumer<? super T> action, Object... parameters)
+            throws SQLException {
+        try (Connection connection = HikariConnectionPool.getInstance().getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            preparedStatement.setFetchSize(Integer.MIN_VALUE); // Connector/J: stream row by row
+            for (int index = 0; index < parameters.length; index++) {
+                preparedStatement.setObject(index + 1, parameters[index]);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    T entity = mapSessionRow(resultSet, idColumn);
+                    if (entity != null) {
+                        action.accept(entity);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error streaming query results: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    // ---------------- EntitySession helpers ----------------
+    // Instances are registered per DAO class, so every PatientDao shares one map
+
+    /**
+     * Instance of this DAO's type registered in the open EntitySession
+     *
+     * @param id the entity ID
+     * @return the shared instance, or null if none is registered
+     */
+    @SuppressWarnings("unchecked")
+    protected T sessionInstance(String id) {
+        return (T) EntitySession.get(getClass(), id);
+    }
+
+    /**
+     * Maps the current row through the open EntitySession: an ID that is
+     * already registered returns the shared instance without mapping the row
+     * (and without its nested lookups); otherwise the row is mapped and
+     * registered. Without a session this is plain mapResultSet.
+     *
+     * @param resultSet result set positioned on the row
+     * @param idColumn  column holding the entity ID
+     * @return the entity for the row, or null if it could not be mapped
+     */
+    @SuppressWarnings("unchecked")
+    protected T mapSessionRow(ResultSet resultSet, String idColumn) throws SQLException {
+        if (!EntitySession.isActive()) {
+            return mapResultSet(resultSet);
+        }
+        String id = resultSet.getString(idColumn);
+        T existing = sessionInstance(id);
+        if (existing != null) {
+            return existing;
+        }
+        T entity = mapResultSet(resultSet);
+        return entity == null ? null : (T) EntitySession.register(getClass(), id, entity);
+    }
+
+    /**
+     * Runs one set-based SELECT and maps every row through the open
+     * EntitySession, so the loaded entities also answer later findById calls
+     * without a query. Loaders call this for the rows a findAll references
+     * (e.g. "... WHERE patientId IN (SELECT patientId FROM consultation)")
+     * before mapping their own rows.
+     *
+     * @param sql        query built from constants only, never from user input
+     * @param idColumn   column holding the entity ID
+     * @param results    list the entities are added to, keyed by ID
+     * @param parameters values bound to the ? placeholders in order
+     * @return results
+     */
+    protected ArrayBucketList<String, T> findAllBySql(String sql, String idColumn, ArrayBucketList<String, T> results,
+            Object... parameters) throws SQLException {
+        try (Connection connection = HikariConnectionPool.getInstance().getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            for (int index = 0; index < parameters.length; index++) {
+                preparedStatement.setObject(index + 1, parameters[index]);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    T entity = mapSessionRow(resultSet, idColumn);
+                    if (entity != null) {
+                        results.add(resultSet.getString(idColumn), entity);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error running set-based query: " + e.getMessage());
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Complete table of this DAO's type held by the open EntitySession (see
+     * EntitySnapshot)
+     *
+     * @return the rows keyed by entity ID, or null if the session holds none
+     */
+    @SuppressWarnings("unchecked")
+    protected ArrayBucketList<String, T> sessionTable() {
+        return (ArrayBucketList<String, T>) EntitySession.getTable(getClass());
+    }
+
+    /**
+     * Copies the session's complete table into a new findAll result, so the
+     * caller may change its list without touching the table
+     *
+     * @param results list the rows are added to
+     * @param key     key findAll uses for a row
+     * @return results, or null if the session holds no table for this type
+     */
+    protected ArrayBucketList<String, T> copySessionTable(ArrayBucketList<String, T> results,
+            Function<? super T, String> key) {
+        ArrayBucketList<String, T> table = sessionTable();
+        if (table == null) {
+            return null;
+        }
+        table.forEach(entity -> results.add(key.apply(entity), entity));
+        return results;
+    }
+
+    /**
+     * Stops serving bulk reads from the session's table after a write it
+     * does not reflect
+     */
+    protected void dropSessionTable() {
+        EntitySession.dropTable(getClass());
+    }
+
+    /**
+     * Keeps the open EntitySession in step with a successful update
+     */
+    protected void updateSessionInstance(String id, T entity) {
+        EntitySession.replace(getClass(), id, entity);
+    }
+
+    /**
+     * Keeps the open EntitySession in step with a successful delete
+     */
+    protected void evictSessionInstance(String id) {
+        EntitySession.evict(getClass(), id);
+    }
 }
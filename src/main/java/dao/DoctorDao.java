@@ -4,12 +4,14 @@ import entity.Doctor;
 import entity.Address;
 import utility.HikariConnectionPool;
 import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 
 /**
@@ -19,13 +21,17 @@ import java.time.LocalDate;
  */
 
 public class DoctorDao extends DaoTemplate<Doctor> {
+    private static final String SELECT_WITH_ADDRESS = "SELECT d.*, a.street, a.city, a.state, a.postalCode, a.country " +
+            "FROM doctor d " +
+            "LEFT JOIN address a ON d.addressId = a.addressId";
 
     @Override
     public Doctor findById(String doctorId) throws SQLException {
-        String sql = "SELECT d.*, a.street, a.city, a.state, a.postalCode, a.country " +
-                "FROM doctor d " +
-                "LEFT JOIN address a ON d.addressId = a.addressId " +
-                "WHERE d.doctorId = ?";
+        Doctor cached = sessionInstance(doctorId);
+        if (cached != null) {
+            return cached;
+        }
+        String sql = SELECT_WITH_ADDRESS + " WHERE d.doctorId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
@@ -34,7 +40,7 @@ public class DoctorDao extends DaoTemplate<Doctor> {
             ResultSet resultSet = preparedStatement.executeQuery();
 
             if (resultSet.next()) {
-                return mapResultSet(resultSet);
+                return mapSessionRow(resultSet, "doctorId");
             }
         } catch (SQLException e) {
             System.err.println("Error finding doctor by ID: " + e.getMessage());
@@ -46,18 +52,20 @@ public class DoctorDao extends DaoTemplate<Doctor> {
 
     @Override
     public ArrayBucketList<String, Doctor> findAll() throws SQLException {
+        ArrayBucketList<String, Doctor> restored = copySessionTable(new ArrayBucketList<String, Doctor>(),
+                Doctor::getICNumber);
+        if (restored != null) {
+            return restored;
+        }
         ArrayBucketList<String, Doctor> doctors = new ArrayBucketList<String, Doctor>();
-        String sql = "SELECT d.*, a.street, a.city, a.state, a.postalCode, a.country " +
-                "FROM doctor d " +
-                "LEFT JOIN address a ON d.addressId = a.addressId " +
-                "ORDER BY d.fullName";
+        String sql = SELECT_WITH_ADDRESS + " ORDER BY d.fullName";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
                 Statement statement = connection.createStatement();
                 ResultSet resultSet = statement.executeQuery(sql)) {
 
             while (resultSet.next()) {
-                Doctor doctor = mapResultSet(resultSet);
+                Doctor doctor = mapSessionRow(resultSet, "doctorId");
                 if (doctor != null) {
                     doctors.add(doctor.getICNumber(), doctor);
                 }
@@ -70,36 +78,56 @@ public class DoctorDao extends DaoTemplate<Doctor> {
         return doctors;
     }
 
+    /**
+     * Loads, in one query, the doctors whose IDs the subquery returns and
+     * registers them in the open EntitySession
+     *
+     * @param idSubquery SQL returning doctor IDs, built from constants only
+     * @return the loaded doctors keyed by doctor ID
+     */
+    ArrayBucketList<String, Doctor> findAllWhereIdIn(String idSubquery) throws SQLException {
+        return findAllBySql(SELECT_WITH_ADDRESS + " WHERE d.doctorId IN (" + idSubquery + ")", "doctorId",
+                ArrayBucketListFactory.createForStringIds(64));
+    }
+
+    /**
+     * Doctors whose row was modified at or after the given time
+     *
+     * @param since lastModified lower bound
+     * @return the changed doctors keyed by doctor ID
+     */
+    ArrayBucketList<String, Doctor> findAllChangedSince(Timestamp since) throws SQLException {
+        return findAllBySql(SELECT_WITH_ADDRESS + " WHERE d.lastModified >= ?", "doctorId",
+                ArrayBucketListFactory.createForStringIds(64), since);
+    }
+
     @Override
     public boolean insertAndReturnId(Doctor doctor) throws SQLException {
-        String sql = "INSERT INTO doctor (fullName, ICNumber, email, phoneNumber, " +
+        String sql = "INSERT INTO doctor (doctorId, fullName, ICNumber, email, phoneNumber, " +
                 "addressId, registrationDate, medicalSpecialty, licenseNumber, expYears, isAvailable) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                PreparedStatement preparedStatement = connection.prepareStatement(sql,
-                        Statement.RETURN_GENERATED_KEYS)) {
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
-            preparedStatement.setString(1, doctor.getFullName());
-            preparedStatement.setString(2, doctor.getICNumber());
-            preparedStatement.setString(3, doctor.getEmail());
-            preparedStatement.setString(4, doctor.getPhoneNumber());
-            preparedStatement.setString(5, doctor.getAddress() != null ? doctor.getAddress().getAddressId() : null);
-            preparedStatement.setObject(6, doctor.getRegistrationDate());
-            preparedStatement.setString(7, doctor.getMedicalSpecialty());
-            preparedStatement.setString(8, doctor.getLicenseNumber());
-            preparedStatement.setInt(9, doctor.getExpYears());
-            preparedStatement.setBoolean(10, doctor.isAvailable());
+            String doctorId = IdAllocator.DOCTOR.nextId(connection);
+            preparedStatement.setString(1, doctorId);
+            preparedStatement.setString(2, doctor.getFullName());
+            preparedStatement.setString(3, doctor.getICNumber());
+            preparedStatement.setString(4, doctor.getEmail());
+            preparedStatement.setString(5, doctor.getPhoneNumber());
+            preparedStatement.setString(6, doctor.getAddress() != null ? doctor.getAddress().getAddressId() : null);
+            preparedStatement.setObject(7, doctor.getRegistrationDate());
+            preparedStatement.setString(8, doctor.getMedicalSpecialty());
+            preparedStatement.setString(9, doctor.getLicenseNumber());
+            preparedStatement.setInt(10, doctor.getExpYears());
+            preparedStatement.setBoolean(11, doctor.isAvailable());
 
             int affectedRows = preparedStatement.executeUpdate();
 
             if (affectedRows > 0) {
-                // Get the generated ID from the database
-                String generatedId = getLastInsertedDoctorId(connection);
-                if (generatedId != null) {
-                    doctor.setDoctorId(generatedId);
-                    return true;
-                }
+                doctor.setDoctorId(doctorId);
+                return true;
             }
 
             return false;
@@ -131,6 +159,9 @@ public class DoctorDao extends DaoTemplate<Doctor> {
             preparedStatement.setString(10, doctor.getDoctorId());
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                updateSessionInstance(doctor.getDoctorId(), doctor);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error updating doctor: " + e.getMessage());
@@ -148,6 +179,9 @@ public class DoctorDao extends DaoTemplate<Doctor> {
             preparedStatement.setString(1, doctorId);
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                evictSessionInstance(doctorId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting doctor: " + e.getMessage());
@@ -175,17 +209,8 @@ public class DoctorDao extends DaoTemplate<Doctor> {
     @Override
     protected Doctor mapResultSet(ResultSet resultSet) throws SQLException {
         try {
-            // Create Address object if addressId is not null
-            Address address = null;
-            if (resultSet.getString("addressId") != null) {
-                address = new Address(
-                        resultSet.getString("street"),
-                        resultSet.getString("city"),
-                        resultSet.getString("state"),
-                        resultSet.getString("postalCode"),
-                        resultSet.getString("country"));
-                address.setAddressId(resultSet.getString("addressId"));
-            }
+            // Address columns come from the join
+            Address address = AddressDao.mapJoinedAddress(resultSet);
 
             // Create Doctor object
             Doctor doctor = new Doctor(
@@ -209,25 +234,4 @@ public class DoctorDao extends DaoTemplate<Doctor> {
             throw e;
         }
     }
-
-    /**
-     * Get the ID of the last inserted doctor
-     * 
-     * @param connection The database connection
-     * @return The generated doctor ID
-     * @throws SQLException if database error occurs
-     */
-    private String getLastInsertedDoctorId(Connection connection) throws SQLException {
-        String sql = "SELECT doctorId FROM doctor ORDER BY createdDate DESC LIMIT 1";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                ResultSet resultSet = preparedStatement.executeQuery()) {
-
-            if (resultSet.next()) {
-                return resultSet.getString("doctorId");
-            }
-        }
-
-        return null;
-    }
 }
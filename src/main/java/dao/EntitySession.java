@@ -0,0 +1,242 @@
+package dao;
+
+import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
+import adt.ConcurrentArrayBucketList;
+
+/**
+ * EntitySession - A per-thread, session-scoped identity map shared by every
+ * DaoTemplate subclass.
+ *
+ * While a session is open, each ID of a DAO type maps to one entity instance.
+ * The first row mapped for an ID is registered, and later rows or findById
+ * calls for that ID return the same object without querying the database.
+ * A consultation's patient and doctor, a prescription's medicines and the
+ * rows of the owning DAOs therefore resolve to shared instances, and every
+ * control loaded within one session holds the same objects.
+ *
+ * A session can also hold one complete table per DAO type (see
+ * EntitySnapshot). While it does, that DAO's findAll and forEachRow read the
+ * table instead of the database. A write through the DAO's update or delete
+ * drops the table, so later bulk reads query again.
+ *
+ * A session belongs to the thread that opened it: other threads do not see
+ * its instances and keep querying the database. A loader that fans work out
+ * to a thread pool passes its session along with inCurrentSession(task); the
+ * async DAO calls carry the caller's session to their virtual thread.
+ * Sessions nest on one thread; the map is cleared when the outermost session
+ * ends, so the next load reads fresh rows. With no session open the DAOs
+ * query the database on every call, as before.
+ *
+ * Typical use around a load:
+ *
+ * EntitySession.begin();
+ * try {
+ *     ... load data through the DAOs ...
+ * } finally {
+ *     EntitySession.end();
+ * }
+ */
+public final class EntitySession {
+    private static final ThreadLocal<EntitySession> currentSession = new ThreadLocal<>();
+
+    private final ConcurrentArrayBucketList<Class<?>, ConcurrentArrayBucketList<String, Object>> entitiesByType =
+            ArrayBucketListFactory.createConcurrent(16);
+    private final ConcurrentArrayBucketList<Class<?>, ArrayBucketList<String, ?>> tablesByType =
+            ArrayBucketListFactory.createConcurrent(16);
+    private int openCount; // guarded by this
+
+    private EntitySession() {}
+
+    /**
+     * Opens a session on the calling thread, or joins the one it is already
+     * in. Opening a new session first writes the updates still queued in the
+     * WriteBehindBuffer, so loads read them.
+     */
+    public static void begin() {
+        EntitySession session = currentSession.get();
+        if (session == null) {
+            WriteBehindBuffer.flush();
+            session = new EntitySession();
+            currentSession.set(session);
+        }
+        synchronized (session) {
+            session.openCount++;
+        }
+    }
+
+    /**
+     * Closes the session opened by the matching begin(); the outermost end()
+     * discards every registered instance
+     */
+    public static void end() {
+        EntitySession session = currentSession.get();
+        if (session == null) {
+            return;
+        }
+        synchronized (session) {
+            if (--session.openCount > 0) {
+                return;
+            }
+            session.entitiesByType.clear();
+            session.tablesByType.clear();
+        }
+        currentSession.remove();
+    }
+
+    public static boolean isActive() {
+        return currentSession.get() != null;
+    }
+
+    /**
+     * Wraps a task so it runs in the calling thread's session on whichever
+     * thread executes it. The caller must keep its session open until the
+     * task has finished.
+     *
+     * @param task work that loads through the DAOs, e.g. a control's load method
+     * @return the wrapped task, or the task itself if no session is open
+     */
+    public static Runnable inCurrentSession(Runnable task) {
+        EntitySession session = currentSession.get();
+        if (session == null) {
+            return task;
+        }
+        return () -> {
+            EntitySession previous = attach(session);
+            try {
+                task.run();
+            } finally {
+                attach(previous);
+            }
+        };
+    }
+
+    /**
+     * @return the calling thread's session, or null if none is open
+     */
+    static EntitySession current() {
+        return currentSession.get();
+    }
+
+    /**
+     * Makes the session the calling thread's session, without opening it
+     * again; attach(previous) undoes it
+     *
+     * @param session the session to join, or null for none
+     * @return the session the thread was in before
+     */
+    static EntitySession attach(EntitySession session) {
+        EntitySession previous = currentSession.get();
+        if (session == null) {
+            currentSession.remove();
+        } else {
+            currentSession.set(session);
+        }
+        return previous;
+    }
+
+    /**
+     * Number of instances registered in the calling thread's session
+     *
+     * @return registered entity count across all DAO types
+     */
+    public static int getSize() {
+        EntitySession session = currentSession.get();
+        int size = 0;
+        if (session != null) {
+            for (ConcurrentArrayBucketList<String, Object> entities : session.entitiesByType) {
+                size += entities.getSize();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the instance registered for the ID, or null if none is (or no session is open)
+     */
+    static Object get(Class<?> type, String id) {
+        EntitySession session = currentSession.get();
+        if (session == null || id == null) {
+            return null;
+        }
+        ConcurrentArrayBucketList<String, Object> entities = session.entitiesByType.getValue(type);
+        return entities == null ? null : entities.getValue(id);
+    }
+
+    /**
+     * Registers an instance unless another thread of the session registered
+     * one for the ID first
+     *
+     * @return the instance now registered for the ID
+     */
+    static Object register(Class<?> type, String id, Object entity) {
+        EntitySession session = currentSession.get();
+        if (session == null || id == null || entity == null) {
+            return entity;
+        }
+        Object existing = session.entitiesFor(type).putIfAbsent(id, entity);
+        return existing != null ? existing : entity;
+    }
+
+    /**
+     * Makes the given instance the one registered for the ID (after a write)
+     */
+    static void replace(Class<?> type, String id, Object entity) {
+        EntitySession session = currentSession.get();
+        if (session != null && id != null && entity != null) {
+            session.entitiesFor(type).add(id, entity);
+            session.tablesByType.remove(type);
+        }
+    }
+
+    static void evict(Class<?> type, String id) {
+        EntitySession session = currentSession.get();
+        if (session == null || id == null) {
+            return;
+        }
+        session.tablesByType.remove(type);
+        ConcurrentArrayBucketList<String, Object> entities = session.entitiesByType.getValue(type);
+        if (entities != null) {
+            entities.remove(id);
+        }
+    }
+
+    /**
+     * Makes the rows the complete table of the DAO type for the rest of the
+     * session; the rows should already be registered
+     */
+    static void putTable(Class<?> type, ArrayBucketList<String, ?> rows) {
+        EntitySession session = currentSession.get();
+        if (session != null && rows != null) {
+            session.tablesByType.add(type, rows);
+        }
+    }
+
+    /**
+     * @return the complete table of the DAO type, keyed by entity ID, or null
+     *         if the session holds none
+     */
+    static ArrayBucketList<String, ?> getTable(Class<?> type) {
+        EntitySession session = currentSession.get();
+        return session != null ? session.tablesByType.getValue(type) : null;
+    }
+
+    static void dropTable(Class<?> type) {
+        EntitySession session = currentSession.get();
+        if (session != null) {
+            session.tablesByType.remove(type);
+        }
+    }
+
+    private ConcurrentArrayBucketList<String, Object> entitiesFor(Class<?> type) {
+        ConcurrentArrayBucketList<String, Object> entities = entitiesByType.getValue(type);
+        if (entities == null) {
+            ConcurrentArrayBucketList<String, Object> created = ArrayBucketListFactory.createConcurrentForStringIds(256);
+            entities = entitiesByType.putIfAbsent(type, created);
+            if (entities == null) {
+                entities = created;
+            }
+        }
+        return entities;
+    }
+}
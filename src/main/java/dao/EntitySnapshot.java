@@ -0,0 +1,1028 @@
+package dao;
+
+import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
+import adt.IndexingUtility;
+import entity.Address;
+import entity.BloodType;
+import entity.Consultation;
+import entity.Doctor;
+import entity.MedicalTreatment;
+import entity.Medicine;
+import entity.Patient;
+import entity.Prescription;
+import utility.HikariConnectionPool;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * EntitySnapshot - Binary snapshot of the tables the controls load at
+ * startup: patients and doctors with their addresses, consultations,
+ * treatments, medicines, and prescriptions with their prescribed medicines.
+ *
+ * load(...) fills the open EntitySession with one complete table per DAO
+ * type, and until the session ends those DAOs answer findAll and forEachRow
+ * from it. With a usable snapshot the tables are rebuilt from the file and
+ * only the rows changed since it was taken are read from MySQL; otherwise
+ * every table is read once. save(...) then writes the tables for the next
+ * start.
+ *
+ * File layout (version 1, big-endian, read through a memory mapping):
+ *
+ * header   magic, version, as-of time, CRC-32 of the rest, string table
+ *          offset, section count
+ * sections per table: section number, record width, record count, records
+ * strings  count, then each string as byte length and UTF-8 bytes
+ *
+ * Records have a fixed width per table. Text columns are int indices into
+ * the string table (-1 for null), so repeated values such as statuses,
+ * cities and specialties are stored and decoded once; dates are epoch days,
+ * date-times epoch seconds plus nanos, and numbers and flags are inline.
+ * Strings are decoded on first use, so rows that were deleted or changed
+ * never decode theirs.
+ *
+ * Changed rows are found through the lastModified column (ON UPDATE
+ * CURRENT_TIMESTAMP) defined in database_schema.sql; a database without it
+ * is read in full and no snapshot is saved. Rows modified at or after the
+ * snapshot's as-of time are read again, rows whose IDs no longer exist are
+ * dropped, and live rows the snapshot lacks are fetched by ID. The as-of
+ * time lies a margin before the tables were read, to cover transactions
+ * that were still open then.
+ *
+ * Two slots are kept, the given file and file.b. A save writes the slot that
+ * was not mapped in this run, because a mapped file cannot be replaced on
+ * every platform, and load restores the newest slot that validates. A slot of
+ * another version or with a bad checksum is ignored.
+ */
+public final class EntitySnapshot {
+    private static final int MAGIC = 0x434C4E53; // "CLNS"
+    private static final int VERSION = 1;
+    // magic, version, as-of millis, CRC-32, string table offset, section count
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4;
+    private static final int SECTION_HEADER_BYTES = 4 + 4 + 4;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final long CHANGE_MARGIN_MILLIS = 60_000;
+    private static final String[] CHANGE_TRACKED_TABLES = { "address", "patient", "doctor", "consultation",
+            "medical_treatment", "medicine", "prescription", "prescribed_medicine" };
+
+    // Sections, in restore order; every record starts with the row ID
+    private static final int ADDRESSES = 0;
+    private static final int PATIENTS = 1;
+    private static final int DOCTORS = 2;
+    private static final int CONSULTATIONS = 3;
+    private static final int MEDICINES = 4;
+    private static final int TREATMENTS = 5;
+    private static final int PRESCRIPTIONS = 6;
+    private static final int PRESCRIBED_MEDICINES = 7;
+
+    private static final int TEXT = 4;
+    private static final int DATE = 8;
+    private static final int DATE_TIME = 12;
+    private static final int INT = 4;
+    private static final int DECIMAL = 8;
+    private static final int FLAG = 1;
+    private static final int[] RECORD_BYTES = {
+            6 * TEXT, // ID, street, city, state, postcode, country
+            6 * TEXT + DATE + 3 * TEXT + FLAG, // ID, name, IC, email, phone, address ID, registration, blood type, allergies, emergency contact, active
+            6 * TEXT + DATE + 2 * TEXT + INT + FLAG, // ID, name, IC, email, phone, address ID, registration, specialty, license, years, available
+            3 * TEXT + DATE_TIME + 6 * TEXT + DATE_TIME + DECIMAL + TEXT, // ID, patient, doctor, date, symptoms, diagnosis, treatment, notes, status, cancellation reason, next visit, fee, payment
+            7 * TEXT + 2 * INT + DECIMAL + DATE + TEXT + FLAG, // ID, name, generic, manufacturer, description, form, strength, stock, minimum, price, expiry, location, prescription only
+            8 * TEXT + 2 * DATE_TIME + TEXT + DECIMAL + TEXT, // ID, patient, doctor, consultation, diagnosis, plan, medications, notes, date, follow-up, status, cost, payment
+            4 * TEXT + DATE + TEXT + DATE + TEXT + DECIMAL + TEXT, // ID, patient, doctor, consultation, date, instructions, expiry, status, total, payment
+            3 * TEXT + INT + 2 * TEXT + INT + DECIMAL }; // ID, prescription, medicine, quantity, dosage, frequency, duration, unit price
+
+    private interface RecordDecoder<T> {
+        T decode(String id, SnapshotReader reader) throws SQLException;
+    }
+
+    private interface RowFinder<T> {
+        T find(String id) throws SQLException;
+    }
+
+    private final AddressDao addressDao = new AddressDao();
+    private final PatientDao patientDao = new PatientDao();
+    private final DoctorDao doctorDao = new DoctorDao();
+    private final ConsultationDao consultationDao = new ConsultationDao();
+    private final MedicalTreatmentDao treatmentDao = new MedicalTreatmentDao();
+    private final MedicineDao medicineDao = new MedicineDao();
+    private final PrescriptionDao prescriptionDao = new PrescriptionDao();
+
+    private final long asOfMillis;
+    private final boolean changeTracked;
+    private final boolean[] mappedSlots = new boolean[2];
+    private boolean restored;
+    private int changedRowCount;
+    private int removedRowCount;
+    private ArrayBucketList<String, Patient> patients;
+    private ArrayBucketList<String, Doctor> doctors;
+    private ArrayBucketList<String, Consultation> consultations;
+    private ArrayBucketList<String, Medicine> medicines;
+    private ArrayBucketList<String, MedicalTreatment> treatments;
+    private ArrayBucketList<String, Prescription> prescriptions;
+
+    private EntitySnapshot(long asOfMillis, boolean changeTracked) {
+        this.asOfMillis = asOfMillis;
+        this.changeTracked = changeTracked;
+    }
+
+    /**
+     * Fills the open EntitySession with the complete tables, from the newest
+     * usable snapshot slot plus the rows changed since, or else by reading
+     * every table. Call once per session, before the controls load.
+     *
+     * @param file snapshot file; it and file.b may be missing
+     * @return the loaded tables, or null if the database could not be read
+     */
+    public static EntitySnapshot load(Path file) {
+        if (!EntitySession.isActive()) {
+            System.err.println("Snapshot load needs an open EntitySession");
+            return null;
+        }
+        boolean changeTracked = hasChangeMarkers();
+        try {
+            EntitySnapshot snapshot = new EntitySnapshot(databaseTimeMillis() - CHANGE_MARGIN_MILLIS, changeTracked);
+            // Applied before any table is read, so the loaded statuses are current
+            try {
+                snapshot.consultationDao.cancelExpiredConsultations();
+            } catch (SQLException ignored) {
+            }
+            if (!changeTracked || !snapshot.restoreNewestSlot(file)) {
+                snapshot.readAll();
+            }
+            snapshot.publish();
+            return snapshot;
+        } catch (SQLException e) {
+            System.err.println("Error loading tables: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the tables to the snapshot slot not mapped in this run. Rows
+     * changed after load are safe to include: their lastModified is past the
+     * as-of time, so the next load reads them again.
+     *
+     * @param file snapshot file given to load
+     * @return true if the snapshot was written
+     */
+    public boolean save(Path file) {
+        if (!changeTracked) {
+            System.err.println("Snapshot not saved: the tables have no lastModified column");
+            return false;
+        }
+        Path target = slots(file)[mappedSlots[0] && !mappedSlots[1] ? 1 : 0];
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                SnapshotWriter writer = new SnapshotWriter(channel);
+                writeTables(writer);
+                writer.finish(asOfMillis);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving snapshot: " + e.getMessage());
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the tables came from a snapshot rather than full reads
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * Number of rows in the loaded tables
+     */
+    public int getRowCount() {
+        return patients.getSize() + doctors.getSize() + consultations.getSize() + medicines.getSize()
+                + treatments.getSize() + prescriptions.getSize();
+    }
+
+    /**
+     * Number of rows read from the database on top of a restored snapshot
+     */
+    public int getChangedRowCount() {
+        return changedRowCount;
+    }
+
+    /**
+     * Number of snapshot rows dropped because they were deleted since
+     */
+    public int getRemovedRowCount() {
+        return removedRowCount;
+    }
+
+    // ---------------- Loading ----------------
+
+    private void readAll() throws SQLException {
+        restored = false;
+        changedRowCount = 0;
+        removedRowCount = 0;
+        patients = byId(patientDao.findAll(), Patient::getPatientId);
+        doctors = byId(doctorDao.findAll(), Doctor::getDoctorId);
+        consultations = byId(consultationDao.findAll(), Consultation::getConsultationId);
+        medicines = byId(medicineDao.findAll(), Medicine::getMedicineId);
+        treatments = byId(treatmentDao.findAll(), MedicalTreatment::getTreatmentId);
+        prescriptions = byId(prescriptionDao.findAll(), Prescription::getPrescriptionId);
+    }
+
+    private void publish() {
+        EntitySession.putTable(PatientDao.class, patients);
+        EntitySession.putTable(DoctorDao.class, doctors);
+        EntitySession.putTable(ConsultationDao.class, consultations);
+        EntitySession.putTable(MedicineDao.class, medicines);
+        EntitySession.putTable(MedicalTreatmentDao.class, treatments);
+        EntitySession.putTable(PrescriptionDao.class, prescriptions);
+    }
+
+    private boolean restoreNewestSlot(Path file) {
+        Path[] slots = slots(file);
+        long[] slotAsOf = { readAsOfMillis(slots[0]), readAsOfMillis(slots[1]) };
+        int newest = slotAsOf[1] > slotAsOf[0] ? 1 : 0;
+        for (int slot : new int[] { newest, 1 - newest }) {
+            if (slotAsOf[slot] != NULL_TIME && restore(slots[slot], slot)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean restore(Path file, int slot) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                System.err.println("Snapshot too large to map: " + file);
+                return false;
+            }
+            mappedSlots[slot] = true;
+            SnapshotReader reader = SnapshotReader.open(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            if (reader == null) {
+                System.err.println("Ignoring unusable snapshot " + file);
+                return false;
+            }
+            changedRowCount = 0;
+            removedRowCount = 0;
+            Timestamp since = new Timestamp(reader.asOfMillis);
+
+            restoreTable(reader, ADDRESSES, addressDao.findAllChangedSince(since), "SELECT addressId FROM address",
+                    AddressDao.class, this::decodeAddress, null);
+            patients = restoreTable(reader, PATIENTS, patientDao.findAllChangedSince(since),
+                    "SELECT patientId FROM patient", PatientDao.class, this::decodePatient, patientDao::findById);
+            doctors = restoreTable(reader, DOCTORS, doctorDao.findAllChangedSince(since),
+                    "SELECT doctorId FROM doctor", DoctorDao.class, this::decodeDoctor, doctorDao::findById);
+            consultations = restoreTable(reader, CONSULTATIONS, consultationDao.findAllChangedSince(since),
+                    "SELECT consultationId FROM consultation", ConsultationDao.class, this::decodeConsultation,
+                    consultationDao::findById);
+            medicines = restoreTable(reader, MEDICINES, medicineDao.findAllChangedSince(since),
+                    "SELECT medicineId FROM medicine", MedicineDao.class, this::decodeMedicine, medicineDao::findById);
+            treatments = restoreTable(reader, TREATMENTS, treatmentDao.findAllChangedSince(since),
+                    "SELECT treatmentId FROM medical_treatment", MedicalTreatmentDao.class, this::decodeTreatment,
+                    treatmentDao::findById);
+
+            // Changed prescriptions arrive with all their lines; the others take theirs from the snapshot
+            ArrayBucketList<String, Prescription> changedPrescriptions = prescriptionDao.findAllChangedSince(since);
+            ArrayBucketList<String, ArrayBucketList<String, Prescription.PrescribedMedicine>> linesByPrescription =
+                    restorePrescribedMedicines(reader, changedPrescriptions);
+            prescriptions = restoreTable(reader, PRESCRIPTIONS, changedPrescriptions,
+                    "SELECT prescriptionId FROM prescription", PrescriptionDao.class,
+                    (id, record) -> decodePrescription(id, record, linesByPrescription), prescriptionDao::findById);
+            restored = true;
+            return true;
+        } catch (IOException | SQLException | RuntimeException e) {
+            System.err.println("Error restoring snapshot " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Builds one complete table: the changed rows, then every snapshot record
+     * whose row still exists and did not change, then any live row that is
+     * neither changed nor in the snapshot, fetched by ID
+     */
+    @SuppressWarnings("unchecked")
+    private <T> ArrayBucketList<String, T> restoreTable(SnapshotReader reader, int section,
+            ArrayBucketList<String, T> changed, String idSql, Class<?> daoType, RecordDecoder<T> decoder,
+            RowFinder<T> finder) throws SQLException {
+        ArrayBucketList<String, String> liveIds = readIds(idSql);
+        ArrayBucketList<String, T> table = ArrayBucketListFactory.createForStringIds(Math.max(16, liveIds.getSize()));
+        changed.forEach((id, row) -> {
+            if (liveIds.contains(id)) {
+                table.add(id, row);
+            }
+        });
+        changedRowCount += changed.getSize();
+
+        for (int index = 0; index < reader.count(section); index++) {
+            reader.seek(section, index);
+            String id = reader.text();
+            if (changed.contains(id)) {
+                continue;
+            }
+            if (!liveIds.contains(id)) {
+                removedRowCount++;
+                continue;
+            }
+            T row = decoder.decode(id, reader);
+            if (row != null) {
+                table.add(id, (T) EntitySession.register(daoType, id, row));
+            }
+        }
+
+        if (finder != null && table.getSize() < liveIds.getSize()) {
+            for (String id : liveIds.toArray(String.class)) {
+                if (!table.contains(id)) {
+                    T row = finder.find(id);
+                    if (row != null) {
+                        table.add(id, row);
+                        changedRowCount++;
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    private ArrayBucketList<String, ArrayBucketList<String, Prescription.PrescribedMedicine>> restorePrescribedMedicines(
+            SnapshotReader reader, ArrayBucketList<String, Prescription> changedPrescriptions) throws SQLException {
+        ArrayBucketList<String, String> liveIds = readIds("SELECT prescribedMedicineId FROM prescribed_medicine");
+        ArrayBucketList<String, ArrayBucketList<String, Prescription.PrescribedMedicine>> linesByPrescription =
+                ArrayBucketListFactory.createForStringIds(256);
+        for (int index = 0; index < reader.count(PRESCRIBED_MEDICINES); index++) {
+            reader.seek(PRESCRIBED_MEDICINES, index);
+            String id = reader.text();
+            String prescriptionId = reader.text();
+            if (changedPrescriptions.contains(prescriptionId) || !liveIds.contains(id)) {
+                continue;
+            }
+            Medicine medicine = medicineDao.findById(reader.text());
+            Prescription.PrescribedMedicine line = new Prescription.PrescribedMedicine(id, prescriptionId, medicine,
+                    reader.intValue(), reader.text(), reader.text(), reader.intValue(), reader.decimal());
+            IndexingUtility.addToIndexGroup(linesByPrescription, prescriptionId, id, line);
+        }
+        return linesByPrescription;
+    }
+
+    // ---------------- Record decoding ----------------
+    // Fields are read in the order the matching write method wrote them
+
+    private Address decodeAddress(String id, SnapshotReader reader) {
+        Address address = new Address(reader.text(), reader.text(), reader.text(), reader.text(), reader.text());
+        address.setAddressId(id);
+        return address;
+    }
+
+    private Patient decodePatient(String id, SnapshotReader reader) throws SQLException {
+        String fullName = reader.text();
+        String icNumber = reader.text();
+        String email = reader.text();
+        String phoneNumber = reader.text();
+        String addressId = reader.text();
+        LocalDate registrationDate = reader.date();
+        BloodType bloodType = BloodType.valueOf(reader.text());
+        String allergies = reader.text();
+        String emergencyContact = reader.text();
+        boolean active = reader.flag();
+
+        Patient patient = new Patient(fullName, icNumber, email, phoneNumber, findAddress(addressId),
+                registrationDate, id, bloodType, allergies, emergencyContact);
+        patient.setActive(active);
+        return patient;
+    }
+
+    private Doctor decodeDoctor(String id, SnapshotReader reader) throws SQLException {
+        String fullName = reader.text();
+        String icNumber = reader.text();
+        String email = reader.text();
+        String phoneNumber = reader.text();
+        String addressId = reader.text();
+        LocalDate registrationDate = reader.date();
+        String medicalSpecialty = reader.text();
+        String licenseNumber = reader.text();
+        int expYears = reader.intValue();
+        boolean available = reader.flag();
+
+        Doctor doctor = new Doctor(fullName, icNumber, email, phoneNumber, findAddress(addressId), registrationDate,
+                id, medicalSpecialty, licenseNumber, expYears);
+        doctor.setAvailable(available);
+        return doctor;
+    }
+
+    private Consultation decodeConsultation(String id, SnapshotReader reader) throws SQLException {
+        Patient patient = patientDao.findById(reader.text());
+        Doctor doctor = doctorDao.findById(reader.text());
+        if (patient == null || doctor == null) {
+            return null;
+        }
+        LocalDateTime consultationDate = reader.dateTime();
+        String symptoms = reader.text();
+        String diagnosis = reader.text();
+        String treatment = reader.text();
+        String notes = reader.text();
+        String status = reader.text();
+        String cancellationReason = reader.text();
+        LocalDateTime nextVisitDate = reader.dateTime();
+        double consultationFee = reader.decimal();
+        String paymentStatus = reader.text();
+
+        Consultation consultation = new Consultation(id, patient, doctor, consultationDate, symptoms,
+                consultationFee, paymentStatus != null ? Consultation.PaymentStatus.valueOf(paymentStatus) : null);
+        consultation.setDiagnosis(diagnosis);
+        consultation.setTreatment(treatment);
+        consultation.setNotes(notes);
+        if (status != null) {
+            consultation.setStatus(Consultation.ConsultationStatus.valueOf(status));
+        }
+        consultation.setCancellationReason(cancellationReason);
+        if (nextVisitDate != null) {
+            consultation.setNextVisitDate(nextVisitDate);
+        }
+        return consultation;
+    }
+
+    private Medicine decodeMedicine(String id, SnapshotReader reader) {
+        // The constructor derives the status from the stock, as MedicineDao does
+        return new Medicine(id, reader.text(), reader.text(), reader.text(), reader.text(), reader.text(),
+                reader.text(), reader.intValue(), reader.intValue(), reader.decimal(), reader.date(), reader.text(),
+                reader.flag());
+    }
+
+    private MedicalTreatment decodeTreatment(String id, SnapshotReader reader) throws SQLException {
+        Patient patient = patientDao.findById(reader.text());
+        Doctor doctor = doctorDao.findById(reader.text());
+        String consultationId = reader.text();
+        if (patient == null || doctor == null) {
+            return null;
+        }
+        Consultation consultation = consultationId != null ? consultationDao.findById(consultationId) : null;
+        String diagnosis = reader.text();
+        String treatmentPlan = reader.text();
+        String prescribedMedications = reader.text();
+        String treatmentNotes = reader.text();
+        LocalDateTime treatmentDate = reader.dateTime();
+        LocalDateTime followUpDate = reader.dateTime();
+        String status = reader.text();
+        double treatmentCost = reader.decimal();
+        String paymentStatus = reader.text();
+
+        MedicalTreatment treatment = new MedicalTreatment(id, patient, doctor, consultation, diagnosis,
+                treatmentPlan, prescribedMedications, treatmentNotes, treatmentDate, treatmentCost);
+        if (followUpDate != null) {
+            treatment.setFollowUpDate(followUpDate);
+        }
+        if (status != null) {
+            treatment.setStatus(MedicalTreatment.TreatmentStatus.valueOf(status));
+        }
+        if (paymentStatus != null) {
+            treatment.setPaymentStatus(MedicalTreatment.PaymentStatus.valueOf(paymentStatus));
+        }
+        return treatment;
+    }
+
+    private Prescription decodePrescription(String id, SnapshotReader reader,
+            ArrayBucketList<String, ArrayBucketList<String, Prescription.PrescribedMedicine>> linesByPrescription)
+            throws SQLException {
+        Patient patient = patientDao.findById(reader.text());
+        Doctor doctor = doctorDao.findById(reader.text());
+        String consultationId = reader.text();
+        if (patient == null || doctor == null) {
+            return null;
+        }
+        Consultation consultation = consultationId != null ? consultationDao.findById(consultationId) : null;
+        LocalDate prescriptionDate = reader.date();
+        String instructions = reader.text();
+        LocalDate expiryDate = reader.date();
+        String status = reader.text();
+        double totalCost = reader.decimal();
+        String paymentStatus = reader.text();
+
+        Prescription prescription = new Prescription(id, patient, doctor, consultation, prescriptionDate,
+                instructions, expiryDate);
+        if (status != null) {
+            prescription.setStatus(Prescription.PrescriptionStatus.valueOf(status));
+        }
+        prescription.setTotalCost(totalCost);
+        if (paymentStatus != null) {
+            prescription.setPaymentStatus(Prescription.PaymentStatus.valueOf(paymentStatus));
+        }
+        ArrayBucketList<String, Prescription.PrescribedMedicine> lines = linesByPrescription.getValue(id);
+        prescription.setPrescribedMedicines(lines != null ? lines : new ArrayBucketList<>());
+        return prescription;
+    }
+
+    private Address findAddress(String addressId) throws SQLException {
+        return addressId != null ? addressDao.findById(addressId) : null;
+    }
+
+    // ---------------- Record encoding ----------------
+
+    private void writeTables(SnapshotWriter writer) throws IOException {
+        ArrayBucketList<String, Address> addresses = ArrayBucketListFactory.createForStringIds(256);
+        patients.forEach(patient -> addAddress(addresses, patient.getAddress()));
+        doctors.forEach(doctor -> addAddress(addresses, doctor.getAddress()));
+
+        writer.beginSection(ADDRESSES, addresses.getSize());
+        for (Address address : addresses) {
+            writer.text(address.getAddressId());
+            writer.text(address.getStreet());
+            writer.text(address.getCity());
+            writer.text(address.getState());
+            writer.text(address.getZipCode());
+            writer.text(address.getCountry());
+            writer.endRecord();
+        }
+
+        writer.beginSection(PATIENTS, patients.getSize());
+        for (Patient patient : patients) {
+            writer.text(patient.getPatientId());
+            writer.text(patient.getFullName());
+            writer.text(patient.getICNumber());
+            writer.text(patient.getEmail());
+            writer.text(patient.getPhoneNumber());
+            writer.text(patient.getAddress() != null ? patient.getAddress().getAddressId() : null);
+            writer.date(patient.getRegistrationDate());
+            writer.text(name(patient.getBloodType()));
+            writer.text(patient.getAllergies());
+            writer.text(patient.getEmergencyContact());
+            writer.flag(patient.isActive());
+            writer.endRecord();
+        }
+
+        writer.beginSection(DOCTORS, doctors.getSize());
+        for (Doctor doctor : doctors) {
+            writer.text(doctor.getDoctorId());
+            writer.text(doctor.getFullName());
+            writer.text(doctor.getICNumber());
+            writer.text(doctor.getEmail());
+            writer.text(doctor.getPhoneNumber());
+            writer.text(doctor.getAddress() != null ? doctor.getAddress().getAddressId() : null);
+            writer.date(doctor.getRegistrationDate());
+            writer.text(doctor.getMedicalSpecialty());
+            writer.text(doctor.getLicenseNumber());
+            writer.intValue(doctor.getExpYears());
+            writer.flag(doctor.isAvailable());
+            writer.endRecord();
+        }
+
+        writer.beginSection(CONSULTATIONS, consultations.getSize());
+        for (Consultation consultation : consultations) {
+            writer.text(consultation.getConsultationId());
+            writer.text(consultation.getPatient().getPatientId());
+            writer.text(consultation.getDoctor().getDoctorId());
+            writer.dateTime(consultation.getConsultationDate());
+            writer.text(consultation.getSymptoms());
+            writer.text(consultation.getDiagnosis());
+            writer.text(consultation.getTreatment());
+            writer.text(consultation.getNotes());
+            writer.text(name(consultation.getStatus()));
+            writer.text(consultation.getCancellationReason());
+            writer.dateTime(consultation.getNextVisitDate());
+            writer.decimal(consultation.getConsultationFee());
+            writer.text(name(consultation.getPaymentStatus()));
+            writer.endRecord();
+        }
+
+        writer.beginSection(MEDICINES, medicines.getSize());
+        for (Medicine medicine : medicines) {
+            writer.text(medicine.getMedicineId());
+            writer.text(medicine.getMedicineName());
+            writer.text(medicine.getGenericName());
+            writer.text(medicine.getManufacturer());
+            writer.text(medicine.getDescription());
+            writer.text(medicine.getDosageForm());
+            writer.text(medicine.getStrength());
+            writer.intValue(medicine.getQuantityInStock());
+            writer.intValue(medicine.getMinimumStockLevel());
+            writer.decimal(medicine.getUnitPrice());
+            writer.date(medicine.getExpiryDate());
+            writer.text(medicine.getStorageLocation());
+            writer.flag(medicine.getRequiresPrescription());
+            writer.endRecord();
+        }
+
+        writer.beginSection(TREATMENTS, treatments.getSize());
+        for (MedicalTreatment treatment : treatments) {
+            writer.text(treatment.getTreatmentId());
+            writer.text(treatment.getPatient().getPatientId());
+            writer.text(treatment.getDoctor().getDoctorId());
+            writer.text(treatment.getConsultation() != null ? treatment.getConsultation().getConsultationId() : null);
+            writer.text(treatment.getDiagnosis());
+            writer.text(treatment.getTreatmentPlan());
+            writer.text(treatment.getPrescribedMedications());
+            writer.text(treatment.getTreatmentNotes());
+            writer.dateTime(treatment.getTreatmentDate());
+            writer.dateTime(treatment.getFollowUpDate());
+            writer.text(name(treatment.getStatus()));
+            writer.decimal(treatment.getTreatmentCost());
+            writer.text(name(treatment.getPaymentStatus()));
+            writer.endRecord();
+        }
+
+        writer.beginSection(PRESCRIPTIONS, prescriptions.getSize());
+        int lineCount = 0;
+        for (Prescription prescription : prescriptions) {
+            writer.text(prescription.getPrescriptionId());
+            writer.text(prescription.getPatient().getPatientId());
+            writer.text(prescription.getDoctor().getDoctorId());
+            writer.text(prescription.getConsultation() != null
+                    ? prescription.getConsultation().getConsultationId() : null);
+            writer.date(prescription.getPrescriptionDate());
+            writer.text(prescription.getInstructions());
+            writer.date(prescription.getExpiryDate());
+            writer.text(name(prescription.getStatus()));
+            writer.decimal(prescription.getTotalCost());
+            writer.text(name(prescription.getPaymentStatus()));
+            writer.endRecord();
+            if (prescription.getPrescribedMedicines() != null) {
+                lineCount += prescription.getPrescribedMedicines().getSize();
+            }
+        }
+
+        writer.beginSection(PRESCRIBED_MEDICINES, lineCount);
+        for (Prescription prescription : prescriptions) {
+            if (prescription.getPrescribedMedicines() == null) {
+                continue;
+            }
+            for (Prescription.PrescribedMedicine line : prescription.getPrescribedMedicines()) {
+                writer.text(line.getPrescribedMedicineId());
+                writer.text(prescription.getPrescriptionId());
+                writer.text(line.getMedicine() != null ? line.getMedicine().getMedicineId() : null);
+                writer.intValue(line.getQuantity());
+                writer.text(line.getDosage());
+                writer.text(line.getFrequency());
+                writer.intValue(line.getDuration());
+                writer.decimal(line.getUnitPrice());
+                writer.endRecord();
+            }
+        }
+    }
+
+    private static void addAddress(ArrayBucketList<String, Address> addresses, Address address) {
+        if (address != null && address.getAddressId() != null && !addresses.contains(address.getAddressId())) {
+            addresses.add(address.getAddressId(), address);
+        }
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    // ---------------- Database helpers ----------------
+
+    /**
+     * Checks that every change-tracked table has the lastModified column;
+     * the schema script creates it, load never alters a table
+     *
+     * @return true if every table has the column
+     */
+    private static boolean hasChangeMarkers() {
+        String sql = "SELECT TABLE_NAME FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND COLUMN_NAME = 'lastModified'";
+        try (Connection connection = HikariConnectionPool.getInstance().getConnection();
+                Statement statement = connection.createStatement()) {
+
+            ArrayBucketList<String, String> trackedTables = ArrayBucketListFactory.createForStringIds(16);
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                while (resultSet.next()) {
+                    String table = resultSet.getString(1).toLowerCase();
+                    trackedTables.add(table, table);
+                }
+            }
+            for (String table : CHANGE_TRACKED_TABLES) {
+                if (!trackedTables.contains(table)) {
+                    System.err.println("Snapshot disabled: table " + table
+                            + " has no lastModified column (see database_schema.sql)");
+                    return false;
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error checking lastModified columns: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static long databaseTimeMillis() throws SQLException {
+        try (Connection connection = HikariConnectionPool.getInstance().getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT CURRENT_TIMESTAMP")) {
+            resultSet.next();
+            return resultSet.getTimestamp(1).getTime();
+        }
+    }
+
+    /**
+     * @param sql query returning one ID column, built from constants
+     * @return the IDs, each mapped to itself
+     */
+    private static ArrayBucketList<String, String> readIds(String sql) throws SQLException {
+        ArrayBucketList<String, String> ids = ArrayBucketListFactory.createForStringIds(256);
+        try (Connection connection = HikariConnectionPool.getInstance().getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                String id = resultSet.getString(1);
+                ids.add(id, id);
+            }
+        }
+        return ids;
+    }
+
+    private static <T> ArrayBucketList<String, T> byId(ArrayBucketList<String, T> rows, Function<T, String> id) {
+        ArrayBucketList<String, T> table = ArrayBucketListFactory.createForStringIds(Math.max(16, rows.getSize()));
+        rows.forEach(row -> table.add(id.apply(row), row));
+        return table;
+    }
+
+    private static Path[] slots(Path file) {
+        return new Path[] { file, file.resolveSibling(file.getFileName() + ".b") };
+    }
+
+    /**
+     * @return the as-of time in the slot's header, or NULL_TIME if the slot
+     *         is missing or not a snapshot of this version
+     */
+    private static long readAsOfMillis(Path slot) {
+        if (!Files.isRegularFile(slot)) {
+            return NULL_TIME;
+        }
+        try (FileChannel channel = FileChannel.open(slot, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+            }
+            if (header.position() < HEADER_BYTES || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                return NULL_TIME;
+            }
+            return header.getLong(8);
+        } catch (IOException e) {
+            return NULL_TIME;
+        }
+    }
+
+    // ---------------- File format ----------------
+
+    /**
+     * Streams sections through a checksum after a placeholder header, then
+     * appends the string table and fills in the header
+     */
+    private static final class SnapshotWriter {
+        private final FileChannel channel;
+        private final CRC32 checksum = new CRC32();
+        private final DataOutputStream out;
+        private final ArrayBucketList<String, Integer> stringIndex = ArrayBucketListFactory.createForStringIds(1024);
+        private String[] strings = new String[1024];
+        private int stringCount;
+        private long position = HEADER_BYTES;
+        private int sectionCount;
+        private int section;
+        private long recordStart;
+
+        private SnapshotWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            channel.position(HEADER_BYTES);
+            this.out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), checksum));
+        }
+
+        private void beginSection(int section, int recordCount) throws IOException {
+            out.writeInt(section);
+            out.writeInt(RECORD_BYTES[section]);
+            out.writeInt(recordCount);
+            position += SECTION_HEADER_BYTES;
+            sectionCount++;
+            this.section = section;
+            recordStart = position;
+        }
+
+        private void endRecord() {
+            if (position - recordStart != RECORD_BYTES[section]) {
+                throw new IllegalStateException("Snapshot section " + section + " record is "
+                        + (position - recordStart) + " bytes, expected " + RECORD_BYTES[section]);
+            }
+            recordStart = position;
+        }
+
+        private void text(String value) throws IOException {
+            out.writeInt(value != null ? intern(value) : -1);
+            position += TEXT;
+        }
+
+        private void date(LocalDate value) throws IOException {
+            out.writeLong(value != null ? value.toEpochDay() : NULL_TIME);
+            position += DATE;
+        }
+
+        private void dateTime(LocalDateTime value) throws IOException {
+            out.writeLong(value != null ? value.toEpochSecond(ZoneOffset.UTC) : NULL_TIME);
+            out.writeInt(value != null ? value.getNano() : 0);
+            position += DATE_TIME;
+        }
+
+        private void intValue(int value) throws IOException {
+            out.writeInt(value);
+            position += INT;
+        }
+
+        private void decimal(double value) throws IOException {
+            out.writeDouble(value);
+            position += DECIMAL;
+        }
+
+        private void flag(boolean value) throws IOException {
+            out.writeByte(value ? 1 : 0);
+            position += FLAG;
+        }
+
+        private int intern(String value) {
+            Integer index = stringIndex.getValue(value);
+            if (index == null) {
+                if (stringCount == strings.length) {
+                    strings = Arrays.copyOf(strings, stringCount * 2);
+                }
+                index = stringCount;
+                strings[stringCount++] = value;
+                stringIndex.add(value, index);
+            }
+            return index;
+        }
+
+        private void finish(long asOfMillis) throws IOException {
+            long stringTableOffset = position;
+            out.writeInt(stringCount);
+            position += INT;
+            for (int index = 0; index < stringCount; index++) {
+                byte[] bytes = strings[index].getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                position += INT + bytes.length;
+            }
+            out.flush();
+            if (position > Integer.MAX_VALUE) {
+                throw new IOException("snapshot exceeds 2 GB");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(asOfMillis).putLong(checksum.getValue())
+                    .putLong(stringTableOffset).putInt(sectionCount).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads records in place from the mapped file; strings are decoded the
+     * first time a record refers to them
+     */
+    private static final class SnapshotReader {
+        private final ByteBuffer buffer;
+        private final long asOfMillis;
+        private final int[] stringOffsets;
+        private final String[] strings;
+        private final int[] sectionStarts = new int[RECORD_BYTES.length];
+        private final int[] sectionCounts = new int[RECORD_BYTES.length];
+
+        private SnapshotReader(ByteBuffer buffer, long asOfMillis, int stringTableOffset) {
+            this.buffer = buffer;
+            this.asOfMillis = asOfMillis;
+            int count = buffer.getInt(stringTableOffset);
+            this.stringOffsets = new int[count];
+            this.strings = new String[count];
+            int offset = stringTableOffset + INT;
+            for (int index = 0; index < count; index++) {
+                stringOffsets[index] = offset;
+                offset += INT + buffer.getInt(offset);
+            }
+        }
+
+        /**
+         * @return a reader over the mapped file, or null if it is not a
+         *         complete snapshot of this version
+         */
+        private static SnapshotReader open(ByteBuffer buffer) {
+            try {
+                int size = buffer.capacity();
+                if (size < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    return null;
+                }
+                CRC32 checksum = new CRC32();
+                checksum.update(buffer.slice(HEADER_BYTES, size - HEADER_BYTES));
+                if (checksum.getValue() != buffer.getLong(16)) {
+                    return null;
+                }
+                long stringTableOffset = buffer.getLong(24);
+                if (stringTableOffset < HEADER_BYTES || stringTableOffset >= size) {
+                    return null;
+                }
+                SnapshotReader reader = new SnapshotReader(buffer, buffer.getLong(8), (int) stringTableOffset);
+
+                boolean[] present = new boolean[RECORD_BYTES.length];
+                long offset = HEADER_BYTES;
+                for (int index = buffer.getInt(32); index > 0; index--) {
+                    int section = buffer.getInt((int) offset);
+                    int width = buffer.getInt((int) offset + 4);
+                    int count = buffer.getInt((int) offset + 8);
+                    if (section < 0 || section >= RECORD_BYTES.length || width != RECORD_BYTES[section] || count < 0) {
+                        return null;
+                    }
+                    present[section] = true;
+                    reader.sectionStarts[section] = (int) offset + SECTION_HEADER_BYTES;
+                    reader.sectionCounts[section] = count;
+                    offset += SECTION_HEADER_BYTES + (long) width * count;
+                    if (offset > stringTableOffset) {
+                        return null;
+                    }
+                }
+                for (boolean sectionPresent : present) {
+                    if (!sectionPresent) {
+                        return null;
+                    }
+                }
+                return reader;
+            } catch (IndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+
+        private int count(int section) {
+            return sectionCounts[section];
+        }
+
+        private void seek(int section, int index) {
+            buffer.position(sectionStarts[section] + index * RECORD_BYTES[section]);
+        }
+
+        private String text() {
+            int index = buffer.getInt();
+            if (index < 0) {
+                return null;
+            }
+            String value = strings[index];
+            if (value == null) {
+                int offset = stringOffsets[index];
+                byte[] bytes = new byte[buffer.getInt(offset)];
+                buffer.get(offset + INT, bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+                strings[index] = value;
+            }
+            return value;
+        }
+
+        private LocalDate date() {
+            long epochDay = buffer.getLong();
+            return epochDay != NULL_TIME ? LocalDate.ofEpochDay(epochDay) : null;
+        }
+
+        private LocalDateTime dateTime() {
+            long epochSecond = buffer.getLong();
+            int nanos = buffer.getInt();
+            return epochSecond != NULL_TIME ? LocalDateTime.ofEpochSecond(epochSecond, nanos, ZoneOffset.UTC) : null;
+        }
+
+        private int intValue() {
+            return buffer.getInt();
+        }
+
+        private double decimal() {
+            return buffer.getDouble();
+        }
+
+        private boolean flag() {
+            return buffer.get() != 0;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * IdAllocator - Hands out entity IDs on the client, reserved in blocks from
+ * the *_seq tables the ID triggers use.
+ *
+ * A block is reserved by one multi-row INSERT into the sequence table. InnoDB
+ * numbers such an insert as a single consecutive run only when
+ * innodb_autoinc_lock_mode is 0 or 1, so the mode is read once and, under
+ * interleaved mode 2, each reservation inserts a single row instead. Either
+ * way the IDs never collide with those the triggers generate for rows
+ * inserted without an ID. Each ID is formatted like the trigger's
+ * CONCAT(prefix, LPAD(id, width, '0')), and an insert that carries its ID
+ * skips the trigger and the follow-up lookup of the newest row. IDs left in a
+ * block when the program exits are never used, which leaves gaps in the
+ * numbering but no duplicates.
+ *
+ * Reservations run on the caller's connection, so an insert never waits for
+ * a second pooled connection. The allocator is guarded by a ReentrantLock
+ * rather than synchronized, so a virtual thread waiting on the reservation
+ * query does not pin its carrier.
+ */
+final class IdAllocator {
+    static final IdAllocator ADDRESS = new IdAllocator("address_seq", "A", 9);
+    static final IdAllocator PATIENT = new IdAllocator("patient_seq", "P", 9);
+    static final IdAllocator DOCTOR = new IdAllocator("doctor_seq", "D", 9);
+    static final IdAllocator SCHEDULE = new IdAllocator("schedule_seq", "SCH", 8);
+    static final IdAllocator CONSULTATION = new IdAllocator("consultation_seq", "C", 9);
+    static final IdAllocator TREATMENT = new IdAllocator("medical_treatment_seq", "T", 9);
+    static final IdAllocator MEDICINE = new IdAllocator("medicine_seq", "M", 9);
+    static final IdAllocator PRESCRIPTION = new IdAllocator("prescription_seq", "PR", 8);
+    static final IdAllocator PRESCRIBED_MEDICINE = new IdAllocator("prescribed_medicine_seq", "PM", 8);
+
+    private static final int BLOCK_SIZE = 32;
+    private static final int INTERLEAVED_LOCK_MODE = 2;
+    private static volatile Boolean consecutiveBlocks; // null until the lock mode is read
+
+    private final String sequenceTable;
+    private final String reserveSql;
+    private final String reserveOneSql;
+    private final String prefix;
+    private final int width;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long[] block = new long[BLOCK_SIZE];
+    private int blockSize; // guarded by lock
+    private int next; // guarded by lock
+
+    private IdAllocator(String sequenceTable, String prefix, int width) {
+        this.sequenceTable = sequenceTable;
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(sequenceTable).append(" VALUES ()");
+        this.reserveOneSql = sql.toString();
+        for (int index = 1; index < BLOCK_SIZE; index++) {
+            sql.append(", ()");
+        }
+        this.reserveSql = sql.toString();
+        this.prefix = prefix;
+        this.width = width;
+    }
+
+    /**
+     * Next unused ID, reserving a new block when the current one runs out
+     *
+     * @param connection the caller's connection, used for the reservation
+     * @return formatted ID such as P000000042
+     */
+    String nextId(Connection connection) throws SQLException {
+        lock.lock();
+        try {
+            if (next == blockSize) {
+                reserveBlock(connection);
+            }
+            return format(block[next++]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Allocates several IDs at once, e.g. for the rows of a batch insert,
+     * reserving further blocks as needed
+     *
+     * @param connection the caller's connection, used for the reservations
+     * @param count      number of IDs wanted
+     * @return the formatted IDs in allocation order
+     */
+    String[] nextIds(Connection connection, int count) throws SQLException {
+        String[] ids = new String[count];
+        lock.lock();
+        try {
+            for (int index = 0; index < count; index++) {
+                ids[index] = nextId(connection);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return ids;
+    }
+
+    private void reserveBlock(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            boolean consecutive = consecutiveBlocks(statement);
+            statement.executeUpdate(consecutive ? reserveSql : reserveOneSql, Statement.RETURN_GENERATED_KEYS);
+            int reserved = 0;
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                while (keys.next() && reserved < BLOCK_SIZE) {
+                    block[reserved++] = keys.getLong(1);
+                }
+            }
+            if (reserved == 0) {
+                throw new SQLException("No IDs returned by INSERT INTO " + sequenceTable);
+            }
+            blockSize = reserved;
+            next = 0;
+        } catch (SQLException e) {
+            System.err.println("Error reserving ID block: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Whether a multi-row insert gets one consecutive run of keys, which the
+     * driver's generated keys assume; read from the server once
+     */
+    private static boolean consecutiveBlocks(Statement statement) throws SQLException {
+        Boolean consecutive = consecutiveBlocks;
+        if (consecutive == null) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT @@innodb_autoinc_lock_mode")) {
+                consecutive = resultSet.next() && resultSet.getInt(1) < INTERLEAVED_LOCK_MODE;
+            }
+            consecutiveBlocks = consecutive;
+        }
+        return consecutive;
+    }
+
+    private String format(long value) {
+        String digits = Long.toString(value);
+        StringBuilder id = new StringBuilder(prefix.length() + width).append(prefix);
+        for (int padding = digits.length(); padding < width; padding++) {
+            id.append('0');
+        }
+        return id.append(digits).toString();
+    }
+}
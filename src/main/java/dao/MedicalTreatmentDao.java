@@ -6,13 +6,16 @@ import entity.Doctor;
 import entity.Consultation;
 import utility.HikariConnectionPool;
 import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.function.Consumer;
 
 public class MedicalTreatmentDao extends DaoTemplate<MedicalTreatment> {
 
@@ -39,6 +42,10 @@ public class MedicalTreatmentDao extends DaoTemplate<MedicalTreatment> {
 
     @Override
     public MedicalTreatment findById(String treatmentId) throws SQLException {
+        MedicalTreatment cached = sessionInstance(treatmentId);
+        if (cached != null) {
+            return cached;
+        }
         String sql = "SELECT * FROM medical_treatment WHERE treatmentId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -48,7 +55,7 @@ public class MedicalTreatmentDao extends DaoTemplate<MedicalTreatment> {
             ResultSet resultSet = preparedStatement.executeQuery();
 
             if (resultSet.next()) {
-                return mapResultSet(resultSet);
+                return mapSessionRow(resultSet, "treatmentId");
             }
         } catch (SQLException e) {
             System.err.println("Error finding medical treatment by ID: " + e.getMessage());
@@ -60,36 +67,73 @@ public class MedicalTreatmentDao extends DaoTemplate<MedicalTreatment> {
 
     @Override
     public ArrayBucketList<String, MedicalTreatment> findAll() throws SQLException {
+        ArrayBucketList<String, MedicalTreatment> restored = copySessionTable(
+                new ArrayBucketList<String, MedicalTreatment>(), MedicalTreatment::getTreatmentId);
+        if (restored != null) {
+            return restored;
+        }
         ArrayBucketList<String, MedicalTreatment> treatments = new ArrayBucketList<String, MedicalTreatment>();
         String sql = "SELECT * FROM medical_treatment ORDER BY treatmentDate DESC";
 
-        try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                Statement statement = connection.createStatement();
-                ResultSet resultSet = statement.executeQuery(sql)) {
-
-            while (resultSet.next()) {
-                MedicalTreatment treatment = mapResultSet(resultSet);
-                if (treatment != null) {
-                    treatments.add(treatment.getTreatmentId(), treatment);
-                }
-            }
+        // Patients, doctors and consultations are loaded set-based into the
+        // session first, so mapping a row resolves them without a query
+        EntitySession.begin();
+        try {
+            patientDao.findAllWhereIdIn("SELECT patientId FROM medical_treatment");
+            doctorDao.findAllWhereIdIn("SELECT doctorId FROM medical_treatment");
+            consultationDao.findAllWhereIdIn("SELECT consultationId FROM medical_treatment");
+            findAllBySql(sql, "treatmentId", treatments);
         } catch (SQLException e) {
             System.err.println("Error finding all medical treatments: " + e.getMessage());
             throw e;
+        } finally {
+            EntitySession.end();
         }
 
         return treatments;
     }
 
+    /**
+     * Streams every treatment, newest first, without building a list.
+     * Patients, doctors and consultations are preloaded as in findAll.
+     */
+    @Override
+    public void forEachRow(Consumer<? super MedicalTreatment> action) throws SQLException {
+        ArrayBucketList<String, MedicalTreatment> table = sessionTable();
+        if (table != null) {
+            table.forEach(action);
+            return;
+        }
+        EntitySession.begin();
+        try {
+            patientDao.findAllWhereIdIn("SELECT patientId FROM medical_treatment");
+            doctorDao.findAllWhereIdIn("SELECT doctorId FROM medical_treatment");
+            consultationDao.findAllWhereIdIn("SELECT consultationId FROM medical_treatment");
+            streamRows("SELECT * FROM medical_treatment ORDER BY treatmentDate DESC", "treatmentId", action);
+        } finally {
+            EntitySession.end();
+        }
+    }
+
+    /**
+     * Treatments modified at or after the given time
+     *
+     * @param since lastModified lower bound
+     * @return the changed treatments keyed by treatment ID
+     */
+    ArrayBucketList<String, MedicalTreatment> findAllChangedSince(Timestamp since) throws SQLException {
+        return findAllBySql("SELECT * FROM medical_treatment WHERE lastModified >= ?", "treatmentId",
+                ArrayBucketListFactory.createForStringIds(256), since);
+    }
+
     @Override
     public boolean insertAndReturnId(MedicalTreatment treatment) throws SQLException {
-        String sql = "INSERT INTO medical_treatment (patientId, doctorId, consultationId, " +
+        String sql = "INSERT INTO medical_treatment (treatmentId, patientId, doctorId, consultationId, " +
                 "diagnosis, treatmentPlan, prescribedMedications, treatmentNotes, treatmentDate, " +
-                "followUpDate, status, treatmentCost, paymentStatus) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                "followUpDate, status, treatmentCost, paymentStatus) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                PreparedStatement preparedStatement = connection.prepareStatement(sql,
-                        Statement.RETURN_GENERATED_KEYS)) {
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
             // Enforce one treatment per consultation at the database layer as well
             if (treatment.getConsultation() != null && treatment.getConsultation().getConsultationId() != null) {
@@ -107,29 +151,27 @@ public class MedicalTreatmentDao extends DaoTemplate<MedicalTreatment> {
                 }
             }
 
-            preparedStatement.setString(1, treatment.getPatient().getPatientId());
-            preparedStatement.setString(2, treatment.getDoctor().getDoctorId());
-            preparedStatement.setString(3,
+            String treatmentId = IdAllocator.TREATMENT.nextId(connection);
+            preparedStatement.setString(1, treatmentId);
+            preparedStatement.setString(2, treatment.getPatient().getPatientId());
+            preparedStatement.setString(3, treatment.getDoctor().getDoctorId());
+            preparedStatement.setString(4,
                     treatment.getConsultation() != null ? treatment.getConsultation().getConsultationId() : null);
-            preparedStatement.setString(4, treatment.getDiagnosis());
-            preparedStatement.setString(5, treatment.getTreatmentPlan());
-            preparedStatement.setString(6, treatment.getPrescribedMedications());
-            preparedStatement.setString(7, treatment.getTreatmentNotes());
-            preparedStatement.setObject(8, treatment.getTreatmentDate());
-            preparedStatement.setObject(9, treatment.getFollowUpDate());
-            preparedStatement.setString(10, treatment.getStatus().name());
-            preparedStatement.setDouble(11, treatment.getTreatmentCost());
-            preparedStatement.setString(12, treatment.getPaymentStatus().name());
+            preparedStatement.setString(5, treatment.getDiagnosis());
+            preparedStatement.setString(6, treatment.getTreatmentPlan());
+            preparedStatement.setString(7, treatment.getPrescribedMedications());
+            preparedStatement.setString(8, treatment.getTreatmentNotes());
+            preparedStatement.setObject(9, treatment.getTreatmentDate());
+            preparedStatement.setObject(10, treatment.getFollowUpDate());
+            preparedStatement.setString(11, treatment.getStatus().name());
+            preparedStatement.setDouble(12, treatment.getTreatmentCost());
+            preparedStatement.setString(13, treatment.getPaymentStatus().name());
 
             int affectedRows = preparedStatement.executeUpdate();
 
             if (affectedRows > 0) {
-                // Get the generated ID from the database
-                String generatedId = getLastInsertedTreatmentId(connection);
-                if (generatedId != null) {
-                    treatment.setTreatmentId(generatedId);
-                    return true;
-                }
+                treatment.setTreatmentId(treatmentId);
+                return true;
             }
 
             return false;
@@ -153,6 +195,7 @@ public class MedicalTreatmentDao extends DaoTemplate<MedicalTreatment> {
 
     @Override
     public boolean update(MedicalTreatment treatment) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "UPDATE medical_treatment SET patientId = ?, doctorId = ?, consultationId = ?, " +
                 "diagnosis = ?, treatmentPlan = ?, prescribedMedications = ?, treatmentNotes = ?, " +
                 "treatmentDate = ?, followUpDate = ?, status = ?, treatmentCost = ?, paymentStatus = ? " +
@@ -177,6 +220,9 @@ public class MedicalTreatmentDao extends DaoTemplate<MedicalTreatment> {
             preparedStatement.setString(13, treatment.getTreatmentId());
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                updateSessionInstance(treatment.getTreatmentId(), treatment);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error updating medical treatment: " + e.getMessage());
@@ -194,6 +240,9 @@ public class MedicalTreatmentDao extends DaoTemplate<MedicalTreatment> {
             preparedStatement.setString(1, treatmentId);
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                evictSessionInstance(treatmentId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting medical treatment: " + e.getMessage());
@@ -202,6 +251,10 @@ public class MedicalTreatmentDao extends DaoTemplate<MedicalTreatment> {
     }
 
     public boolean updateStatus(String treatmentId, MedicalTreatment.TreatmentStatus status, MedicalTreatment.PaymentStatus paymentStatus) throws SQLException {
+        if (WriteBehindBuffer.enqueue(WriteBehindBuffer.Kind.TREATMENT_STATUS, treatmentId, status.name(),
+                paymentStatus.name())) {
+            return true;
+        }
         String sql = "UPDATE medical_treatment SET status = ?, paymentStatus = ? WHERE treatmentId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -260,27 +313,6 @@ public class MedicalTreatmentDao extends DaoTemplate<MedicalTreatment> {
         }
     }
 
-    /**
-     * Get the ID of the last inserted medical treatment
-     * 
-     * @param connection The database connection
-     * @return The generated treatment ID
-     * @throws SQLException if database error occurs
-     */
-    private String getLastInsertedTreatmentId(Connection connection) throws SQLException {
-        String sql = "SELECT treatmentId FROM medical_treatment ORDER BY createdDate DESC LIMIT 1";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                ResultSet resultSet = preparedStatement.executeQuery()) {
-
-            if (resultSet.next()) {
-                return resultSet.getString("treatmentId");
-            }
-        }
-
-        return null;
-    }
-
     @Override
     protected MedicalTreatment mapResultSet(ResultSet resultSet) throws SQLException {
         try {
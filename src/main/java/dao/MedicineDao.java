@@ -3,12 +3,14 @@ package dao;
 import entity.Medicine;
 import utility.HikariConnectionPool;
 import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 
 /**
@@ -21,6 +23,10 @@ public class MedicineDao extends DaoTemplate<Medicine> {
 
     @Override
     public Medicine findById(String medicineId) throws SQLException {
+        Medicine cached = sessionInstance(medicineId);
+        if (cached != null) {
+            return cached;
+        }
         String sql = "SELECT * FROM medicine WHERE medicineId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -30,7 +36,7 @@ public class MedicineDao extends DaoTemplate<Medicine> {
             ResultSet resultSet = preparedStatement.executeQuery();
 
             if (resultSet.next()) {
-                return mapResultSet(resultSet);
+                return mapSessionRow(resultSet, "medicineId");
             }
         } catch (SQLException e) {
             System.err.println("Error finding medicine by ID: " + e.getMessage());
@@ -42,7 +48,12 @@ public class MedicineDao extends DaoTemplate<Medicine> {
 
     @Override
     public ArrayBucketList<String, Medicine> findAll() throws SQLException {
-        ArrayBucketList<String, Medicine> medicines = new ArrayBucketList<String, Medicine>();
+        ArrayBucketList<String, Medicine> restored = copySessionTable(ArrayBucketListFactory.createIncremental(16),
+                Medicine::getMedicineId);
+        if (restored != null) {
+            return restored;
+        }
+        ArrayBucketList<String, Medicine> medicines = ArrayBucketListFactory.createIncremental(16);
         String sql = "SELECT * FROM medicine ORDER BY medicineName";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -50,7 +61,7 @@ public class MedicineDao extends DaoTemplate<Medicine> {
                 ResultSet resultSet = statement.executeQuery(sql)) {
 
             while (resultSet.next()) {
-                Medicine medicine = mapResultSet(resultSet);
+                Medicine medicine = mapSessionRow(resultSet, "medicineId");
                 if (medicine != null) {
                     medicines.add(medicine.getMedicineId(), medicine);
                 }
@@ -63,40 +74,60 @@ public class MedicineDao extends DaoTemplate<Medicine> {
         return medicines;
     }
 
+    /**
+     * Loads, in one query, the medicines whose IDs the subquery returns and
+     * registers them in the open EntitySession
+     *
+     * @param idSubquery SQL returning medicine IDs, built from constants only
+     * @return the loaded medicines keyed by medicine ID
+     */
+    ArrayBucketList<String, Medicine> findAllWhereIdIn(String idSubquery) throws SQLException {
+        return findAllBySql("SELECT * FROM medicine WHERE medicineId IN (" + idSubquery + ")", "medicineId",
+                ArrayBucketListFactory.createForStringIds(64));
+    }
+
+    /**
+     * Medicines modified at or after the given time, including stock changes
+     *
+     * @param since lastModified lower bound
+     * @return the changed medicines keyed by medicine ID
+     */
+    ArrayBucketList<String, Medicine> findAllChangedSince(Timestamp since) throws SQLException {
+        return findAllBySql("SELECT * FROM medicine WHERE lastModified >= ?", "medicineId",
+                ArrayBucketListFactory.createForStringIds(64), since);
+    }
+
     @Override
     public boolean insertAndReturnId(Medicine medicine) throws SQLException {
-        String sql = "INSERT INTO medicine (medicineName, genericName, manufacturer, " +
+        String sql = "INSERT INTO medicine (medicineId, medicineName, genericName, manufacturer, " +
                 "description, dosageForm, strength, quantityInStock, minimumStockLevel, unitPrice, " +
                 "expiryDate, storageLocation, requiresPrescription, status) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                PreparedStatement preparedStatement = connection.prepareStatement(sql,
-                        Statement.RETURN_GENERATED_KEYS)) {
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
-            preparedStatement.setString(1, medicine.getMedicineName());
-            preparedStatement.setString(2, medicine.getGenericName());
-            preparedStatement.setString(3, medicine.getManufacturer());
-            preparedStatement.setString(4, medicine.getDescription());
-            preparedStatement.setString(5, medicine.getDosageForm());
-            preparedStatement.setString(6, medicine.getStrength());
-            preparedStatement.setInt(7, medicine.getQuantityInStock());
-            preparedStatement.setInt(8, medicine.getMinimumStockLevel());
-            preparedStatement.setDouble(9, medicine.getUnitPrice());
-            preparedStatement.setObject(10, medicine.getExpiryDate());
-            preparedStatement.setString(11, medicine.getStorageLocation());
-            preparedStatement.setBoolean(12, medicine.getRequiresPrescription());
-            preparedStatement.setString(13, medicine.getStatus().name());
+            String medicineId = IdAllocator.MEDICINE.nextId(connection);
+            preparedStatement.setString(1, medicineId);
+            preparedStatement.setString(2, medicine.getMedicineName());
+            preparedStatement.setString(3, medicine.getGenericName());
+            preparedStatement.setString(4, medicine.getManufacturer());
+            preparedStatement.setString(5, medicine.getDescription());
+            preparedStatement.setString(6, medicine.getDosageForm());
+            preparedStatement.setString(7, medicine.getStrength());
+            preparedStatement.setInt(8, medicine.getQuantityInStock());
+            preparedStatement.setInt(9, medicine.getMinimumStockLevel());
+            preparedStatement.setDouble(10, medicine.getUnitPrice());
+            preparedStatement.setObject(11, medicine.getExpiryDate());
+            preparedStatement.setString(12, medicine.getStorageLocation());
+            preparedStatement.setBoolean(13, medicine.getRequiresPrescription());
+            preparedStatement.setString(14, medicine.getStatus().name());
 
             int affectedRows = preparedStatement.executeUpdate();
 
             if (affectedRows > 0) {
-                // Get the generated ID from the database
-                String generatedId = getLastInsertedMedicineId(connection);
-                if (generatedId != null) {
-                    medicine.setMedicineId(generatedId);
-                    return true;
-                }
+                medicine.setMedicineId(medicineId);
+                return true;
             }
 
             return false;
@@ -109,6 +140,7 @@ public class MedicineDao extends DaoTemplate<Medicine> {
 
     @Override
     public boolean update(Medicine medicine) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "UPDATE medicine SET medicineName = ?, genericName = ?, manufacturer = ?, " +
                 "description = ?, dosageForm = ?, strength = ?, quantityInStock = ?, minimumStockLevel = ?, " +
                 "unitPrice = ?, expiryDate = ?, storageLocation = ?, requiresPrescription = ?, status = ? " +
@@ -133,6 +165,9 @@ public class MedicineDao extends DaoTemplate<Medicine> {
             preparedStatement.setString(14, medicine.getMedicineId());
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                updateSessionInstance(medicine.getMedicineId(), medicine);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error updating medicine: " + e.getMessage());
@@ -150,6 +185,9 @@ public class MedicineDao extends DaoTemplate<Medicine> {
             preparedStatement.setString(1, medicineId);
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                evictSessionInstance(medicineId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting medicine: " + e.getMessage());
@@ -158,6 +196,7 @@ public class MedicineDao extends DaoTemplate<Medicine> {
     }
 
     public boolean updateStock(String medicineId, int newQuantity) throws SQLException {
+        WriteBehindBuffer.flush();
         String sql = "UPDATE medicine SET quantityInStock = ? WHERE medicineId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -175,6 +214,9 @@ public class MedicineDao extends DaoTemplate<Medicine> {
     }
 
     public boolean updateStatus(String medicineId, Medicine.MedicineStatus status) throws SQLException {
+        if (WriteBehindBuffer.enqueue(WriteBehindBuffer.Kind.MEDICINE_STATUS, medicineId, status.name())) {
+            return true;
+        }
         String sql = "UPDATE medicine SET status = ? WHERE medicineId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -226,25 +268,4 @@ public class MedicineDao extends DaoTemplate<Medicine> {
             throw e;
         }
     }
-
-    /**
-     * Get the ID of the last inserted medicine
-     * 
-     * @param connection The database connection
-     * @return The generated medicine ID
-     * @throws SQLException if database error occurs
-     */
-    private String getLastInsertedMedicineId(Connection connection) throws SQLException {
-        String sql = "SELECT medicineId FROM medicine ORDER BY createdDate DESC LIMIT 1";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                ResultSet resultSet = preparedStatement.executeQuery()) {
-
-            if (resultSet.next()) {
-                return resultSet.getString("medicineId");
-            }
-        }
-
-        return null;
-    }
 }
\ No newline at end of file
@@ -5,20 +5,28 @@ import entity.Address;
 import entity.BloodType;
 import utility.HikariConnectionPool;
 import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 
 public class PatientDao extends DaoTemplate<Patient> {
-    private final AddressDao addressDao = new AddressDao();
+    private static final String SELECT_WITH_ADDRESS = "SELECT p.*, a.street, a.city, a.state, a.postalCode, a.country " +
+            "FROM patient p " +
+            "LEFT JOIN address a ON p.addressId = a.addressId";
 
     @Override
     public Patient findById(String patientId) throws SQLException {
-        String sql = "SELECT * FROM patient WHERE patientId = ?";
+        Patient cached = sessionInstance(patientId);
+        if (cached != null) {
+            return cached;
+        }
+        String sql = SELECT_WITH_ADDRESS + " WHERE p.patientId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
@@ -27,7 +35,7 @@ public class PatientDao extends DaoTemplate<Patient> {
             ResultSet resultSet = preparedStatement.executeQuery();
 
             if (resultSet.next()) {
-                return mapResultSet(resultSet);
+                return mapSessionRow(resultSet, "patientId");
             }
         } catch (SQLException e) {
             System.err.println("Error finding patient by ID: " + e.getMessage());
@@ -38,9 +46,16 @@ public class PatientDao extends DaoTemplate<Patient> {
     }
 
     public ArrayBucketList<String, Patient> findAll() throws SQLException {
+        ArrayBucketList<String, Patient> restored = copySessionTable(new ArrayBucketList<String, Patient>(),
+                Patient::getPatientId);
+        if (restored != null) {
+            return restored;
+        }
         ArrayBucketList<String, Patient> patients = new ArrayBucketList<String, Patient>();
-        String sql = "SELECT * FROM patient";
+        String sql = SELECT_WITH_ADDRESS;
 
+        // One session per load, so patients sharing an address share one Address
+        EntitySession.begin();
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
                 Statement statement = connection.createStatement()) {
 
@@ -49,7 +64,7 @@ public class PatientDao extends DaoTemplate<Patient> {
 
             try (ResultSet resultSet = statement.executeQuery(sql)) {
                 while (resultSet.next()) {
-                    Patient patient = mapResultSet(resultSet);
+                    Patient patient = mapSessionRow(resultSet, "patientId");
                     if (patient != null) {
                         patients.add(patient.getPatientId(), patient);
                     }
@@ -58,41 +73,64 @@ public class PatientDao extends DaoTemplate<Patient> {
         } catch (SQLException e) {
             System.err.println("Error finding all patients: " + e.getMessage());
             throw e;
+        } finally {
+            EntitySession.end();
         }
 
         return patients;
     }
 
+    /**
+     * Loads, in one query, the patients whose IDs the subquery returns and
+     * registers them in the open EntitySession
+     *
+     * @param idSubquery SQL returning patient IDs, built from constants only
+     * @return the loaded patients keyed by patient ID
+     */
+    ArrayBucketList<String, Patient> findAllWhereIdIn(String idSubquery) throws SQLException {
+        return findAllBySql(SELECT_WITH_ADDRESS + " WHERE p.patientId IN (" + idSubquery + ")", "patientId",
+                ArrayBucketListFactory.createForStringIds(256));
+    }
+
+    /**
+     * Patients whose row was modified at or after the given time, with their
+     * addresses resolved through the open EntitySession
+     *
+     * @param since lastModified lower bound
+     * @return the changed patients keyed by patient ID
+     */
+    ArrayBucketList<String, Patient> findAllChangedSince(Timestamp since) throws SQLException {
+        return findAllBySql(SELECT_WITH_ADDRESS + " WHERE p.lastModified >= ?", "patientId",
+                ArrayBucketListFactory.createForStringIds(64), since);
+    }
+
     @Override
     public boolean insertAndReturnId(Patient patient) throws SQLException {
-        String sql = "INSERT INTO patient (fullName, ICNumber, email, phoneNumber, " +
+        String sql = "INSERT INTO patient (patientId, fullName, ICNumber, email, phoneNumber, " +
                 "addressId, registrationDate, bloodType, allergies, emergencyContact, isActive) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                PreparedStatement preparedStatement = connection.prepareStatement(sql,
-                        Statement.RETURN_GENERATED_KEYS)) {
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
-            preparedStatement.setString(1, patient.getFullName());
-            preparedStatement.setString(2, patient.getICNumber());
-            preparedStatement.setString(3, patient.getEmail());
-            preparedStatement.setString(4, patient.getPhoneNumber());
-            preparedStatement.setString(5, patient.getAddress().getAddressId());
-            preparedStatement.setObject(6, patient.getRegistrationDate());
-            preparedStatement.setString(7, patient.getBloodType().name());
-            preparedStatement.setString(8, allergiesToString(patient.getAllergies()));
-            preparedStatement.setString(9, patient.getEmergencyContact());
-            preparedStatement.setBoolean(10, patient.isActive());
+            String patientId = IdAllocator.PATIENT.nextId(connection);
+            preparedStatement.setString(1, patientId);
+            preparedStatement.setString(2, patient.getFullName());
+            preparedStatement.setString(3, patient.getICNumber());
+            preparedStatement.setString(4, patient.getEmail());
+            preparedStatement.setString(5, patient.getPhoneNumber());
+            preparedStatement.setString(6, patient.getAddress().getAddressId());
+            preparedStatement.setObject(7, patient.getRegistrationDate());
+            preparedStatement.setString(8, patient.getBloodType().name());
+            preparedStatement.setString(9, allergiesToString(patient.getAllergies()));
+            preparedStatement.setString(10, patient.getEmergencyContact());
+            preparedStatement.setBoolean(11, patient.isActive());
 
             int affectedRows = preparedStatement.executeUpdate();
 
             if (affectedRows > 0) {
-                // Get the generated ID from the database
-                String generatedId = getLastInsertedPatientId(connection);
-                if (generatedId != null) {
-                    patient.setPatientId(generatedId);
-                    return true;
-                }
+                patient.setPatientId(patientId);
+                return true;
             }
 
             return false;
@@ -124,6 +162,9 @@ public class PatientDao extends DaoTemplate<Patient> {
             preparedStatement.setString(10, patient.getPatientId());
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                updateSessionInstance(patient.getPatientId(), patient);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error updating patient: " + e.getMessage());
@@ -141,6 +182,9 @@ public class PatientDao extends DaoTemplate<Patient> {
             preparedStatement.setString(1, patientId);
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                evictSessionInstance(patientId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting patient: " + e.getMessage());
@@ -151,9 +195,8 @@ public class PatientDao extends DaoTemplate<Patient> {
     @Override
     protected Patient mapResultSet(ResultSet resultSet) throws SQLException {
         try {
-            // Create Address object
-            String addressId = resultSet.getString("addressId");
-            Address address = addressDao.findById(addressId);
+            // Address columns come from the join
+            Address address = AddressDao.mapJoinedAddress(resultSet);
 
             // Parse allergies from string to ArrayList
             String allergies = parseAllergies(resultSet.getString("allergies"));
@@ -199,25 +242,4 @@ public class PatientDao extends DaoTemplate<Patient> {
         }
         return allergiesString.trim();
     }
-
-    /**
-     * Get the ID of the last inserted patient
-     * 
-     * @param connection The database connection
-     * @return The generated patient ID
-     * @throws SQLException if database error occurs
-     */
-    private String getLastInsertedPatientId(Connection connection) throws SQLException {
-        String sql = "SELECT patientId FROM patient ORDER BY createdDate DESC LIMIT 1";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                ResultSet resultSet = preparedStatement.executeQuery()) {
-
-            if (resultSet.next()) {
-                return resultSet.getString("patientId");
-            }
-        }
-
-        return null;
-    }
 }
\ No newline at end of file
@@ -7,12 +7,15 @@ import entity.Consultation;
 import entity.Medicine;
 import utility.HikariConnectionPool;
 import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
+import adt.IndexingUtility;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 
 /**
@@ -22,6 +25,11 @@ import java.time.LocalDate;
  */
 
 public class PrescriptionDao extends DaoTemplate<Prescription> {
+    private static final String INSERT_PRESCRIPTION_SQL = "INSERT INTO prescription (prescriptionId, patientId, doctorId, consultationId, " +
+            "prescriptionDate, instructions, expiryDate, status, totalCost, paymentStatus) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PRESCRIBED_MEDICINE_SQL = "INSERT INTO prescribed_medicine (prescribedMedicineId, prescriptionId, " +
+            "medicineId, quantity, dosage, frequency, duration, unitPrice) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
     private final PatientDao patientDao;
     private final DoctorDao doctorDao;
@@ -37,6 +45,10 @@ public class PrescriptionDao extends DaoTemplate<Prescription> {
 
     @Override
     public Prescription findById(String prescriptionId) throws SQLException {
+        Prescription cached = sessionInstance(prescriptionId);
+        if (cached != null) {
+            return cached;
+        }
         String sql = "SELECT * FROM prescription WHERE prescriptionId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -46,7 +58,7 @@ public class PrescriptionDao extends DaoTemplate<Prescription> {
             ResultSet resultSet = preparedStatement.executeQuery();
 
             if (resultSet.next()) {
-                Prescription prescription = mapResultSet(resultSet);
+                Prescription prescription = mapSessionRow(resultSet, "prescriptionId");
                 prescription.setPrescribedMedicines(findPrescribedMedicines(prescriptionId));
                 return prescription;
             }
@@ -61,58 +73,119 @@ public class PrescriptionDao extends DaoTemplate<Prescription> {
 
     @Override
     public ArrayBucketList<String, Prescription> findAll() throws SQLException {
-        ArrayBucketList<String, Prescription> prescriptions = new ArrayBucketList<>();
+        ArrayBucketList<String, Prescription> restored = copySessionTable(ArrayBucketListFactory.createIncremental(16),
+                Prescription::getPrescriptionId);
+        if (restored != null) {
+            return restored;
+        }
+        ArrayBucketList<String, Prescription> prescriptions = ArrayBucketListFactory.createIncremental(16);
         String sql = "SELECT * FROM prescription ORDER BY prescriptionDate DESC";
 
+        // Referenced rows are loaded set-based into the session first and the
+        // prescribed medicines in one pass, instead of one lookup per row
+        EntitySession.begin();
+        try {
+            patientDao.findAllWhereIdIn("SELECT patientId FROM prescription");
+            doctorDao.findAllWhereIdIn("SELECT doctorId FROM prescription");
+            consultationDao.findAllWhereIdIn("SELECT consultationId FROM prescription");
+            medicineDao.findAllWhereIdIn("SELECT medicineId FROM prescribed_medicine");
+            ArrayBucketList<String, ArrayBucketList<String, Prescription.PrescribedMedicine>> medicinesByPrescription =
+                    findAllPrescribedMedicinesByPrescription("");
+
+            findAllBySql(sql, "prescriptionId", prescriptions);
+            setPrescribedMedicines(prescriptions, medicinesByPrescription);
+        } catch (SQLException e) {
+            System.err.println("Error finding all prescriptions: " + e.getMessage());
+            throw e;
+        } finally {
+            EntitySession.end();
+        }
+
+        return prescriptions;
+    }
+
+    /**
+     * Prescriptions modified at or after the given time, or with a prescribed
+     * medicine added or changed since, each with all of its prescribed
+     * medicines
+     *
+     * @param since lastModified lower bound
+     * @return the changed prescriptions keyed by prescription ID
+     */
+    ArrayBucketList<String, Prescription> findAllChangedSince(Timestamp since) throws SQLException {
+        String changedIds = " IN (SELECT prescriptionId FROM prescription WHERE lastModified >= ? " +
+                "UNION SELECT prescriptionId FROM prescribed_medicine WHERE lastModified >= ?)";
+        ArrayBucketList<String, Prescription> prescriptions = ArrayBucketListFactory.createForStringIds(64);
+        EntitySession.begin();
+        try {
+            ArrayBucketList<String, ArrayBucketList<String, Prescription.PrescribedMedicine>> medicinesByPrescription =
+                    findAllPrescribedMedicinesByPrescription(" WHERE prescriptionId" + changedIds, since, since);
+            findAllBySql("SELECT * FROM prescription WHERE prescriptionId" + changedIds, "prescriptionId",
+                    prescriptions, since, since);
+            setPrescribedMedicines(prescriptions, medicinesByPrescription);
+        } finally {
+            EntitySession.end();
+        }
+        return prescriptions;
+    }
+
+    private void setPrescribedMedicines(ArrayBucketList<String, Prescription> prescriptions,
+            ArrayBucketList<String, ArrayBucketList<String, Prescription.PrescribedMedicine>> medicinesByPrescription) {
+        prescriptions.forEach((prescriptionId, prescription) -> {
+            ArrayBucketList<String, Prescription.PrescribedMedicine> prescribedMedicines =
+                    medicinesByPrescription.getValue(prescriptionId);
+            prescription.setPrescribedMedicines(
+                    prescribedMedicines != null ? prescribedMedicines : new ArrayBucketList<>());
+        });
+    }
+
+    /**
+     * Reads the prescribed medicines in one query, grouped by prescription
+     *
+     * @param where      WHERE clause built from constants, or "" for every row
+     * @param parameters values bound to the clause's ? placeholders
+     * @return prescribed medicines keyed by prescription ID, then by line ID
+     */
+    private ArrayBucketList<String, ArrayBucketList<String, Prescription.PrescribedMedicine>> findAllPrescribedMedicinesByPrescription(
+            String where, Object... parameters) throws SQLException {
+        ArrayBucketList<String, ArrayBucketList<String, Prescription.PrescribedMedicine>> medicinesByPrescription =
+                ArrayBucketListFactory.createForStringIds(256);
+        String sql = "SELECT * FROM prescribed_medicine" + where;
+
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                Statement statement = connection.createStatement();
-                ResultSet resultSet = statement.executeQuery(sql)) {
-
-            while (resultSet.next()) {
-                Prescription prescription = mapResultSet(resultSet);
-                prescription.setPrescribedMedicines(findPrescribedMedicines(prescription.getPrescriptionId()));
-                if (prescription != null) {
-                    prescriptions.add(prescription.getPrescriptionId(), prescription);
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            for (int index = 0; index < parameters.length; index++) {
+                preparedStatement.setObject(index + 1, parameters[index]);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    Prescription.PrescribedMedicine prescribedMedicine = mapPrescribedMedicineResultSet(resultSet);
+                    IndexingUtility.addToIndexGroup(medicinesByPrescription, prescribedMedicine.getPrescriptionId(),
+                            prescribedMedicine.getPrescribedMedicineId(), prescribedMedicine);
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error finding all prescriptions: " + e.getMessage());
+            System.err.println("Error finding prescribed medicines: " + e.getMessage());
             throw e;
         }
 
-        return prescriptions;
+        return medicinesByPrescription;
     }
 
     @Override
     public boolean insertAndReturnId(Prescription prescription) throws SQLException {
-        String sql = "INSERT INTO prescription (patientId, doctorId, consultationId, " +
-                "prescriptionDate, instructions, expiryDate, status, totalCost, paymentStatus) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                PreparedStatement preparedStatement = connection.prepareStatement(sql,
-                        Statement.RETURN_GENERATED_KEYS)) {
+                PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PRESCRIPTION_SQL)) {
 
-            preparedStatement.setString(1, prescription.getPatient().getPatientId());
-            preparedStatement.setString(2, prescription.getDoctor().getDoctorId());
-            preparedStatement.setString(3,
-                    prescription.getConsultation() != null ? prescription.getConsultation().getConsultationId() : null);
-            preparedStatement.setObject(4, prescription.getPrescriptionDate());
-            preparedStatement.setString(5, prescription.getInstructions());
-            preparedStatement.setObject(6, prescription.getExpiryDate());
-            preparedStatement.setString(7, prescription.getStatus().name());
-            preparedStatement.setDouble(8, prescription.getTotalCost());
-            preparedStatement.setString(9, prescription.getPaymentStatus().name());
+            String prescriptionId = IdAllocator.PRESCRIPTION.nextId(connection);
+            bindPrescription(preparedStatement, prescriptionId, prescription, prescription.getTotalCost());
 
             int affectedRows = preparedStatement.executeUpdate();
 
             if (affectedRows > 0) {
-                // Get the generated ID from the database
-                String generatedId = getLastInsertedPrescriptionId(connection);
-                if (generatedId != null) {
-                    prescription.setPrescriptionId(generatedId);
-                    return true;
-                }
+                prescription.setPrescriptionId(prescriptionId);
+                return true;
             }
 
             return false;
@@ -123,25 +196,19 @@ public class PrescriptionDao extends DaoTemplate<Prescription> {
         }
     }
 
-    /**
-     * Get the ID of the last inserted prescription
-     * 
-     * @param connection The database connection
-     * @return The generated prescription ID
-     * @throws SQLException if database error occurs
-     */
-    private String getLastInsertedPrescriptionId(Connection connection) throws SQLException {
-        String sql = "SELECT prescriptionId FROM prescription ORDER BY createdDate DESC LIMIT 1";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                ResultSet resultSet = preparedStatement.executeQuery()) {
-
-            if (resultSet.next()) {
-                return resultSet.getString("prescriptionId");
-            }
-        }
-
-        return null;
+    private void bindPrescription(PreparedStatement preparedStatement, String prescriptionId,
+            Prescription prescription, double totalCost) throws SQLException {
+        preparedStatement.setString(1, prescriptionId);
+        preparedStatement.setString(2, prescription.getPatient().getPatientId());
+        preparedStatement.setString(3, prescription.getDoctor().getDoctorId());
+        preparedStatement.setString(4,
+                prescription.getConsultation() != null ? prescription.getConsultation().getConsultationId() : null);
+        preparedStatement.setObject(5, prescription.getPrescriptionDate());
+        preparedStatement.setString(6, prescription.getInstructions());
+        preparedStatement.setObject(7, prescription.getExpiryDate());
+        preparedStatement.setString(8, prescription.getStatus().name());
+        preparedStatement.setDouble(9, totalCost);
+        preparedStatement.setString(10, prescription.getPaymentStatus().name());
     }
 
     @Override
@@ -166,6 +233,9 @@ public class PrescriptionDao extends DaoTemplate<Prescription> {
             preparedStatement.setString(10, prescription.getPrescriptionId());
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                updateSessionInstance(prescription.getPrescriptionId(), prescription);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error updating prescription: " + e.getMessage());
@@ -203,29 +273,18 @@ public class PrescriptionDao extends DaoTemplate<Prescription> {
 
     public boolean insertPrescribedMedicineAndReturnId(Prescription.PrescribedMedicine prescribedMedicine)
             throws SQLException {
-        String sql = "INSERT INTO prescribed_medicine (prescriptionId, medicineId, quantity, dosage, frequency, duration, unitPrice) VALUES (?, ?, ?, ?, ?, ?, ?)";
-
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                PreparedStatement preparedStatement = connection.prepareStatement(sql,
-                        Statement.RETURN_GENERATED_KEYS)) {
+                PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PRESCRIBED_MEDICINE_SQL)) {
 
-            preparedStatement.setString(1, prescribedMedicine.getPrescriptionId());
-            preparedStatement.setString(2, prescribedMedicine.getMedicine().getMedicineId());
-            preparedStatement.setInt(3, prescribedMedicine.getQuantity());
-            preparedStatement.setString(4, prescribedMedicine.getDosage());
-            preparedStatement.setString(5, prescribedMedicine.getFrequency());
-            preparedStatement.setInt(6, prescribedMedicine.getDuration());
-            preparedStatement.setDouble(7, prescribedMedicine.getMedicine().getUnitPrice());
+            String prescribedMedicineId = IdAllocator.PRESCRIBED_MEDICINE.nextId(connection);
+            bindPrescribedMedicine(preparedStatement, prescribedMedicineId, prescribedMedicine.getPrescriptionId(),
+                    prescribedMedicine);
 
             int affectedRows = preparedStatement.executeUpdate();
 
             if (affectedRows > 0) {
-                // Get the generated ID from the database
-                String generatedId = getLastInsertedPrescribedMedicineId(connection);
-                if (generatedId != null) {
-                    prescribedMedicine.setPrescribedMedicineId(generatedId);
-                    return true;
-                }
+                prescribedMedicine.setPrescribedMedicineId(prescribedMedicineId);
+                return true;
             }
 
             return false;
@@ -236,24 +295,269 @@ public class PrescriptionDao extends DaoTemplate<Prescription> {
     }
 
     /**
-     * Get the ID of the last inserted prescribed medicine
-     * 
-     * @param connection The database connection
-     * @return The generated prescribed medicine ID
-     * @throws SQLException if database error occurs
+     * Inserts a new prescription together with its medicine lines in one
+     * transaction: the prescription row, then all lines as one JDBC batch,
+     * which rewriteBatchedStatements sends as a single multi-row INSERT. IDs
+     * come from IdAllocator, so nothing is read back after the writes.
+     *
+     * On success the prescription and lines carry their new IDs and the lines
+     * are added to the prescription; on failure nothing is written and the
+     * objects are left unchanged.
+     *
+     * @param prescription        new prescription without an ID
+     * @param prescribedMedicines lines without IDs, may be empty
+     * @return true once everything is committed
+     */
+    public boolean insertWithPrescribedMedicines(Prescription prescription,
+            Prescription.PrescribedMedicine... prescribedMedicines) throws SQLException {
+        double totalCost = totalCostWith(prescription, prescribedMedicines);
+        String prescriptionId;
+        String[] prescribedMedicineIds;
+
+        try (Connection connection = HikariConnectionPool.getInstance().getConnection()) {
+            // Reserved before the transaction, so a rollback does not undo the reservation
+            prescriptionId = IdAllocator.PRESCRIPTION.nextId(connection);
+            prescribedMedicineIds = IdAllocator.PRESCRIBED_MEDICINE.nextIds(connection, prescribedMedicines.length);
+            connection.setAutoCommit(false);
+            try (PreparedStatement prescriptionStatement = connection.prepareStatement(INSERT_PRESCRIPTION_SQL)) {
+                bindPrescription(prescriptionStatement, prescriptionId, prescription, totalCost);
+                prescriptionStatement.executeUpdate();
+                insertPrescribedMedicineBatch(connection, prescriptionId, prescribedMedicineIds, prescribedMedicines);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error inserting prescription with medicines: " + e.getMessage());
+            throw e;
+        }
+
+        prescription.setPrescriptionId(prescriptionId);
+        attachPrescribedMedicines(prescription, prescribedMedicineIds, prescribedMedicines);
+        return true;
+    }
+
+    /**
+     * Adds medicine lines to an existing prescription in one transaction: all
+     * lines as one JDBC batch plus the prescription's new total cost.
+     *
+     * On success the lines carry their new IDs and are added to the
+     * prescription; on failure nothing is written.
+     *
+     * @param prescription        prescription already in the database
+     * @param prescribedMedicines lines without IDs
+     * @return true once everything is committed
      */
-    private String getLastInsertedPrescribedMedicineId(Connection connection) throws SQLException {
-        String sql = "SELECT prescribedMedicineId FROM prescribed_medicine ORDER BY createdDate DESC LIMIT 1";
+    public boolean insertPrescribedMedicines(Prescription prescription,
+            Prescription.PrescribedMedicine... prescribedMedicines) throws SQLException {
+        String prescriptionId = prescription.getPrescriptionId();
+        double totalCost = totalCostWith(prescription, prescribedMedicines);
+        String[] prescribedMedicineIds;
+
+        try (Connection connection = HikariConnectionPool.getInstance().getConnection()) {
+            prescribedMedicineIds = IdAllocator.PRESCRIBED_MEDICINE.nextIds(connection, prescribedMedicines.length);
+            connection.setAutoCommit(false);
+            try (PreparedStatement totalCostStatement = connection.prepareStatement(
+                    "UPDATE prescription SET totalCost = ? WHERE prescriptionId = ?")) {
+                insertPrescribedMedicineBatch(connection, prescriptionId, prescribedMedicineIds, prescribedMedicines);
+                totalCostStatement.setDouble(1, totalCost);
+                totalCostStatement.setString(2, prescriptionId);
+                if (totalCostStatement.executeUpdate() == 0) {
+                    throw new SQLException("Prescription not found: " + prescriptionId);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error inserting prescribed medicines: " + e.getMessage());
+            throw e;
+        }
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                ResultSet resultSet = preparedStatement.executeQuery()) {
+        attachPrescribedMedicines(prescription, prescribedMedicineIds, prescribedMedicines);
+        return true;
+    }
 
-            if (resultSet.next()) {
-                return resultSet.getString("prescribedMedicineId");
+    private void insertPrescribedMedicineBatch(Connection connection, String prescriptionId,
+            String[] prescribedMedicineIds, Prescription.PrescribedMedicine[] prescribedMedicines) throws SQLException {
+        if (prescribedMedicines.length == 0) {
+            return;
+        }
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PRESCRIBED_MEDICINE_SQL)) {
+            for (int index = 0; index < prescribedMedicines.length; index++) {
+                bindPrescribedMedicine(preparedStatement, prescribedMedicineIds[index], prescriptionId,
+                        prescribedMedicines[index]);
+                preparedStatement.addBatch();
             }
+            for (int affectedRows : preparedStatement.executeBatch()) {
+                if (affectedRows == Statement.EXECUTE_FAILED) {
+                    throw new SQLException("Prescribed medicine batch insert failed");
+                }
+            }
+        }
+    }
+
+    private void bindPrescribedMedicine(PreparedStatement preparedStatement, String prescribedMedicineId,
+            String prescriptionId, Prescription.PrescribedMedicine prescribedMedicine) throws SQLException {
+        preparedStatement.setString(1, prescribedMedicineId);
+        preparedStatement.setString(2, prescriptionId);
+        preparedStatement.setString(3, prescribedMedicine.getMedicine().getMedicineId());
+        preparedStatement.setInt(4, prescribedMedicine.getQuantity());
+        preparedStatement.setString(5, prescribedMedicine.getDosage());
+        preparedStatement.setString(6, prescribedMedicine.getFrequency());
+        preparedStatement.setInt(7, prescribedMedicine.getDuration());
+        preparedStatement.setDouble(8, prescribedMedicine.getMedicine().getUnitPrice());
+    }
+
+    /**
+     * Total cost the prescription has once the new lines are added, summed the
+     * way Prescription recalculates it
+     */
+    private double totalCostWith(Prescription prescription, Prescription.PrescribedMedicine[] prescribedMedicines) {
+        double totalCost = 0.0;
+        for (Prescription.PrescribedMedicine prescribedMedicine : prescription.getPrescribedMedicines()) {
+            totalCost += prescribedMedicine.getTotalCost();
         }
+        for (Prescription.PrescribedMedicine prescribedMedicine : prescribedMedicines) {
+            totalCost += prescribedMedicine.getTotalCost();
+        }
+        return totalCost;
+    }
 
-        return null;
+    private void attachPrescribedMedicines(Prescription prescription, String[] prescribedMedicineIds,
+            Prescription.PrescribedMedicine[] prescribedMedicines) {
+        for (int index = 0; index < prescribedMedicines.length; index++) {
+            prescribedMedicines[index].setPrescribedMedicineId(prescribedMedicineIds[index]);
+            prescribedMedicines[index].setPrescriptionId(prescription.getPrescriptionId());
+            prescription.addPrescribedMedicine(prescribedMedicines[index]);
+        }
+    }
+
+    /**
+     * Dispenses a prescription in one short transaction on one connection:
+     * every medicine's stock is lowered by a conditional decrement
+     * ("quantityInStock = quantityInStock - ? WHERE quantityInStock >= ?"),
+     * sent as one batch, and the prescription moves from ACTIVE to DISPENSED
+     * and PAID. Quantities of repeated medicines are summed first, and rows
+     * are locked in medicine ID order so concurrent dispenses cannot
+     * deadlock. A decrement that matches no row (not enough stock), or a
+     * prescription no longer ACTIVE, rolls the whole dispense back.
+     *
+     * @param prescription the prescription to dispense; it is not modified
+     * @return stock left per medicine ID after the dispense, or null if it
+     *         was rolled back for lack of stock or a changed status
+     */
+    public ArrayBucketList<String, Integer> dispense(Prescription prescription) throws SQLException {
+        WriteBehindBuffer.flush();
+        ArrayBucketList<String, Integer> quantitiesByMedicine = ArrayBucketListFactory.createForStringIds(16);
+        for (Prescription.PrescribedMedicine prescribedMedicine : prescription.getPrescribedMedicines()) {
+            String medicineId = prescribedMedicine.getMedicine().getMedicineId();
+            Integer quantity = quantitiesByMedicine.getValue(medicineId);
+            quantitiesByMedicine.add(medicineId, (quantity != null ? quantity : 0) + prescribedMedicine.getQuantity());
+        }
+        String[] medicineIds = new String[quantitiesByMedicine.getSize()];
+        int[] count = { 0 };
+        quantitiesByMedicine.forEach((medicineId, quantity) -> medicineIds[count[0]++] = medicineId);
+        java.util.Arrays.sort(medicineIds);
+
+        try (Connection connection = HikariConnectionPool.getInstance().getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                ArrayBucketList<String, Integer> stockLeft = null;
+                if (decrementStock(connection, medicineIds, quantitiesByMedicine)
+                        && markDispensed(connection, prescription.getPrescriptionId())) {
+                    stockLeft = readStock(connection, medicineIds);
+                }
+                if (stockLeft != null) {
+                    connection.commit();
+                } else {
+                    connection.rollback();
+                }
+                return stockLeft;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error dispensing prescription: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private boolean decrementStock(Connection connection, String[] medicineIds,
+            ArrayBucketList<String, Integer> quantitiesByMedicine) throws SQLException {
+        if (medicineIds.length == 0) {
+            return true;
+        }
+        String sql = "UPDATE medicine SET quantityInStock = quantityInStock - ? " +
+                "WHERE medicineId = ? AND quantityInStock >= ?";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            for (String medicineId : medicineIds) {
+                int quantity = quantitiesByMedicine.getValue(medicineId);
+                preparedStatement.setInt(1, quantity);
+                preparedStatement.setString(2, medicineId);
+                preparedStatement.setInt(3, quantity);
+                preparedStatement.addBatch();
+            }
+            int[] affectedRows = preparedStatement.executeBatch();
+            for (int index = 0; index < affectedRows.length; index++) {
+                if (affectedRows[index] == 0 || affectedRows[index] == Statement.EXECUTE_FAILED) {
+                    System.err.println("Insufficient stock for medicine: " + medicineIds[index]);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private boolean markDispensed(Connection connection, String prescriptionId) throws SQLException {
+        String sql = "UPDATE prescription SET status = ?, paymentStatus = ? WHERE prescriptionId = ? AND status = ?";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, Prescription.PrescriptionStatus.DISPENSED.name());
+            preparedStatement.setString(2, Prescription.PaymentStatus.PAID.name());
+            preparedStatement.setString(3, prescriptionId);
+            preparedStatement.setString(4, Prescription.PrescriptionStatus.ACTIVE.name());
+            if (preparedStatement.executeUpdate() == 0) {
+                System.err.println("Prescription is no longer active: " + prescriptionId);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private ArrayBucketList<String, Integer> readStock(Connection connection, String[] medicineIds)
+            throws SQLException {
+        ArrayBucketList<String, Integer> stockLeft = ArrayBucketListFactory.createForStringIds(16);
+        if (medicineIds.length == 0) {
+            return stockLeft;
+        }
+        StringBuilder sql = new StringBuilder("SELECT medicineId, quantityInStock FROM medicine WHERE medicineId IN (?");
+        for (int index = 1; index < medicineIds.length; index++) {
+            sql.append(", ?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql.toString())) {
+            for (int index = 0; index < medicineIds.length; index++) {
+                preparedStatement.setString(index + 1, medicineIds[index]);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    stockLeft.add(resultSet.getString("medicineId"), resultSet.getInt("quantityInStock"));
+                }
+            }
+        }
+        return stockLeft;
     }
 
     public boolean updatePrescribedMedicine(Prescription prescription,
@@ -308,6 +612,9 @@ public class PrescriptionDao extends DaoTemplate<Prescription> {
             preparedStatement.setString(1, prescriptionId);
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                evictSessionInstance(prescriptionId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting prescription: " + e.getMessage());
@@ -16,6 +16,10 @@ public class ScheduleDao extends DaoTemplate<Schedule> {
 
     @Override
     public Schedule findById(String scheduleId) throws SQLException {
+        Schedule cached = sessionInstance(scheduleId);
+        if (cached != null) {
+            return cached;
+        }
         String sql = "SELECT * FROM schedule WHERE scheduleId = ?";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
@@ -25,7 +29,7 @@ public class ScheduleDao extends DaoTemplate<Schedule> {
             ResultSet resultSet = preparedStatement.executeQuery();
 
             if (resultSet.next()) {
-                return mapResultSet(resultSet);
+                return mapSessionRow(resultSet, "scheduleId");
             }
         } catch (SQLException e) {
             System.err.println("Error finding schedule by ID: " + e.getMessage());
@@ -45,7 +49,7 @@ public class ScheduleDao extends DaoTemplate<Schedule> {
                 ResultSet resultSet = statement.executeQuery(sql)) {
 
             while (resultSet.next()) {
-                Schedule schedule = mapResultSet(resultSet);
+                Schedule schedule = mapSessionRow(resultSet, "scheduleId");
                 if (schedule != null) {
                     schedules.add(schedule.getScheduleId(), schedule);
                 }
@@ -69,7 +73,7 @@ public class ScheduleDao extends DaoTemplate<Schedule> {
             preparedStatement.setString(1, doctorId);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 while (resultSet.next()) {
-                    Schedule schedule = mapResultSet(resultSet);
+                    Schedule schedule = mapSessionRow(resultSet, "scheduleId");
                     if (schedule != null) {
                         schedules.add(schedule.getScheduleId(), schedule);
                     }
@@ -85,28 +89,25 @@ public class ScheduleDao extends DaoTemplate<Schedule> {
 
     @Override
     public boolean insertAndReturnId(Schedule schedule) throws SQLException {
-        String sql = "INSERT INTO schedule (doctorId, dayOfWeek, fromTime, toTime, isAvailable) " +
-                "VALUES (?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO schedule (scheduleId, doctorId, dayOfWeek, fromTime, toTime, isAvailable) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
 
         try (Connection connection = HikariConnectionPool.getInstance().getConnection();
-                PreparedStatement preparedStatement = connection.prepareStatement(sql,
-                        Statement.RETURN_GENERATED_KEYS)) {
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
-            preparedStatement.setString(1, schedule.getDoctorId());
-            preparedStatement.setString(2, schedule.getDayOfWeek().name());
-            preparedStatement.setTime(3, Time.valueOf(schedule.getFromTime()));
-            preparedStatement.setTime(4, Time.valueOf(schedule.getToTime()));
-            preparedStatement.setBoolean(5, schedule.isAvailable());
+            String scheduleId = IdAllocator.SCHEDULE.nextId(connection);
+            preparedStatement.setString(1, scheduleId);
+            preparedStatement.setString(2, schedule.getDoctorId());
+            preparedStatement.setString(3, schedule.getDayOfWeek().name());
+            preparedStatement.setTime(4, Time.valueOf(schedule.getFromTime()));
+            preparedStatement.setTime(5, Time.valueOf(schedule.getToTime()));
+            preparedStatement.setBoolean(6, schedule.isAvailable());
 
             int affectedRows = preparedStatement.executeUpdate();
 
             if (affectedRows > 0) {
-                // Get the generated ID from the database
-                String generatedId = getLastInsertedScheduleId(connection);
-                if (generatedId != null) {
-                    schedule.setScheduleId(generatedId);
-                    return true;
-                }
+                schedule.setScheduleId(scheduleId);
+                return true;
             }
 
             return false;
@@ -133,6 +134,9 @@ public class ScheduleDao extends DaoTemplate<Schedule> {
             preparedStatement.setString(6, schedule.getScheduleId());
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                updateSessionInstance(schedule.getScheduleId(), schedule);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error updating schedule: " + e.getMessage());
@@ -150,6 +154,9 @@ public class ScheduleDao extends DaoTemplate<Schedule> {
             preparedStatement.setString(1, scheduleId);
 
             int affectedRows = preparedStatement.executeUpdate();
+            if (affectedRows > 0) {
+                evictSessionInstance(scheduleId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting schedule: " + e.getMessage());
@@ -189,25 +196,4 @@ public class ScheduleDao extends DaoTemplate<Schedule> {
             throw e;
         }
     }
-
-    /**
-     * Get the ID of the last inserted schedule
-     * 
-     * @param connection The database connection
-     * @return The generated schedule ID
-     * @throws SQLException if database error occurs
-     */
-    private String getLastInsertedScheduleId(Connection connection) throws SQLException {
-        String sql = "SELECT scheduleId FROM schedule ORDER BY createdDate DESC LIMIT 1";
-
-        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                ResultSet resultSet = preparedStatement.executeQuery()) {
-
-            if (resultSet.next()) {
-                return resultSet.getString("scheduleId");
-            }
-        }
-
-        return null;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,430 @@
+package dao;
+
+import adt.ArrayBucketList;
+import adt.ArrayBucketListFactory;
+import utility.HikariConnectionPool;
+import utility.QuickSort;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WriteBehindBuffer - Optional write-behind layer for the high-frequency
+ * status updates (consultation, treatment and medicine status). Stock
+ * changes are not buffered: a queued absolute quantity could overwrite a
+ * dispense's conditional decrement made in the meantime, so they are always
+ * written synchronously.
+ *
+ * When enabled, those DAO updates return as soon as the change is appended
+ * to a local log file and forced to disk; the controls have already applied
+ * it to their in-memory indices. A background flusher writes the queued
+ * changes to MySQL every flush interval, in one transaction of batched
+ * UPDATEs. Changes to the same row and columns are coalesced, so only the
+ * last status of a row is written. Changes still queued when the program
+ * exits are drained by a shutdown hook, and a log left behind by a crash is
+ * replayed on the next start.
+ *
+ * Ordering rule: a queued change must never be overtaken by a later write
+ * of the same row, nor hidden from a read that depends on it. So flush() is
+ * called first by bulk loads (opening an EntitySession), by every other
+ * write to the buffered tables, by dispensing, and by the reads that filter
+ * or report on a buffered status column outside a session.
+ *
+ * A flush writes the queue as one transaction. If that fails, the changes
+ * are retried one at a time in queue order: a change that fails for a
+ * transient reason (lost connection, lock timeout, deadlock) stays queued,
+ * and one the database rejects outright is logged and dropped, so a single
+ * bad row cannot block every later flush.
+ *
+ * Disabled by default. Enable it with enable(...) or by starting the JVM
+ * with -Dclinic.writeBehind.flushMillis=500 (and optionally
+ * -Dclinic.writeBehind.log=path/to/file.log).
+ */
+public final class WriteBehindBuffer {
+
+    /**
+     * The buffered statements; the row ID is always the last parameter
+     */
+    enum Kind {
+        CONSULTATION_STATUS("UPDATE consultation SET status = ? WHERE consultationId = ?"),
+        TREATMENT_STATUS("UPDATE medical_treatment SET status = ?, paymentStatus = ? WHERE treatmentId = ?"),
+        MEDICINE_STATUS("UPDATE medicine SET status = ? WHERE medicineId = ?");
+
+        private final String sql;
+
+        Kind(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Log field for a null value; status values never contain a backslash
+     */
+    private static final String NULL_FIELD = "\\N";
+
+    private static final class PendingWrite {
+        private final Kind kind;
+        private final String id;
+        private final String[] values;
+        private final long sequence;
+
+        private PendingWrite(Kind kind, String id, String[] values, long sequence) {
+            this.kind = kind;
+            this.id = id;
+            this.values = values;
+            this.sequence = sequence;
+        }
+
+        private String key() {
+            return kind.name() + '|' + id;
+        }
+
+        private String toLogLine() {
+            StringBuilder line = new StringBuilder(kind.name()).append('\t').append(id);
+            for (String value : values) {
+                line.append('\t').append(value == null ? NULL_FIELD : value);
+            }
+            return line.append('\n').toString();
+        }
+    }
+
+    public static final String FLUSH_MILLIS_PROPERTY = "clinic.writeBehind.flushMillis";
+    public static final String LOG_FILE_PROPERTY = "clinic.writeBehind.log";
+
+    private static final Object flushLock = new Object();
+    // Everything below is guarded by WriteBehindBuffer.class
+    private static ArrayBucketList<String, PendingWrite> pending = ArrayBucketListFactory.createForStringIds(64);
+    private static long nextSequence;
+    private static FileChannel log;
+    private static ScheduledExecutorService flusher;
+    private static boolean shutdownHookAdded;
+    private static volatile boolean enabled; // new updates are queued
+    private static volatile boolean logOpen; // queued updates may exist
+
+    static {
+        String flushMillis = System.getProperty(FLUSH_MILLIS_PROPERTY);
+        if (flushMillis != null) {
+            try {
+                enable(Long.parseLong(flushMillis.trim()),
+                        Paths.get(System.getProperty(LOG_FILE_PROPERTY, "write-behind.log")));
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid " + FLUSH_MILLIS_PROPERTY + ": " + flushMillis);
+            }
+        }
+    }
+
+    private WriteBehindBuffer() {}
+
+    /**
+     * Turns write-behind on. Changes left in the log by an earlier run are
+     * queued again and written on the first flush.
+     *
+     * @param flushIntervalMillis time between background flushes
+     * @param logFile             local log the queued changes are appended to
+     */
+    public static synchronized void enable(long flushIntervalMillis, Path logFile) {
+        if (enabled) {
+            return;
+        }
+        if (flushIntervalMillis <= 0) {
+            System.err.println("Write-behind flush interval must be positive: " + flushIntervalMillis);
+            return;
+        }
+        try {
+            log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            logOpen = true;
+            replay(logFile);
+        } catch (IOException e) {
+            System.err.println("Error opening write-behind log: " + e.getMessage());
+            closeLog();
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(WriteBehindBuffer::flush, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(WriteBehindBuffer::shutdown, "write-behind-drain"));
+            shutdownHookAdded = true;
+        }
+        enabled = true;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Number of changes waiting to be written
+     */
+    public static synchronized int getPendingCount() {
+        return pending.getSize();
+    }
+
+    /**
+     * Stops the flusher and drains the queue. Later updates are written
+     * synchronously again. If the final flush fails, the changes stay in the
+     * log and are replayed on the next enable.
+     */
+    public static void shutdown() {
+        ScheduledExecutorService stopping;
+        synchronized (WriteBehindBuffer.class) {
+            if (!enabled) {
+                return;
+            }
+            enabled = false;
+            stopping = flusher;
+            flusher = null;
+        }
+        stopping.shutdown();
+        try {
+            stopping.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushPending();
+        synchronized (WriteBehindBuffer.class) {
+            closeLog();
+        }
+    }
+
+    /**
+     * Writes every queued change now. Cheap when nothing is queued.
+     */
+    public static void flush() {
+        if (logOpen) {
+            flushPending();
+        }
+    }
+
+    /**
+     * Queues an update if write-behind is enabled, replacing a queued update
+     * of the same kind for the same row
+     *
+     * @param kind   the statement to run
+     * @param id     the row ID
+     * @param values the statement's values before the ID
+     * @return true if the update was queued; false if the caller must write
+     *         it itself
+     */
+    static synchronized boolean enqueue(Kind kind, String id, String... values) {
+        if (!enabled || id == null) {
+            return false;
+        }
+        PendingWrite write = new PendingWrite(kind, id, values, nextSequence++);
+        try {
+            log.write(ByteBuffer.wrap(write.toLogLine().getBytes(StandardCharsets.UTF_8)));
+            log.force(false);
+        } catch (IOException e) {
+            System.err.println("Error appending to write-behind log: " + e.getMessage());
+            return false;
+        }
+        pending.add(write.key(), write);
+        return true;
+    }
+
+    private static void flushPending() {
+        synchronized (flushLock) {
+            ArrayBucketList<String, PendingWrite> batch;
+            synchronized (WriteBehindBuffer.class) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = ArrayBucketListFactory.createForStringIds(64);
+            }
+            PendingWrite[] writes = batch.toArray(PendingWrite.class);
+            QuickSort.sort(writes, (first, second) -> Long.compare(first.sequence, second.sequence));
+
+            PendingWrite[] unwritten;
+            try {
+                unwritten = writeAll(writes);
+            } catch (RuntimeException e) {
+                // e.g. the pool could not be created; keep the writes and the flusher alive
+                System.err.println("Error flushing write-behind buffer: " + e.getMessage());
+                unwritten = writes;
+            }
+            synchronized (WriteBehindBuffer.class) {
+                // Keep the unwritten changes unless a newer change to the row was queued meanwhile
+                for (PendingWrite write : unwritten) {
+                    if (!pending.contains(write.key())) {
+                        pending.add(write.key(), write);
+                    }
+                }
+                rewriteLog();
+            }
+        }
+    }
+
+    /**
+     * Writes the changes in queue order, in one transaction if possible and
+     * otherwise one at a time
+     *
+     * @return the changes that could not be written yet and must stay queued
+     */
+    private static PendingWrite[] writeAll(PendingWrite[] writes) {
+        try (Connection connection = HikariConnectionPool.getInstance().getConnection()) {
+            try {
+                writeBatched(connection, writes);
+                return new PendingWrite[0];
+            } catch (SQLException e) {
+                if (isTransient(e)) {
+                    System.err.println("Error flushing write-behind buffer: " + e.getMessage());
+                    return writes;
+                }
+                System.err.println("Error flushing write-behind buffer, retrying row by row: " + e.getMessage());
+            }
+            return writeOneByOne(connection, writes);
+        } catch (SQLException e) {
+            System.err.println("Error flushing write-behind buffer: " + e.getMessage());
+            return writes;
+        }
+    }
+
+    /**
+     * Writes every change in one transaction, batching each run of the same
+     * statement; nothing is written if any statement fails
+     */
+    private static void writeBatched(Connection connection, PendingWrite[] writes) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            int start = 0;
+            while (start < writes.length) {
+                Kind kind = writes[start].kind;
+                int end = start;
+                try (PreparedStatement preparedStatement = connection.prepareStatement(kind.sql)) {
+                    while (end < writes.length && writes[end].kind == kind) {
+                        bind(preparedStatement, writes[end]);
+                        preparedStatement.addBatch();
+                        end++;
+                    }
+                    preparedStatement.executeBatch();
+                }
+                start = end;
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Writes each change on its own; a change the database rejects is logged
+     * and dropped
+     *
+     * @return the changes that failed for a transient reason
+     */
+    private static PendingWrite[] writeOneByOne(Connection connection, PendingWrite[] writes) {
+        PendingWrite[] unwritten = new PendingWrite[writes.length];
+        int unwrittenCount = 0;
+        for (PendingWrite write : writes) {
+            try (PreparedStatement preparedStatement = connection.prepareStatement(write.kind.sql)) {
+                bind(preparedStatement, write);
+                preparedStatement.executeUpdate();
+            } catch (SQLException e) {
+                if (isTransient(e)) {
+                    unwritten[unwrittenCount++] = write;
+                } else {
+                    System.err.println("Dropping write-behind update " + write.toLogLine().trim() + ": "
+                            + e.getMessage());
+                }
+            }
+        }
+        return java.util.Arrays.copyOf(unwritten, unwrittenCount);
+    }
+
+    private static void bind(PreparedStatement preparedStatement, PendingWrite write) throws SQLException {
+        String[] values = write.values;
+        for (int index = 0; index < values.length; index++) {
+            preparedStatement.setString(index + 1, values[index]); // null binds SQL NULL
+        }
+        preparedStatement.setString(values.length + 1, write.id);
+    }
+
+    /**
+     * Whether retrying later may succeed: lost connections, lock timeouts and
+     * deadlocks, as opposed to constraint or data errors
+     */
+    private static boolean isTransient(SQLException e) {
+        String sqlState = e.getSQLState();
+        return e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || (sqlState != null && sqlState.startsWith("08"));
+    }
+
+    /**
+     * Replaces the log with the changes still queued, in queue order
+     */
+    private static void rewriteLog() {
+        if (log == null) {
+            return;
+        }
+        PendingWrite[] writes = pending.toArray(PendingWrite.class);
+        QuickSort.sort(writes, (first, second) -> Long.compare(first.sequence, second.sequence));
+        StringBuilder lines = new StringBuilder();
+        for (PendingWrite write : writes) {
+            lines.append(write.toLogLine());
+        }
+        try {
+            log.truncate(0);
+            log.write(ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+            log.force(false);
+        } catch (IOException e) {
+            System.err.println("Error compacting write-behind log: " + e.getMessage());
+        }
+    }
+
+    private static void replay(Path logFile) throws IOException {
+        for (String line : Files.readAllLines(logFile, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length < 2) {
+                continue;
+            }
+            try {
+                Kind kind = Kind.valueOf(fields[0]);
+                String[] values = new String[fields.length - 2];
+                for (int index = 0; index < values.length; index++) {
+                    String field = fields[index + 2];
+                    values[index] = NULL_FIELD.equals(field) ? null : field;
+                }
+                PendingWrite write = new PendingWrite(kind, fields[1], values, nextSequence++);
+                pending.add(write.key(), write);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Skipping unreadable write-behind log line: " + line);
+            }
+        }
+        rewriteLog();
+    }
+
+    private static void closeLog() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Error closing write-behind log: " + e.getMessage());
+            }
+            log = null;
+        }
+        logOpen = false;
+    }
+}
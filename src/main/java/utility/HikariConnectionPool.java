@@ -6,6 +6,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 
 public class HikariConnectionPool {
+    public static final int MAXIMUM_POOL_SIZE = 20;
     private static HikariConnectionPool instance;
     private final HikariDataSource dataSource;
 
@@ -19,7 +20,7 @@ public class HikariConnectionPool {
         config.setDriverClassName("com.mysql.cj.jdbc.Driver");
 
         // Pool configuration
-        config.setMaximumPoolSize(20);
+        config.setMaximumPoolSize(MAXIMUM_POOL_SIZE);
         config.setMinimumIdle(5);
         config.setConnectionTimeout(30000); // 30 seconds
         config.setIdleTimeout(600000); // 10 minutes